@@ -0,0 +1,137 @@
+package com.example.dimitra.shopapp;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+
+import com.example.dimitra.shopapp.Data.ProductContract;
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reports to logcat how long {@link CatalogActivity} takes from being started to showing its
+ * first product row, with and without the rows stored by {@link CatalogSnapshotStore}.
+ *
+ * The process and the database are already up when the activity starts, so this measures the
+ * part of a cold start the snapshot replaces, not a whole cold start.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CatalogStartupBenchmark {
+
+    private static final String LOG_TAG = CatalogStartupBenchmark.class.getSimpleName();
+
+    private static final String NAME_PREFIX = "startup benchmark ";
+
+    private static final int PRODUCTS = 5000;
+
+    private static final int RUNS = 5;
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private Instrumentation mInstrumentation;
+
+    private Context mContext;
+
+    private CatalogSnapshotStore mStore;
+
+    @Before
+    public void setUp() {
+        mInstrumentation = InstrumentationRegistry.getInstrumentation();
+        mContext = InstrumentationRegistry.getTargetContext();
+        // Only used to clear the stored rows, so the columns don't matter.
+        mStore = new CatalogSnapshotStore(mContext, new String[]{ProductEntry._ID});
+        deleteTestProducts();
+
+        ContentValues[] values = new ContentValues[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            values[i] = new ContentValues();
+            values[i].put(ProductEntry.COLUMN_PRODUCT_NAME, NAME_PREFIX + i);
+            values[i].put(ProductEntry.COLUMN_PRODUCT_PRICE, i % 10000);
+            values[i].put(ProductEntry.COLUMN_PRODUCT_QUANTITY, i % 50);
+            values[i].put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, "supplier " + (i % 100));
+            values[i].put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, 1000 + i % 100);
+        }
+        mContext.getContentResolver().bulkInsert(ProductEntry.CONTENT_URI, values);
+    }
+
+    @After
+    public void tearDown() {
+        deleteTestProducts();
+        mStore.clear();
+    }
+
+    @Test
+    public void timeToFirstProductRow() {
+        long[] withoutSnapshot = new long[RUNS];
+        long[] withSnapshot = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            mStore.clear();
+            withoutSnapshot[run] = measureStart();
+            // The load of the run above stored the first rows again.
+            withSnapshot[run] = measureStart();
+        }
+        Arrays.sort(withoutSnapshot);
+        Arrays.sort(withSnapshot);
+        Log.i(LOG_TAG, "First product row after " + withoutSnapshot[RUNS / 2] + " ms without the snapshot, "
+                + withSnapshot[RUNS / 2] + " ms with it (median of " + RUNS + ")");
+    }
+
+    /**
+     * Start the catalog, wait until it shows a product row, and finish it again. Return the time
+     * in milliseconds from the start to the first row.
+     */
+    private long measureStart() {
+        Intent intent = new Intent(mContext, CatalogActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        long start = SystemClock.uptimeMillis();
+        final Activity catalog = mInstrumentation.startActivitySync(intent);
+        final RecyclerView list = catalog.findViewById(R.id.list);
+        final boolean[] shown = new boolean[1];
+        long elapsed;
+        do {
+            mInstrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    shown[0] = list.getChildCount() > 0;
+                }
+            });
+            elapsed = SystemClock.uptimeMillis() - start;
+            if (shown[0]) {
+                break;
+            }
+            SystemClock.sleep(1);
+        } while (elapsed < TIMEOUT_MILLIS);
+        assertTrue("No product row shown", shown[0]);
+
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                catalog.finish();
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+        return elapsed;
+    }
+
+    private void deleteTestProducts() {
+        mContext.getContentResolver().delete(ProductEntry.CONTENT_URI,
+                ProductEntry.COLUMN_PRODUCT_NAME + " LIKE ?", new String[]{NAME_PREFIX + "%"});
+        mContext.getContentResolver().call(ProductEntry.CONTENT_URI, ProductContract.METHOD_PURGE_DELETED,
+                null, null);
+    }
+}
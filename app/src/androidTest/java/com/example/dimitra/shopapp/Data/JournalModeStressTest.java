@@ -0,0 +1,223 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs several readers against one writer, once with write-ahead logging and once with the
+ * legacy rollback journal, and reports the p50/p99 read latency of each to logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class JournalModeStressTest {
+
+    private static final String LOG_TAG = JournalModeStressTest.class.getSimpleName();
+
+    private static final String DATABASE = "journal-stress.db";
+
+    private static final int PRODUCTS = 20000;
+
+    private static final int READERS = 4;
+
+    private static final int READS_PER_READER = 2000;
+
+    private static final int WRITES_PER_TRANSACTION = 200;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mContext.deleteDatabase(DATABASE);
+    }
+
+    @After
+    public void tearDown() {
+        mContext.deleteDatabase(DATABASE);
+    }
+
+    @Test
+    public void walKeepsReadsFastWhileWriting() throws Exception {
+        long[] wal = measureReadLatencies(DatabaseConfig.DEFAULT);
+        mContext.deleteDatabase(DATABASE);
+        long[] legacy = measureReadLatencies(DatabaseConfig.LEGACY);
+
+        Log.i(LOG_TAG, "WAL: p50 " + percentile(wal, 50) / 1000 + " us, p99 "
+                + percentile(wal, 99) / 1000 + " us");
+        Log.i(LOG_TAG, "legacy: p50 " + percentile(legacy, 50) / 1000 + " us, p99 "
+                + percentile(legacy, 99) / 1000 + " us");
+    }
+
+    @Test
+    public void configIsAppliedWhenOpened() {
+        ProductDbHelper helper = new ProductDbHelper(mContext, DATABASE,
+                new DatabaseConfig(true, 500, 1024, DatabaseConfig.SYNCHRONOUS_NORMAL));
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            assertEquals("wal", pragma(db, "journal_mode"));
+            assertEquals("500", pragma(db, "wal_autocheckpoint"));
+            assertEquals("-1024", pragma(db, "cache_size"));
+            // NORMAL
+            assertEquals("1", pragma(db, "synchronous"));
+        } finally {
+            helper.close();
+        }
+
+        helper = new ProductDbHelper(mContext, DATABASE, DatabaseConfig.LEGACY);
+        try {
+            assertFalse("wal".equals(pragma(helper.getWritableDatabase(), "journal_mode")));
+        } finally {
+            helper.close();
+        }
+    }
+
+    /**
+     * Read random products on {@link #READERS} threads while another thread keeps updating
+     * quantities, and return the sorted latency of every read in nanoseconds.
+     */
+    private long[] measureReadLatencies(DatabaseConfig config) throws Exception {
+        final ProductDbHelper helper = new ProductDbHelper(mContext, DATABASE, config);
+        try {
+            final SQLiteDatabase db = helper.getWritableDatabase();
+            insertProducts(db);
+
+            final AtomicBoolean done = new AtomicBoolean();
+            final CountDownLatch start = new CountDownLatch(1);
+            final long[][] latencies = new long[READERS][READS_PER_READER];
+            Thread[] readers = new Thread[READERS];
+            for (int r = 0; r < READERS; r++) {
+                final long[] readerLatencies = latencies[r];
+                final Random random = new Random(r);
+                readers[r] = new Thread() {
+                    @Override
+                    public void run() {
+                        awaitQuietly(start);
+                        for (int i = 0; i < readerLatencies.length; i++) {
+                            String id = String.valueOf(1 + random.nextInt(PRODUCTS));
+                            long begin = System.nanoTime();
+                            Cursor cursor = helper.getReadableDatabase().query(
+                                    ProductEntry.DETAILS_VIEW_NAME, null, ProductEntry._ID + "=?",
+                                    new String[]{id}, null, null, null);
+                            try {
+                                cursor.moveToFirst();
+                            } finally {
+                                cursor.close();
+                            }
+                            readerLatencies[i] = System.nanoTime() - begin;
+                        }
+                    }
+                };
+                readers[r].start();
+            }
+
+            Thread writer = new Thread() {
+                @Override
+                public void run() {
+                    awaitQuietly(start);
+                    SQLiteStatement update = db.compileStatement("UPDATE " + ProductEntry.TABLE_NAME
+                            + " SET " + ProductEntry.COLUMN_PRODUCT_QUANTITY + " = "
+                            + ProductEntry.COLUMN_PRODUCT_QUANTITY + " + 1 WHERE " + ProductEntry._ID + " = ?");
+                    Random random = new Random();
+                    try {
+                        while (!done.get()) {
+                            db.beginTransaction();
+                            try {
+                                for (int i = 0; i < WRITES_PER_TRANSACTION; i++) {
+                                    update.bindLong(1, 1 + random.nextInt(PRODUCTS));
+                                    update.executeUpdateDelete();
+                                }
+                                db.setTransactionSuccessful();
+                            } finally {
+                                db.endTransaction();
+                            }
+                        }
+                    } finally {
+                        update.close();
+                    }
+                }
+            };
+            writer.start();
+
+            start.countDown();
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            done.set(true);
+            writer.join();
+
+            long[] all = new long[READERS * READS_PER_READER];
+            for (int r = 0; r < READERS; r++) {
+                System.arraycopy(latencies[r], 0, all, r * READS_PER_READER, READS_PER_READER);
+            }
+            Arrays.sort(all);
+            assertTrue(all[0] > 0);
+            return all;
+        } finally {
+            helper.close();
+        }
+    }
+
+    private static void insertProducts(SQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            for (int s = 0; s < 20; s++) {
+                ContentValues supplier = new ContentValues();
+                supplier.put(ProductContract.SupplierEntry.COLUMN_SUPPLIER_NAME, "supplier " + s);
+                supplier.put(ProductContract.SupplierEntry.COLUMN_SUPPLIER_PHONE_NUMBER, 1000 + s);
+                db.insertOrThrow(ProductContract.SupplierEntry.TABLE_NAME, null, supplier);
+            }
+            ContentValues product = new ContentValues();
+            for (int i = 0; i < PRODUCTS; i++) {
+                product.put(ProductEntry.COLUMN_PRODUCT_NAME, "product " + i);
+                product.put(ProductEntry.COLUMN_PRODUCT_PRICE, i % 100);
+                product.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, i % 50);
+                product.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID, 1 + i % 20);
+                db.insertOrThrow(ProductEntry.TABLE_NAME, null, product);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static String pragma(SQLiteDatabase db, String name) {
+        Cursor cursor = db.rawQuery("PRAGMA " + name, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getString(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentUris;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.mock.MockContentResolver;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks which notifications {@link NotificationCoalescer} sends for bursts of changes.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NotificationCoalescerTest {
+
+    private static final Uri SHIRT = ContentUris.withAppendedId(ProductEntry.CONTENT_URI, 5);
+
+    private final List<Uri> mNotified = new ArrayList<>();
+
+    private NotificationCoalescer mCoalescer;
+
+    @Before
+    public void setUp() {
+        MockContentResolver resolver = new MockContentResolver() {
+            @Override
+            public void notifyChange(Uri uri, ContentObserver observer, boolean syncToNetwork) {
+                mNotified.add(uri);
+            }
+        };
+        // A window long enough that nothing is sent before the test flushes.
+        mCoalescer = new NotificationCoalescer(resolver, 60 * 1000);
+    }
+
+    @Test
+    public void changesToOneProductNotifyItsUri() {
+        mCoalescer.markChanged(5);
+        mCoalescer.markChanged(5);
+        mCoalescer.markChanged(5);
+        assertTrue(mNotified.isEmpty());
+
+        mCoalescer.flush();
+        assertEquals(Arrays.asList(SHIRT), mNotified);
+        assertEquals(3, mCoalescer.getChangeCount());
+        assertEquals(1, mCoalescer.getNotificationCount());
+        assertEquals(2, mCoalescer.getSuppressedCount());
+    }
+
+    @Test
+    public void changesToSeveralProductsNotifyTheCatalog() {
+        mCoalescer.markChanged(5);
+        mCoalescer.markChanged(6);
+        mCoalescer.flush();
+        mCoalescer.markChanged(5);
+        mCoalescer.markChanged(NotificationCoalescer.ALL_PRODUCTS);
+        mCoalescer.flush();
+
+        assertEquals(Arrays.asList(ProductEntry.CONTENT_URI, ProductEntry.CONTENT_URI), mNotified);
+        assertEquals(2, mCoalescer.getSuppressedCount());
+    }
+
+    @Test
+    public void flushWithoutChangesSendsNothing() {
+        mCoalescer.flush();
+        assertTrue(mNotified.isEmpty());
+        assertEquals(0, mCoalescer.getSuppressedCount());
+    }
+
+    @Test
+    public void transactionSendsItsChangesWhenCommitted() {
+        mCoalescer.beginTransaction();
+        mCoalescer.markChanged(5);
+        mCoalescer.markChanged(5);
+        assertTrue(mNotified.isEmpty());
+        mCoalescer.endTransaction(true);
+        assertEquals(Arrays.asList(SHIRT), mNotified);
+
+        mCoalescer.beginTransaction();
+        mCoalescer.markChanged(6);
+        mCoalescer.endTransaction(false);
+        mCoalescer.flush();
+        assertEquals(Arrays.asList(SHIRT), mNotified);
+    }
+
+    @Test
+    public void zeroWindowSendsEveryChange() {
+        mCoalescer.setWindowMillis(0);
+        mCoalescer.markChanged(5);
+        mCoalescer.markChanged(6);
+
+        assertEquals(Arrays.asList(SHIRT, ContentUris.withAppendedId(ProductEntry.CONTENT_URI, 6)), mNotified);
+        assertEquals(0, mCoalescer.getSuppressedCount());
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.ProviderTestCase2;
+import android.test.mock.MockContentResolver;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ChangeEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.SupplierEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mirrors the catalog of {@link ProductProvider} into a local stand-in for the back office by
+ * reading the change log, and checks that the mirror matches the catalog.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductChangeLogTest extends ProviderTestCase2<ProductProvider> {
+
+    private BackOffice mBackOffice;
+
+    public ProductChangeLogTest() {
+        super(ProductProvider.class, ProductContract.CONTENT_AUTHORITY);
+    }
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        setContext(InstrumentationRegistry.getTargetContext());
+        super.setUp();
+        mBackOffice = new BackOffice(getMockContentResolver());
+    }
+
+    @Test
+    public void mirrorFollowsEveryWrite() {
+        Uri shirt = insert("shirt", 2, "Acme");
+        insert("hat", 0, "Hats Ltd");
+        assertEquals(2, mBackOffice.sync(10));
+        assertEquals(catalog(), mBackOffice.mProducts);
+
+        ContentValues values = new ContentValues();
+        values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, 7);
+        getMockContentResolver().update(shirt, values, null, null);
+        getMockContentResolver().update(shirt, values, null, null);
+        // Both updates of the shirt arrive as one change.
+        assertEquals(1, mBackOffice.sync(10));
+        assertEquals(catalog(), mBackOffice.mProducts);
+
+        values = new ContentValues();
+        values.put(SupplierEntry.COLUMN_SUPPLIER_NAME, "Hats Inc");
+        getMockContentResolver().update(SupplierEntry.CONTENT_URI, values,
+                SupplierEntry.COLUMN_SUPPLIER_NAME + "=?", new String[]{"Hats Ltd"});
+        getMockContentResolver().delete(shirt, null, null);
+        assertEquals(2, mBackOffice.sync(10));
+        assertEquals(catalog(), mBackOffice.mProducts);
+        assertEquals(0, mBackOffice.sync(10));
+    }
+
+    @Test
+    public void syncReadsOnlyWhatChanged() {
+        for (int i = 0; i < 200; i++) {
+            insert("product " + i, i, "Acme");
+        }
+        // Small batches, so paging by sequence number is exercised.
+        while (mBackOffice.sync(30) != 0) {
+            // Keep going until the mirror has caught up.
+        }
+
+        ContentValues values = new ContentValues();
+        values.put(ProductEntry.COLUMN_PRODUCT_PRICE, 999);
+        getMockContentResolver().update(ProductEntry.CONTENT_URI, values,
+                ProductEntry.COLUMN_PRODUCT_QUANTITY + "<?", new String[]{"3"});
+        assertEquals(3, mBackOffice.sync(30));
+        assertEquals(catalog(), mBackOffice.mProducts);
+    }
+
+    @Test
+    public void compactionKeepsLogReadableFromStart() {
+        Uri shirt = insert("shirt", 2, "Acme");
+        Uri hat = insert("hat", 0, "Acme");
+        ContentValues values = new ContentValues();
+        values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, 3);
+        getMockContentResolver().update(hat, values, null, null);
+        getMockContentResolver().delete(shirt, null, null);
+        mBackOffice.sync(10);
+
+        // Both inserts were superseded, and the delete of the shirt has been applied.
+        assertEquals(3, compact(mBackOffice.mLastSequence));
+        assertEquals(0, compact(mBackOffice.mLastSequence));
+
+        BackOffice fresh = new BackOffice(getMockContentResolver());
+        assertEquals(1, fresh.sync(10));
+        assertEquals(catalog(), fresh.mProducts);
+    }
+
+    private int compact(long acknowledged) {
+        Bundle extras = new Bundle();
+        extras.putLong(ProductContract.KEY_ACKNOWLEDGED_SEQUENCE, acknowledged);
+        return getMockContentResolver().call(ProductEntry.CONTENT_URI, ProductContract.METHOD_COMPACT_CHANGES,
+                null, extras).getInt(ProductContract.KEY_COMPACTED_ROWS);
+    }
+
+    private Uri insert(String name, int quantity, String supplier) {
+        ContentValues values = new ContentValues();
+        values.put(ProductEntry.COLUMN_PRODUCT_NAME, name);
+        values.put(ProductEntry.COLUMN_PRODUCT_PRICE, 100);
+        values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, quantity);
+        values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, supplier);
+        values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, 1234);
+        Uri uri = getMockContentResolver().insert(ProductEntry.CONTENT_URI, values);
+        assertNotNull(uri);
+        return uri;
+    }
+
+    /**
+     * Read the whole catalog the way the back office stores it.
+     */
+    private Map<Long, String> catalog() {
+        Map<Long, String> products = new HashMap<>();
+        Cursor cursor = getMockContentResolver().query(ProductEntry.CONTENT_URI, BackOffice.COLUMNS,
+                null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                products.put(cursor.getLong(0), BackOffice.describe(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return products;
+    }
+
+    /**
+     * Stand-in for the back office. It keeps a copy of every product and only ever reads the
+     * change log to update it.
+     */
+    private static final class BackOffice {
+
+        /** Product id, then the columns the back office keeps. */
+        static final String[] COLUMNS = {
+                ProductEntry._ID,
+                ProductEntry.COLUMN_PRODUCT_NAME,
+                ProductEntry.COLUMN_PRODUCT_PRICE,
+                ProductEntry.COLUMN_PRODUCT_QUANTITY,
+                ProductEntry.COLUMN_PRODUCT_SUPPLIER,
+                ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
+        };
+
+        private static final String[] CHANGE_COLUMNS = {
+                ChangeEntry.COLUMN_PRODUCT_ID,
+                ProductEntry.COLUMN_PRODUCT_NAME,
+                ProductEntry.COLUMN_PRODUCT_PRICE,
+                ProductEntry.COLUMN_PRODUCT_QUANTITY,
+                ProductEntry.COLUMN_PRODUCT_SUPPLIER,
+                ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER,
+                ChangeEntry._ID,
+                ChangeEntry.COLUMN_OPERATION
+        };
+
+        final Map<Long, String> mProducts = new HashMap<>();
+
+        long mLastSequence;
+
+        private final MockContentResolver mResolver;
+
+        BackOffice(MockContentResolver resolver) {
+            mResolver = resolver;
+        }
+
+        /**
+         * Apply the next batch of at most {@code limit} changes. Return the number applied.
+         */
+        int sync(int limit) {
+            Cursor cursor = mResolver.query(ChangeEntry.buildChangesUri(mLastSequence, limit),
+                    CHANGE_COLUMNS, null, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    if (ChangeEntry.OPERATION_DELETE.equals(cursor.getString(7))) {
+                        mProducts.remove(cursor.getLong(0));
+                    } else {
+                        mProducts.put(cursor.getLong(0), describe(cursor));
+                    }
+                    mLastSequence = cursor.getLong(6);
+                }
+                return cursor.getCount();
+            } finally {
+                cursor.close();
+            }
+        }
+
+        /**
+         * Describe the product in the current row, whose first columns are {@link #COLUMNS}.
+         */
+        static String describe(Cursor cursor) {
+            StringBuilder product = new StringBuilder();
+            for (int i = 1; i < COLUMNS.length; i++) {
+                product.append(cursor.getString(i)).append('|');
+            }
+            return product.toString();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Upgrades a generated version 1 database through {@link ProductDbHelper} and checks that no
+ * data is lost and that the result matches a freshly created database.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductDbHelperMigrationTest {
+
+    private static final String MIGRATED_DATABASE = "migration-test.db";
+
+    private static final String CREATED_DATABASE = "migration-test-fresh.db";
+
+    private static final int ROWS = 100000;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mContext.deleteDatabase(MIGRATED_DATABASE);
+        mContext.deleteDatabase(CREATED_DATABASE);
+    }
+
+    @After
+    public void tearDown() {
+        mContext.deleteDatabase(MIGRATED_DATABASE);
+        mContext.deleteDatabase(CREATED_DATABASE);
+    }
+
+    @Test
+    public void upgradeFromVersion1KeepsEveryProduct() {
+        createVersion1Database();
+
+        ProductDbHelper helper = new ProductDbHelper(mContext, MIGRATED_DATABASE);
+        SQLiteDatabase db = helper.getWritableDatabase();
+        try {
+            assertEquals(ROWS, DatabaseUtils.queryNumEntries(db, ProductEntry.TABLE_NAME));
+
+            assertEquals(500, DatabaseUtils.queryNumEntries(db, "suppliers"));
+
+            Cursor cursor = db.rawQuery("SELECT price, typeof(price), supplier, supplierPhone FROM "
+                    + ProductEntry.DETAILS_VIEW_NAME + " WHERE _id = 42", null);
+            try {
+                assertTrue(cursor.moveToFirst());
+                // Row 42 was written with a price of "41.5".
+                assertEquals(4150, cursor.getLong(0));
+                assertEquals("integer", cursor.getString(1));
+                assertEquals("supplier 42", cursor.getString(2));
+                assertEquals(1042, cursor.getLong(3));
+            } finally {
+                cursor.close();
+            }
+
+            // New products must not reuse the ids of migrated ones.
+            db.execSQL("INSERT INTO products (name, price, quantity, supplier_id) VALUES ('new', 1, 1, 1)");
+            assertEquals(ROWS + 1, DatabaseUtils.longForQuery(db, "SELECT MAX(_id) FROM products", null));
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    public void upgradedSchemaMatchesNewDatabase() {
+        createVersion1Database();
+
+        ProductDbHelper migrated = new ProductDbHelper(mContext, MIGRATED_DATABASE);
+        ProductDbHelper created = new ProductDbHelper(mContext, CREATED_DATABASE);
+        try {
+            assertEquals(describeSchema(created.getReadableDatabase()),
+                    describeSchema(migrated.getReadableDatabase()));
+        } finally {
+            migrated.close();
+            created.close();
+        }
+    }
+
+    @Test
+    public void catalogFiltersUseIndexes() {
+        ProductDbHelper helper = new ProductDbHelper(mContext, CREATED_DATABASE);
+        try {
+            SQLiteDatabase db = helper.getReadableDatabase();
+            assertTrue(queryPlan(db, "SELECT * FROM products WHERE name = 'x'").contains("INDEX"));
+            assertTrue(queryPlan(db, "SELECT * FROM product_details WHERE supplier = 'x'").contains("INDEX"));
+            assertTrue(queryPlan(db, "SELECT * FROM products WHERE quantity < 5").contains("INDEX"));
+            assertTrue(queryPlan(db, "SELECT * FROM products WHERE price BETWEEN 5 AND 10").contains("INDEX"));
+            assertTrue(queryPlan(db, "SELECT supplier_id, SUM(quantity * price) FROM products "
+                    + "WHERE " + ProductDbHelper.LIVE_PRODUCTS + " GROUP BY supplier_id").contains("COVERING INDEX"));
+            assertTrue(queryPlan(db, "SELECT _id FROM products WHERE deleted_at IS NOT NULL")
+                    .contains("INDEX"));
+            assertTrue(queryPlan(db, "SELECT _id FROM products WHERE deleted_at IS NULL AND generation < 1")
+                    .contains("INDEX"));
+            assertTrue(queryPlan(db, "SELECT _id, name, price, quantity, supplier FROM product_details "
+                    + "WHERE _id > 0 ORDER BY _id ASC LIMIT 50").contains("COVERING INDEX products_list_index"));
+        } finally {
+            helper.close();
+        }
+    }
+
+    /**
+     * Write a database with the version 1 schema and {@link #ROWS} products.
+     */
+    private void createVersion1Database() {
+        SQLiteDatabase db = mContext.openOrCreateDatabase(MIGRATED_DATABASE, Context.MODE_PRIVATE, null);
+        try {
+            db.execSQL("CREATE TABLE products (_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "name TEXT NOT NULL, price TEXT NOT NULL, quantity INTEGER NOT NULL, "
+                    + "supplier INTEGER NOT NULL, supplierPhone INTEGER NOT NULL DEFAULT 0)");
+            db.beginTransaction();
+            SQLiteStatement insert = db.compileStatement("INSERT INTO products "
+                    + "(name, price, quantity, supplier, supplierPhone) VALUES (?, ?, ?, ?, ?)");
+            try {
+                for (int i = 1; i <= ROWS; i++) {
+                    insert.bindString(1, "product " + i);
+                    insert.bindString(2, (i - 1) + ".5");
+                    insert.bindLong(3, i % 50);
+                    insert.bindString(4, "supplier " + (i % 500));
+                    insert.bindLong(5, 1000 + i % 500);
+                    insert.executeInsert();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                insert.close();
+                db.endTransaction();
+            }
+            db.setVersion(1);
+        } finally {
+            db.close();
+        }
+    }
+
+    private static List<String> describeSchema(SQLiteDatabase db) {
+        List<String> schema = new ArrayList<>();
+        for (String table : new String[]{"products", "suppliers"}) {
+            Cursor columns = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+            try {
+                while (columns.moveToNext()) {
+                    schema.add(table + " " + DatabaseUtils.dumpCurrentRowToString(columns));
+                }
+            } finally {
+                columns.close();
+            }
+        }
+        Cursor objects = db.rawQuery("SELECT type, name FROM sqlite_master "
+                + "WHERE name NOT LIKE 'sqlite_%' ORDER BY type, name", null);
+        try {
+            while (objects.moveToNext()) {
+                schema.add(objects.getString(0) + " " + objects.getString(1));
+            }
+        } finally {
+            objects.close();
+        }
+        return schema;
+    }
+
+    private static String queryPlan(SQLiteDatabase db, String sql) {
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, null);
+        try {
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(cursor.getColumnCount() - 1)).append('\n');
+            }
+        } finally {
+            cursor.close();
+        }
+        return plan.toString();
+    }
+}
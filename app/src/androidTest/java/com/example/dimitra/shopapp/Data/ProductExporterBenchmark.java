@@ -0,0 +1,201 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.ProviderTestCase2;
+import android.util.Log;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Checks that {@link ProductExporter} output reads back through {@link ProductImporter}, and
+ * reports export throughput and peak heap for a million products to logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductExporterBenchmark extends ProviderTestCase2<ProductProvider> {
+
+    private static final String LOG_TAG = ProductExporterBenchmark.class.getSimpleName();
+
+    private File mFile;
+
+    private File mGzipFile;
+
+    public ProductExporterBenchmark() {
+        super(ProductProvider.class, ProductContract.CONTENT_AUTHORITY);
+    }
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        setContext(InstrumentationRegistry.getTargetContext());
+        super.setUp();
+        mFile = new File(getContext().getCacheDir(), "export-test.csv");
+        mGzipFile = new File(getContext().getCacheDir(), "export-test.csv.gz");
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        mFile.delete();
+        mGzipFile.delete();
+        super.tearDown();
+    }
+
+    @Test
+    public void exportReadsBackThroughImporter() throws IOException {
+        insert("shirt", 1250, 3, "Acme", 555);
+        insert("hat, \"wool\"", 7, 0, "Hats\nLtd", 0);
+        insert("Caf\u00e9 \ud83d\udc55", 99, 12, "Acme", 555);
+        insert("scarf", 300, 4, "Scarves Co", null);
+
+        ProductExporter exporter = new ProductExporter(getMockContentResolver(), 2);
+        assertEquals(4, exporter.exportProducts(Uri.fromFile(mFile), false));
+        assertEquals(4, exporter.exportProducts(Uri.fromFile(mGzipFile), true));
+        assertEquals(new String(readAll(new FileInputStream(mFile)), "UTF-8"),
+                new String(readAll(new GZIPInputStream(new FileInputStream(mGzipFile))), "UTF-8"));
+
+        String before = dumpProducts();
+        getMockContentResolver().delete(ProductEntry.CONTENT_URI, null, null);
+        ProductImporter.Result result = new ProductImporter(getMockContentResolver())
+                .importProducts(Uri.fromFile(mFile), ProductImporter.Format.CSV, 0, null, null);
+        assertEquals(4, result.imported);
+        assertEquals(0, result.rejected);
+        assertEquals(before, dumpProducts());
+    }
+
+    @Test
+    public void exportMillionProducts() throws Exception {
+        int rows = 1000000;
+        int batch = 10000;
+        ContentValues[] values = new ContentValues[batch];
+        for (int start = 0; start < rows; start += batch) {
+            for (int i = 0; i < batch; i++) {
+                int n = start + i;
+                values[i] = new ContentValues();
+                values[i].put(ProductEntry.COLUMN_PRODUCT_NAME, "product " + n);
+                values[i].put(ProductEntry.COLUMN_PRODUCT_PRICE, n % 10000);
+                values[i].put(ProductEntry.COLUMN_PRODUCT_QUANTITY, n % 50);
+                values[i].put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, "supplier " + (n % 500));
+                values[i].put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, 1000 + n % 500);
+            }
+            getMockContentResolver().bulkInsert(ProductEntry.CONTENT_URI, values);
+        }
+        values = null;
+
+        for (boolean gzip : new boolean[]{false, true}) {
+            File file = gzip ? mGzipFile : mFile;
+            HeapSampler sampler = new HeapSampler();
+            sampler.start();
+            long start = System.nanoTime();
+            long exported = new ProductExporter(getMockContentResolver())
+                    .exportProducts(Uri.fromFile(file), gzip);
+            long nanos = System.nanoTime() - start;
+            sampler.interrupt();
+            sampler.join();
+
+            assertEquals(rows, exported);
+            Log.i(LOG_TAG, (gzip ? "gzip" : "plain") + ": " + rows * 1000000000L / nanos + " rows/s, "
+                    + file.length() / 1024 + " KiB, heap grew by at most "
+                    + (sampler.mPeak - sampler.mBaseline) / 1024 + " KiB");
+        }
+    }
+
+    /**
+     * Insert a product, without a supplier phone if it is null.
+     */
+    private void insert(String name, int price, int quantity, String supplier, Integer phone) {
+        ContentValues values = new ContentValues();
+        values.put(ProductEntry.COLUMN_PRODUCT_NAME, name);
+        values.put(ProductEntry.COLUMN_PRODUCT_PRICE, price);
+        values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, quantity);
+        values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, supplier);
+        if (phone != null) {
+            values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, phone);
+        }
+        assertNotNull(getMockContentResolver().insert(ProductEntry.CONTENT_URI, values));
+    }
+
+    /**
+     * Describe every product without its id, which changes when products are imported again.
+     */
+    private String dumpProducts() {
+        Cursor cursor = getMockContentResolver().query(ProductEntry.CONTENT_URI, new String[]{
+                ProductEntry.COLUMN_PRODUCT_NAME,
+                ProductEntry.COLUMN_PRODUCT_PRICE,
+                ProductEntry.COLUMN_PRODUCT_QUANTITY,
+                ProductEntry.COLUMN_PRODUCT_SUPPLIER,
+                ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
+        }, null, null, ProductEntry.SORT_BY_NAME);
+        try {
+            StringBuilder dump = new StringBuilder();
+            while (cursor.moveToNext()) {
+                for (int i = 0; i < cursor.getColumnCount(); i++) {
+                    dump.append(cursor.getString(i)).append('|');
+                }
+                dump.append('\n');
+            }
+            return dump.toString();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Samples the used heap until interrupted.
+     */
+    private static final class HeapSampler extends Thread {
+
+        private final Runtime mRuntime = Runtime.getRuntime();
+
+        volatile long mBaseline;
+
+        volatile long mPeak;
+
+        HeapSampler() {
+            mRuntime.gc();
+            mBaseline = mRuntime.totalMemory() - mRuntime.freeMemory();
+            mPeak = mBaseline;
+        }
+
+        @Override
+        public void run() {
+            while (!isInterrupted()) {
+                mPeak = Math.max(mPeak, mRuntime.totalMemory() - mRuntime.freeMemory());
+                try {
+                    sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.ProviderTestCase2;
+import android.util.Log;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Imports CSV and JSON files through {@link ProductImporter} into an isolated database.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductImporterTest extends ProviderTestCase2<ProductProvider> {
+
+    private static final String LOG_TAG = ProductImporterTest.class.getSimpleName();
+
+    private static final String CSV = "name,price,quantity,supplier,supplierPhone,color\n"
+            + "shirt,12.50,3,Acme,555,red\n"
+            + "\n"
+            + "\"hat, wool\",7,0,Hats Ltd,,blue\n"
+            + "socks,cheap,3,Acme,555,\n"
+            + ",1,1,Acme,555,\n"
+            + "scarf,4.99,-1,Acme,555,\n"
+            + "gloves,3,2,,555,\n"
+            + "belt,20,1,Acme,555,\n";
+
+    private File mFile;
+
+    public ProductImporterTest() {
+        super(ProductProvider.class, ProductContract.CONTENT_AUTHORITY);
+    }
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        setContext(InstrumentationRegistry.getTargetContext());
+        super.setUp();
+        mFile = new File(getContext().getCacheDir(), "import-test");
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        mFile.delete();
+        super.tearDown();
+    }
+
+    @Test
+    public void csvImportRejectsBadRecords() throws IOException {
+        StringWriter rejects = new StringWriter();
+        ProductImporter.Result result = new ProductImporter(getMockContentResolver(), 2)
+                .importProducts(write(CSV), ProductImporter.Format.CSV, 0, rejects, null);
+
+        assertEquals(3, result.imported);
+        assertEquals(4, result.rejected);
+        assertEquals(7, result.checkpoint);
+        assertEquals("1250", priceOf("shirt"));
+        assertEquals("700", priceOf("hat, wool"));
+        assertEquals("2000", priceOf("belt"));
+
+        String[] lines = rejects.toString().split("\n");
+        assertEquals(5, lines.length);
+        assertEquals("record,reason,name,price,quantity,supplier,supplierPhone", lines[0]);
+        assertEquals("3,Invalid price cheap,socks,cheap,3,Acme,555", lines[1]);
+        assertEquals("4,Product requires a name,,1,1,Acme,555", lines[2]);
+        assertEquals("5,Product requires valid quantity,scarf,4.99,-1,Acme,555", lines[3]);
+        assertEquals("6,Product requires a supplier,gloves,3,2,,555", lines[4]);
+    }
+
+    @Test
+    public void failedImportResumesFromLastCheckpoint() throws IOException {
+        Uri source = write(CSV);
+        StringWriter rejects = new StringWriter();
+        final long[] lastCheckpoint = new long[1];
+        try {
+            new ProductImporter(getMockContentResolver(), 2).importProducts(source,
+                    ProductImporter.Format.CSV, 0, rejects, new ProductImporter.ProgressListener() {
+                        @Override
+                        public void onProgress(long checkpoint, long imported, long rejected, long bytesRead) {
+                            assertTrue(bytesRead > 0);
+                            lastCheckpoint[0] = checkpoint;
+                            if (checkpoint == 4) {
+                                throw new IllegalStateException("Import interrupted");
+                            }
+                        }
+                    });
+            fail("The import should have been interrupted");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertEquals(4, lastCheckpoint[0]);
+        assertEquals(2, productCount());
+
+        ProductImporter.Result result = new ProductImporter(getMockContentResolver(), 2)
+                .importProducts(source, ProductImporter.Format.CSV, lastCheckpoint[0], rejects, null);
+
+        assertEquals(1, result.imported);
+        assertEquals(3, productCount());
+        // Every rejected record is reported exactly once over both runs.
+        assertEquals(5, rejects.toString().split("\n").length);
+    }
+
+    @Test
+    public void resumeContinuesAfterCheckpoint() throws IOException {
+        Uri source = write(CSV);
+        StringWriter rejects = new StringWriter();
+        // Records 1 to 4 were committed by an earlier run.
+        ProductImporter.Result result = new ProductImporter(getMockContentResolver(), 2)
+                .importProducts(source, ProductImporter.Format.CSV, 4, rejects, null);
+
+        assertEquals(1, result.imported);
+        assertEquals(2, result.rejected);
+        assertEquals(7, result.checkpoint);
+        assertEquals(1, productCount());
+        // No header when appending to the rejects of the earlier run.
+        assertTrue(rejects.toString().startsWith("5,"));
+    }
+
+    @Test
+    public void jsonImport() throws IOException {
+        String json = "[{\"name\": \"shirt\", \"price\": 12.5, \"quantity\": 3, \"supplier\": \"Acme\","
+                + " \"supplierPhone\": 555, \"tags\": [\"new\"]},"
+                + " {\"name\": \"hat\", \"price\": \"7\", \"quantity\": null, \"supplier\": \"Acme\"}]";
+        StringWriter rejects = new StringWriter();
+        ProductImporter.Result result = new ProductImporter(getMockContentResolver())
+                .importProducts(write(json), ProductImporter.Format.JSON, 0, rejects, null);
+
+        assertEquals(1, result.imported);
+        assertEquals(1, result.rejected);
+        assertEquals("1250", priceOf("shirt"));
+        assertTrue(rejects.toString().contains("2,Product requires a quantity,hat"));
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedJsonFails() throws IOException {
+        new ProductImporter(getMockContentResolver())
+                .importProducts(write("{\"name\": \"shirt\"}"), ProductImporter.Format.JSON, 0, null, null);
+    }
+
+    @Test
+    public void largeFileImportsWithConstantMemory() throws IOException {
+        int rows = 50000;
+        Writer writer = new OutputStreamWriter(new FileOutputStream(mFile), "UTF-8");
+        try {
+            writer.write("name,price,quantity,supplier,supplierPhone\n");
+            for (int i = 0; i < rows; i++) {
+                writer.write("product " + i + "," + (i % 100) + ".99," + (i % 50) + ",supplier " + (i % 20) + ",1000\n");
+            }
+        } finally {
+            writer.close();
+        }
+
+        final Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        final long baseline = runtime.totalMemory() - runtime.freeMemory();
+        final long[] peak = new long[1];
+        long start = System.nanoTime();
+        ProductImporter.Result result = new ProductImporter(getMockContentResolver())
+                .importProducts(Uri.fromFile(mFile), ProductImporter.Format.CSV, 0, null,
+                        new ProductImporter.ProgressListener() {
+                            @Override
+                            public void onProgress(long checkpoint, long imported, long rejected, long bytesRead) {
+                                peak[0] = Math.max(peak[0], runtime.totalMemory() - runtime.freeMemory());
+                            }
+                        });
+        long millis = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(rows, result.imported);
+        Log.i(LOG_TAG, rows + " rows in " + millis + " ms, file " + mFile.length() / 1024
+                + " KiB, heap grew by at most " + (peak[0] - baseline) / 1024 + " KiB");
+    }
+
+    private Uri write(String content) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(mFile), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return Uri.fromFile(mFile);
+    }
+
+    private int productCount() {
+        Cursor cursor = getMockContentResolver().query(ProductEntry.CONTENT_URI,
+                new String[]{ProductEntry._ID}, null, null, null);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private String priceOf(String name) {
+        Cursor cursor = getMockContentResolver().query(ProductEntry.CONTENT_URI,
+                new String[]{ProductEntry.COLUMN_PRODUCT_PRICE}, ProductEntry.COLUMN_PRODUCT_NAME + "=?",
+                new String[]{name}, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getString(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
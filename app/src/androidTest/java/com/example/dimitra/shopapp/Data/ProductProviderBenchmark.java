@@ -0,0 +1,151 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.ProviderTestCase2;
+import android.util.Log;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Compares the per-row insert path of {@link ProductProvider} with {@link ProductProvider#bulkInsert},
+ * and measures single-row writes, which go through the statement cache of the provider.
+ * Runs against an isolated copy of the database and reports rows per second to logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductProviderBenchmark extends ProviderTestCase2<ProductProvider> {
+
+    private static final String LOG_TAG = ProductProviderBenchmark.class.getSimpleName();
+
+    private static final int ROWS = 20000;
+
+    public ProductProviderBenchmark() {
+        super(ProductProvider.class, ProductContract.CONTENT_AUTHORITY);
+    }
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        setContext(InstrumentationRegistry.getTargetContext());
+        super.setUp();
+    }
+
+    @Test
+    public void bulkInsertIsFasterThanPerRowInsert() {
+        ContentValues[] rows = createRows(ROWS);
+
+        long start = System.nanoTime();
+        for (ContentValues row : rows) {
+            getMockContentResolver().insert(ProductEntry.CONTENT_URI, row);
+        }
+        long perRowNanos = System.nanoTime() - start;
+        getMockContentResolver().delete(ProductEntry.CONTENT_URI, null, null);
+
+        start = System.nanoTime();
+        int inserted = getMockContentResolver().bulkInsert(ProductEntry.CONTENT_URI, rows);
+        long bulkNanos = System.nanoTime() - start;
+
+        assertEquals(ROWS, inserted);
+        Log.i(LOG_TAG, "insert(): " + rowsPerSecond(perRowNanos) + " rows/s, bulkInsert(): "
+                + rowsPerSecond(bulkNanos) + " rows/s");
+        assertTrue("bulkInsert should beat per-row inserts", bulkNanos < perRowNanos);
+    }
+
+    /**
+     * Inserts, updates and deletes products one at a time, as the editor does, and reports the
+     * time and the bytes allocated on this thread per write. The provider runs on the calling
+     * thread here, so its garbage is counted too.
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    public void singleRowWritesReuseStatements() {
+        int writes = ROWS / 10;
+        ContentValues[] rows = createRows(writes);
+        Uri[] products = new Uri[writes];
+        ContentValues quantity = new ContentValues();
+
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocSize();
+            long start = System.nanoTime();
+            for (int i = 0; i < writes; i++) {
+                products[i] = getMockContentResolver().insert(ProductEntry.CONTENT_URI, rows[i]);
+            }
+            logWrites("insert()", writes, System.nanoTime() - start, Debug.getThreadAllocSize());
+
+            Debug.resetThreadAllocSize();
+            start = System.nanoTime();
+            for (int i = 0; i < writes; i++) {
+                quantity.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, i % 7);
+                assertEquals(1, getMockContentResolver().update(products[i], quantity, null, null));
+            }
+            logWrites("update()", writes, System.nanoTime() - start, Debug.getThreadAllocSize());
+
+            Debug.resetThreadAllocSize();
+            start = System.nanoTime();
+            for (int i = 0; i < writes; i++) {
+                assertEquals(1, getMockContentResolver().delete(products[i], null, null));
+            }
+            logWrites("delete()", writes, System.nanoTime() - start, Debug.getThreadAllocSize());
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    @Test
+    public void searchStaysFastAt100kProducts() {
+        int rows = 100000;
+        getMockContentResolver().bulkInsert(ProductEntry.CONTENT_URI, createRows(rows));
+
+        String[] queries = {"product 4242", "supplier 7", "prod sup", "99"};
+        long slowestNanos = 0;
+        for (int run = 0; run < 20; run++) {
+            for (String query : queries) {
+                long start = System.nanoTime();
+                Cursor cursor = getMockContentResolver().query(ProductEntry.buildSearchUri(query),
+                        new String[]{ProductEntry._ID, ProductEntry.COLUMN_PRODUCT_NAME}, null, null, null);
+                try {
+                    assertTrue(cursor.getCount() > 0);
+                    assertTrue(cursor.getCount() <= 50);
+                } finally {
+                    cursor.close();
+                }
+                if (run > 0) {
+                    slowestNanos = Math.max(slowestNanos, System.nanoTime() - start);
+                }
+            }
+        }
+        Log.i(LOG_TAG, "slowest search over " + rows + " products: " + slowestNanos / 1000 + " us");
+    }
+
+    private static ContentValues[] createRows(int count) {
+        ContentValues[] rows = new ContentValues[count];
+        for (int i = 0; i < count; i++) {
+            ContentValues values = new ContentValues();
+            values.put(ProductEntry.COLUMN_PRODUCT_NAME, "product " + i);
+            values.put(ProductEntry.COLUMN_PRODUCT_PRICE, i % 100);
+            values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, i % 50);
+            values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, "supplier " + (i % 20));
+            values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, 1000 + i % 20);
+            rows[i] = values;
+        }
+        return rows;
+    }
+
+    private static void logWrites(String operation, int writes, long nanos, long allocatedBytes) {
+        Log.i(LOG_TAG, operation + ": " + nanos / 1000 / writes + " us, " + allocatedBytes / writes
+                + " bytes allocated per row");
+    }
+
+    private static long rowsPerSecond(long nanos) {
+        return ROWS * 1000000000L / Math.max(nanos, 1);
+    }
+}
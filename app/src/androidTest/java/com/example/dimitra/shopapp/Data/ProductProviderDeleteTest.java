@@ -0,0 +1,183 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.ProviderTestCase2;
+import android.util.Log;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ChangeEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.StatsEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Checks that products deleted through {@link ProductProvider} disappear at once and are removed
+ * from the database later by {@link TombstonePurger}, and that deleting the whole catalog takes
+ * the same time whatever its size.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductProviderDeleteTest extends ProviderTestCase2<ProductProvider> {
+
+    private static final String LOG_TAG = ProductProviderDeleteTest.class.getSimpleName();
+
+    /**
+     * Longest a delete of the whole catalog may take, whatever its size. Tombstoning each of
+     * 100000 products takes seconds.
+     */
+    private static final long DELETE_ALL_LIMIT_MILLIS = 100;
+
+    public ProductProviderDeleteTest() {
+        super(ProductProvider.class, ProductContract.CONTENT_AUTHORITY);
+    }
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        setContext(InstrumentationRegistry.getTargetContext());
+        super.setUp();
+    }
+
+    @Test
+    public void deletedProductIsHiddenEverywhere() {
+        Uri shirt = insert("shirt", 5);
+        insert("shirt dress", 3);
+        assertEquals(1, getMockContentResolver().delete(shirt, null, null));
+
+        assertEquals(1, count(ProductEntry.CONTENT_URI));
+        assertEquals(0, count(shirt));
+        assertEquals(1, count(ProductEntry.buildSearchUri("shirt")));
+        assertEquals(1, count(StatsEntry.CONTENT_URI));
+
+        // A deleted product can't be changed or deleted again.
+        ContentValues values = new ContentValues();
+        values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, 9);
+        assertEquals(0, getMockContentResolver().update(shirt, values, null, null));
+        assertNull(adjustQuantity(shirt, 1));
+        assertEquals(0, getMockContentResolver().delete(shirt, null, null));
+    }
+
+    @Test
+    public void purgeRemovesOnlyDeletedProducts() {
+        Uri kept = insert("hat", 1);
+        for (int i = 0; i < TombstonePurger.BATCH_SIZE + 10; i++) {
+            insert("scarf " + i, 0);
+        }
+        assertEquals(TombstonePurger.BATCH_SIZE + 10, getMockContentResolver().delete(ProductEntry.CONTENT_URI,
+                ProductEntry.COLUMN_PRODUCT_NAME + " LIKE ?", new String[]{"scarf%"}));
+
+        assertEquals(TombstonePurger.BATCH_SIZE + 10, purgeDeleted());
+        assertEquals(0, purgeDeleted());
+        assertEquals(1, count(ProductEntry.CONTENT_URI));
+        assertEquals(1, count(kept));
+        assertTrue(checkSummary());
+    }
+
+    @Test
+    public void deleteAllLeavesPurgeForLater() {
+        int rows = 100000;
+        ContentValues[] values = new ContentValues[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = new ContentValues();
+            values[i].put(ProductEntry.COLUMN_PRODUCT_NAME, "product " + i);
+            values[i].put(ProductEntry.COLUMN_PRODUCT_PRICE, i % 100);
+            values[i].put(ProductEntry.COLUMN_PRODUCT_QUANTITY, i % 50);
+            values[i].put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, "supplier " + (i % 20));
+        }
+        getMockContentResolver().bulkInsert(ProductEntry.CONTENT_URI, values);
+
+        long start = System.nanoTime();
+        assertEquals(rows, getMockContentResolver().delete(ProductEntry.CONTENT_URI, null, null));
+        long deleteNanos = System.nanoTime() - start;
+        assertTrue("Deleting " + rows + " products took " + deleteNanos / 1000000 + " ms",
+                deleteNanos / 1000000 < DELETE_ALL_LIMIT_MILLIS);
+        assertEquals(0, count(ProductEntry.CONTENT_URI));
+        assertEquals(0, count(StatsEntry.CONTENT_URI));
+        assertTrue(checkSummary());
+
+        // The background purge may already have started if the device was slow.
+        start = System.nanoTime();
+        assertTrue(purgeDeleted() <= rows);
+        long purgeNanos = System.nanoTime() - start;
+        assertEquals(0, purgeDeleted());
+        Log.i(LOG_TAG, "delete of " + rows + " products: " + deleteNanos / 1000000 + " ms, purge: "
+                + purgeNanos / 1000000 + " ms");
+    }
+
+    @Test
+    public void deleteAllIsLoggedAndKeepsNewProducts() {
+        insert("hat", 1);
+        insert("scarf", 2);
+        assertEquals(2, getMockContentResolver().delete(ProductEntry.CONTENT_URI, null, null));
+        Uri shirt = insert("shirt", 3);
+        assertEquals(1, count(ProductEntry.CONTENT_URI));
+        assertEquals(0, count(ProductEntry.buildSearchUri("hat")));
+
+        // Readers of the change log see every deletion, even before the purge.
+        Cursor cursor = getMockContentResolver().query(ChangeEntry.CONTENT_URI,
+                new String[]{ChangeEntry.COLUMN_OPERATION}, null, null, null);
+        int deletions = 0;
+        try {
+            while (cursor.moveToNext()) {
+                if (ChangeEntry.OPERATION_DELETE.equals(cursor.getString(0))) {
+                    deletions++;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        assertEquals(2, deletions);
+
+        assertEquals(2, purgeDeleted());
+        assertEquals(1, count(shirt));
+        assertEquals(1, getMockContentResolver().delete(ProductEntry.CONTENT_URI, null, null));
+        assertEquals(1, purgeDeleted());
+        assertTrue(checkSummary());
+    }
+
+    private Uri insert(String name, int quantity) {
+        ContentValues values = new ContentValues();
+        values.put(ProductEntry.COLUMN_PRODUCT_NAME, name);
+        values.put(ProductEntry.COLUMN_PRODUCT_PRICE, 100);
+        values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, quantity);
+        values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, "Acme");
+        Uri uri = getMockContentResolver().insert(ProductEntry.CONTENT_URI, values);
+        assertNotNull(uri);
+        return uri;
+    }
+
+    private int count(Uri uri) {
+        Cursor cursor = getMockContentResolver().query(uri, null, null, null, null);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private Bundle adjustQuantity(Uri product, long delta) {
+        Bundle extras = new Bundle();
+        extras.putLong(ProductContract.KEY_PRODUCT_ID, ContentUris.parseId(product));
+        extras.putLong(ProductContract.KEY_QUANTITY_DELTA, delta);
+        return getMockContentResolver().call(ProductEntry.CONTENT_URI, ProductContract.METHOD_ADJUST_QUANTITY,
+                null, extras);
+    }
+
+    private int purgeDeleted() {
+        return getMockContentResolver().call(ProductEntry.CONTENT_URI, ProductContract.METHOD_PURGE_DELETED,
+                null, null).getInt(ProductContract.KEY_PURGED_ROWS);
+    }
+
+    private boolean checkSummary() {
+        return getMockContentResolver().call(ProductEntry.CONTENT_URI,
+                ProductContract.METHOD_CHECK_SUMMARY, null, null)
+                .getBoolean(ProductContract.KEY_SUMMARY_CONSISTENT);
+    }
+}
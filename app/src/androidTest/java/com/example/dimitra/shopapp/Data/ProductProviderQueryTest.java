@@ -0,0 +1,434 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.ProviderTestCase2;
+
+import com.example.dimitra.shopapp.BuildConfig;
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.SlowQueryEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.StatsEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.SummaryEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+/**
+ * Checks the filter, stats and summary URIs, the product columns, the metrics and the slow
+ * query log of {@link ProductProvider} against an isolated database.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductProviderQueryTest extends ProviderTestCase2<ProductProvider> {
+
+    public ProductProviderQueryTest() {
+        super(ProductProvider.class, ProductContract.CONTENT_AUTHORITY);
+    }
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        setContext(InstrumentationRegistry.getTargetContext());
+        super.setUp();
+        // name, price in cents, quantity, supplier
+        insert("shirt", 1000, 2, "Acme");
+        insert("socks", 300, 40, "Acme");
+        insert("hat", 1500, 0, "Hats Ltd");
+        insert("scarf", 2500, 5, "Hats Ltd");
+    }
+
+    @Test
+    public void lowStockFilter() {
+        assertNames(ProductEntry.buildLowStockUri(2), "hat", "shirt");
+    }
+
+    @Test
+    public void priceRangeFilter() {
+        assertNames(ProductEntry.buildPriceRangeUri(1000, 2000), "hat", "shirt");
+    }
+
+    @Test
+    public void supplierFilterCombinesWithOtherFilters() {
+        long hats = supplierId("Hats Ltd");
+        assertNames(ProductEntry.buildSupplierProductsUri(hats), "hat", "scarf");
+        Uri uri = ProductEntry.buildSupplierProductsUri(hats).buildUpon()
+                .appendQueryParameter(ProductEntry.QUERY_PARAMETER_MIN_PRICE, "2000")
+                .build();
+        assertNames(uri, "scarf");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeFilterIsRejected() {
+        getMockContentResolver().query(ProductEntry.buildLowStockUri(-1), null, null, null, null);
+    }
+
+    @Test
+    public void statsArePerSupplier() {
+        Cursor cursor = getMockContentResolver().query(StatsEntry.CONTENT_URI, null, null, null, null);
+        try {
+            assertEquals(2, cursor.getCount());
+            cursor.moveToFirst();
+            assertEquals("Acme", value(cursor, StatsEntry.COLUMN_SUPPLIER));
+            assertEquals("2", value(cursor, StatsEntry.COLUMN_PRODUCT_COUNT));
+            assertEquals("42", value(cursor, StatsEntry.COLUMN_TOTAL_QUANTITY));
+            assertEquals(String.valueOf(2 * 1000 + 40 * 300), value(cursor, StatsEntry.COLUMN_TOTAL_VALUE));
+            cursor.moveToNext();
+            assertEquals("Hats Ltd", value(cursor, StatsEntry.COLUMN_SUPPLIER));
+            assertEquals(String.valueOf(5 * 2500), value(cursor, StatsEntry.COLUMN_TOTAL_VALUE));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void statsHonourFilters() {
+        Uri uri = StatsEntry.CONTENT_URI.buildUpon()
+                .appendQueryParameter(ProductEntry.QUERY_PARAMETER_MAX_QUANTITY, "5")
+                .build();
+        Cursor cursor = getMockContentResolver().query(uri,
+                new String[]{StatsEntry.COLUMN_SUPPLIER, StatsEntry.COLUMN_PRODUCT_COUNT},
+                StatsEntry.COLUMN_PRODUCT_COUNT + ">?", new String[]{"1"}, null);
+        try {
+            assertEquals(1, cursor.getCount());
+            cursor.moveToFirst();
+            assertEquals("Hats Ltd", cursor.getString(0));
+            assertEquals(2, cursor.getInt(1));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void summaryFollowsEveryWrite() {
+        assertSummary(4, 47, 2 * 1000 + 40 * 300 + 5 * 2500, 1);
+
+        Uri socks = productUri("socks");
+        ContentValues values = new ContentValues();
+        values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, 0);
+        values.put(ProductEntry.COLUMN_PRODUCT_PRICE, 500);
+        getMockContentResolver().update(socks, values, null, null);
+        assertSummary(4, 7, 2 * 1000 + 5 * 2500, 2);
+
+        Bundle extras = new Bundle();
+        extras.putLong(ProductContract.KEY_PRODUCT_ID, ContentUris.parseId(socks));
+        extras.putLong(ProductContract.KEY_QUANTITY_DELTA, 3);
+        getMockContentResolver().call(ProductEntry.CONTENT_URI, ProductContract.METHOD_ADJUST_QUANTITY,
+                null, extras);
+        assertSummary(4, 10, 2 * 1000 + 3 * 500 + 5 * 2500, 1);
+
+        getMockContentResolver().delete(productUri("scarf"), null, null);
+        assertSummary(3, 5, 2 * 1000 + 3 * 500, 1);
+
+        getMockContentResolver().delete(ProductEntry.CONTENT_URI, null, null);
+        assertSummary(0, 0, 0, 0);
+        assertTrue(checkSummary());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void adjustQuantityRequiresProductId() {
+        Bundle extras = new Bundle();
+        extras.putLong(ProductContract.KEY_QUANTITY_DELTA, -1);
+        getMockContentResolver().call(ProductEntry.CONTENT_URI, ProductContract.METHOD_ADJUST_QUANTITY,
+                null, extras);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void adjustQuantityRequiresDelta() {
+        Bundle extras = new Bundle();
+        extras.putLong(ProductContract.KEY_PRODUCT_ID, ContentUris.parseId(productUri("socks")));
+        getMockContentResolver().call(ProductEntry.CONTENT_URI, ProductContract.METHOD_ADJUST_QUANTITY,
+                null, extras);
+    }
+
+    @Test
+    public void zeroDeltaReadsTheQuantity() {
+        Uri socks = productUri("socks");
+        Bundle extras = new Bundle();
+        extras.putLong(ProductContract.KEY_PRODUCT_ID, ContentUris.parseId(socks));
+        extras.putLong(ProductContract.KEY_QUANTITY_DELTA, 0);
+        Bundle result = getMockContentResolver().call(ProductEntry.CONTENT_URI,
+                ProductContract.METHOD_ADJUST_QUANTITY, null, extras);
+        assertEquals(40, result.getLong(ProductContract.KEY_QUANTITY));
+
+        getMockContentResolver().delete(socks, null, null);
+        assertNull(getMockContentResolver().call(ProductEntry.CONTENT_URI,
+                ProductContract.METHOD_ADJUST_QUANTITY, null, extras));
+    }
+
+    @Test
+    public void summaryMatchesRecomputedTotals() {
+        ContentValues[] rows = new ContentValues[100];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new ContentValues();
+            rows[i].put(ProductEntry.COLUMN_PRODUCT_NAME, "product " + i);
+            rows[i].put(ProductEntry.COLUMN_PRODUCT_PRICE, i);
+            rows[i].put(ProductEntry.COLUMN_PRODUCT_QUANTITY, i % 3);
+            rows[i].put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, "Acme");
+        }
+        getMockContentResolver().bulkInsert(ProductEntry.CONTENT_URI, rows);
+        assertTrue(checkSummary());
+    }
+
+    @Test
+    public void bulkInsertKeepsTheVersionOfSyncedRows() {
+        ContentValues row = new ContentValues();
+        row.put(ProductEntry.COLUMN_PRODUCT_NAME, "gloves");
+        row.put(ProductEntry.COLUMN_PRODUCT_PRICE, 800);
+        row.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, 3);
+        row.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, "Acme");
+        row.put(ProductEntry.COLUMN_PRODUCT_VERSION, 7);
+        assertEquals(1, getMockContentResolver().bulkInsert(
+                ProductContract.asSyncAdapter(ProductEntry.CONTENT_URI), new ContentValues[]{row}));
+
+        Cursor cursor = getMockContentResolver().query(productUri("gloves"),
+                new String[]{ProductEntry.COLUMN_PRODUCT_VERSION}, null, null, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(7, cursor.getLong(0));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bulkInsertRejectsVersionFromOtherCallers() {
+        ContentValues row = new ContentValues();
+        row.put(ProductEntry.COLUMN_PRODUCT_NAME, "gloves");
+        row.put(ProductEntry.COLUMN_PRODUCT_PRICE, 800);
+        row.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, 3);
+        row.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, "Acme");
+        row.put(ProductEntry.COLUMN_PRODUCT_VERSION, 7);
+        getMockContentResolver().bulkInsert(ProductEntry.CONTENT_URI, new ContentValues[]{row});
+    }
+
+    private boolean checkSummary() {
+        return getMockContentResolver().call(ProductEntry.CONTENT_URI,
+                ProductContract.METHOD_CHECK_SUMMARY, null, null)
+                .getBoolean(ProductContract.KEY_SUMMARY_CONSISTENT);
+    }
+
+    private void assertSummary(long count, long quantity, long value, long outOfStock) {
+        Cursor cursor = getMockContentResolver().query(SummaryEntry.CONTENT_URI, null, null, null, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(String.valueOf(count), value(cursor, SummaryEntry.COLUMN_PRODUCT_COUNT));
+            assertEquals(String.valueOf(quantity), value(cursor, SummaryEntry.COLUMN_TOTAL_QUANTITY));
+            assertEquals(String.valueOf(value), value(cursor, SummaryEntry.COLUMN_TOTAL_VALUE));
+            assertEquals(String.valueOf(outOfStock), value(cursor, SummaryEntry.COLUMN_OUT_OF_STOCK_COUNT));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private Uri productUri(String name) {
+        Cursor cursor = getMockContentResolver().query(ProductEntry.CONTENT_URI,
+                new String[]{ProductEntry._ID}, ProductEntry.COLUMN_PRODUCT_NAME + "=?",
+                new String[]{name}, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return ContentUris.withAppendedId(ProductEntry.CONTENT_URI, cursor.getLong(0));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void insert(String name, int price, int quantity, String supplier) {
+        ContentValues values = new ContentValues();
+        values.put(ProductEntry.COLUMN_PRODUCT_NAME, name);
+        values.put(ProductEntry.COLUMN_PRODUCT_PRICE, price);
+        values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, quantity);
+        values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, supplier);
+        values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, 1234);
+        assertNotNull(getMockContentResolver().insert(ProductEntry.CONTENT_URI, values));
+    }
+
+    @Test
+    public void metricsArePerUri() {
+        Bundle enable = new Bundle();
+        enable.putBoolean(ProductContract.KEY_METRICS_ENABLED, true);
+        getMockContentResolver().call(ProductEntry.CONTENT_URI, ProductContract.METHOD_METRICS, null, enable);
+        Bundle metrics;
+        try {
+            assertNames(ProductEntry.CONTENT_URI, "hat", "scarf", "shirt", "socks");
+            assertNames(ProductEntry.buildLowStockUri(2), "hat", "shirt");
+            Cursor hat = getMockContentResolver().query(ProductEntry.CONTENT_URI, new String[]{ProductEntry._ID},
+                    ProductEntry.COLUMN_PRODUCT_NAME + "=?", new String[]{"hat"}, null);
+            long id;
+            try {
+                assertTrue(hat.moveToFirst());
+                id = hat.getLong(0);
+            } finally {
+                hat.close();
+            }
+            getMockContentResolver().query(ContentUris.withAppendedId(ProductEntry.CONTENT_URI, id),
+                    null, null, null, null).close();
+        } finally {
+            Bundle disable = new Bundle();
+            disable.putBoolean(ProductContract.KEY_METRICS_ENABLED, false);
+            metrics = getMockContentResolver().call(ProductEntry.CONTENT_URI, ProductContract.METHOD_METRICS,
+                    null, disable);
+        }
+
+        assertFalse(metrics.getBoolean(ProductContract.KEY_METRICS_ENABLED));
+        Bundle products = metrics.getBundle("query /products");
+        assertEquals(3, products.getLong(ProductContract.KEY_METRIC_COUNT));
+        assertEquals(4 + 2 + 1, products.getLong(ProductContract.KEY_METRIC_ROWS));
+        assertTrue(products.getLong(ProductContract.KEY_METRIC_P50_MICROS)
+                <= products.getLong(ProductContract.KEY_METRIC_MAX_MICROS));
+        assertEquals(1, metrics.getBundle("query /products/#").getLong(ProductContract.KEY_METRIC_COUNT));
+        assertNull(metrics.getBundle("delete /products"));
+    }
+
+    @Test
+    public void cachedProductHasTheColumnsOfTheView() {
+        Uri uri = productUri("shirt");
+        String[] selectionArgs = {String.valueOf(ContentUris.parseId(uri))};
+        Cursor fromDatabase = getMockContentResolver().query(ProductEntry.CONTENT_URI, null,
+                ProductEntry._ID + "=?", selectionArgs, null);
+        // The first query reads the product into the cache, the second is answered from it.
+        getMockContentResolver().query(uri, null, null, null, null).close();
+        Cursor fromCache = getMockContentResolver().query(uri, null, null, null, null);
+        try {
+            assertTrue(fromDatabase.moveToFirst());
+            assertTrue(fromCache.moveToFirst());
+            assertEquals(Arrays.asList(fromDatabase.getColumnNames()), Arrays.asList(fromCache.getColumnNames()));
+            for (int i = 0; i < fromDatabase.getColumnCount(); i++) {
+                assertEquals(fromDatabase.getString(i), fromCache.getString(i));
+            }
+        } finally {
+            fromDatabase.close();
+            fromCache.close();
+        }
+    }
+
+    @Test
+    public void slowQueriesAreLoggedWithTheirPlan() {
+        // Every query is slower than 0 ms.
+        long threshold = setSlowQueryThreshold(0);
+        try {
+            assertNames(ProductEntry.buildLowStockUri(2), "hat", "shirt");
+        } finally {
+            setSlowQueryThreshold(threshold);
+        }
+
+        Cursor cursor = getMockContentResolver().query(SlowQueryEntry.CONTENT_URI, null, null, null, null);
+        try {
+            assertEquals(1, cursor.getCount());
+            cursor.moveToFirst();
+            assertTrue(value(cursor, SlowQueryEntry.COLUMN_SQL).contains(ProductEntry.DETAILS_VIEW_NAME));
+            assertEquals("[2]", value(cursor, SlowQueryEntry.COLUMN_ARGS));
+            assertEquals("2", value(cursor, SlowQueryEntry.COLUMN_ROWS));
+            assertTrue(value(cursor, SlowQueryEntry.COLUMN_QUERY_PLAN).contains(ProductEntry.TABLE_NAME));
+        } finally {
+            cursor.close();
+        }
+        assertEquals(1, getMockContentResolver().delete(SlowQueryEntry.CONTENT_URI, null, null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void slowQueryThresholdIsRequired() {
+        getMockContentResolver().call(ProductEntry.CONTENT_URI,
+                ProductContract.METHOD_SET_SLOW_QUERY_THRESHOLD, null, new Bundle());
+    }
+
+    @Test
+    public void slowQueryLogIsOffByDefaultInReleaseBuilds() {
+        long threshold = setSlowQueryThreshold(SlowQueryLog.OFF);
+        setSlowQueryThreshold(threshold);
+
+        assertEquals(BuildConfig.DEBUG ? SlowQueryLog.DEFAULT_THRESHOLD_MILLIS : SlowQueryLog.OFF, threshold);
+    }
+
+    @Test
+    public void notificationWindowIsSetThroughCall() {
+        assertEquals(NotificationCoalescer.DEFAULT_WINDOW_MILLIS, setNotificationWindow(0));
+        assertEquals(0, setNotificationWindow(NotificationCoalescer.DEFAULT_WINDOW_MILLIS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notificationWindowIsRequired() {
+        getMockContentResolver().call(ProductEntry.CONTENT_URI,
+                ProductContract.METHOD_SET_NOTIFICATION_WINDOW, null, new Bundle());
+    }
+
+    @Test
+    public void pageWithoutProjectionHasTheListColumns() {
+        Cursor cursor = getMockContentResolver().query(ProductEntry.buildPageUri(0, 3), null, null, null, null);
+        try {
+            assertEquals(Arrays.asList(ProductEntry.LIST_PROJECTION), Arrays.asList(cursor.getColumnNames()));
+            assertEquals(3, cursor.getCount());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pageWithSortOrderIsRejected() {
+        getMockContentResolver().query(ProductEntry.buildPageUri(0, 3), null, null, null,
+                ProductEntry.SORT_BY_NAME);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void projectionOutsideTheProductColumnsIsRejected() {
+        getMockContentResolver().query(ProductEntry.CONTENT_URI, new String[]{"COUNT(*)"}, null, null, null);
+    }
+
+    private long supplierId(String supplier) {
+        Cursor cursor = getMockContentResolver().query(ProductEntry.CONTENT_URI,
+                new String[]{ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID},
+                ProductEntry.COLUMN_PRODUCT_SUPPLIER + "=?", new String[]{supplier}, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Set the slow query threshold and return the previous one.
+     */
+    private long setSlowQueryThreshold(long millis) {
+        Bundle extras = new Bundle();
+        extras.putLong(ProductContract.KEY_SLOW_QUERY_THRESHOLD_MILLIS, millis);
+        return getMockContentResolver().call(ProductEntry.CONTENT_URI,
+                ProductContract.METHOD_SET_SLOW_QUERY_THRESHOLD, null, extras)
+                .getLong(ProductContract.KEY_SLOW_QUERY_THRESHOLD_MILLIS);
+    }
+
+    /**
+     * Set the notification window and return the previous one.
+     */
+    private long setNotificationWindow(long millis) {
+        Bundle extras = new Bundle();
+        extras.putLong(ProductContract.KEY_NOTIFICATION_WINDOW_MILLIS, millis);
+        return getMockContentResolver().call(ProductEntry.CONTENT_URI,
+                ProductContract.METHOD_SET_NOTIFICATION_WINDOW, null, extras)
+                .getLong(ProductContract.KEY_NOTIFICATION_WINDOW_MILLIS);
+    }
+
+    private void assertNames(Uri uri, String... expected) {
+        Cursor cursor = getMockContentResolver().query(uri,
+                new String[]{ProductEntry.COLUMN_PRODUCT_NAME}, null, null, ProductEntry.SORT_BY_NAME);
+        try {
+            assertEquals(expected.length, cursor.getCount());
+            for (String name : expected) {
+                cursor.moveToNext();
+                assertEquals(name, cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static String value(Cursor cursor, String column) {
+        return cursor.getString(cursor.getColumnIndexOrThrow(column));
+    }
+}
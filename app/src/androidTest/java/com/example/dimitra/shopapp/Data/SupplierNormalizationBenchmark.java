@@ -0,0 +1,142 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares database size and catalog query time with suppliers stored in every product row
+ * (version 2) and in their own table (version 3), for 200k products from 500 suppliers.
+ * Results are reported to logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SupplierNormalizationBenchmark {
+
+    private static final String LOG_TAG = SupplierNormalizationBenchmark.class.getSimpleName();
+
+    private static final String DATABASE = "supplier-benchmark.db";
+
+    private static final int PRODUCTS = 200000;
+
+    private static final int SUPPLIERS = 500;
+
+    private static final String[] CATALOG_COLUMNS = {
+            ProductEntry._ID,
+            ProductEntry.COLUMN_PRODUCT_NAME,
+            ProductEntry.COLUMN_PRODUCT_PRICE,
+            ProductEntry.COLUMN_PRODUCT_QUANTITY,
+            ProductEntry.COLUMN_PRODUCT_SUPPLIER,
+            ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
+    };
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mContext.deleteDatabase(DATABASE);
+    }
+
+    @After
+    public void tearDown() {
+        mContext.deleteDatabase(DATABASE);
+    }
+
+    @Test
+    public void normalizedSuppliersShrinkTheDatabase() {
+        SQLiteDatabase db = mContext.openOrCreateDatabase(DATABASE, Context.MODE_PRIVATE, null);
+        try {
+            createVersion2Products(db);
+        } finally {
+            db.close();
+        }
+        long denormalizedBytes = mContext.getDatabasePath(DATABASE).length();
+        db = SQLiteDatabase.openDatabase(mContext.getDatabasePath(DATABASE).getPath(), null,
+                SQLiteDatabase.OPEN_READONLY);
+        long denormalizedNanos;
+        try {
+            denormalizedNanos = timeCatalogQuery(db, ProductEntry.TABLE_NAME);
+        } finally {
+            db.close();
+        }
+
+        ProductDbHelper helper = new ProductDbHelper(mContext, DATABASE);
+        long normalizedBytes;
+        long normalizedNanos;
+        try {
+            SQLiteDatabase upgraded = helper.getWritableDatabase();
+            upgraded.execSQL("VACUUM");
+            normalizedBytes = mContext.getDatabasePath(DATABASE).length();
+            normalizedNanos = timeCatalogQuery(upgraded, ProductEntry.DETAILS_VIEW_NAME);
+        } finally {
+            helper.close();
+        }
+
+        Log.i(LOG_TAG, "inline suppliers: " + denormalizedBytes + " bytes, query "
+                + denormalizedNanos / 1000000 + " ms; supplier table: " + normalizedBytes
+                + " bytes, query " + normalizedNanos / 1000000 + " ms");
+        assertTrue(normalizedBytes < denormalizedBytes);
+    }
+
+    /**
+     * Write the version 2 schema, where every product repeats its supplier's name and phone.
+     */
+    private static void createVersion2Products(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE products (_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "name TEXT NOT NULL, price INTEGER NOT NULL, quantity INTEGER NOT NULL, "
+                + "supplier TEXT NOT NULL, supplierPhone INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX products_name_index ON products (name)");
+        db.execSQL("CREATE INDEX products_supplier_index ON products (supplier)");
+        db.execSQL("CREATE INDEX products_quantity_index ON products (quantity)");
+        db.beginTransaction();
+        SQLiteStatement insert = db.compileStatement("INSERT INTO products "
+                + "(name, price, quantity, supplier, supplierPhone) VALUES (?, ?, ?, ?, ?)");
+        try {
+            for (int i = 0; i < PRODUCTS; i++) {
+                insert.bindString(1, "product " + i);
+                insert.bindLong(2, i % 10000);
+                insert.bindLong(3, i % 50);
+                insert.bindString(4, "Wholesale supplier number " + (i % SUPPLIERS));
+                insert.bindLong(5, 3021000000L + i % SUPPLIERS);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            insert.close();
+            db.endTransaction();
+        }
+        db.setVersion(2);
+    }
+
+    /**
+     * Read every catalog row and column from the given table or view, and return the time taken.
+     */
+    private static long timeCatalogQuery(SQLiteDatabase db, String source) {
+        long start = System.nanoTime();
+        Cursor cursor = db.query(source, CATALOG_COLUMNS, null, null, null, null, null);
+        try {
+            int rows = 0;
+            while (cursor.moveToNext()) {
+                cursor.getString(4);
+                rows++;
+            }
+            assertEquals(PRODUCTS, rows);
+        } finally {
+            cursor.close();
+        }
+        return System.nanoTime() - start;
+    }
+}
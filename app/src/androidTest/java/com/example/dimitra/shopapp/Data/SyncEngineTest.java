@@ -0,0 +1,393 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.OperationApplicationException;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.RemoteException;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.ProviderTestCase2;
+import android.util.Log;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ChangeEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Syncs {@link ProductProvider} with a back office running in the same process, through
+ * {@link SyncEngine}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SyncEngineTest extends ProviderTestCase2<ProductProvider> {
+
+    private static final String LOG_TAG = SyncEngineTest.class.getSimpleName();
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+
+    private FakeBackOffice mBackOffice;
+
+    private SharedPreferences mState;
+
+    public SyncEngineTest() {
+        super(ProductProvider.class, ProductContract.CONTENT_AUTHORITY);
+    }
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        setContext(InstrumentationRegistry.getTargetContext());
+        super.setUp();
+        mBackOffice = new FakeBackOffice();
+        mState = InstrumentationRegistry.getTargetContext()
+                .getSharedPreferences("sync_engine_test", Context.MODE_PRIVATE);
+        mState.edit().clear().commit();
+    }
+
+    @Test
+    public void localProductsArePushedOnce() throws IOException {
+        Uri shirt = insert("shirt", 2);
+        insert("hat", 0);
+
+        SyncEngine.Result result = engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        assertEquals(2, result.pushed);
+        assertEquals(2, mBackOffice.mProducts.size());
+        SyncRecord pushed = mBackOffice.mProducts.get(ContentUris.parseId(shirt));
+        assertEquals("shirt", pushed.name);
+        assertEquals(pushed.version, readVersion(shirt));
+
+        // Our own changes come back once, and are recognised.
+        result = engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        assertEquals(2, result.pulled);
+        assertEquals(0, result.pushed);
+        result = engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        assertEquals(0, result.pulled);
+        assertEquals(0, result.pushed);
+    }
+
+    @Test
+    public void remoteChangesAreAppliedWithoutLogging() throws IOException {
+        mBackOffice.edit(new SyncRecord(500, 0, 1000, "scarf", 300, 4, "Scarves Co", 5678));
+
+        SyncEngine.Result result = engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        assertEquals(1, result.pulled);
+        Uri scarf = ContentUris.withAppendedId(ProductEntry.CONTENT_URI, 500);
+        assertEquals("scarf", readName(scarf));
+        assertEquals(0, countChanges());
+
+        mBackOffice.edit(new SyncRecord(500, 0, 2000, "wool scarf", 300, 4, "Scarves Co", 5678));
+        engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        assertEquals("wool scarf", readName(scarf));
+        assertEquals(0, countChanges());
+        assertEquals(0, engine(ConflictResolver.LAST_WRITER_WINS).sync().pushed);
+    }
+
+    @Test
+    public void batchWithFailedInsertAppliesNothing() {
+        Uri shirt = insert("shirt", 2);
+        Uri syncProducts = ProductContract.asSyncAdapter(ProductEntry.CONTENT_URI);
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(ContentProviderOperation.newInsert(syncProducts)
+                .withValues(remoteValues(600, "hat")).build());
+        // Takes the id of the local shirt.
+        operations.add(ContentProviderOperation.newInsert(syncProducts)
+                .withValues(remoteValues(ContentUris.parseId(shirt), "scarf")).build());
+
+        try {
+            getMockContentResolver().applyBatch(ProductContract.CONTENT_AUTHORITY, operations);
+            fail("The batch should fail");
+        } catch (OperationApplicationException expected) {
+            // The whole batch is rolled back.
+        } catch (RemoteException e) {
+            throw new AssertionError(e);
+        }
+        assertNull(readName(ContentUris.withAppendedId(ProductEntry.CONTENT_URI, 600)));
+        assertEquals("shirt", readName(shirt));
+    }
+
+    @Test
+    public void lastWriterWins() throws IOException {
+        Uri shirt = insert("shirt", 2);
+        long id = ContentUris.parseId(shirt);
+        engine(ConflictResolver.LAST_WRITER_WINS).sync();
+
+        // The back office change is the later one.
+        setQuantity(shirt, 5);
+        mBackOffice.edit(new SyncRecord(id, 0, System.currentTimeMillis() + HOUR_MILLIS,
+                "shirt", 100, 9, "Acme", 1234));
+        SyncEngine.Result result = engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        assertEquals(1, result.conflicts);
+        assertEquals(9, readQuantity(shirt));
+        assertEquals(9, mBackOffice.mProducts.get(id).quantity);
+
+        // Now the local change is.
+        mBackOffice.edit(new SyncRecord(id, 0, 1000, "shirt", 100, 11, "Acme", 1234));
+        setQuantity(shirt, 7);
+        result = engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        assertEquals(1, result.conflicts);
+        assertEquals(7, readQuantity(shirt));
+        assertEquals(7, mBackOffice.mProducts.get(id).quantity);
+        assertEquals(mBackOffice.mProducts.get(id).version, readVersion(shirt));
+    }
+
+    @Test
+    public void customRuleDecidesConflicts() throws IOException {
+        ConflictResolver keepLargerStock = new ConflictResolver() {
+            @Override
+            public boolean keepLocal(SyncRecord local, SyncRecord remote) {
+                return local.quantity > remote.quantity;
+            }
+        };
+        Uri shirt = insert("shirt", 2);
+        long id = ContentUris.parseId(shirt);
+        engine(keepLargerStock).sync();
+
+        setQuantity(shirt, 8);
+        mBackOffice.edit(new SyncRecord(id, 0, System.currentTimeMillis() + HOUR_MILLIS,
+                "shirt", 100, 3, "Acme", 1234));
+        engine(keepLargerStock).sync();
+        assertEquals(8, readQuantity(shirt));
+        assertEquals(8, mBackOffice.mProducts.get(id).quantity);
+    }
+
+    @Test
+    public void conflictFoundOnPushIsRetried() throws IOException {
+        Uri shirt = insert("shirt", 2);
+        long id = ContentUris.parseId(shirt);
+        engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        engine(ConflictResolver.LAST_WRITER_WINS).sync();
+
+        setQuantity(shirt, 6);
+        // The back office changes between the pull and the push of the next sync.
+        mBackOffice.mEditBeforePush = new SyncRecord(id, 0, 1000, "shirt", 100, 1, "Acme", 1234);
+        SyncEngine.Result result = engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        assertEquals(1, result.conflicts);
+        assertEquals(1, result.pushed);
+        assertEquals(6, mBackOffice.mProducts.get(id).quantity);
+        assertEquals(6, readQuantity(shirt));
+    }
+
+    @Test
+    public void deletionsWinBothWays() throws IOException {
+        Uri shirt = insert("shirt", 2);
+        Uri hat = insert("hat", 1);
+        long hatId = ContentUris.parseId(hat);
+        engine(ConflictResolver.LAST_WRITER_WINS).sync();
+
+        getMockContentResolver().delete(shirt, null, null);
+        // A later change of the hat loses against its deletion on the back office.
+        setQuantity(hat, 4);
+        mBackOffice.delete(hatId);
+        engine(ConflictResolver.LAST_WRITER_WINS).sync();
+
+        assertTrue(mBackOffice.mProducts.get(ContentUris.parseId(shirt)).deleted);
+        assertTrue(mBackOffice.mProducts.get(hatId).deleted);
+        assertNull(readName(hat));
+        assertNull(readName(shirt));
+        assertEquals(0, engine(ConflictResolver.LAST_WRITER_WINS).sync().pushed);
+    }
+
+    @Test
+    public void localDeletionIsPushedWithItsVersion() throws IOException {
+        Uri shirt = insert("shirt", 2);
+        long id = ContentUris.parseId(shirt);
+        engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        engine(ConflictResolver.LAST_WRITER_WINS).sync();
+
+        getMockContentResolver().delete(shirt, null, null);
+        SyncEngine.Result result = engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        assertEquals(0, result.conflicts);
+        assertEquals(1, result.pushed);
+        assertTrue(mBackOffice.mProducts.get(id).deleted);
+    }
+
+    @Test
+    public void bothSidesCreateProducts() throws IOException {
+        // The back office numbers its products from 1, as a fresh database would.
+        mBackOffice.edit(new SyncRecord(1, 0, 1000, "scarf", 300, 4, "Scarves Co", 5678));
+        Uri shirt = insert("shirt", 2);
+        long id = ContentUris.parseId(shirt);
+        assertTrue(id >= SyncRecord.MIN_DEVICE_ID);
+
+        SyncEngine.Result result = engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        assertEquals(0, result.conflicts);
+        assertEquals(1, result.pushed);
+        assertEquals("shirt", readName(shirt));
+        assertEquals("scarf", readName(ContentUris.withAppendedId(ProductEntry.CONTENT_URI, 1)));
+        assertEquals("shirt", mBackOffice.mProducts.get(id).name);
+        assertEquals("scarf", mBackOffice.mProducts.get(1L).name);
+
+        // The next product of this device follows on in its range.
+        assertEquals(id + 1, ContentUris.parseId(insert("hat", 0)));
+    }
+
+    @Test
+    public void trafficGrowsWithChangesNotCatalog() throws IOException {
+        List<Uri> products = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            products.add(insert("product " + i, i));
+        }
+        SyncEngine.Result first = engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        assertEquals(1000, first.pushed);
+
+        setQuantity(products.get(10), 0);
+        setQuantity(products.get(20), 0);
+        SyncEngine.Result second = engine(ConflictResolver.LAST_WRITER_WINS).sync();
+        assertEquals(2, second.pushed);
+        long firstBytes = first.bytesSent + first.bytesReceived;
+        long secondBytes = second.bytesSent + second.bytesReceived;
+        Log.i(LOG_TAG, "Syncing 1000 products took " + firstBytes + " bytes, 2 changes " + secondBytes);
+        assertTrue(secondBytes * 20 < firstBytes);
+    }
+
+    private SyncEngine engine(ConflictResolver conflictResolver) {
+        return new SyncEngine(getMockContentResolver(), mState, mBackOffice, conflictResolver, 200);
+    }
+
+    private Uri insert(String name, int quantity) {
+        ContentValues values = new ContentValues();
+        values.put(ProductEntry.COLUMN_PRODUCT_NAME, name);
+        values.put(ProductEntry.COLUMN_PRODUCT_PRICE, 100);
+        values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, quantity);
+        values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, "Acme");
+        values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, 1234);
+        Uri uri = getMockContentResolver().insert(ProductEntry.CONTENT_URI, values);
+        assertNotNull(uri);
+        return uri;
+    }
+
+    private void setQuantity(Uri product, int quantity) {
+        ContentValues values = new ContentValues();
+        values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, quantity);
+        assertEquals(1, getMockContentResolver().update(product, values, null, null));
+    }
+
+    private static ContentValues remoteValues(long id, String name) {
+        ContentValues values = new ContentValues();
+        values.put(ProductEntry._ID, id);
+        values.put(ProductEntry.COLUMN_PRODUCT_NAME, name);
+        values.put(ProductEntry.COLUMN_PRODUCT_PRICE, 300);
+        values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, 4);
+        values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, "Acme");
+        values.put(ProductEntry.COLUMN_PRODUCT_VERSION, 1000);
+        return values;
+    }
+
+    private String readName(Uri product) {
+        Cursor cursor = getMockContentResolver().query(product,
+                new String[]{ProductEntry.COLUMN_PRODUCT_NAME}, null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private long readQuantity(Uri product) {
+        return readLong(product, ProductEntry.COLUMN_PRODUCT_QUANTITY);
+    }
+
+    private long readVersion(Uri product) {
+        return readLong(product, ProductEntry.COLUMN_PRODUCT_VERSION);
+    }
+
+    private long readLong(Uri product, String column) {
+        Cursor cursor = getMockContentResolver().query(product, new String[]{column}, null, null, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private int countChanges() {
+        Cursor cursor = getMockContentResolver().query(ChangeEntry.CONTENT_URI, null, null, null, null);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Back office kept in memory. Every accepted change gets the next version; a change based on
+     * an older version than the current one is rejected, deletions included.
+     */
+    private static final class FakeBackOffice implements SyncTransport {
+
+        final Map<Long, SyncRecord> mProducts = new HashMap<>();
+
+        /** Applied on the next push, before the pushed changes. */
+        SyncRecord mEditBeforePush;
+
+        private long mVersion;
+
+        /**
+         * Change a product as another client of the back office would.
+         */
+        void edit(SyncRecord product) {
+            mProducts.put(product.productId, product.withVersion(++mVersion));
+        }
+
+        void delete(long productId) {
+            mProducts.put(productId, SyncRecord.deletion(productId, ++mVersion, System.currentTimeMillis()));
+        }
+
+        @Override
+        public byte[] pull(byte[] request) throws IOException {
+            SyncCodec.PullRequest pull = SyncCodec.decodePullRequest(request);
+            List<SyncRecord> changes = new ArrayList<>();
+            for (SyncRecord product : mProducts.values()) {
+                if (product.version > pull.sinceVersion) {
+                    changes.add(product);
+                }
+            }
+            Collections.sort(changes, new Comparator<SyncRecord>() {
+                @Override
+                public int compare(SyncRecord a, SyncRecord b) {
+                    return a.version < b.version ? -1 : (a.version == b.version ? 0 : 1);
+                }
+            });
+            return SyncCodec.encodeRecords(changes.subList(0, Math.min(pull.limit, changes.size())));
+        }
+
+        @Override
+        public byte[] push(byte[] request) throws IOException {
+            if (mEditBeforePush != null) {
+                edit(mEditBeforePush);
+                mEditBeforePush = null;
+            }
+            List<SyncCodec.PushResult> results = new ArrayList<>();
+            for (SyncRecord change : SyncCodec.decodeRecords(request)) {
+                SyncRecord current = mProducts.get(change.productId);
+                if (current != null && current.deleted) {
+                    results.add(new SyncCodec.PushResult(false, current));
+                } else if (current == null || current.version == change.version) {
+                    SyncRecord accepted = change.withVersion(++mVersion);
+                    mProducts.put(change.productId, accepted);
+                    results.add(new SyncCodec.PushResult(true, accepted));
+                } else {
+                    results.add(new SyncCodec.PushResult(false, current));
+                }
+            }
+            return SyncCodec.encodePushResults(results);
+        }
+    }
+}
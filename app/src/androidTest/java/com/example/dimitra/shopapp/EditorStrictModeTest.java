@@ -0,0 +1,196 @@
+package com.example.dimitra.shopapp;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.widget.EditText;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+import com.example.dimitra.shopapp.Data.ProductRepository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Saves, sells and deletes products through {@link EditorActivity} with a strict mode policy
+ * that kills the app on any disk read or write made on the main thread.
+ */
+@RunWith(AndroidJUnit4.class)
+public class EditorStrictModeTest {
+
+    private static final String NAME = "strict mode test product";
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private Instrumentation mInstrumentation;
+
+    private Context mContext;
+
+    private StrictMode.ThreadPolicy mOldPolicy;
+
+    @Before
+    public void setUp() {
+        mInstrumentation = InstrumentationRegistry.getInstrumentation();
+        mContext = InstrumentationRegistry.getTargetContext();
+        deleteTestProducts();
+    }
+
+    @After
+    public void tearDown() {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                if (mOldPolicy != null) {
+                    StrictMode.setThreadPolicy(mOldPolicy);
+                }
+            }
+        });
+        deleteTestProducts();
+    }
+
+    @Test
+    public void savingANewProductStaysOffTheMainThread() {
+        final Activity editor = startEditor(null);
+        enableStrictMode();
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                setText(editor, R.id.edit_product_name, NAME);
+                setText(editor, R.id.edit_product_price, "1.50");
+                setText(editor, R.id.edit_product_quantity, "3");
+                setText(editor, R.id.edit_supplier_name, "supplier");
+                setText(editor, R.id.edit_supplier_phone_number, "1234");
+            }
+        });
+        assertTrue(mInstrumentation.invokeMenuActionSync(editor, R.id.action_save, 0));
+
+        assertEquals(3, awaitQuantity(3));
+    }
+
+    @Test
+    public void editingAnExistingProductStaysOffTheMainThread() {
+        final Uri uri = insertTestProduct(5);
+        final Activity editor = startEditor(uri);
+        awaitFieldText(editor, R.id.edit_product_name, NAME);
+        enableStrictMode();
+
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                editor.findViewById(R.id.btn_sell).performClick();
+            }
+        });
+        assertEquals(4, awaitQuantity(4));
+
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                ProductRepository.getInstance(editor).delete(uri, null);
+            }
+        });
+        assertEquals(-1, awaitQuantity(-1));
+    }
+
+    private Activity startEditor(Uri uri) {
+        Intent intent = new Intent(mContext, EditorActivity.class);
+        intent.setData(uri);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        return mInstrumentation.startActivitySync(intent);
+    }
+
+    private void enableStrictMode() {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mOldPolicy = StrictMode.getThreadPolicy();
+                StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                        .detectDiskReads()
+                        .detectDiskWrites()
+                        .penaltyLog()
+                        .penaltyDeath()
+                        .build());
+            }
+        });
+    }
+
+    private static void setText(Activity activity, int id, String text) {
+        ((EditText) activity.findViewById(id)).setText(text);
+    }
+
+    private void awaitFieldText(final Activity activity, final int id, String expected) {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MILLIS;
+        final String[] text = new String[1];
+        do {
+            mInstrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    text[0] = ((EditText) activity.findViewById(id)).getText().toString();
+                }
+            });
+            if (expected.equals(text[0])) {
+                return;
+            }
+            SystemClock.sleep(20);
+        } while (SystemClock.uptimeMillis() < deadline);
+        fail("Field never showed " + expected);
+    }
+
+    /**
+     * Poll the database from the test thread until the test product has the expected quantity,
+     * or is gone for -1. Return the last quantity seen.
+     */
+    private long awaitQuantity(long expected) {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MILLIS;
+        long quantity;
+        do {
+            quantity = queryQuantity();
+            if (quantity == expected) {
+                break;
+            }
+            SystemClock.sleep(20);
+        } while (SystemClock.uptimeMillis() < deadline);
+        return quantity;
+    }
+
+    private long queryQuantity() {
+        Cursor cursor = mContext.getContentResolver().query(ProductEntry.CONTENT_URI,
+                new String[]{ProductEntry.COLUMN_PRODUCT_QUANTITY},
+                ProductEntry.COLUMN_PRODUCT_NAME + "=?", new String[]{NAME}, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private Uri insertTestProduct(int quantity) {
+        ContentValues values = new ContentValues();
+        values.put(ProductEntry.COLUMN_PRODUCT_NAME, NAME);
+        values.put(ProductEntry.COLUMN_PRODUCT_PRICE, 150);
+        values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, quantity);
+        values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, "supplier");
+        values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, 1234);
+        Uri uri = mContext.getContentResolver().insert(ProductEntry.CONTENT_URI, values);
+        assertNotNull(uri);
+        assertTrue(ContentUris.parseId(uri) > 0);
+        return uri;
+    }
+
+    private void deleteTestProducts() {
+        mContext.getContentResolver().delete(ProductEntry.CONTENT_URI,
+                ProductEntry.COLUMN_PRODUCT_NAME + "=?", new String[]{NAME});
+    }
+}
@@ -3,24 +3,24 @@ package com.example.dimitra.shopapp;
 import android.app.LoaderManager;
 import android.content.ContentUris;
 import android.content.ContentValues;
-import android.content.CursorLoader;
 import android.content.Intent;
 import android.content.Loader;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
 import android.support.design.widget.FloatingActionButton;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
 
 import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+import com.example.dimitra.shopapp.Data.ProductRepository;
+import com.example.dimitra.shopapp.Data.ProviderMetrics;
 
 import java.util.List;
 
@@ -28,10 +28,25 @@ import java.util.List;
 /**
  * Displays list of products that were entered and stored in the app.
  */
-public class CatalogActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<Cursor>{
+public class CatalogActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<ProductSnapshot>{
     private static  final int PRODUCT_LOADER = 0;
 
-    ProductCursorAdapter mCursorAdapter;
+    /** Load the next page when the list is scrolled this close to the last loaded row. */
+    private static final int PREFETCH_DISTANCE = 20;
+
+    /** Columns shown in the catalog, for both the loader and the pages loaded on scroll. */
+    private static final String[] PROJECTION = ProductEntry.LIST_PROJECTION;
+
+    /** Operations timed from creating the loader, in {@link ProviderMetrics}. */
+    private static final String METRIC_LOAD_SNAPSHOT = "load catalog snapshot";
+    private static final String METRIC_LOAD = "load catalog";
+
+    ProductRecyclerAdapter mProductAdapter;
+
+    private View mEmptyView;
+
+    /** When the loader was created, until its first rows from the database are delivered. */
+    private long mLoadStart = ProviderMetrics.NOT_TIMED;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -55,22 +70,41 @@ public class CatalogActivity extends AppCompatActivity implements LoaderManager.
                     startActivity(intent);
             }
         });
-        // Find the ListView which will be populated with the product data
-        ListView productListView = findViewById(R.id.list);
-
-        View emptyView = findViewById(R.id.empty_view);
-        productListView.setEmptyView(emptyView);
-        mCursorAdapter = new ProductCursorAdapter(this,null);
-        productListView.setAdapter(mCursorAdapter);
-        productListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+        // Find the RecyclerView which will be populated with the product data
+        RecyclerView productListView = findViewById(R.id.list);
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        productListView.setLayoutManager(layoutManager);
+
+        mEmptyView = findViewById(R.id.empty_view);
+        mProductAdapter = new ProductRecyclerAdapter(this, new ProductRecyclerAdapter.OnProductClickListener() {
             @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long id) {
+            public void onProductClick(long id) {
                 Intent intent = new Intent(CatalogActivity.this, EditorActivity.class);
                 Uri currentProductUri = ContentUris.withAppendedId(ProductEntry.CONTENT_URI, id);
                 intent.setData(currentProductUri);
                 startActivity(intent);
             }
         });
+        productListView.setAdapter(mProductAdapter);
+        productListView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                Loader<ProductSnapshot> loader = getLoaderManager().getLoader(PRODUCT_LOADER);
+                if (loader == null) {
+                    return;
+                }
+                // The loader holds a window of a few pages, which slides along as the list is
+                // scrolled either way.
+                ProductSnapshotLoader snapshotLoader = (ProductSnapshotLoader) loader;
+                if (dy >= 0 && layoutManager.findLastVisibleItemPosition()
+                        >= mProductAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                    snapshotLoader.loadMore();
+                } else if (dy < 0 && layoutManager.findFirstVisibleItemPosition() < PREFETCH_DISTANCE
+                        && !snapshotLoader.isAtStart()) {
+                    snapshotLoader.loadPrevious();
+                }
+            }
+        });
         getLoaderManager().initLoader(PRODUCT_LOADER, null,this);
     }
 
@@ -83,13 +117,12 @@ public class CatalogActivity extends AppCompatActivity implements LoaderManager.
     private void insertProduct() {
         ContentValues values = new ContentValues();
         values.put(ProductEntry.COLUMN_PRODUCT_NAME, "shirt");
-        values.put(ProductEntry.COLUMN_PRODUCT_PRICE, "1");
+        values.put(ProductEntry.COLUMN_PRODUCT_PRICE, 100);
         values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, "2");
         values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, "Linus Torvalds");
         values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, "0049");
 
-        Uri newUri = getContentResolver().insert(ProductEntry.CONTENT_URI, values);
-
+        ProductRepository.getInstance(this).insert(values, null);
     }
 
     @Override
@@ -106,41 +139,46 @@ public class CatalogActivity extends AppCompatActivity implements LoaderManager.
     }
 
     @Override
-    public Loader<Cursor> onCreateLoader(int i, Bundle bundle) {
-
-        String[] projection = {
-                ProductEntry._ID,
-                ProductEntry.COLUMN_PRODUCT_NAME,
-                ProductEntry.COLUMN_PRODUCT_PRICE,
-                ProductEntry.COLUMN_PRODUCT_QUANTITY,
-                ProductEntry.COLUMN_PRODUCT_SUPPLIER,
-                ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
-        };
+    public Loader<ProductSnapshot> onCreateLoader(int i, Bundle bundle) {
         if (ProductEntry.COLUMN_PRODUCT_PRICE=="") {ProductEntry.COLUMN_PRODUCT_PRICE.concat("Unknown price");  }
 
-        return new CursorLoader(this,
-                ProductEntry.CONTENT_URI,
-                projection,
-                null,
-                null,
-                null);
+        // Only the first page is loaded up front; the window grows as the list scrolls. Until it
+        // is, the loader shows the rows stored at the end of the last load, which it reads in the
+        // background before opening the database. This only runs once per loader, not on rotation.
+        mLoadStart = ProviderMetrics.getInstance().start();
+        return new ProductSnapshotLoader(this, PROJECTION, new CatalogSnapshotStore(this, PROJECTION));
     }
 
 
     @Override
-    public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
-        mCursorAdapter.swapCursor(data);
+    public void onLoadFinished(Loader<ProductSnapshot> loader, ProductSnapshot data) {
+        // The snapshot is null if the provider couldn't be queried, which shows an empty list.
+        mProductAdapter.swapSnapshot(data);
+        mEmptyView.setVisibility(mProductAdapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+        if (data != null && mLoadStart != ProviderMetrics.NOT_TIMED) {
+            if (data.generation == ProductSnapshot.CACHED_GENERATION) {
+                ProviderMetrics.getInstance().stop(METRIC_LOAD_SNAPSHOT, mLoadStart);
+            } else {
+                ProviderMetrics.getInstance().stop(METRIC_LOAD, mLoadStart);
+                mLoadStart = ProviderMetrics.NOT_TIMED;
+            }
+        }
     }
 
     @Override
-    public void onLoaderReset(Loader<Cursor> loader) {
-        mCursorAdapter.swapCursor(null);
+    public void onLoaderReset(Loader<ProductSnapshot> loader) {
+        mProductAdapter.swapSnapshot(null);
     }
     /**
      * Helper method to delete all products in the database.
      */
     private void deleteAllProducts() {
-        int rowsDeleted = getContentResolver().delete(ProductEntry.CONTENT_URI, null, null);
-        Log.v("CatalogActivity", rowsDeleted + " rows deleted from product database");
+        ProductRepository.getInstance(this).delete(ProductEntry.CONTENT_URI,
+                new ProductRepository.Callback<Integer>() {
+                    @Override
+                    public void onResult(Integer rowsDeleted) {
+                        Log.v("CatalogActivity", rowsDeleted + " rows deleted from product database");
+                    }
+                });
     }
 }
\ No newline at end of file
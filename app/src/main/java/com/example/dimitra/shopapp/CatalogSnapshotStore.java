@@ -0,0 +1,154 @@
+package com.example.dimitra.shopapp;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.util.Log;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Keeps the first screen of the catalog in a small file, so the next cold start can show it
+ * before the database is even open.
+ *
+ * The file holds the text of every column of the first {@link #ROWS} rows, in binary. Rows read
+ * back give the same {@link ProductSnapshot#versionOf versions} as the rows they were written
+ * from, so the first load is diffed against them like against any earlier snapshot, and only the
+ * rows that changed meanwhile are rebound.
+ */
+final class CatalogSnapshotStore {
+
+    private static final String LOG_TAG = CatalogSnapshotStore.class.getSimpleName();
+
+    /** Number of rows kept, enough to fill the screen of a large phone. */
+    static final int ROWS = 20;
+
+    /** Version of the file format, checked when the file is read. */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String FILE_NAME = "catalog_snapshot";
+
+    private final File mFile;
+
+    private final String[] mColumns;
+
+    /**
+     * Constructs a new {@link CatalogSnapshotStore}.
+     *
+     * @param context The context
+     * @param columns The columns of the catalog. Must include {@link ProductEntry#_ID}.
+     */
+    CatalogSnapshotStore(Context context, String[] columns) {
+        mFile = new File(context.getCacheDir(), FILE_NAME);
+        mColumns = columns;
+    }
+
+    /**
+     * Return the stored rows as a snapshot of generation {@link ProductSnapshot#CACHED_GENERATION},
+     * or null if there are none, or they were stored with other columns. The file is only a few
+     * kilobytes, but it is still a disk read, so the loader does it on its background thread.
+     */
+    ProductSnapshot read() {
+        if (!mFile.exists()) {
+            return null;
+        }
+        MatrixCursor cursor = new MatrixCursor(mColumns, ROWS);
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            try {
+                if (in.readInt() != FORMAT_VERSION || !Arrays.equals(readColumns(in), mColumns)) {
+                    return null;
+                }
+                int rows = in.readInt();
+                Object[] row = new Object[mColumns.length];
+                for (int i = 0; i < rows; i++) {
+                    for (int column = 0; column < row.length; column++) {
+                        row[column] = in.readBoolean() ? in.readUTF() : null;
+                    }
+                    cursor.addRow(row);
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Could not read " + mFile, e);
+            return null;
+        }
+
+        long[] ids = new long[cursor.getCount()];
+        int[] versions = new int[ids.length];
+        int idColumnIndex = cursor.getColumnIndexOrThrow(ProductEntry._ID);
+        for (int i = 0; cursor.moveToPosition(i); i++) {
+            ids[i] = cursor.getLong(idColumnIndex);
+            versions[i] = ProductSnapshot.versionOf(cursor);
+        }
+        return new ProductSnapshot(ProductSnapshot.CACHED_GENERATION, 0, cursor, ids, versions, -1, null);
+    }
+
+    /**
+     * Store the first {@link #ROWS} rows of the cursor, which must have the columns of this store.
+     * The rows are written to a temporary file that then replaces the old one, so a start never
+     * reads half a snapshot. Called in the background.
+     */
+    void write(Cursor cursor) {
+        File temporary = new File(mFile.getPath() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+            try {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(mColumns.length);
+                for (String column : mColumns) {
+                    out.writeUTF(column);
+                }
+                int rows = Math.min(cursor.getCount(), ROWS);
+                out.writeInt(rows);
+                for (int i = 0; i < rows && cursor.moveToPosition(i); i++) {
+                    for (int column = 0; column < mColumns.length; column++) {
+                        String value = cursor.getString(column);
+                        out.writeBoolean(value != null);
+                        if (value != null) {
+                            out.writeUTF(value);
+                        }
+                    }
+                }
+            } finally {
+                out.close();
+            }
+            if (!temporary.renameTo(mFile)) {
+                throw new IOException("Could not rename " + temporary);
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Could not write " + mFile, e);
+            temporary.delete();
+        }
+    }
+
+    /**
+     * Forget the stored rows.
+     */
+    void clear() {
+        mFile.delete();
+    }
+
+    private static String[] readColumns(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > 100) {
+            throw new IOException("Invalid column count " + count);
+        }
+        String[] columns = new String[count];
+        for (int i = 0; i < count; i++) {
+            columns[i] = in.readUTF();
+        }
+        return columns;
+    }
+}
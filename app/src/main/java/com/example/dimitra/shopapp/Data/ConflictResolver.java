@@ -0,0 +1,25 @@
+package com.example.dimitra.shopapp.Data;
+
+/**
+ * Decides which change wins when a product was changed both on the device and on the back office
+ * since they were last in sync. Deletions aren't passed here: a deleted product stays deleted,
+ * since product ids are never reused.
+ */
+public interface ConflictResolver {
+
+    /**
+     * The change made last wins. On a tie the back office wins, so every device picks the same.
+     */
+    ConflictResolver LAST_WRITER_WINS = new ConflictResolver() {
+        @Override
+        public boolean keepLocal(SyncRecord local, SyncRecord remote) {
+            return local.changedAt > remote.changedAt;
+        }
+    };
+
+    /**
+     * Return true to keep the change made on the device and send it to the back office, false to
+     * replace it with the change from the back office.
+     */
+    boolean keepLocal(SyncRecord local, SyncRecord remote);
+}
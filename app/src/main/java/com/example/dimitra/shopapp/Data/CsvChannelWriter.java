@@ -0,0 +1,166 @@
+package com.example.dimitra.shopapp.Data;
+
+import com.example.dimitra.shopapp.NumberFormatter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes comma separated values as UTF-8 into a byte channel. Fields are encoded straight into
+ * one reusable buffer, which is handed to the channel whenever it fills up, so writing a row
+ * creates no objects. Fields are quoted in the same way {@link CsvReader} reads them back.
+ */
+final class CsvChannelWriter {
+
+    /** Bytes needed for the longest UTF-8 sequence of a single code point. */
+    private static final int MAX_CHAR_BYTES = 4;
+
+    private final WritableByteChannel mChannel;
+
+    private final ByteBuffer mBuffer;
+
+    private final char[] mNumber = new char[NumberFormatter.MAX_CENTS_CHARS];
+
+    /** Whether the current row has a field yet, so the next one needs a separator. */
+    private boolean mRowStarted;
+
+    CsvChannelWriter(WritableByteChannel channel, int bufferSize) {
+        if (bufferSize < MAX_CHAR_BYTES) {
+            throw new IllegalArgumentException("Buffer must hold at least " + MAX_CHAR_BYTES + " bytes");
+        }
+        mChannel = channel;
+        mBuffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Write a text field from the first {@code length} chars of the given array.
+     */
+    void writeText(char[] chars, int length) throws IOException {
+        startField();
+        if (!needsQuotes(chars, length)) {
+            writeChars(chars, length);
+            return;
+        }
+        putAscii('"');
+        for (int i = 0; i < length; i++) {
+            if (chars[i] == '"') {
+                putAscii('"');
+            }
+            i = writeChar(chars, i, length);
+        }
+        putAscii('"');
+    }
+
+    /**
+     * Write a text field. Meant for headers; rows should use {@link #writeText(char[], int)}.
+     */
+    void writeText(String text) throws IOException {
+        char[] chars = text.toCharArray();
+        writeText(chars, chars.length);
+    }
+
+    /**
+     * Write a whole number field.
+     */
+    void writeLong(long value) throws IOException {
+        startField();
+        writeChars(mNumber, NumberFormatter.format(value, mNumber));
+    }
+
+    /**
+     * Write an amount of cents as a decimal field, like "1.50".
+     */
+    void writeCents(long cents) throws IOException {
+        startField();
+        writeChars(mNumber, NumberFormatter.formatCents(cents, mNumber));
+    }
+
+    /**
+     * Write an empty field.
+     */
+    void writeEmpty() throws IOException {
+        startField();
+    }
+
+    /**
+     * End the current row.
+     */
+    void endRow() throws IOException {
+        putAscii('\n');
+        mRowStarted = false;
+    }
+
+    /**
+     * Hand everything written so far to the channel.
+     */
+    void flush() throws IOException {
+        mBuffer.flip();
+        while (mBuffer.hasRemaining()) {
+            mChannel.write(mBuffer);
+        }
+        mBuffer.clear();
+    }
+
+    private void startField() throws IOException {
+        if (mRowStarted) {
+            putAscii(',');
+        }
+        mRowStarted = true;
+    }
+
+    private void writeChars(char[] chars, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            i = writeChar(chars, i, length);
+        }
+    }
+
+    /**
+     * Encode the char at {@code index} as UTF-8, together with the one after it if they form a
+     * surrogate pair. Return the index of the last char used.
+     */
+    private int writeChar(char[] chars, int index, int length) throws IOException {
+        if (mBuffer.remaining() < MAX_CHAR_BYTES) {
+            flush();
+        }
+        char c = chars[index];
+        if (c < 0x80) {
+            mBuffer.put((byte) c);
+        } else if (c < 0x800) {
+            mBuffer.put((byte) (0xc0 | c >> 6));
+            mBuffer.put((byte) (0x80 | c & 0x3f));
+        } else if (Character.isHighSurrogate(c) && index + 1 < length
+                && Character.isLowSurrogate(chars[index + 1])) {
+            int codePoint = Character.toCodePoint(c, chars[++index]);
+            mBuffer.put((byte) (0xf0 | codePoint >> 18));
+            mBuffer.put((byte) (0x80 | codePoint >> 12 & 0x3f));
+            mBuffer.put((byte) (0x80 | codePoint >> 6 & 0x3f));
+            mBuffer.put((byte) (0x80 | codePoint & 0x3f));
+        } else if (Character.isSurrogate(c)) {
+            // Half of a pair can't be encoded.
+            mBuffer.put((byte) '?');
+        } else {
+            mBuffer.put((byte) (0xe0 | c >> 12));
+            mBuffer.put((byte) (0x80 | c >> 6 & 0x3f));
+            mBuffer.put((byte) (0x80 | c & 0x3f));
+        }
+        return index;
+    }
+
+    private void putAscii(char c) throws IOException {
+        if (!mBuffer.hasRemaining()) {
+            flush();
+        }
+        mBuffer.put((byte) c);
+    }
+
+    private static boolean needsQuotes(char[] chars, int length) {
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
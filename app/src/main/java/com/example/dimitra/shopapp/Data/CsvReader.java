@@ -0,0 +1,101 @@
+package com.example.dimitra.shopapp.Data;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Reads comma separated values one record at a time, so a file of any size is parsed with the
+ * same small amount of memory. Fields may be quoted with double quotes, in which case they can
+ * hold commas, line breaks and doubled quotes. Records end with "\n" or "\r\n".
+ */
+final class CsvReader {
+
+    private static final int END = -1;
+
+    private final Reader mReader;
+
+    private final StringBuilder mField = new StringBuilder();
+
+    /** A character read ahead by the last call, or {@link #END} if there is none. */
+    private int mPeeked = END;
+
+    private boolean mPeekedValid;
+
+    CsvReader(Reader reader) {
+        mReader = reader;
+    }
+
+    /**
+     * Read the next record into {@code fields}, replacing what it held. Return false, leaving
+     * {@code fields} empty, if the input has no more records.
+     */
+    boolean readRecord(List<String> fields) throws IOException {
+        fields.clear();
+        int c = read();
+        if (c == END) {
+            return false;
+        }
+        while (true) {
+            mField.setLength(0);
+            if (c == '"') {
+                c = readQuoted();
+            } else {
+                while (c != ',' && c != '\n' && c != '\r' && c != END) {
+                    mField.append((char) c);
+                    c = read();
+                }
+            }
+            fields.add(mField.toString());
+
+            if (c == ',') {
+                c = read();
+                continue;
+            }
+            if (c == '\r') {
+                c = read();
+                if (c != '\n') {
+                    unread(c);
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Read the rest of a quoted field into {@link #mField}. Return the character after it.
+     */
+    private int readQuoted() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == END) {
+                throw new IOException("Unterminated quoted field");
+            }
+            if (c == '"') {
+                c = read();
+                if (c != '"') {
+                    // Anything up to the next separator after the closing quote is kept as is.
+                    while (c != ',' && c != '\n' && c != '\r' && c != END) {
+                        mField.append((char) c);
+                        c = read();
+                    }
+                    return c;
+                }
+            }
+            mField.append((char) c);
+        }
+    }
+
+    private int read() throws IOException {
+        if (mPeekedValid) {
+            mPeekedValid = false;
+            return mPeeked;
+        }
+        return mReader.read();
+    }
+
+    private void unread(int c) {
+        mPeeked = c;
+        mPeekedValid = true;
+    }
+}
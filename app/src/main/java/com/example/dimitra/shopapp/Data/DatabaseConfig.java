@@ -0,0 +1,58 @@
+package com.example.dimitra.shopapp.Data;
+
+/**
+ * Settings that {@link ProductDbHelper} applies every time it opens the database.
+ */
+public final class DatabaseConfig {
+
+    /** Every commit is flushed to disk before it returns. */
+    public static final String SYNCHRONOUS_FULL = "FULL";
+
+    /**
+     * Commits are flushed at checkpoints. With write-ahead logging this is still safe against
+     * crashes of the app; only a power loss can undo the latest commits.
+     */
+    public static final String SYNCHRONOUS_NORMAL = "NORMAL";
+
+    /**
+     * Default settings: write-ahead logging, so the catalog can be read while a write is in
+     * progress, with a checkpoint every 1000 pages, a 2 MiB page cache and NORMAL sync.
+     */
+    public static final DatabaseConfig DEFAULT = new DatabaseConfig(true, 1000, 2048, SYNCHRONOUS_NORMAL);
+
+    /** The rollback journal SQLite uses unless told otherwise, where a write blocks every read. */
+    public static final DatabaseConfig LEGACY = new DatabaseConfig(false, 0, 2048, SYNCHRONOUS_FULL);
+
+    /**
+     * Whether to use write-ahead logging instead of a rollback journal. With write-ahead logging
+     * the platform also opens extra read-only connections, so queries from several threads run
+     * in parallel; how many is decided by the platform.
+     */
+    public final boolean writeAheadLogging;
+
+    /**
+     * Number of pages the write-ahead log may grow to before it is copied back into the
+     * database by an automatic checkpoint. 0 keeps SQLite's default.
+     */
+    public final int walAutoCheckpointPages;
+
+    /** Size of the page cache of the connection that writes, in KiB. */
+    public final int cacheSizeKib;
+
+    /** {@link #SYNCHRONOUS_FULL} or {@link #SYNCHRONOUS_NORMAL}. */
+    public final String synchronous;
+
+    public DatabaseConfig(boolean writeAheadLogging, int walAutoCheckpointPages, int cacheSizeKib,
+                          String synchronous) {
+        if (!SYNCHRONOUS_FULL.equals(synchronous) && !SYNCHRONOUS_NORMAL.equals(synchronous)) {
+            throw new IllegalArgumentException("Unknown synchronous level " + synchronous);
+        }
+        if (walAutoCheckpointPages < 0 || cacheSizeKib <= 0) {
+            throw new IllegalArgumentException("Checkpoint and cache sizes must be positive");
+        }
+        this.writeAheadLogging = writeAheadLogging;
+        this.walAutoCheckpointPages = walAutoCheckpointPages;
+        this.cacheSizeKib = cacheSizeKib;
+        this.synchronous = synchronous;
+    }
+}
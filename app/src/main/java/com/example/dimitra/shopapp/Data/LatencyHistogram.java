@@ -0,0 +1,141 @@
+package com.example.dimitra.shopapp.Data;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of durations, recorded from any number of threads without locking.
+ *
+ * Durations are kept in microseconds, in buckets that are exact up to 16 microseconds and then
+ * split every power of two into 8 steps, like an HDR histogram with one significant digit:
+ * a percentile is never more than 12.5% above the true value, whatever its size, and the whole
+ * range up to hours fits in a few hundred counters.
+ */
+public final class LatencyHistogram {
+
+    /** Durations below this many microseconds get a bucket each. */
+    private static final int LINEAR_BUCKETS = 16;
+
+    /** Bits of a duration kept below its highest bit, so each power of two has 8 buckets. */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Highest bit of the longest duration told apart, about 2.4 hours in microseconds. */
+    private static final int MAX_EXPONENT = 33;
+
+    /** Highest bit of the shortest duration that isn't counted exactly. */
+    private static final int FIRST_EXPONENT = Long.numberOfTrailingZeros(LINEAR_BUCKETS);
+
+    private static final int BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - FIRST_EXPONENT + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong mCount = new AtomicLong();
+
+    private final AtomicLong mTotalMicros = new AtomicLong();
+
+    private final AtomicLong mMaxMicros = new AtomicLong();
+
+    /**
+     * Record one duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        long micros = nanos < 0 ? 0 : nanos / 1000;
+        mBuckets.incrementAndGet(bucketOf(micros));
+        mCount.incrementAndGet();
+        mTotalMicros.addAndGet(micros);
+        long max = mMaxMicros.get();
+        while (micros > max && !mMaxMicros.compareAndSet(max, micros)) {
+            max = mMaxMicros.get();
+        }
+    }
+
+    /**
+     * Return the number of durations recorded.
+     */
+    public long count() {
+        return mCount.get();
+    }
+
+    /**
+     * Return the mean of the durations recorded, in microseconds, or 0 if there are none.
+     */
+    public long meanMicros() {
+        long count = mCount.get();
+        return count == 0 ? 0 : mTotalMicros.get() / count;
+    }
+
+    /**
+     * Return the longest duration recorded, in microseconds.
+     */
+    public long maxMicros() {
+        return mMaxMicros.get();
+    }
+
+    /**
+     * Return the duration, in microseconds, that the given fraction of the recorded durations
+     * don't exceed, or 0 if there are none. Durations recorded meanwhile may or may not count.
+     */
+    public long percentileMicros(double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("Fraction out of range: " + fraction);
+        }
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = mBuckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // No bucket reaches past the longest duration actually recorded.
+                return Math.min(upperBoundOf(i), mMaxMicros.get());
+            }
+        }
+        return mMaxMicros.get();
+    }
+
+    /**
+     * Forget every duration recorded. Durations recorded meanwhile may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            mBuckets.set(i, 0);
+        }
+        mCount.set(0);
+        mTotalMicros.set(0);
+        mMaxMicros.set(0);
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Return the longest duration, in microseconds, that falls into the given bucket.
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = FIRST_EXPONENT + (bucket - LINEAR_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long step = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * step - 1;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+/**
+ * Collects product change notifications and sends them to the {@link ContentResolver} in bursts.
+ *
+ * Writes only mark the catalog as dirty. Once per window (or when a transaction ends) a single
+ * notification is sent to the most specific URI that covers every change since the last one:
+ * a single "/products/#" URI if only one product changed, {@link ProductEntry#CONTENT_URI}
+ * otherwise.
+ */
+final class NotificationCoalescer {
+
+    /** Default time in milliseconds that changes are collected before observers are notified. */
+    static final long DEFAULT_WINDOW_MILLIS = 100;
+
+    /** Id to pass to {@link #markChanged(long)} when the change is not limited to one product. */
+    static final long ALL_PRODUCTS = -1;
+
+    /** Nothing has changed since the last notification. */
+    private static final long CLEAN = -2;
+
+    private final ContentResolver mResolver;
+
+    private final Handler mHandler;
+
+    /** Changes made inside a transaction on the current thread, see {@link #beginTransaction()}. */
+    private final ThreadLocal<long[]> mTransactionChanges = new ThreadLocal<>();
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private long mWindowMillis;
+
+    /** {@link #CLEAN}, {@link #ALL_PRODUCTS} or the id of the only product that changed. */
+    private long mPendingId = CLEAN;
+
+    private boolean mFlushScheduled;
+
+    private long mChangeCount;
+
+    private long mNotificationCount;
+
+    NotificationCoalescer(ContentResolver resolver, long windowMillis) {
+        mResolver = resolver;
+        mHandler = new Handler(Looper.getMainLooper());
+        mWindowMillis = windowMillis;
+    }
+
+    /**
+     * Set how long changes are collected before observers are notified. A window of 0 sends
+     * every notification straight away.
+     */
+    synchronized void setWindowMillis(long windowMillis) {
+        mWindowMillis = windowMillis;
+    }
+
+    synchronized long getWindowMillis() {
+        return mWindowMillis;
+    }
+
+    /**
+     * Record that the product with the given id, or the whole table for {@link #ALL_PRODUCTS},
+     * has changed.
+     */
+    void markChanged(long id) {
+        long[] transaction = mTransactionChanges.get();
+        if (transaction != null) {
+            transaction[0] = merge(transaction[0], id);
+            synchronized (this) {
+                mChangeCount++;
+            }
+            return;
+        }
+
+        boolean flushNow;
+        synchronized (this) {
+            mChangeCount++;
+            mPendingId = merge(mPendingId, id);
+            flushNow = mWindowMillis <= 0;
+            if (!flushNow && !mFlushScheduled) {
+                mFlushScheduled = true;
+                mHandler.postDelayed(mFlushRunnable, mWindowMillis);
+            }
+        }
+        if (flushNow) {
+            flush();
+        }
+    }
+
+    /**
+     * Hold back changes made on the current thread until {@link #endTransaction(boolean)}, so
+     * observers never re-query in the middle of a transaction.
+     */
+    void beginTransaction() {
+        mTransactionChanges.set(new long[]{CLEAN});
+    }
+
+    /**
+     * Finish the transaction started on the current thread. If it was committed, the changes
+     * made inside it are sent right away together with any that were already pending.
+     */
+    void endTransaction(boolean committed) {
+        long[] transaction = mTransactionChanges.get();
+        mTransactionChanges.remove();
+        if (transaction == null || !committed || transaction[0] == CLEAN) {
+            return;
+        }
+        synchronized (this) {
+            mPendingId = merge(mPendingId, transaction[0]);
+        }
+        flush();
+    }
+
+    /**
+     * Send the pending notification, if any, straight away.
+     */
+    void flush() {
+        long pendingId;
+        synchronized (this) {
+            if (mFlushScheduled) {
+                mHandler.removeCallbacks(mFlushRunnable);
+                mFlushScheduled = false;
+            }
+            pendingId = mPendingId;
+            mPendingId = CLEAN;
+            if (pendingId == CLEAN) {
+                return;
+            }
+            mNotificationCount++;
+        }
+        Uri uri = pendingId == ALL_PRODUCTS
+                ? ProductEntry.CONTENT_URI
+                : ContentUris.withAppendedId(ProductEntry.CONTENT_URI, pendingId);
+        mResolver.notifyChange(uri, null);
+    }
+
+    /** Number of changes reported through {@link #markChanged(long)}. */
+    synchronized long getChangeCount() {
+        return mChangeCount;
+    }
+
+    /** Number of notifications actually sent to the content resolver. */
+    synchronized long getNotificationCount() {
+        return mNotificationCount;
+    }
+
+    /** Number of changes that were folded into another notification instead of sending their own. */
+    synchronized long getSuppressedCount() {
+        return mChangeCount - mNotificationCount;
+    }
+
+    /**
+     * Combine two pending states into the narrowest one that covers both.
+     */
+    private static long merge(long pendingId, long changedId) {
+        if (pendingId == CLEAN || pendingId == changedId) {
+            return changedId;
+        }
+        return ALL_PRODUCTS;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.util.LruCache;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+/**
+ * Bounded cache of single products, keyed by {@link ProductEntry#_ID}, used to answer
+ * "/products/#" queries without going to the database.
+ *
+ * Every write that may change a cached product must call {@link #remove(long)} or
+ * {@link #clear()} after it is committed. Each of those calls starts a new generation, and a
+ * product read from the database is only cached if no write happened while it was being read,
+ * so a slow read can never put an outdated product back into the cache.
+ */
+final class ProductCache {
+
+    /**
+     * Columns of a {@link Product}, in the order they are read from the database. These are the
+     * columns of {@link ProductEntry#DETAILS_VIEW_NAME}, in its order, so a query without a
+     * projection gets the same cursor from the cache as from the database.
+     */
+    static final String[] COLUMNS = {
+            ProductEntry._ID,
+            ProductEntry.COLUMN_PRODUCT_NAME,
+            ProductEntry.COLUMN_PRODUCT_PRICE,
+            ProductEntry.COLUMN_PRODUCT_QUANTITY,
+            ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID,
+            ProductEntry.COLUMN_PRODUCT_SUPPLIER,
+            ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER,
+            ProductEntry.COLUMN_PRODUCT_VERSION
+    };
+
+    private final LruCache<Long, Product> mProducts;
+
+    private long mGeneration;
+
+    ProductCache(int maxSize) {
+        mProducts = new LruCache<>(maxSize);
+    }
+
+    /**
+     * Return the cached product with the given id, or null if it is not cached.
+     */
+    Product get(long id) {
+        return mProducts.get(id);
+    }
+
+    /**
+     * Return the current generation, to pass to {@link #put} once the product has been read.
+     */
+    synchronized long generation() {
+        return mGeneration;
+    }
+
+    /**
+     * Cache a product read from the database, unless a write happened since the given generation.
+     */
+    synchronized void put(Product product, long generation) {
+        if (generation == mGeneration) {
+            mProducts.put(product.id, product);
+        }
+    }
+
+    /**
+     * Drop the product with the given id, after a write to it.
+     */
+    synchronized void remove(long id) {
+        mGeneration++;
+        mProducts.remove(id);
+    }
+
+    /**
+     * Drop every product, after a write that may have changed any number of them.
+     */
+    synchronized void clear() {
+        mGeneration++;
+        mProducts.evictAll();
+    }
+
+    int hitCount() {
+        return mProducts.hitCount();
+    }
+
+    int missCount() {
+        return mProducts.missCount();
+    }
+
+    int evictionCount() {
+        return mProducts.evictionCount();
+    }
+
+    /**
+     * Compact, immutable copy of one row of {@link ProductEntry#DETAILS_VIEW_NAME}.
+     */
+    static final class Product {
+        final long id;
+        final String name;
+        final long price;
+        final long quantity;
+        final long supplierId;
+        final String supplier;
+        final long supplierPhone;
+        final long version;
+
+        /**
+         * Read a product from the current row of a cursor with the columns in {@link #COLUMNS}.
+         */
+        Product(Cursor cursor) {
+            id = cursor.getLong(0);
+            name = cursor.getString(1);
+            price = cursor.getLong(2);
+            quantity = cursor.getLong(3);
+            supplierId = cursor.getLong(4);
+            supplier = cursor.getString(5);
+            supplierPhone = cursor.getLong(6);
+            version = cursor.getLong(7);
+        }
+
+        /**
+         * Return a one-row cursor with the requested columns of this product, or null if a
+         * column is requested that is not cached.
+         */
+        Cursor toCursor(String[] projection) {
+            if (projection == null) {
+                projection = COLUMNS;
+            }
+            Object[] row = new Object[projection.length];
+            for (int i = 0; i < projection.length; i++) {
+                switch (projection[i]) {
+                    case ProductEntry._ID:
+                        row[i] = id;
+                        break;
+                    case ProductEntry.COLUMN_PRODUCT_NAME:
+                        row[i] = name;
+                        break;
+                    case ProductEntry.COLUMN_PRODUCT_PRICE:
+                        row[i] = price;
+                        break;
+                    case ProductEntry.COLUMN_PRODUCT_QUANTITY:
+                        row[i] = quantity;
+                        break;
+                    case ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID:
+                        row[i] = supplierId;
+                        break;
+                    case ProductEntry.COLUMN_PRODUCT_SUPPLIER:
+                        row[i] = supplier;
+                        break;
+                    case ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER:
+                        row[i] = supplierPhone;
+                        break;
+                    case ProductEntry.COLUMN_PRODUCT_VERSION:
+                        row[i] = version;
+                        break;
+                    default:
+                        return null;
+                }
+            }
+            MatrixCursor cursor = new MatrixCursor(projection, 1);
+            cursor.addRow(row);
+            return cursor;
+        }
+    }
+}
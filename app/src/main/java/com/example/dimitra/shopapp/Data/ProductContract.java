@@ -13,6 +13,138 @@ public final class ProductContract {
     public static final String CONTENT_AUTHORITY = "com.example.dimitra.shopapp";
     public static final Uri BASE_CONTENT_URI = Uri.parse("content://" + CONTENT_AUTHORITY);
     public static final String PATH_PRODUCTS = "products";
+    public static final String PATH_SUPPLIERS = "suppliers";
+    public static final String PATH_SEARCH = "search";
+    public static final String PATH_STATS = "stats";
+    public static final String PATH_SUMMARY = "summary";
+    public static final String PATH_CHANGES = "changes";
+    public static final String PATH_SLOW_QUERIES = "slow_queries";
+
+    /**
+     * Query parameter that marks a write to a product URI as coming from the sync adapter. Such
+     * writes apply changes made on the back office, so they aren't added to the change log. Every
+     * one must carry the product's new {@link ProductEntry#COLUMN_PRODUCT_VERSION}, in the values
+     * or, for deletes, in {@link ProductEntry#QUERY_PARAMETER_VERSION}; other callers can't set it.
+     */
+    public static final String CALLER_IS_SYNC_ADAPTER = "caller_is_sync_adapter";
+
+    /**
+     * Returns the given URI marked as used by the sync adapter.
+     */
+    public static Uri asSyncAdapter(Uri uri) {
+        return uri.buildUpon().appendQueryParameter(CALLER_IS_SYNC_ADAPTER, "true").build();
+    }
+
+    /**
+     * Provider method, used with {@link ContentResolver#call}, that returns how many change
+     * notifications were requested, sent and suppressed by coalescing.
+     */
+    public static final String METHOD_NOTIFICATION_STATS = "notificationStats";
+
+    /** Bundle key for the number of changes reported by the provider. */
+    public static final String KEY_CHANGES = "changes";
+
+    /** Bundle key for the number of notifications sent to observers. */
+    public static final String KEY_NOTIFICATIONS = "notifications";
+
+    /** Bundle key for the number of notifications folded into another one. */
+    public static final String KEY_SUPPRESSED_NOTIFICATIONS = "suppressedNotifications";
+
+    /**
+     * Provider method, used with {@link ContentResolver#call}, that sets how long changes are
+     * collected before observers are notified to {@link #KEY_NOTIFICATION_WINDOW_MILLIS}. The
+     * result holds the window that was set before under the same key. Throws an
+     * IllegalArgumentException if there is no window.
+     */
+    public static final String METHOD_SET_NOTIFICATION_WINDOW = "setNotificationWindow";
+
+    /**
+     * Bundle key for the number of milliseconds changes are collected before observers are
+     * notified, or 0 if every change is sent straight away.
+     */
+    public static final String KEY_NOTIFICATION_WINDOW_MILLIS = "notificationWindowMillis";
+
+    /**
+     * Provider method, used with {@link ContentResolver#call}, that returns the hit, miss and
+     * eviction counts of the cache behind single product lookups.
+     */
+    public static final String METHOD_CACHE_STATS = "cacheStats";
+
+    /** Bundle key for the number of single product lookups answered from the cache. */
+    public static final String KEY_CACHE_HITS = "cacheHits";
+
+    /** Bundle key for the number of single product lookups that missed the cache. */
+    public static final String KEY_CACHE_MISSES = "cacheMisses";
+
+    /** Bundle key for the number of products evicted from the cache to make room. */
+    public static final String KEY_CACHE_EVICTIONS = "cacheEvictions";
+
+    /**
+     * Provider method, used with {@link ContentResolver#call}, that returns the timings of the
+     * data layer. The result holds {@link #KEY_METRICS_ENABLED} and, under the name of every
+     * operation that ran, such as "query /products/#", a bundle with {@link #KEY_METRIC_COUNT},
+     * {@link #KEY_METRIC_ROWS} and its latencies in microseconds. Pass {@link #KEY_METRICS_ENABLED}
+     * in the extras to turn recording on or off first; the setting is kept across restarts, so
+     * opening the database is recorded too.
+     */
+    public static final String METHOD_METRICS = "metrics";
+
+    /** Bundle key for whether the data layer records metrics. */
+    public static final String KEY_METRICS_ENABLED = "metricsEnabled";
+
+    /** Bundle key for the number of times an operation ran. */
+    public static final String KEY_METRIC_COUNT = "count";
+
+    /** Bundle key for the number of rows an operation returned or changed. */
+    public static final String KEY_METRIC_ROWS = "rows";
+
+    /** Bundle key for the mean latency of an operation, in microseconds. */
+    public static final String KEY_METRIC_MEAN_MICROS = "meanMicros";
+
+    /** Bundle key for the median latency of an operation, in microseconds. */
+    public static final String KEY_METRIC_P50_MICROS = "p50Micros";
+
+    /** Bundle key for the 90th percentile latency of an operation, in microseconds. */
+    public static final String KEY_METRIC_P90_MICROS = "p90Micros";
+
+    /** Bundle key for the 99th percentile latency of an operation, in microseconds. */
+    public static final String KEY_METRIC_P99_MICROS = "p99Micros";
+
+    /** Bundle key for the longest latency of an operation, in microseconds. */
+    public static final String KEY_METRIC_MAX_MICROS = "maxMicros";
+
+    /**
+     * Provider method, used with {@link ContentResolver#call}, that sets the threshold of
+     * {@link SlowQueryEntry} to {@link #KEY_SLOW_QUERY_THRESHOLD_MILLIS}. The result holds the
+     * threshold that was set before under the same key. Throws an IllegalArgumentException if
+     * there is no threshold.
+     */
+    public static final String METHOD_SET_SLOW_QUERY_THRESHOLD = "setSlowQueryThreshold";
+
+    /**
+     * Bundle key for the number of milliseconds a query has to take to be logged as slow, or -1
+     * if no query is timed.
+     */
+    public static final String KEY_SLOW_QUERY_THRESHOLD_MILLIS = "slowQueryThresholdMillis";
+
+    /**
+     * Provider method, used with {@link ContentResolver#call}, that adds {@link #KEY_QUANTITY_DELTA}
+     * to the quantity of the product with id {@link #KEY_PRODUCT_ID} in a single statement, so
+     * concurrent sales never overwrite each other. The result holds the new quantity under
+     * {@link #KEY_QUANTITY}, or is null if there is no such product or the quantity would
+     * drop below 0. A delta of 0 returns the current quantity without writing anything. Throws
+     * an {@link IllegalArgumentException} if there is no product id or no delta.
+     */
+    public static final String METHOD_ADJUST_QUANTITY = "adjustQuantity";
+
+    /** Bundle key for the id of a product. */
+    public static final String KEY_PRODUCT_ID = "productId";
+
+    /** Bundle key for the amount to add to a quantity; negative for a sale. */
+    public static final String KEY_QUANTITY_DELTA = "quantityDelta";
+
+    /** Bundle key for the quantity of a product. */
+    public static final String KEY_QUANTITY = "quantity";
 
     /**
      * Inner class that defines constant values for the products database table.
@@ -32,11 +164,126 @@ public final class ProductContract {
         public static final String CONTENT_ITEM_TYPE =
                 ContentResolver.CURSOR_ITEM_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_PRODUCTS;
 
+        /**
+         * Query parameter for {@link #CONTENT_URI} that limits the number of rows returned.
+         */
+        public static final String QUERY_PARAMETER_LIMIT = "limit";
+
+        /**
+         * Query parameter for {@link #CONTENT_URI} that only returns products with an
+         * {@link #_ID} greater than the given one. Paged results are always ordered by
+         * {@link #_ID}, so passing the last id of a page returns the next page. A paged query
+         * with a sort order is rejected.
+         */
+        public static final String QUERY_PARAMETER_AFTER_ID = "after_id";
+
+        /**
+         * Query parameter for {@link #CONTENT_URI} and {@link StatsEntry#CONTENT_URI} that only
+         * includes products with at most the given quantity, i.e. those low on stock.
+         */
+        public static final String QUERY_PARAMETER_MAX_QUANTITY = "max_quantity";
+
+        /**
+         * Query parameter for {@link #CONTENT_URI} and {@link StatsEntry#CONTENT_URI} that only
+         * includes products of the supplier with the given id.
+         */
+        public static final String QUERY_PARAMETER_SUPPLIER_ID = "supplier_id";
+
+        /**
+         * Query parameters for {@link #CONTENT_URI} and {@link StatsEntry#CONTENT_URI} that only
+         * include products priced at least, or at most, the given number of cents.
+         */
+        public static final String QUERY_PARAMETER_MIN_PRICE = "min_price";
+        public static final String QUERY_PARAMETER_MAX_PRICE = "max_price";
+
+        /**
+         * Query parameter for deletes by the sync adapter, see {@link #CALLER_IS_SYNC_ADAPTER},
+         * with the back office version of the deletion.
+         */
+        public static final String QUERY_PARAMETER_VERSION = "version";
+
+        /** Sort order for product names in alphabetical order. */
+        public static final String SORT_BY_NAME = "name ASC";
+
+        /** Sort order that lists the products lowest on stock first. */
+        public static final String SORT_BY_QUANTITY = "quantity ASC";
+
+        /** Sort order that lists the cheapest products first. */
+        public static final String SORT_BY_PRICE = "price ASC";
+
+        /**
+         * Build the URI for the page of at most {@code limit} products that follows the product
+         * with the given id. Use 0 for the first page.
+         *
+         * Pages are ordered by {@link #_ID}, and only by it: each page seeks past the last id of
+         * the one before, so its cost doesn't depend on how deep it is. Keyset paging on another
+         * sort order, such as {@link #SORT_BY_NAME}, would need an index and a tie-breaking
+         * cursor for every order, so a query of a page URI that passes a sort order throws an
+         * {@link IllegalArgumentException} instead of ignoring it.
+         */
+        public static Uri buildPageUri(long afterId, int limit) {
+            return CONTENT_URI.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_AFTER_ID, String.valueOf(afterId))
+                    .appendQueryParameter(QUERY_PARAMETER_LIMIT, String.valueOf(limit))
+                    .build();
+        }
+
+        /**
+         * Build the URI that searches product and supplier names for the given text. Every word
+         * matches as a prefix, so "sh lin" finds a "shirt" from "Linus Torvalds". The best
+         * matches come first; use {@link #QUERY_PARAMETER_LIMIT} to change how many are returned.
+         */
+        public static Uri buildSearchUri(String query) {
+            return CONTENT_URI.buildUpon().appendPath(PATH_SEARCH).appendPath(query).build();
+        }
+
+        /**
+         * Build the URI for the products with a quantity of at most {@code threshold}.
+         */
+        public static Uri buildLowStockUri(int threshold) {
+            return CONTENT_URI.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_MAX_QUANTITY, String.valueOf(threshold))
+                    .build();
+        }
+
+        /**
+         * Build the URI for the products of the supplier with the given id.
+         */
+        public static Uri buildSupplierProductsUri(long supplierId) {
+            return CONTENT_URI.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_SUPPLIER_ID, String.valueOf(supplierId))
+                    .build();
+        }
+
+        /**
+         * Build the URI for the products priced between the given numbers of cents, inclusive.
+         */
+        public static Uri buildPriceRangeUri(long minCents, long maxCents) {
+            return CONTENT_URI.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_MIN_PRICE, String.valueOf(minCents))
+                    .appendQueryParameter(QUERY_PARAMETER_MAX_PRICE, String.valueOf(maxCents))
+                    .build();
+        }
+
         /** Name of database table for products */
         public final static String TABLE_NAME = "products";
 
         /**
-         * Unique ID number for the product (only for use in the database table).
+         * Name of the database view that joins every product with its supplier. Queries read
+         * from this view, so the supplier columns below can be used like product columns.
+         */
+        public final static String DETAILS_VIEW_NAME = "product_details";
+
+        /**
+         * Name of the full-text index over product and supplier names. The docid of each row is
+         * the {@link #_ID} of its product.
+         */
+        public final static String SEARCH_TABLE_NAME = "products_search";
+
+        /**
+         * Unique ID number for the product (only for use in the database table). A product
+         * inserted without one gets the next id of the range of this device, see
+         * {@link SyncRecord#MIN_DEVICE_ID}.
          *
          * Type: INTEGER
          */
@@ -50,7 +297,7 @@ public final class ProductContract {
         public final static String COLUMN_PRODUCT_NAME ="name";
 
         /**
-         * Price of the product.
+         * Price of the product, in cents.
          *
          * Type: INTEGER
          */
@@ -64,17 +311,396 @@ public final class ProductContract {
         public final static String COLUMN_PRODUCT_QUANTITY = "quantity";
 
         /**
-         * Supplier of the product.
+         * Id of the supplier of the product in the {@link SupplierEntry} table.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_PRODUCT_SUPPLIER_ID = "supplier_id";
+
+        /**
+         * Supplier of the product. Read from the supplier's row; when written, the product is
+         * linked to the supplier with this name, which is created if needed.
          *
          * Type: TEXT
          */
         public final static String COLUMN_PRODUCT_SUPPLIER = "supplier";
 
         /**
-         * Phone of the supplier.
+         * Phone of the supplier. Read from the supplier's row; when written, it updates the
+         * phone of the product's supplier.
          *
          * Type: INTEGER
          */
         public final static String COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER = "supplierPhone";
+
+        /**
+         * When the product was deleted, in milliseconds since the epoch, or null while it is in
+         * the catalog. Deleted products stay in the table until they are purged, but the provider
+         * never returns them. Only in the table, not in the view.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_PRODUCT_DELETED_AT = "deleted_at";
+
+        /**
+         * Version of the product on the back office when it was last synced, or 0 if it never
+         * was. Only the sync adapter writes it, see {@link #CALLER_IS_SYNC_ADAPTER}.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_PRODUCT_VERSION = "version";
+
+        /**
+         * Columns of a row of the catalog list, and nothing more. The product columns of a page
+         * with this projection are read from an index that holds them, without touching the
+         * table, and only the supplier's name is looked up by its id. A page asked for with no
+         * projection, see {@link #buildPageUri}, returns these columns.
+         */
+        public static final String[] LIST_PROJECTION = {
+                _ID,
+                COLUMN_PRODUCT_NAME,
+                COLUMN_PRODUCT_PRICE,
+                COLUMN_PRODUCT_QUANTITY,
+                COLUMN_PRODUCT_SUPPLIER
+        };
+    }
+
+    /**
+     * Provider method, used with {@link ContentResolver#call}, that removes every deleted product
+     * from the database right away instead of waiting for the background purge. The result
+     * holds {@link #KEY_PURGED_ROWS}.
+     */
+    public static final String METHOD_PURGE_DELETED = "purgeDeleted";
+
+    /** Bundle key for the number of deleted products removed from the database. */
+    public static final String KEY_PURGED_ROWS = "purgedRows";
+
+    /**
+     * Provider method, used with {@link ContentResolver#call}, that recomputes the inventory
+     * summary from the products table and compares it with the stored one. A summary that
+     * doesn't match is replaced. The result holds {@link #KEY_SUMMARY_CONSISTENT}.
+     */
+    public static final String METHOD_CHECK_SUMMARY = "checkSummary";
+
+    /** Bundle key for whether the stored inventory summary matched the recomputed one. */
+    public static final String KEY_SUMMARY_CONSISTENT = "summaryConsistent";
+
+    /**
+     * Inner class that defines the inventory summary table. It holds a single row with the totals
+     * of the whole catalog, updated together with every change to a product, so reading it
+     * costs the same no matter how many products there are.
+     */
+    public static final class SummaryEntry implements BaseColumns {
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(ProductEntry.CONTENT_URI, PATH_SUMMARY);
+
+        /**
+         * The MIME type of the {@link #CONTENT_URI} for the summary row.
+         */
+        public static final String CONTENT_ITEM_TYPE =
+                ContentResolver.CURSOR_ITEM_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_SUMMARY;
+
+        /** Name of database table for the inventory summary */
+        public final static String TABLE_NAME = "inventory_summary";
+
+        /** The {@link #_ID} of the only row in the table. */
+        public final static long SUMMARY_ID = 1;
+
+        /**
+         * Always {@link #SUMMARY_ID}.
+         *
+         * Type: INTEGER
+         */
+        public final static String _ID = BaseColumns._ID;
+
+        /**
+         * Number of products.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_PRODUCT_COUNT = "product_count";
+
+        /**
+         * Sum of the quantities of all products.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_TOTAL_QUANTITY = "total_quantity";
+
+        /**
+         * Value of the whole stock, quantity times price, in cents.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_TOTAL_VALUE = "total_value";
+
+        /**
+         * Number of products with a quantity of 0.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_OUT_OF_STOCK_COUNT = "out_of_stock_count";
+    }
+
+    /**
+     * Inner class that defines the stock totals of the catalog. Each row holds the totals of the
+     * products of one supplier. The product filters of {@link ProductEntry}, like
+     * {@link ProductEntry#QUERY_PARAMETER_MAX_QUANTITY}, can be added to {@link #CONTENT_URI}
+     * to total only the matching products.
+     */
+    public static final class StatsEntry implements BaseColumns {
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(ProductEntry.CONTENT_URI, PATH_STATS);
+
+        /**
+         * The MIME type of the {@link #CONTENT_URI} for the totals of every supplier.
+         */
+        public static final String CONTENT_LIST_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_STATS;
+
+        /**
+         * Id of the supplier the totals belong to.
+         *
+         * Type: INTEGER
+         */
+        public final static String _ID = BaseColumns._ID;
+
+        /**
+         * Name of the supplier.
+         *
+         * Type: TEXT
+         */
+        public final static String COLUMN_SUPPLIER = "supplier";
+
+        /**
+         * Number of products of the supplier.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_PRODUCT_COUNT = "product_count";
+
+        /**
+         * Sum of the quantities of the supplier's products.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_TOTAL_QUANTITY = "total_quantity";
+
+        /**
+         * Value of the supplier's stock, quantity times price, in cents.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_TOTAL_VALUE = "total_value";
+    }
+
+    /**
+     * Provider method, used with {@link ContentResolver#call}, that shrinks the change log. Only
+     * the latest change of each product is kept, and deletions up to the sequence number in
+     * {@link #KEY_ACKNOWLEDGED_SEQUENCE}, which the back office has already applied, are dropped.
+     * The result holds {@link #KEY_COMPACTED_ROWS}.
+     */
+    public static final String METHOD_COMPACT_CHANGES = "compactChanges";
+
+    /** Bundle key for the highest change sequence number the back office has applied. */
+    public static final String KEY_ACKNOWLEDGED_SEQUENCE = "acknowledgedSequence";
+
+    /** Bundle key for the number of change log entries removed by compaction. */
+    public static final String KEY_COMPACTED_ROWS = "compactedRows";
+
+    /**
+     * Inner class that defines the product change log. Every insert, update and delete of a
+     * product appends an entry in the same transaction, numbered by an ever increasing sequence
+     * number. Reading the entries after the last sequence number seen gives the products that
+     * changed since, so mirroring the catalog costs as much as the changes, not the catalog.
+     *
+     * The log starts with an entry for every product, and compaction keeps the latest entry of
+     * each one, so reading from sequence number 0 always gives the whole catalog.
+     */
+    public static final class ChangeEntry implements BaseColumns {
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI, PATH_CHANGES);
+
+        /**
+         * The MIME type of the {@link #CONTENT_URI} for a list of changes.
+         */
+        public static final String CONTENT_LIST_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_CHANGES;
+
+        /**
+         * Query parameter for {@link #CONTENT_URI} with the sequence number of the last change
+         * already seen. Only later changes are returned. 0 if not given.
+         */
+        public static final String QUERY_PARAMETER_SINCE = "since";
+
+        /**
+         * Query parameter for {@link #CONTENT_URI} that limits the number of changes returned.
+         */
+        public static final String QUERY_PARAMETER_LIMIT = "limit";
+
+        /** Name of database table for changes */
+        public final static String TABLE_NAME = "product_changes";
+
+        /**
+         * Sequence number of the change. Later changes have higher numbers.
+         *
+         * Type: INTEGER
+         */
+        public final static String _ID = BaseColumns._ID;
+
+        /**
+         * Id of the product that changed.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_PRODUCT_ID = "product_id";
+
+        /**
+         * What happened to the product: {@link #OPERATION_INSERT}, {@link #OPERATION_UPDATE} or
+         * {@link #OPERATION_DELETE}.
+         *
+         * Type: TEXT
+         */
+        public final static String COLUMN_OPERATION = "operation";
+
+        /**
+         * When the change was made, in milliseconds since the epoch.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_CHANGED_AT = "changed_at";
+
+        /** The product was added. */
+        public static final String OPERATION_INSERT = "insert";
+
+        /** The product, or its supplier, was changed. */
+        public static final String OPERATION_UPDATE = "update";
+
+        /** The product was deleted. */
+        public static final String OPERATION_DELETE = "delete";
+
+        /**
+         * Returns a URI for the changes after the given sequence number, at most {@code limit} of
+         * them. A product that changed several times is returned once, with its latest change and
+         * its current values; the values are null if it was deleted, except for the version, which
+         * is kept until the deleted product is purged. Pass the highest sequence number returned
+         * to get the next batch.
+         */
+        public static Uri buildChangesUri(long since, int limit) {
+            return CONTENT_URI.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_SINCE, String.valueOf(since))
+                    .appendQueryParameter(QUERY_PARAMETER_LIMIT, String.valueOf(limit))
+                    .build();
+        }
+    }
+
+    /**
+     * Inner class that defines the log of slow queries. The provider keeps the latest queries
+     * that took longer than a threshold in memory, with the query plan SQLite chose for them.
+     * The threshold is 100 ms in debug builds; release builds log nothing until one is set with
+     * {@link #METHOD_SET_SLOW_QUERY_THRESHOLD}. Reading {@link #CONTENT_URI} returns them oldest
+     * first; deleting it empties the log.
+     */
+    public static final class SlowQueryEntry implements BaseColumns {
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI, PATH_SLOW_QUERIES);
+
+        /**
+         * The MIME type of the {@link #CONTENT_URI} for a list of slow queries.
+         */
+        public static final String CONTENT_LIST_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_SLOW_QUERIES;
+
+        /**
+         * Sequence number of the slow query. Later queries have higher numbers.
+         *
+         * Type: INTEGER
+         */
+        public final static String _ID = BaseColumns._ID;
+
+        /**
+         * The SQL of the query, as run by the provider.
+         *
+         * Type: TEXT
+         */
+        public final static String COLUMN_SQL = "sql";
+
+        /**
+         * The arguments bound to the query, as a list in brackets, each cut to 64 characters.
+         * Null if there were none.
+         *
+         * Type: TEXT
+         */
+        public final static String COLUMN_ARGS = "args";
+
+        /**
+         * Number of rows in the first window of the result.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_ROWS = "rows";
+
+        /**
+         * Time taken to run the query and fill the first window of its result, in microseconds.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_DURATION_MICROS = "duration_micros";
+
+        /**
+         * When the query was logged, in milliseconds since the epoch.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_LOGGED_AT = "logged_at";
+
+        /**
+         * The output of EXPLAIN QUERY PLAN for the query, one step per line. A "SCAN TABLE" step
+         * without an index goes through every row of the table. The plan is captured the first
+         * time a query of the same shape, differing only in literals, is slow.
+         *
+         * Type: TEXT
+         */
+        public final static String COLUMN_QUERY_PLAN = "query_plan";
+    }
+
+    /**
+     * Inner class that defines constant values for the suppliers database table.
+     * Each entry in the table represents a single supplier, shared by all of its products.
+     */
+    public static final class SupplierEntry implements BaseColumns {
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI, PATH_SUPPLIERS);
+
+        /**
+         * The MIME type of the {@link #CONTENT_URI} for a list of suppliers.
+         */
+        public static final String CONTENT_LIST_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_SUPPLIERS;
+
+        /**
+         * The MIME type of the {@link #CONTENT_URI} for a single supplier.
+         */
+        public static final String CONTENT_ITEM_TYPE =
+                ContentResolver.CURSOR_ITEM_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_SUPPLIERS;
+
+        /** Name of database table for suppliers */
+        public final static String TABLE_NAME = "suppliers";
+
+        /**
+         * Unique ID number for the supplier (only for use in the database table).
+         *
+         * Type: INTEGER
+         */
+        public final static String _ID = BaseColumns._ID;
+
+        /**
+         * Name of the supplier. Unique among suppliers.
+         *
+         * Type: TEXT
+         */
+        public final static String COLUMN_SUPPLIER_NAME = "name";
+
+        /**
+         * Phone of the supplier.
+         *
+         * Type: INTEGER
+         */
+        public final static String COLUMN_SUPPLIER_PHONE_NUMBER = "phone";
     }
-}
\ No newline at end of file
+}
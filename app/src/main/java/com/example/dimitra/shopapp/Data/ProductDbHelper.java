@@ -1,10 +1,16 @@
 package com.example.dimitra.shopapp.Data;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
+import android.provider.BaseColumns;
 
+import com.example.dimitra.shopapp.Data.ProductContract.ChangeEntry;
 import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.SummaryEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.SupplierEntry;
 
 import static com.example.dimitra.shopapp.Data.ProductContract.ProductEntry.TABLE_NAME;
 
@@ -17,7 +23,26 @@ public class ProductDbHelper extends SQLiteOpenHelper {
 
     private static final String DATABASE_NAME = "shelter.db";
 
-    private static final int DATABASE_VERSION = 1;
+    /**
+     * Database version. Every increment needs a matching step in {@link #migrate}.
+     *
+     * 1: initial schema, price stored as TEXT and supplier as INTEGER.
+     * 2: price stored as INTEGER cents, supplier as TEXT, indexes on name, supplier and quantity.
+     * 3: suppliers moved into their own table, products refer to them by id.
+     * 4: full-text search index over product and supplier names.
+     * 5: index on price, supplier index extended to cover quantity and price for stock totals.
+     * 6: inventory summary kept up to date by triggers.
+     * 7: deleted_at tombstone on products, deleted rows are hidden until they are purged.
+     * 8: product change log written by triggers.
+     * 9: version of each product on the back office, writes of the sync adapter aren't logged.
+     * 10: index that covers the catalog list replaces the index on deleted_at.
+     * 11: catalog state with the next id of the range of products created on the device.
+     * 12: generation of the catalog, deleting the whole catalog starts a new one.
+     */
+    static final int DATABASE_VERSION = 12;
+
+    /** Prepared statements kept by each connection to the database. */
+    private static final int SQL_CACHE_SIZE = 64;
 
     /**
      * Constructs a new instance of {@link ProductDbHelper}.
@@ -25,25 +50,785 @@ public class ProductDbHelper extends SQLiteOpenHelper {
      * @param context of the app
      */
     public ProductDbHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME, DatabaseConfig.DEFAULT);
+    }
+
+    /**
+     * Constructs a new instance of {@link ProductDbHelper} for a database with the given file name.
+     */
+    ProductDbHelper(Context context, String name) {
+        this(context, name, DatabaseConfig.DEFAULT);
+    }
+
+    /**
+     * Constructs a new instance of {@link ProductDbHelper} for a database with the given file name,
+     * opened with the given settings.
+     */
+    ProductDbHelper(Context context, String name, DatabaseConfig config) {
+        super(context, name, null, DATABASE_VERSION);
+        mConfig = config;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            setWriteAheadLoggingEnabled(config.writeAheadLogging);
+        }
+    }
+
+    private final DatabaseConfig mConfig;
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        // Every connection keeps the statements it ran prepared, 25 unless told otherwise, which
+        // the queries of the provider and the statements of its writes together go beyond.
+        db.setMaxSqlCacheSize(SQL_CACHE_SIZE);
+        if (db.isReadOnly()) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN && mConfig.writeAheadLogging) {
+            db.enableWriteAheadLogging();
+        }
+        // These settings belong to a connection. They are applied to the one that writes, which
+        // is where syncing and caching matter most.
+        runPragma(db, "synchronous = " + mConfig.synchronous);
+        runPragma(db, "cache_size = -" + mConfig.cacheSizeKib);
+        if (mConfig.writeAheadLogging && mConfig.walAutoCheckpointPages > 0) {
+            runPragma(db, "wal_autocheckpoint = " + mConfig.walAutoCheckpointPages);
+        }
+    }
+
+    /**
+     * Copy as much of the write-ahead log back into the database as possible without waiting
+     * for readers. Worth calling after a large batch of writes, so the log doesn't stay large.
+     */
+    public void checkpoint() {
+        if (mConfig.writeAheadLogging) {
+            runPragma(getWritableDatabase(), "wal_checkpoint(PASSIVE)");
+        }
+    }
+
+    /**
+     * Run a PRAGMA statement. Some of them return a row, which execSQL doesn't allow.
+     */
+    private static void runPragma(SQLiteDatabase db, String pragma) {
+        Cursor cursor = db.rawQuery("PRAGMA " + pragma, null);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Runs the statements that build and upgrade the schema. On the device they go to the
+     * {@link SQLiteDatabase}; the benchmarks run the same statements on the JVM.
+     */
+    interface SqlExecutor {
+        void execSQL(String sql);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
-        // Create a String that contains the SQL statement to create the products table
-        String SQL_CREATE_PROCUCTS_TABLE =  "CREATE TABLE " + TABLE_NAME + " ("
+        ProviderMetrics metrics = ProviderMetrics.getInstance();
+        long start = metrics.start();
+        createSchema(executorOf(db));
+        metrics.stop(ProviderMetrics.CREATE_DATABASE, start);
+    }
+
+    /**
+     * Bring the database up to date one version at a time, so the data in it is kept.
+     * SQLiteOpenHelper runs this inside a transaction, so a failed step leaves the old schema.
+     */
+    @Override
+    public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
+        ProviderMetrics metrics = ProviderMetrics.getInstance();
+        long start = metrics.start();
+        upgradeSchema(executorOf(sqLiteDatabase), oldVersion, newVersion);
+        metrics.stop(ProviderMetrics.UPGRADE_DATABASE, start);
+    }
+
+    /**
+     * Create the current schema in an empty database.
+     */
+    static void createSchema(SqlExecutor db) {
+        createCatalogState(db);
+        db.execSQL(SQL_CREATE_SUPPLIERS_TABLE);
+        db.execSQL(createProductsTable(TABLE_NAME));
+        createProductIndexes(db);
+        db.execSQL(SQL_CREATE_PRODUCT_DETAILS_VIEW);
+        createSearchIndex(db);
+        createInventorySummary(db);
+        createChangeLog(db);
+    }
+
+    /**
+     * Upgrade the schema of a database, and the data in it, from one version to another.
+     */
+    static void upgradeSchema(SqlExecutor db, int oldVersion, int newVersion) {
+        for (int version = oldVersion; version < newVersion; version++) {
+            migrate(db, version);
+        }
+    }
+
+    private static SqlExecutor executorOf(final SQLiteDatabase db) {
+        return new SqlExecutor() {
+            @Override
+            public void execSQL(String sql) {
+                db.execSQL(sql);
+            }
+        };
+    }
+
+    /**
+     * Upgrade the database from the given version to the next one.
+     */
+    private static void migrate(SqlExecutor db, int fromVersion) {
+        switch (fromVersion) {
+            case 1:
+                migrateToVersion2(db);
+                break;
+            case 2:
+                migrateToVersion3(db);
+                break;
+            case 3:
+                migrateToVersion4(db);
+                break;
+            case 4:
+                migrateToVersion5(db);
+                break;
+            case 5:
+                migrateToVersion6(db);
+                break;
+            case 6:
+                migrateToVersion7(db);
+                break;
+            case 7:
+                migrateToVersion8(db);
+                break;
+            case 8:
+                migrateToVersion9(db);
+                break;
+            case 9:
+                migrateToVersion10(db);
+                break;
+            case 10:
+                migrateToVersion11(db);
+                break;
+            case 11:
+                migrateToVersion12(db);
+                break;
+            default:
+                throw new IllegalStateException("No migration from database version " + fromVersion);
+        }
+    }
+
+    /**
+     * Fix the column types of the products table and add its indexes. SQLite cannot change the
+     * type of a column, so the rows are copied into a new table that then replaces the old one.
+     * Prices become whole cents, so "1.5" is stored as 150.
+     */
+    private static void migrateToVersion2(SqlExecutor db) {
+        // Each step spells out the schema of its own version rather than calling the helpers
+        // of createSchema, which always build the newest one.
+        db.execSQL("CREATE TABLE products_v2 (_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "name TEXT NOT NULL, price INTEGER NOT NULL, quantity INTEGER NOT NULL, "
+                + "supplier TEXT NOT NULL, supplierPhone INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("INSERT INTO products_v2 (_id, name, price, quantity, supplier, supplierPhone) "
+                + "SELECT _id, name, CAST(ROUND(CAST(price AS REAL) * 100) AS INTEGER), quantity, "
+                + "CAST(supplier AS TEXT), supplierPhone FROM products");
+        db.execSQL("DROP TABLE products");
+        db.execSQL("ALTER TABLE products_v2 RENAME TO products");
+        db.execSQL("CREATE INDEX products_name_index ON products (name)");
+        db.execSQL("CREATE INDEX products_supplier_index ON products (supplier)");
+        db.execSQL("CREATE INDEX products_quantity_index ON products (quantity)");
+    }
+
+    /**
+     * Move the supplier name and phone out of every product row into one row per supplier.
+     * Products with the same supplier name share a supplier; if they had different phone
+     * numbers, the highest one is kept.
+     */
+    private static void migrateToVersion3(SqlExecutor db) {
+        db.execSQL("CREATE TABLE suppliers (_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "name TEXT NOT NULL UNIQUE, phone INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("INSERT INTO suppliers (name, phone) "
+                + "SELECT supplier, MAX(supplierPhone) FROM products GROUP BY supplier");
+        db.execSQL("CREATE TABLE products_v3 (_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "name TEXT NOT NULL, price INTEGER NOT NULL, quantity INTEGER NOT NULL, "
+                + "supplier_id INTEGER NOT NULL REFERENCES suppliers (_id))");
+        db.execSQL("INSERT INTO products_v3 (_id, name, price, quantity, supplier_id) "
+                + "SELECT products._id, products.name, price, quantity, suppliers._id "
+                + "FROM products JOIN suppliers ON suppliers.name = products.supplier");
+        db.execSQL("DROP TABLE products");
+        db.execSQL("ALTER TABLE products_v3 RENAME TO products");
+        db.execSQL("CREATE INDEX products_name_index ON products (name)");
+        db.execSQL("CREATE INDEX products_supplier_id_index ON products (supplier_id)");
+        db.execSQL("CREATE INDEX products_quantity_index ON products (quantity)");
+        db.execSQL("CREATE VIEW product_details AS SELECT p._id AS _id, p.name AS name, "
+                + "p.price AS price, p.quantity AS quantity, p.supplier_id AS supplier_id, "
+                + "s.name AS supplier, s.phone AS supplierPhone "
+                + "FROM products p JOIN suppliers s ON s._id = p.supplier_id");
+    }
+
+    private static final String SQL_CREATE_SUPPLIERS_TABLE = "CREATE TABLE " + SupplierEntry.TABLE_NAME + " ("
+            + SupplierEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + SupplierEntry.COLUMN_SUPPLIER_NAME + " TEXT NOT NULL UNIQUE, "
+            + SupplierEntry.COLUMN_SUPPLIER_PHONE_NUMBER + " INTEGER NOT NULL DEFAULT 0)";
+
+    /**
+     * View that reads like the products table used to before suppliers were split out, so the
+     * supplier name and phone can be queried, filtered and sorted as product columns. Deleted
+     * products that are waiting to be purged are left out.
+     */
+    private static final String SQL_CREATE_PRODUCT_DETAILS_VIEW = "CREATE VIEW " + ProductEntry.DETAILS_VIEW_NAME + " AS SELECT "
+            + "p." + ProductEntry._ID + " AS " + ProductEntry._ID + ", "
+            + "p." + ProductEntry.COLUMN_PRODUCT_NAME + " AS " + ProductEntry.COLUMN_PRODUCT_NAME + ", "
+            + "p." + ProductEntry.COLUMN_PRODUCT_PRICE + " AS " + ProductEntry.COLUMN_PRODUCT_PRICE + ", "
+            + "p." + ProductEntry.COLUMN_PRODUCT_QUANTITY + " AS " + ProductEntry.COLUMN_PRODUCT_QUANTITY + ", "
+            + "p." + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID + " AS " + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID + ", "
+            + "s." + SupplierEntry.COLUMN_SUPPLIER_NAME + " AS " + ProductEntry.COLUMN_PRODUCT_SUPPLIER + ", "
+            + "s." + SupplierEntry.COLUMN_SUPPLIER_PHONE_NUMBER + " AS " + ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER + ", "
+            + "p." + ProductEntry.COLUMN_PRODUCT_VERSION + " AS " + ProductEntry.COLUMN_PRODUCT_VERSION
+            + " FROM " + TABLE_NAME + " p JOIN " + SupplierEntry.TABLE_NAME + " s"
+            + " ON s." + SupplierEntry._ID + " = p." + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID
+            + " WHERE " + liveProducts("p.");
+
+    /**
+     * Add the search index and fill it with the products that already exist.
+     */
+    private static void migrateToVersion4(SqlExecutor db) {
+        String index = "INSERT INTO products_search (docid, name, supplier) VALUES (new._id, new.name, "
+                + "(SELECT name FROM suppliers WHERE _id = new.supplier_id)); ";
+        db.execSQL("CREATE VIRTUAL TABLE products_search USING fts4(name, supplier)");
+        db.execSQL("CREATE TRIGGER products_search_insert AFTER INSERT ON products BEGIN "
+                + index + "END");
+        db.execSQL("CREATE TRIGGER products_search_update AFTER UPDATE OF name, supplier_id "
+                + "ON products BEGIN DELETE FROM products_search WHERE docid = old._id; "
+                + index + "END");
+        db.execSQL("CREATE TRIGGER products_search_delete AFTER DELETE ON products BEGIN "
+                + "DELETE FROM products_search WHERE docid = old._id; END");
+        db.execSQL("CREATE TRIGGER products_search_supplier_update AFTER UPDATE OF name "
+                + "ON suppliers BEGIN UPDATE products_search SET supplier = new.name "
+                + "WHERE docid IN (SELECT _id FROM products WHERE supplier_id = new._id); END");
+        db.execSQL("INSERT INTO products_search (docid, name, supplier) "
+                + "SELECT _id, name, supplier FROM product_details");
+    }
+
+    /**
+     * Replace the supplier index with one that also covers quantity and price, so totals per
+     * supplier are read from the index alone, and add the index on price.
+     */
+    private static void migrateToVersion5(SqlExecutor db) {
+        db.execSQL("DROP INDEX IF EXISTS products_supplier_id_index");
+        db.execSQL("CREATE INDEX IF NOT EXISTS products_supplier_stock_index "
+                + "ON products (supplier_id, quantity, price)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS products_price_index ON products (price)");
+    }
+
+    /**
+     * Add the inventory summary, filled with the totals of the products that already exist.
+     */
+    private static void migrateToVersion6(SqlExecutor db) {
+        db.execSQL("CREATE TABLE inventory_summary (_id INTEGER PRIMARY KEY CHECK (_id = 1), "
+                + "product_count INTEGER NOT NULL, total_quantity INTEGER NOT NULL, "
+                + "total_value INTEGER NOT NULL, out_of_stock_count INTEGER NOT NULL)");
+        db.execSQL("INSERT INTO inventory_summary SELECT 1, COUNT(*), IFNULL(SUM(quantity), 0), "
+                + "IFNULL(SUM(quantity * price), 0), IFNULL(SUM(quantity = 0), 0) FROM products");
+        db.execSQL("CREATE TRIGGER inventory_summary_insert AFTER INSERT ON products BEGIN "
+                + "UPDATE inventory_summary SET product_count = product_count + 1, "
+                + "total_quantity = total_quantity + new.quantity, "
+                + "total_value = total_value + new.quantity * new.price, "
+                + "out_of_stock_count = out_of_stock_count + (new.quantity = 0); END");
+        db.execSQL("CREATE TRIGGER inventory_summary_update AFTER UPDATE OF quantity, price "
+                + "ON products BEGIN "
+                + "UPDATE inventory_summary SET product_count = product_count - 1, "
+                + "total_quantity = total_quantity - old.quantity, "
+                + "total_value = total_value - old.quantity * old.price, "
+                + "out_of_stock_count = out_of_stock_count - (old.quantity = 0); "
+                + "UPDATE inventory_summary SET product_count = product_count + 1, "
+                + "total_quantity = total_quantity + new.quantity, "
+                + "total_value = total_value + new.quantity * new.price, "
+                + "out_of_stock_count = out_of_stock_count + (new.quantity = 0); END");
+        db.execSQL("CREATE TRIGGER inventory_summary_delete AFTER DELETE ON products BEGIN "
+                + "UPDATE inventory_summary SET product_count = product_count - 1, "
+                + "total_quantity = total_quantity - old.quantity, "
+                + "total_value = total_value - old.quantity * old.price, "
+                + "out_of_stock_count = out_of_stock_count - (old.quantity = 0); END");
+    }
+
+    /**
+     * Add the deleted_at tombstone. Every existing product is live, so the summary stays as it
+     * is; the view, the supplier index and the summary triggers are rebuilt to skip tombstones.
+     */
+    private static void migrateToVersion7(SqlExecutor db) {
+        db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN "
+                + ProductEntry.COLUMN_PRODUCT_DELETED_AT + " INTEGER");
+        db.execSQL("DROP VIEW " + ProductEntry.DETAILS_VIEW_NAME);
+        db.execSQL("CREATE VIEW product_details AS SELECT p._id AS _id, p.name AS name, "
+                + "p.price AS price, p.quantity AS quantity, p.supplier_id AS supplier_id, "
+                + "s.name AS supplier, s.phone AS supplierPhone "
+                + "FROM products p JOIN suppliers s ON s._id = p.supplier_id WHERE p.deleted_at IS NULL");
+        db.execSQL("DROP INDEX IF EXISTS products_supplier_stock_index");
+        db.execSQL("CREATE INDEX products_supplier_stock_index "
+                + "ON products (supplier_id, quantity, price, deleted_at)");
+        db.execSQL("CREATE INDEX products_deleted_at_index ON products (deleted_at)");
+        db.execSQL("DROP TRIGGER inventory_summary_insert");
+        db.execSQL("DROP TRIGGER inventory_summary_update");
+        db.execSQL("DROP TRIGGER inventory_summary_delete");
+        db.execSQL("CREATE TRIGGER inventory_summary_insert AFTER INSERT ON products "
+                + "WHEN new.deleted_at IS NULL BEGIN "
+                + "UPDATE inventory_summary SET product_count = product_count + 1, "
+                + "total_quantity = total_quantity + new.quantity, "
+                + "total_value = total_value + new.quantity * new.price, "
+                + "out_of_stock_count = out_of_stock_count + (new.quantity = 0); END");
+        db.execSQL("CREATE TRIGGER inventory_summary_update AFTER UPDATE OF quantity, price "
+                + "ON products WHEN old.deleted_at IS NULL BEGIN "
+                + "UPDATE inventory_summary SET product_count = product_count - 1, "
+                + "total_quantity = total_quantity - old.quantity, "
+                + "total_value = total_value - old.quantity * old.price, "
+                + "out_of_stock_count = out_of_stock_count - (old.quantity = 0); "
+                + "UPDATE inventory_summary SET product_count = product_count + 1, "
+                + "total_quantity = total_quantity + new.quantity, "
+                + "total_value = total_value + new.quantity * new.price, "
+                + "out_of_stock_count = out_of_stock_count + (new.quantity = 0); END");
+        db.execSQL("CREATE TRIGGER inventory_summary_delete AFTER DELETE ON products "
+                + "WHEN old.deleted_at IS NULL BEGIN "
+                + "UPDATE inventory_summary SET product_count = product_count - 1, "
+                + "total_quantity = total_quantity - old.quantity, "
+                + "total_value = total_value - old.quantity * old.price, "
+                + "out_of_stock_count = out_of_stock_count - (old.quantity = 0); END");
+    }
+
+    /**
+     * Add the change log, starting with an insert for every product in the catalog, so a back
+     * office that reads it from the beginning sees every product.
+     */
+    private static void migrateToVersion8(SqlExecutor db) {
+        String log = "INSERT INTO product_changes (product_id, operation, changed_at) ";
+        db.execSQL("CREATE TABLE product_changes (_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "product_id INTEGER NOT NULL, operation TEXT NOT NULL, changed_at INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX product_changes_product_index ON product_changes (product_id, _id)");
+        db.execSQL("CREATE TRIGGER product_changes_insert AFTER INSERT ON products "
+                + "WHEN new.deleted_at IS NULL BEGIN "
+                + log + "VALUES (new._id, 'insert', " + SQL_NOW_MILLIS + "); END");
+        db.execSQL("CREATE TRIGGER product_changes_update AFTER UPDATE OF name, price, quantity, "
+                + "supplier_id ON products WHEN new.deleted_at IS NULL BEGIN "
+                + log + "VALUES (new._id, 'update', " + SQL_NOW_MILLIS + "); END");
+        db.execSQL("CREATE TRIGGER product_changes_delete AFTER UPDATE OF deleted_at ON products "
+                + "WHEN old.deleted_at IS NULL AND new.deleted_at IS NOT NULL BEGIN "
+                + log + "VALUES (new._id, 'delete', " + SQL_NOW_MILLIS + "); END");
+        db.execSQL("CREATE TRIGGER product_changes_supplier_update AFTER UPDATE OF name, phone "
+                + "ON suppliers WHEN old.name IS NOT new.name OR old.phone IS NOT new.phone BEGIN "
+                + log + "SELECT _id, 'update', " + SQL_NOW_MILLIS + " FROM products "
+                + "WHERE supplier_id = new._id AND deleted_at IS NULL; END");
+        db.execSQL(log + "SELECT _id, 'insert', " + SQL_NOW_MILLIS
+                + " FROM products WHERE deleted_at IS NULL ORDER BY _id");
+    }
+
+    /**
+     * Add the back office version of each product, 0 for products that were never synced, and
+     * rebuild the change log triggers so they skip writes that set it.
+     */
+    private static void migrateToVersion9(SqlExecutor db) {
+        String log = "INSERT INTO product_changes (product_id, operation, changed_at) ";
+        db.execSQL("ALTER TABLE products ADD COLUMN version INTEGER NOT NULL DEFAULT 0");
+        db.execSQL("DROP VIEW product_details");
+        db.execSQL("CREATE VIEW product_details AS SELECT p._id AS _id, p.name AS name, "
+                + "p.price AS price, p.quantity AS quantity, p.supplier_id AS supplier_id, "
+                + "s.name AS supplier, s.phone AS supplierPhone, p.version AS version "
+                + "FROM products p JOIN suppliers s ON s._id = p.supplier_id WHERE p.deleted_at IS NULL");
+        db.execSQL("DROP TRIGGER product_changes_insert");
+        db.execSQL("DROP TRIGGER product_changes_update");
+        db.execSQL("DROP TRIGGER product_changes_delete");
+        db.execSQL("CREATE TRIGGER product_changes_insert AFTER INSERT ON products "
+                + "WHEN new.deleted_at IS NULL AND new.version = 0 BEGIN "
+                + log + "VALUES (new._id, 'insert', " + SQL_NOW_MILLIS + "); END");
+        db.execSQL("CREATE TRIGGER product_changes_update AFTER UPDATE OF name, price, quantity, "
+                + "supplier_id ON products WHEN new.deleted_at IS NULL AND new.version = old.version BEGIN "
+                + log + "VALUES (new._id, 'update', " + SQL_NOW_MILLIS + "); END");
+        db.execSQL("CREATE TRIGGER product_changes_delete AFTER UPDATE OF deleted_at ON products "
+                + "WHEN old.deleted_at IS NULL AND new.deleted_at IS NOT NULL "
+                + "AND new.version = old.version BEGIN "
+                + log + "VALUES (new._id, 'delete', " + SQL_NOW_MILLIS + "); END");
+    }
+
+    /**
+     * Replace the index on deleted_at with the one that covers the catalog list, which starts
+     * with the same column.
+     */
+    private static void migrateToVersion10(SqlExecutor db) {
+        db.execSQL("DROP INDEX IF EXISTS products_deleted_at_index");
+        db.execSQL("CREATE INDEX products_list_index "
+                + "ON products (deleted_at, _id, name, price, quantity, supplier_id)");
+    }
+
+    /**
+     * Add the catalog state, with a new range of ids for the products created on the device.
+     * Products that already exist keep their ids.
+     */
+    private static void migrateToVersion11(SqlExecutor db) {
+        db.execSQL("CREATE TABLE catalog_state (_id INTEGER PRIMARY KEY CHECK (_id = 1), "
+                + "next_local_id INTEGER NOT NULL)");
+        db.execSQL("INSERT INTO catalog_state VALUES (1, (1 + abs(random() % 2147483647)) << 32)");
+    }
+
+    /**
+     * Add the generation to products and to the catalog state. Every product is in the first
+     * one. The indexes that hold the tombstone get the generation after it, and the view leaves
+     * out the products of earlier generations.
+     */
+    private static void migrateToVersion12(SqlExecutor db) {
+        db.execSQL("ALTER TABLE products ADD COLUMN generation INTEGER NOT NULL DEFAULT 0");
+        db.execSQL("ALTER TABLE catalog_state ADD COLUMN generation INTEGER NOT NULL DEFAULT 0");
+        db.execSQL("DROP INDEX products_supplier_stock_index");
+        db.execSQL("CREATE INDEX products_supplier_stock_index "
+                + "ON products (supplier_id, quantity, price, deleted_at, generation)");
+        db.execSQL("DROP INDEX products_list_index");
+        db.execSQL("CREATE INDEX products_list_index "
+                + "ON products (deleted_at, generation, _id, name, price, quantity, supplier_id)");
+        db.execSQL("DROP VIEW product_details");
+        db.execSQL("CREATE VIEW product_details AS SELECT p._id AS _id, p.name AS name, "
+                + "p.price AS price, p.quantity AS quantity, p.supplier_id AS supplier_id, "
+                + "s.name AS supplier, s.phone AS supplierPhone, p.version AS version "
+                + "FROM products p JOIN suppliers s ON s._id = p.supplier_id "
+                + "WHERE p.deleted_at IS NULL AND p.generation = (SELECT generation FROM catalog_state)");
+    }
+
+    /** Single row table with the state of the catalog as a whole. */
+    static final String CATALOG_STATE_TABLE = "catalog_state";
+
+    /** Next id to give a product created on the device. */
+    static final String COLUMN_NEXT_LOCAL_ID = "next_local_id";
+
+    /**
+     * Generation of the catalog: in the catalog state, the current one; in products, the one
+     * the product was created in. Deleting the whole catalog starts the next generation, which
+     * deletes the products of the earlier ones at once, and {@link TombstonePurger} gives them
+     * their tombstones later.
+     */
+    static final String COLUMN_GENERATION = "generation";
+
+    /**
+     * Totals of the given products, computed from scratch. Followed by a WHERE clause that
+     * picks the products.
+     */
+    static final String SQL_SUM_PRODUCTS = "SELECT COUNT(*), "
+            + "IFNULL(SUM(" + ProductEntry.COLUMN_PRODUCT_QUANTITY + "), 0), "
+            + "IFNULL(SUM(" + ProductEntry.COLUMN_PRODUCT_QUANTITY + " * " + ProductEntry.COLUMN_PRODUCT_PRICE + "), 0), "
+            + "IFNULL(SUM(" + ProductEntry.COLUMN_PRODUCT_QUANTITY + " = 0), 0) FROM " + TABLE_NAME;
+
+    /**
+     * Selection of the products without a tombstone. Products of an earlier generation have
+     * been deleted too, see {@link #LIVE_PRODUCTS}; this is what triggers check of the row they
+     * are fired for.
+     */
+    static final String NOT_TOMBSTONED = ProductEntry.COLUMN_PRODUCT_DELETED_AT + " IS NULL";
+
+    /**
+     * The current generation of the catalog, as an SQL expression.
+     */
+    static final String SQL_CURRENT_GENERATION = "(SELECT " + COLUMN_GENERATION + " FROM "
+            + CATALOG_STATE_TABLE + ")";
+
+    /**
+     * Selection of the products that haven't been deleted.
+     */
+    static final String LIVE_PRODUCTS = liveProducts("");
+
+    /**
+     * Return the selection of the products that haven't been deleted, with each column
+     * prefixed, for example with the alias of the products table in a join.
+     */
+    static String liveProducts(String prefix) {
+        return prefix + NOT_TOMBSTONED + " AND " + prefix + COLUMN_GENERATION + " = " + SQL_CURRENT_GENERATION;
+    }
+
+    /**
+     * Totals of the whole catalog, computed from scratch. Used to fill the inventory summary
+     * and to check it.
+     */
+    static final String SQL_COMPUTE_INVENTORY_SUMMARY = SQL_SUM_PRODUCTS + " WHERE " + LIVE_PRODUCTS;
+
+    /**
+     * Selection of a single product by id, unless it has been deleted.
+     *
+     * This and the statements below are those of {@link ProductProvider} and its
+     * {@link SupplierResolver}, kept with the schema so the benchmarks run the very same SQL.
+     */
+    static final String SQL_SELECT_LIVE_PRODUCT = ProductEntry._ID + "=? AND " + LIVE_PRODUCTS;
+
+    /**
+     * Takes the totals of deleted products out of the inventory summary, bound in the order of
+     * {@link #SQL_SUM_PRODUCTS}.
+     */
+    static final String SQL_SUBTRACT_FROM_SUMMARY = "UPDATE " + SummaryEntry.TABLE_NAME + " SET "
+            + SummaryEntry.COLUMN_PRODUCT_COUNT + " = " + SummaryEntry.COLUMN_PRODUCT_COUNT + " - ?, "
+            + SummaryEntry.COLUMN_TOTAL_QUANTITY + " = " + SummaryEntry.COLUMN_TOTAL_QUANTITY + " - ?, "
+            + SummaryEntry.COLUMN_TOTAL_VALUE + " = " + SummaryEntry.COLUMN_TOTAL_VALUE + " - ?, "
+            + SummaryEntry.COLUMN_OUT_OF_STOCK_COUNT + " = " + SummaryEntry.COLUMN_OUT_OF_STOCK_COUNT + " - ?";
+
+    /**
+     * The stored totals of the inventory summary, in the order of {@link #SQL_SUM_PRODUCTS}.
+     */
+    static final String SQL_READ_SUMMARY = "SELECT " + SummaryEntry.COLUMN_PRODUCT_COUNT + ", "
+            + SummaryEntry.COLUMN_TOTAL_QUANTITY + ", " + SummaryEntry.COLUMN_TOTAL_VALUE + ", "
+            + SummaryEntry.COLUMN_OUT_OF_STOCK_COUNT + " FROM " + SummaryEntry.TABLE_NAME;
+
+    /**
+     * Starts the next generation of the catalog, which deletes every product there is.
+     */
+    static final String SQL_START_GENERATION = "UPDATE " + CATALOG_STATE_TABLE
+            + " SET " + COLUMN_GENERATION + " = " + COLUMN_GENERATION + " + 1";
+
+    /**
+     * Read and advance the next id of the range of products created on the device, see
+     * {@link #COLUMN_NEXT_LOCAL_ID}.
+     */
+    static final String SQL_SELECT_NEXT_LOCAL_ID = "SELECT " + COLUMN_NEXT_LOCAL_ID
+            + " FROM " + CATALOG_STATE_TABLE;
+
+    static final String SQL_RESERVE_LOCAL_IDS = "UPDATE " + CATALOG_STATE_TABLE
+            + " SET " + COLUMN_NEXT_LOCAL_ID + " = " + COLUMN_NEXT_LOCAL_ID + " + ?";
+
+    static final String SQL_FIND_SUPPLIER = "SELECT " + SupplierEntry._ID + " FROM "
+            + SupplierEntry.TABLE_NAME + " WHERE " + SupplierEntry.COLUMN_SUPPLIER_NAME + " = ?";
+
+    static final String SQL_INSERT_SUPPLIER = "INSERT INTO " + SupplierEntry.TABLE_NAME + " ("
+            + SupplierEntry.COLUMN_SUPPLIER_NAME + ", "
+            + SupplierEntry.COLUMN_SUPPLIER_PHONE_NUMBER + ") VALUES (?, ?)";
+
+    static final String SQL_UPDATE_SUPPLIER_PHONE = "UPDATE " + SupplierEntry.TABLE_NAME
+            + " SET " + SupplierEntry.COLUMN_SUPPLIER_PHONE_NUMBER + " = ? WHERE "
+            + SupplierEntry._ID + " = ?";
+
+    /**
+     * Callers select products by the columns of {@link ProductEntry#DETAILS_VIEW_NAME}, which
+     * include the supplier name and phone. Turn such a selection into one on the products table.
+     * Like the view, it never selects deleted products.
+     */
+    static String toProductSelection(String selection) {
+        if (selection == null || selection.isEmpty()) {
+            return LIVE_PRODUCTS;
+        }
+        return ProductEntry._ID + " IN (SELECT " + ProductEntry._ID + " FROM "
+                + ProductEntry.DETAILS_VIEW_NAME + " WHERE " + selection + ")";
+    }
+
+    /**
+     * Create the single row table with the totals of the catalog, fill it, and add the triggers
+     * that apply every change to products to it within the same transaction.
+     */
+    private static void createInventorySummary(SqlExecutor db) {
+        String summary = SummaryEntry.TABLE_NAME;
+        db.execSQL("CREATE TABLE " + summary + " ("
+                + SummaryEntry._ID + " INTEGER PRIMARY KEY CHECK (" + SummaryEntry._ID + " = "
+                + SummaryEntry.SUMMARY_ID + "), "
+                + SummaryEntry.COLUMN_PRODUCT_COUNT + " INTEGER NOT NULL, "
+                + SummaryEntry.COLUMN_TOTAL_QUANTITY + " INTEGER NOT NULL, "
+                + SummaryEntry.COLUMN_TOTAL_VALUE + " INTEGER NOT NULL, "
+                + SummaryEntry.COLUMN_OUT_OF_STOCK_COUNT + " INTEGER NOT NULL)");
+        db.execSQL("INSERT INTO " + summary + " SELECT " + SummaryEntry.SUMMARY_ID + ", * FROM ("
+                + SQL_COMPUTE_INVENTORY_SUMMARY + ")");
+        createInventorySummaryTriggers(db);
+    }
+
+    /**
+     * Create the triggers that keep the inventory summary in step with inserts, updates and
+     * purges of products. Tombstoned products have already been taken out of the summary by
+     * {@link ProductProvider} when they were deleted, so the triggers skip them.
+     */
+    private static void createInventorySummaryTriggers(SqlExecutor db) {
+        String summary = SummaryEntry.TABLE_NAME;
+        String oldIsLive = "old." + NOT_TOMBSTONED;
+        db.execSQL("CREATE TRIGGER " + summary + "_insert AFTER INSERT ON " + TABLE_NAME
+                + " WHEN new." + NOT_TOMBSTONED + " BEGIN " + adjustSummary("+", "new") + "END");
+        db.execSQL("CREATE TRIGGER " + summary + "_update AFTER UPDATE OF "
+                + ProductEntry.COLUMN_PRODUCT_QUANTITY + ", " + ProductEntry.COLUMN_PRODUCT_PRICE
+                + " ON " + TABLE_NAME + " WHEN " + oldIsLive + " BEGIN " + adjustSummary("-", "old")
+                + adjustSummary("+", "new") + "END");
+        db.execSQL("CREATE TRIGGER " + summary + "_delete AFTER DELETE ON " + TABLE_NAME
+                + " WHEN " + oldIsLive + " BEGIN " + adjustSummary("-", "old") + "END");
+    }
+
+    /**
+     * Build the trigger statement that adds ("+") or removes ("-") one product, the "new" or
+     * "old" row, to or from the inventory summary.
+     */
+    private static String adjustSummary(String sign, String row) {
+        String quantity = row + "." + ProductEntry.COLUMN_PRODUCT_QUANTITY;
+        return "UPDATE " + SummaryEntry.TABLE_NAME + " SET "
+                + SummaryEntry.COLUMN_PRODUCT_COUNT + " = " + SummaryEntry.COLUMN_PRODUCT_COUNT + " " + sign + " 1, "
+                + SummaryEntry.COLUMN_TOTAL_QUANTITY + " = " + SummaryEntry.COLUMN_TOTAL_QUANTITY + " " + sign
+                + " " + quantity + ", "
+                + SummaryEntry.COLUMN_TOTAL_VALUE + " = " + SummaryEntry.COLUMN_TOTAL_VALUE + " " + sign
+                + " " + quantity + " * " + row + "." + ProductEntry.COLUMN_PRODUCT_PRICE + ", "
+                + SummaryEntry.COLUMN_OUT_OF_STOCK_COUNT + " = " + SummaryEntry.COLUMN_OUT_OF_STOCK_COUNT
+                + " " + sign + " (" + quantity + " = 0); ";
+    }
+
+    /**
+     * The current time in milliseconds since the epoch, as an SQL expression.
+     */
+    private static final String SQL_NOW_MILLIS = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+
+    /**
+     * Create the change log and the triggers that append to it, within the same transaction,
+     * for every write that changes what a product looks like: inserts, updates of its columns,
+     * deletes, and changes to its supplier. Purging a deleted product isn't logged, since its
+     * deletion already was.
+     */
+    private static void createChangeLog(SqlExecutor db) {
+        String changes = ChangeEntry.TABLE_NAME;
+        db.execSQL("CREATE TABLE " + changes + " ("
+                + ChangeEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + ChangeEntry.COLUMN_PRODUCT_ID + " INTEGER NOT NULL, "
+                + ChangeEntry.COLUMN_OPERATION + " TEXT NOT NULL, "
+                + ChangeEntry.COLUMN_CHANGED_AT + " INTEGER NOT NULL)");
+        // Lets compaction find the latest change of each product from the index alone.
+        db.execSQL("CREATE INDEX " + changes + "_product_index ON " + changes + " ("
+                + ChangeEntry.COLUMN_PRODUCT_ID + ", " + ChangeEntry._ID + ")");
+        createProductChangeTriggers(db);
+
+        // The supplier name and phone are part of every product of the supplier. Adding a product
+        // rewrites its supplier's phone, usually with the same value, which changes nothing.
+        String name = SupplierEntry.COLUMN_SUPPLIER_NAME;
+        String phone = SupplierEntry.COLUMN_SUPPLIER_PHONE_NUMBER;
+        db.execSQL("CREATE TRIGGER " + changes + "_supplier_update AFTER UPDATE OF " + name + ", "
+                + phone + " ON " + SupplierEntry.TABLE_NAME + " WHEN old." + name + " IS NOT new." + name
+                + " OR old." + phone + " IS NOT new." + phone + " BEGIN "
+                + logChange("SELECT " + ProductEntry._ID, ChangeEntry.OPERATION_UPDATE)
+                + " FROM " + TABLE_NAME + " WHERE " + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID + " = new."
+                + SupplierEntry._ID + " AND " + NOT_TOMBSTONED + "; END");
+    }
+
+    /**
+     * Create the triggers that log inserts, updates and deletes of products. The sync adapter
+     * sets the version of every product it writes, and those writes came from the back office,
+     * so only writes that leave the version alone are logged.
+     */
+    private static void createProductChangeTriggers(SqlExecutor db) {
+        String changes = ChangeEntry.TABLE_NAME;
+        String version = ProductEntry.COLUMN_PRODUCT_VERSION;
+        String sameVersion = " AND new." + version + " = old." + version;
+        db.execSQL("CREATE TRIGGER " + changes + "_insert AFTER INSERT ON " + TABLE_NAME
+                + " WHEN new." + NOT_TOMBSTONED + " AND new." + version + " = 0 BEGIN "
+                + logChange("VALUES (new." + ProductEntry._ID, ChangeEntry.OPERATION_INSERT) + ")"
+                + "; END");
+        db.execSQL("CREATE TRIGGER " + changes + "_update AFTER UPDATE OF "
+                + ProductEntry.COLUMN_PRODUCT_NAME + ", " + ProductEntry.COLUMN_PRODUCT_PRICE + ", "
+                + ProductEntry.COLUMN_PRODUCT_QUANTITY + ", " + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID
+                + " ON " + TABLE_NAME + " WHEN new." + NOT_TOMBSTONED + sameVersion + " BEGIN "
+                + logChange("VALUES (new." + ProductEntry._ID, ChangeEntry.OPERATION_UPDATE) + ")"
+                + "; END");
+        db.execSQL("CREATE TRIGGER " + changes + "_delete AFTER UPDATE OF "
+                + ProductEntry.COLUMN_PRODUCT_DELETED_AT + " ON " + TABLE_NAME
+                + " WHEN old." + NOT_TOMBSTONED + " AND new." + ProductEntry.COLUMN_PRODUCT_DELETED_AT
+                + " IS NOT NULL" + sameVersion + " BEGIN "
+                + logChange("VALUES (new." + ProductEntry._ID, ChangeEntry.OPERATION_DELETE) + ")"
+                + "; END");
+    }
+
+    /**
+     * Build the start of a statement that appends changes to the log. {@code source} opens the
+     * VALUES or SELECT that gives the product id; the operation and time are added after it.
+     */
+    private static String logChange(String source, String operation) {
+        return "INSERT INTO " + ChangeEntry.TABLE_NAME + " (" + ChangeEntry.COLUMN_PRODUCT_ID + ", "
+                + ChangeEntry.COLUMN_OPERATION + ", " + ChangeEntry.COLUMN_CHANGED_AT + ") "
+                + source + ", '" + operation + "', " + SQL_NOW_MILLIS;
+    }
+
+    /**
+     * Create the FTS4 table that indexes product and supplier names, keyed by product id, and
+     * the triggers that keep it in step with every write to products and suppliers.
+     */
+    private static void createSearchIndex(SqlExecutor db) {
+        String search = ProductEntry.SEARCH_TABLE_NAME;
+        String supplierName = "(SELECT " + SupplierEntry.COLUMN_SUPPLIER_NAME + " FROM "
+                + SupplierEntry.TABLE_NAME + " WHERE " + SupplierEntry._ID + " = new."
+                + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID + ")";
+        String indexNewProduct = "INSERT INTO " + search + " (docid, "
+                + ProductEntry.COLUMN_PRODUCT_NAME + ", " + ProductEntry.COLUMN_PRODUCT_SUPPLIER
+                + ") VALUES (new." + ProductEntry._ID + ", new." + ProductEntry.COLUMN_PRODUCT_NAME
+                + ", " + supplierName + "); ";
+        String removeOldProduct = "DELETE FROM " + search + " WHERE docid = old." + ProductEntry._ID + "; ";
+
+        db.execSQL("CREATE VIRTUAL TABLE " + search + " USING fts4("
+                + ProductEntry.COLUMN_PRODUCT_NAME + ", " + ProductEntry.COLUMN_PRODUCT_SUPPLIER + ")");
+        db.execSQL("CREATE TRIGGER " + search + "_insert AFTER INSERT ON " + TABLE_NAME
+                + " BEGIN " + indexNewProduct + "END");
+        db.execSQL("CREATE TRIGGER " + search + "_update AFTER UPDATE OF "
+                + ProductEntry.COLUMN_PRODUCT_NAME + ", " + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID
+                + " ON " + TABLE_NAME + " BEGIN " + removeOldProduct + indexNewProduct + "END");
+        db.execSQL("CREATE TRIGGER " + search + "_delete AFTER DELETE ON " + TABLE_NAME
+                + " BEGIN " + removeOldProduct + "END");
+        // Renaming a supplier changes the indexed text of all of its products.
+        db.execSQL("CREATE TRIGGER " + search + "_supplier_update AFTER UPDATE OF "
+                + SupplierEntry.COLUMN_SUPPLIER_NAME + " ON " + SupplierEntry.TABLE_NAME + " BEGIN "
+                + "UPDATE " + search + " SET " + ProductEntry.COLUMN_PRODUCT_SUPPLIER + " = new."
+                + SupplierEntry.COLUMN_SUPPLIER_NAME + " WHERE docid IN (SELECT " + ProductEntry._ID
+                + " FROM " + TABLE_NAME + " WHERE " + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID
+                + " = new." + SupplierEntry._ID + "); END");
+    }
+
+    /**
+     * Create the catalog state. Products created on the device take their ids from a range of
+     * 2^32 ids that starts at a random multiple of 2^32, so none shares an id with a product
+     * created on the back office, below {@link SyncRecord#MIN_DEVICE_ID}, and products created
+     * on different devices don't share ids either: with 2^31 - 1 ranges, two of a few thousand
+     * devices are unlikely to pick the same one.
+     */
+    private static void createCatalogState(SqlExecutor db) {
+        db.execSQL("CREATE TABLE " + CATALOG_STATE_TABLE + " ("
+                + BaseColumns._ID + " INTEGER PRIMARY KEY CHECK (" + BaseColumns._ID + " = 1), "
+                + COLUMN_NEXT_LOCAL_ID + " INTEGER NOT NULL, "
+                + COLUMN_GENERATION + " INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("INSERT INTO " + CATALOG_STATE_TABLE + " (" + BaseColumns._ID + ", "
+                + COLUMN_NEXT_LOCAL_ID + ") VALUES (1, (1 + abs(random() % 2147483647)) << 32)");
+    }
+
+    /**
+     * Build the statement that creates a products table with the given name in the current schema.
+     */
+    private static String createProductsTable(String tableName) {
+        return "CREATE TABLE " + tableName + " ("
                 + ProductEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
                 + ProductEntry.COLUMN_PRODUCT_NAME + " TEXT NOT NULL, "
-                + ProductEntry.COLUMN_PRODUCT_PRICE + " TEXT NOT NULL, "
+                + ProductEntry.COLUMN_PRODUCT_PRICE + " INTEGER NOT NULL, "
                 + ProductEntry.COLUMN_PRODUCT_QUANTITY + " INTEGER NOT NULL, "
-                + ProductEntry.COLUMN_PRODUCT_SUPPLIER + " INTEGER NOT NULL, "
-                + ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER + " INTEGER NOT NULL DEFAULT 0)";
-        db.execSQL(SQL_CREATE_PROCUCTS_TABLE);
+                + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID + " INTEGER NOT NULL REFERENCES "
+                + SupplierEntry.TABLE_NAME + " (" + SupplierEntry._ID + "), "
+                + ProductEntry.COLUMN_PRODUCT_DELETED_AT + " INTEGER, "
+                + ProductEntry.COLUMN_PRODUCT_VERSION + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_GENERATION + " INTEGER NOT NULL DEFAULT 0)";
     }
 
-    @Override
-    public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
-        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
-        onCreate(sqLiteDatabase);
+    /**
+     * Create the indexes used by queries that filter or sort the catalog.
+     */
+    private static void createProductIndexes(SqlExecutor db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_name_index ON "
+                + TABLE_NAME + " (" + ProductEntry.COLUMN_PRODUCT_NAME + ")");
+        // Starts with the supplier, so it also serves lookups by supplier alone. Ends with the
+        // tombstone and the generation, so totals of the live products are still read from the
+        // index alone.
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_supplier_stock_index ON "
+                + TABLE_NAME + " (" + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID + ", "
+                + ProductEntry.COLUMN_PRODUCT_QUANTITY + ", " + ProductEntry.COLUMN_PRODUCT_PRICE + ", "
+                + ProductEntry.COLUMN_PRODUCT_DELETED_AT + ", " + COLUMN_GENERATION + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_quantity_index ON "
+                + TABLE_NAME + " (" + ProductEntry.COLUMN_PRODUCT_QUANTITY + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_price_index ON "
+                + TABLE_NAME + " (" + ProductEntry.COLUMN_PRODUCT_PRICE + ")");
+        // Holds every product column of the catalog list, see ProductEntry.LIST_PROJECTION, in
+        // the order of its pages: the live products by id. A page is then read from the index
+        // alone, without the table rows and their unused columns. Starting with the tombstone
+        // and the generation, it also lets the purger and the search skip straight to the
+        // deleted products, and to those of earlier generations. Partial
+        // indexes would keep the other indexes free of them, but they need SQLite 3.8, newer
+        // than API 15 has.
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_list_index ON "
+                + TABLE_NAME + " (" + ProductEntry.COLUMN_PRODUCT_DELETED_AT + ", " + COLUMN_GENERATION + ", "
+                + ProductEntry._ID + ", " + ProductEntry.COLUMN_PRODUCT_NAME + ", "
+                + ProductEntry.COLUMN_PRODUCT_PRICE + ", " + ProductEntry.COLUMN_PRODUCT_QUANTITY + ", "
+                + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID + ")");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,142 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentResolver;
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes every product to a CSV file that {@link ProductImporter} can read back.
+ *
+ * Products are read from {@link ProductProvider} one window at a time with the paged
+ * {@link ProductEntry#buildPageUri} query, which seeks by id, so each window costs the same and
+ * only one window is in memory at once. Each row is encoded straight from the cursor into a
+ * reusable buffer that is written to the file's channel; no strings or lists of products are
+ * built. Products written while an export runs may or may not be included.
+ */
+public final class ProductExporter {
+
+    /** Number of products read per query unless the constructor is given another one. */
+    public static final int DEFAULT_WINDOW_SIZE = 1000;
+
+    /** Size of the buffer rows are encoded into before they are written. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String[] COLUMNS = {
+            ProductEntry._ID,
+            ProductEntry.COLUMN_PRODUCT_NAME,
+            ProductEntry.COLUMN_PRODUCT_PRICE,
+            ProductEntry.COLUMN_PRODUCT_QUANTITY,
+            ProductEntry.COLUMN_PRODUCT_SUPPLIER,
+            ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
+    };
+
+    private static final int ID = 0;
+    private static final int NAME = 1;
+    private static final int PRICE = 2;
+    private static final int QUANTITY = 3;
+    private static final int SUPPLIER = 4;
+    private static final int SUPPLIER_PHONE = 5;
+
+    private final ContentResolver mResolver;
+
+    private final int mWindowSize;
+
+    public ProductExporter(ContentResolver resolver) {
+        this(resolver, DEFAULT_WINDOW_SIZE);
+    }
+
+    public ProductExporter(ContentResolver resolver, int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive");
+        }
+        mResolver = resolver;
+        mWindowSize = windowSize;
+    }
+
+    /**
+     * Export every product to the file at the given URI, replacing its contents. Blocks until
+     * the export is done, so call it on a background thread.
+     *
+     * @param gzip whether to compress the file with gzip
+     * @return the number of products written
+     */
+    public long exportProducts(Uri destination, boolean gzip) throws IOException {
+        ParcelFileDescriptor file = mResolver.openFileDescriptor(destination, "wt");
+        if (file == null) {
+            throw new FileNotFoundException("Cannot open " + destination);
+        }
+        ParcelFileDescriptor.AutoCloseOutputStream out = new ParcelFileDescriptor.AutoCloseOutputStream(file);
+        // Without compression the buffer goes straight to the file's channel. Compressed bytes
+        // have to pass through the deflater's stream first.
+        WritableByteChannel channel = gzip
+                ? Channels.newChannel(new GZIPOutputStream(out, BUFFER_SIZE))
+                : out.getChannel();
+        try {
+            return exportProducts(channel);
+        } finally {
+            // Closes the stream and the file with it.
+            channel.close();
+        }
+    }
+
+    /**
+     * Export every product to the given channel, which is left open.
+     *
+     * @return the number of products written
+     */
+    long exportProducts(WritableByteChannel channel) throws IOException {
+        CsvChannelWriter writer = new CsvChannelWriter(channel, BUFFER_SIZE);
+        for (String column : COLUMNS) {
+            writer.writeText(column);
+        }
+        writer.endRow();
+
+        CharArrayBuffer text = new CharArrayBuffer(64);
+        long afterId = 0;
+        long rows = 0;
+        int count;
+        do {
+            Cursor cursor = mResolver.query(ProductEntry.buildPageUri(afterId, mWindowSize), COLUMNS,
+                    null, null, null);
+            if (cursor == null) {
+                throw new IOException("Cannot query products");
+            }
+            try {
+                count = cursor.getCount();
+                while (cursor.moveToNext()) {
+                    afterId = cursor.getLong(ID);
+                    writer.writeLong(afterId);
+                    cursor.copyStringToBuffer(NAME, text);
+                    writer.writeText(text.data, text.sizeCopied);
+                    writer.writeCents(cursor.getLong(PRICE));
+                    writer.writeLong(cursor.getLong(QUANTITY));
+                    cursor.copyStringToBuffer(SUPPLIER, text);
+                    writer.writeText(text.data, text.sizeCopied);
+                    if (cursor.isNull(SUPPLIER_PHONE)) {
+                        // Left empty, which the importer reads back as no phone rather than 0.
+                        writer.writeEmpty();
+                    } else {
+                        writer.writeLong(cursor.getLong(SUPPLIER_PHONE));
+                    }
+                    writer.endRow();
+                }
+            } finally {
+                cursor.close();
+            }
+            rows += count;
+        } while (count == mWindowSize);
+
+        writer.flush();
+        return rows;
+    }
+}
@@ -0,0 +1,447 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.net.Uri;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+import com.example.dimitra.shopapp.NumberFormatter;
+
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Loads products from a CSV or JSON file into {@link ProductProvider}.
+ *
+ * The file is streamed one record at a time and written in chunks, each through a single
+ * {@link ContentResolver#bulkInsert} transaction, so memory use doesn't depend on the size of
+ * the file. Records that fail the checks of {@link ProductProvider} are written to a reject
+ * file instead, with the reason. After every chunk the listener receives a checkpoint; if the
+ * import fails, passing the last checkpoint to a new import continues after the last committed
+ * chunk without importing anything twice.
+ *
+ * Both formats use the column names of {@link ProductEntry}: name, price, quantity, supplier and
+ * supplierPhone. A CSV file starts with a header row naming its columns. A JSON file is an array
+ * of objects. Prices are written like in the editor, e.g. "12.50".
+ */
+public final class ProductImporter {
+
+    /** File formats the importer reads. */
+    public enum Format {
+        CSV,
+        JSON
+    }
+
+    /**
+     * Receives the progress of an import.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called on the importing thread after every committed chunk.
+         *
+         * @param checkpoint number of records at the start of the file that are done, either
+         *                   imported or rejected; pass it to {@link #importProducts} to resume
+         * @param imported   number of products imported so far by this run
+         * @param rejected   number of records rejected so far by this run
+         * @param bytesRead  number of bytes of the file read so far
+         */
+        void onProgress(long checkpoint, long imported, long rejected, long bytesRead);
+    }
+
+    /**
+     * Outcome of a finished import.
+     */
+    public static final class Result {
+
+        /** Number of products imported by this run. */
+        public final long imported;
+
+        /** Number of records rejected by this run. */
+        public final long rejected;
+
+        /** Number of records in the file. */
+        public final long checkpoint;
+
+        Result(long imported, long rejected, long checkpoint) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.checkpoint = checkpoint;
+        }
+    }
+
+    /** Number of records per transaction unless the constructor is given another one. */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /** The columns read from a file, in the order of the fields passed around below. */
+    private static final String[] COLUMNS = {
+            ProductEntry.COLUMN_PRODUCT_NAME,
+            ProductEntry.COLUMN_PRODUCT_PRICE,
+            ProductEntry.COLUMN_PRODUCT_QUANTITY,
+            ProductEntry.COLUMN_PRODUCT_SUPPLIER,
+            ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
+    };
+
+    private static final int NAME = 0;
+    private static final int PRICE = 1;
+    private static final int QUANTITY = 2;
+    private static final int SUPPLIER = 3;
+    private static final int SUPPLIER_PHONE = 4;
+
+    private final ContentResolver mResolver;
+
+    private final int mChunkSize;
+
+    public ProductImporter(ContentResolver resolver) {
+        this(resolver, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ProductImporter(ContentResolver resolver, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        mResolver = resolver;
+        mChunkSize = chunkSize;
+    }
+
+    /**
+     * Import the products in the file at the given URI. Blocks until the whole file is read, so
+     * call it on a background thread.
+     *
+     * @param checkpoint a checkpoint from an earlier, failed import of the same file, or 0 to
+     *                   start from the beginning
+     * @param rejects    receives one CSV line per rejected record: its number in the file, the
+     *                   reason and its fields. When resuming, pass a writer that appends to the
+     *                   rejects of the earlier run. May be null.
+     * @param listener   receives progress after every chunk. May be null.
+     * @throws IOException if the file can't be read or isn't valid CSV or JSON. Everything up
+     *                     to the last reported checkpoint has been imported.
+     */
+    public Result importProducts(Uri source, Format format, long checkpoint, Writer rejects,
+                                 ProgressListener listener) throws IOException {
+        InputStream in = mResolver.openInputStream(source);
+        if (in == null) {
+            throw new FileNotFoundException("Cannot open " + source);
+        }
+        CountingInputStream counter = new CountingInputStream(in);
+        Reader reader = new InputStreamReader(counter, "UTF-8");
+        try {
+            RecordSource records = format == Format.CSV ? new CsvRecords(reader) : new JsonRecords(reader);
+            return importRecords(records, counter, checkpoint, rejects, listener);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private Result importRecords(RecordSource records, CountingInputStream counter, long checkpoint,
+                                 Writer rejects, ProgressListener listener) throws IOException {
+        String[] fields = new String[COLUMNS.length];
+        ContentValues[] chunk = new ContentValues[mChunkSize];
+        // Rejects are held back until their chunk commits, so a resumed import doesn't repeat them.
+        StringBuilder chunkRejects = new StringBuilder();
+        int pending = 0;
+        int recordsInChunk = 0;
+        long record = 0;
+        long imported = 0;
+        long rejected = 0;
+
+        if (rejects != null && checkpoint == 0) {
+            rejects.write("record,reason");
+            for (String column : COLUMNS) {
+                rejects.write(',');
+                rejects.write(column);
+            }
+            rejects.write('\n');
+        }
+
+        while (records.next(fields)) {
+            record++;
+            if (record <= checkpoint) {
+                continue;
+            }
+            ContentValues values = new ContentValues();
+            String error = toValues(fields, values);
+            if (error == null) {
+                chunk[pending++] = values;
+            } else {
+                rejected++;
+                appendReject(chunkRejects, record, error, fields);
+            }
+
+            if (++recordsInChunk == mChunkSize) {
+                imported += commit(chunk, pending, chunkRejects, rejects);
+                pending = 0;
+                recordsInChunk = 0;
+                if (listener != null) {
+                    listener.onProgress(record, imported, rejected, counter.mCount);
+                }
+            }
+        }
+        if (recordsInChunk != 0) {
+            imported += commit(chunk, pending, chunkRejects, rejects);
+            if (listener != null) {
+                listener.onProgress(record, imported, rejected, counter.mCount);
+            }
+        }
+        return new Result(imported, rejected, Math.max(record, checkpoint));
+    }
+
+    /**
+     * Insert the first {@code count} values of the chunk in one transaction, then write the
+     * rejects of the chunk. Return the number of products inserted.
+     */
+    private int commit(ContentValues[] chunk, int count, StringBuilder chunkRejects, Writer rejects)
+            throws IOException {
+        int inserted = 0;
+        if (count != 0) {
+            inserted = mResolver.bulkInsert(ProductEntry.CONTENT_URI,
+                    count == chunk.length ? chunk : Arrays.copyOf(chunk, count));
+            Arrays.fill(chunk, null);
+        }
+        if (rejects != null && chunkRejects.length() != 0) {
+            rejects.append(chunkRejects);
+            rejects.flush();
+        }
+        chunkRejects.setLength(0);
+        return inserted;
+    }
+
+    /**
+     * Turn the fields of a record into product values. Return why the record can't be imported,
+     * or null if it can.
+     */
+    private static String toValues(String[] fields, ContentValues values) {
+        String name = trimToNull(fields[NAME]);
+        String price = trimToNull(fields[PRICE]);
+        String quantity = trimToNull(fields[QUANTITY]);
+        String supplier = trimToNull(fields[SUPPLIER]);
+        String supplierPhone = trimToNull(fields[SUPPLIER_PHONE]);
+
+        // The table needs a price, quantity and supplier for every product, even though the
+        // provider only checks the ones that are given.
+        if (price == null) {
+            return "Product requires a price";
+        }
+        if (quantity == null) {
+            return "Product requires a quantity";
+        }
+        if (supplier == null) {
+            return "Product requires a supplier";
+        }
+
+        values.put(ProductEntry.COLUMN_PRODUCT_NAME, name);
+        values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, supplier);
+        try {
+            values.put(ProductEntry.COLUMN_PRODUCT_PRICE, NumberFormatter.parseCents(price));
+        } catch (NumberFormatException e) {
+            return "Invalid price " + price;
+        }
+        try {
+            values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, Long.parseLong(quantity));
+        } catch (NumberFormatException e) {
+            return "Invalid quantity " + quantity;
+        }
+        if (supplierPhone != null) {
+            try {
+                values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, Long.parseLong(supplierPhone));
+            } catch (NumberFormatException e) {
+                return "Invalid supplier phone " + supplierPhone;
+            }
+        }
+
+        try {
+            ProductProvider.validateNewProduct(values);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void appendReject(StringBuilder line, long record, String reason, String[] fields) {
+        line.append(record).append(',');
+        appendCsvField(line, reason);
+        for (String field : fields) {
+            line.append(',');
+            if (field != null) {
+                appendCsvField(line, field);
+            }
+        }
+        line.append('\n');
+    }
+
+    private static void appendCsvField(StringBuilder line, String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0
+                && field.indexOf('\r') < 0) {
+            line.append(field);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    /**
+     * Return the position of the given column name in {@link #COLUMNS}, or -1 if it isn't one.
+     */
+    private static int columnIndex(String name) {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (COLUMNS[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the records of a file one at a time.
+     */
+    private interface RecordSource {
+
+        /**
+         * Fill {@code fields}, in the order of {@link #COLUMNS}, with the next record. Columns
+         * the record doesn't have are set to null. Return false at the end of the file.
+         */
+        boolean next(String[] fields) throws IOException;
+    }
+
+    private static final class CsvRecords implements RecordSource {
+
+        private final CsvReader mReader;
+
+        private final List<String> mRecord = new ArrayList<>();
+
+        /** Position in {@link #COLUMNS} of each column of the file, or -1 for unknown ones. */
+        private final int[] mColumns;
+
+        CsvRecords(Reader reader) throws IOException {
+            mReader = new CsvReader(reader);
+            if (!mReader.readRecord(mRecord)) {
+                throw new IOException("CSV file has no header");
+            }
+            mColumns = new int[mRecord.size()];
+            for (int i = 0; i < mColumns.length; i++) {
+                mColumns[i] = columnIndex(mRecord.get(i).trim());
+            }
+        }
+
+        @Override
+        public boolean next(String[] fields) throws IOException {
+            do {
+                if (!mReader.readRecord(mRecord)) {
+                    return false;
+                }
+                // Skip blank lines.
+            } while (mRecord.size() == 1 && mRecord.get(0).trim().isEmpty());
+
+            Arrays.fill(fields, null);
+            int count = Math.min(mRecord.size(), mColumns.length);
+            for (int i = 0; i < count; i++) {
+                if (mColumns[i] >= 0) {
+                    fields[mColumns[i]] = mRecord.get(i);
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class JsonRecords implements RecordSource {
+
+        private final JsonReader mReader;
+
+        JsonRecords(Reader reader) throws IOException {
+            mReader = new JsonReader(reader);
+            try {
+                mReader.beginArray();
+            } catch (IllegalStateException e) {
+                throw new IOException("JSON file is not an array of products", e);
+            }
+        }
+
+        @Override
+        public boolean next(String[] fields) throws IOException {
+            try {
+                if (!mReader.hasNext()) {
+                    mReader.endArray();
+                    return false;
+                }
+                Arrays.fill(fields, null);
+                mReader.beginObject();
+                while (mReader.hasNext()) {
+                    int column = columnIndex(mReader.nextName());
+                    JsonToken token = mReader.peek();
+                    if (column >= 0 && (token == JsonToken.STRING || token == JsonToken.NUMBER)) {
+                        fields[column] = mReader.nextString();
+                    } else {
+                        mReader.skipValue();
+                    }
+                }
+                mReader.endObject();
+                return true;
+            } catch (IllegalStateException e) {
+                // The structure is wrong, so there is no telling where the next record starts.
+                throw new IOException("JSON file is not an array of products", e);
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes read from the file, for progress reports.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        long mCount;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                mCount++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                mCount += count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            mCount += skipped;
+            return skipped;
+        }
+    }
+}
@@ -1,15 +1,48 @@
 package com.example.dimitra.shopapp.Data;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
+import android.content.Context;
+import android.content.OperationApplicationException;
+import android.content.SharedPreferences;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.MatrixCursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.text.TextUtils;
 import android.util.Log;
 
+import com.example.dimitra.shopapp.BuildConfig;
+import com.example.dimitra.shopapp.Data.ProductContract.ChangeEntry;
 import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.SlowQueryEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.StatsEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.SummaryEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.SupplierEntry;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * {@link ContentProvider} for Shop app.
  */
@@ -30,6 +63,41 @@ public class ProductProvider extends ContentProvider {
      */
     private static final int PRODUCT_ID = 101;
 
+    /**
+     * URI matcher code for the content URI that searches product and supplier names
+     */
+    private static final int PRODUCT_SEARCH = 102;
+
+    /**
+     * URI matcher code for the content URI for the stock totals per supplier
+     */
+    private static final int PRODUCT_STATS = 103;
+
+    /**
+     * URI matcher code for the content URI for the inventory summary
+     */
+    private static final int PRODUCT_SUMMARY = 104;
+
+    /**
+     * URI matcher code for the content URI for the suppliers table
+     */
+    private static final int SUPPLIERS = 200;
+
+    /**
+     * URI matcher code for the content URI for a single supplier in the suppliers table
+     */
+    private static final int SUPPLIER_ID = 201;
+
+    /**
+     * URI matcher code for the content URI for the product change log
+     */
+    private static final int CHANGES = 300;
+
+    /**
+     * URI matcher code for the content URI for the log of slow queries
+     */
+    private static final int SLOW_QUERIES = 400;
+
     /**
      * UriMatcher object to match a content URI to a corresponding code.
      * The input passed into the constructor represents the code to return for the root URI.
@@ -51,33 +119,390 @@ public class ProductProvider extends ContentProvider {
         // For example, "content://com.example.android.products/products/3" matches, but
         // "content://com.example.android.products/products" (without a number at the end) doesn't match.
         sUriMatcher.addURI(com.example.dimitra.shopapp.Data.ProductContract.CONTENT_AUTHORITY, com.example.dimitra.shopapp.Data.ProductContract.PATH_PRODUCTS + "/#", PRODUCT_ID);
+
+        // "/products/search/shirt" searches the full-text index of product and supplier names.
+        sUriMatcher.addURI(ProductContract.CONTENT_AUTHORITY, ProductContract.PATH_PRODUCTS + "/"
+                + ProductContract.PATH_SEARCH + "/*", PRODUCT_SEARCH);
+
+        // "/products/stats" returns the stock totals of each supplier.
+        sUriMatcher.addURI(ProductContract.CONTENT_AUTHORITY, ProductContract.PATH_PRODUCTS + "/"
+                + ProductContract.PATH_STATS, PRODUCT_STATS);
+
+        // "/products/summary" returns the single row of totals of the whole catalog.
+        sUriMatcher.addURI(ProductContract.CONTENT_AUTHORITY, ProductContract.PATH_PRODUCTS + "/"
+                + ProductContract.PATH_SUMMARY, PRODUCT_SUMMARY);
+
+        // The suppliers table is exposed the same way, as "/suppliers" and "/suppliers/#".
+        sUriMatcher.addURI(ProductContract.CONTENT_AUTHORITY, ProductContract.PATH_SUPPLIERS, SUPPLIERS);
+        sUriMatcher.addURI(ProductContract.CONTENT_AUTHORITY, ProductContract.PATH_SUPPLIERS + "/#", SUPPLIER_ID);
+
+        // "/changes?since=42" returns the products changed after change 42.
+        sUriMatcher.addURI(ProductContract.CONTENT_AUTHORITY, ProductContract.PATH_CHANGES, CHANGES);
+
+        // "/slow_queries" returns the latest queries that took longer than the threshold.
+        sUriMatcher.addURI(ProductContract.CONTENT_AUTHORITY, ProductContract.PATH_SLOW_QUERIES, SLOW_QUERIES);
     }
 
+    /**
+     * Columns and key of the insert statement used by {@link #bulkInsert}. The columns are bound
+     * positionally in the order of {@link StatementCache#COLUMNS}, after the id the provider
+     * gives the row, so a batch takes the statement once instead of once per row.
+     */
+    private static final int INSERT_PRODUCT_ROW_COLUMNS = StatementCache.NAME | StatementCache.PRICE
+            | StatementCache.QUANTITY | StatementCache.SUPPLIER_ID;
+
+    private static final int INSERT_PRODUCT_ROW_KEY = StatementCache.key(StatementCache.INSERT_PRODUCT,
+            StatementCache.ID | INSERT_PRODUCT_ROW_COLUMNS);
+
+    private static final int SELECT_NEXT_LOCAL_ID_KEY = StatementCache.key(StatementCache.SELECT_NEXT_LOCAL_ID, 0);
+
+    private static final int RESERVE_LOCAL_IDS_KEY = StatementCache.key(StatementCache.RESERVE_LOCAL_IDS, 0);
+
+    /**
+     * Number of results returned by a search unless the URI asks for a different limit.
+     */
+    private static final int DEFAULT_SEARCH_LIMIT = 50;
+
+    /**
+     * Number of matched words in a search result. offsets() returns four numbers for every
+     * match, separated by spaces, so counting the spaces counts the matches.
+     */
+    private static final String SQL_SEARCH_MATCH_COUNT = "(length(offsets(" + ProductEntry.SEARCH_TABLE_NAME
+            + ")) - length(replace(offsets(" + ProductEntry.SEARCH_TABLE_NAME + "), ' ', '')) + 1) / 4";
+
+    /**
+     * Applies a change in quantity in the database itself, refusing to go below 0.
+     */
+    private static final String SQL_ADJUST_QUANTITY = "UPDATE " + ProductEntry.TABLE_NAME + " SET "
+            + ProductEntry.COLUMN_PRODUCT_QUANTITY + " = " + ProductEntry.COLUMN_PRODUCT_QUANTITY + " + ? WHERE "
+            + ProductEntry._ID + " = ? AND " + ProductEntry.COLUMN_PRODUCT_QUANTITY + " + ? >= 0 AND "
+            + ProductDbHelper.LIVE_PRODUCTS;
+
+    private static final String SQL_SELECT_QUANTITY = "SELECT " + ProductEntry.COLUMN_PRODUCT_QUANTITY
+            + " FROM " + ProductEntry.TABLE_NAME + " WHERE " + ProductEntry._ID + " = ? AND "
+            + ProductDbHelper.LIVE_PRODUCTS;
+
+    private static final int ADJUST_QUANTITY_KEY = StatementCache.key(StatementCache.ADJUST_QUANTITY, 0);
+
+    private static final int SELECT_QUANTITY_KEY = StatementCache.key(StatementCache.SELECT_QUANTITY, 0);
+
+    private static final int SUBTRACT_FROM_SUMMARY_KEY = StatementCache.key(StatementCache.SUBTRACT_FROM_SUMMARY, 0);
+
+    /**
+     * Totals of the products of each supplier. Grouping by supplier walks the index on
+     * (supplier_id, quantity, price, deleted_at, generation), so the products table itself is
+     * never read. The placeholder is replaced by the WHERE clause of the product filters, if any.
+     */
+    private static final String SQL_SUPPLIER_STATS = "(SELECT s." + SupplierEntry._ID + " AS " + StatsEntry._ID
+            + ", s." + SupplierEntry.COLUMN_SUPPLIER_NAME + " AS " + StatsEntry.COLUMN_SUPPLIER
+            + ", COUNT(*) AS " + StatsEntry.COLUMN_PRODUCT_COUNT
+            + ", SUM(p." + ProductEntry.COLUMN_PRODUCT_QUANTITY + ") AS " + StatsEntry.COLUMN_TOTAL_QUANTITY
+            + ", SUM(p." + ProductEntry.COLUMN_PRODUCT_QUANTITY + " * p." + ProductEntry.COLUMN_PRODUCT_PRICE
+            + ") AS " + StatsEntry.COLUMN_TOTAL_VALUE
+            + " FROM " + ProductEntry.TABLE_NAME + " p JOIN " + SupplierEntry.TABLE_NAME + " s ON s."
+            + SupplierEntry._ID + " = p." + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID
+            + "%s GROUP BY p." + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID + ")";
+
+    /**
+     * The latest change of each product changed after a sequence number, with the product's
+     * current values, or nulls if it has been deleted. The version is read from the row even if
+     * it is a tombstone, so a deletion carries the version it was based on until the row is
+     * purged. The products and suppliers tables are joined directly rather than through the
+     * view, so each change costs three primary key lookups whatever the size of the catalog.
+     */
+    private static final String SQL_CHANGES = "(SELECT c." + ChangeEntry._ID + " AS " + ChangeEntry._ID
+            + ", c." + ChangeEntry.COLUMN_PRODUCT_ID + " AS " + ChangeEntry.COLUMN_PRODUCT_ID
+            + ", c." + ChangeEntry.COLUMN_OPERATION + " AS " + ChangeEntry.COLUMN_OPERATION
+            + ", c." + ChangeEntry.COLUMN_CHANGED_AT + " AS " + ChangeEntry.COLUMN_CHANGED_AT
+            + ", p." + ProductEntry.COLUMN_PRODUCT_NAME + " AS " + ProductEntry.COLUMN_PRODUCT_NAME
+            + ", p." + ProductEntry.COLUMN_PRODUCT_PRICE + " AS " + ProductEntry.COLUMN_PRODUCT_PRICE
+            + ", p." + ProductEntry.COLUMN_PRODUCT_QUANTITY + " AS " + ProductEntry.COLUMN_PRODUCT_QUANTITY
+            + ", s." + SupplierEntry.COLUMN_SUPPLIER_NAME + " AS " + ProductEntry.COLUMN_PRODUCT_SUPPLIER
+            + ", s." + SupplierEntry.COLUMN_SUPPLIER_PHONE_NUMBER + " AS " + ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
+            + ", t." + ProductEntry.COLUMN_PRODUCT_VERSION + " AS " + ProductEntry.COLUMN_PRODUCT_VERSION
+            + " FROM " + ChangeEntry.TABLE_NAME + " c LEFT JOIN " + ProductEntry.TABLE_NAME + " p ON p."
+            + ProductEntry._ID + " = c." + ChangeEntry.COLUMN_PRODUCT_ID + " AND " + ProductDbHelper.liveProducts("p.")
+            + " LEFT JOIN " + ProductEntry.TABLE_NAME + " t ON t." + ProductEntry._ID + " = c."
+            + ChangeEntry.COLUMN_PRODUCT_ID
+            + " LEFT JOIN " + SupplierEntry.TABLE_NAME + " s ON s." + SupplierEntry._ID + " = p."
+            + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID
+            + " WHERE c." + ChangeEntry._ID + " IN (SELECT MAX(" + ChangeEntry._ID + ") FROM "
+            + ChangeEntry.TABLE_NAME + " WHERE " + ChangeEntry._ID + " > ? GROUP BY "
+            + ChangeEntry.COLUMN_PRODUCT_ID + "))";
+
+    /**
+     * URIs the operations of the provider are recorded under in {@link ProviderMetrics}, in the
+     * order of {@link #metricsIndex}.
+     */
+    private static final String[] METRICS_URIS = {
+            "/products",
+            "/products/#",
+            "/products/search/*",
+            "/products/stats",
+            "/products/summary",
+            "/suppliers",
+            "/suppliers/#",
+            "/changes",
+            "/slow_queries"
+    };
+
+    /**
+     * Preferences holding whether {@link ProviderMetrics} records, read before the database is
+     * opened so the open is recorded too.
+     */
+    private static final String METRICS_PREFERENCES_NAME = "provider_metrics";
+
+    /**
+     * Columns of {@link SlowQueryEntry#CONTENT_URI}, in the order {@link #querySlowQueries} fills
+     * them in.
+     */
+    private static final String[] SLOW_QUERY_COLUMNS = {
+            SlowQueryEntry._ID,
+            SlowQueryEntry.COLUMN_SQL,
+            SlowQueryEntry.COLUMN_ARGS,
+            SlowQueryEntry.COLUMN_ROWS,
+            SlowQueryEntry.COLUMN_DURATION_MICROS,
+            SlowQueryEntry.COLUMN_LOGGED_AT,
+            SlowQueryEntry.COLUMN_QUERY_PLAN
+    };
+
+    /**
+     * Columns of {@link ProductEntry#DETAILS_VIEW_NAME} that product queries may ask for, each
+     * mapped to itself, in the order of the view. Queries of "/products" and "/products/#" reject
+     * any other column or expression, so a caller can't read more than a product row through them.
+     */
+    private static final Map<String, String> sProductColumns = new LinkedHashMap<>();
+
+    static {
+        for (String column : new String[]{ProductEntry._ID, ProductEntry.COLUMN_PRODUCT_NAME,
+                ProductEntry.COLUMN_PRODUCT_PRICE, ProductEntry.COLUMN_PRODUCT_QUANTITY,
+                ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID, ProductEntry.COLUMN_PRODUCT_SUPPLIER,
+                ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, ProductEntry.COLUMN_PRODUCT_VERSION}) {
+            sProductColumns.put(column, column);
+        }
+    }
+
+    /**
+     * Number of products kept in {@link #mCache}.
+     */
+    private static final int PRODUCT_CACHE_SIZE = 256;
+
+    /**
+     * Marker returned by {@link #readLong} when a column is missing or not a number.
+     */
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
     private com.example.dimitra.shopapp.Data.ProductDbHelper mDbHelper;
 
+    /**
+     * Batches change notifications so a burst of writes makes observers re-query only once.
+     */
+    private NotificationCoalescer mNotifier;
+
+    /**
+     * Recently read single products, so "/products/#" lookups skip the database.
+     */
+    private final ProductCache mCache = new ProductCache(PRODUCT_CACHE_SIZE);
+
+    /**
+     * Background thread of the provider, which opens the database and runs {@link #mPurger}.
+     */
+    private HandlerThread mBackgroundThread;
+
+    /**
+     * Removes deleted products from the database once it is idle.
+     */
+    private TombstonePurger mPurger;
+
+    /** Why the database could not be opened in the background, or null if it could. */
+    private volatile SQLiteException mOpenFailure;
+
+    /**
+     * Compiled statements of the writes to products, reused from one call to the next.
+     */
+    private final StatementCache mStatements = new StatementCache();
+
+    /**
+     * Queries that took longer than a threshold, to find the ones that need an index. Timing a
+     * query fills its first window up front, so release builds leave it off until it is turned
+     * on with {@link ProductContract#METHOD_SET_SLOW_QUERY_THRESHOLD}.
+     */
+    private final SlowQueryLog mSlowQueries = new SlowQueryLog(
+            BuildConfig.DEBUG ? SlowQueryLog.DEFAULT_THRESHOLD_MILLIS : SlowQueryLog.OFF,
+            SlowQueryLog.DEFAULT_CAPACITY);
+
+    private final ProviderMetrics mMetrics = ProviderMetrics.getInstance();
+
+    /**
+     * Counters of each operation, indexed by {@link #metricsIndex}, looked up once so recording
+     * never goes through a map.
+     */
+    private final ProviderMetrics.Operation[] mQueryMetrics = operations("query");
+    private final ProviderMetrics.Operation[] mInsertMetrics = operations("insert");
+    private final ProviderMetrics.Operation[] mUpdateMetrics = operations("update");
+    private final ProviderMetrics.Operation[] mDeleteMetrics = operations("delete");
+
     @Override
     public boolean onCreate() {
         mDbHelper = new com.example.dimitra.shopapp.Data.ProductDbHelper(getContext());
+        mNotifier = new NotificationCoalescer(getContext().getContentResolver(),
+                NotificationCoalescer.DEFAULT_WINDOW_MILLIS);
+        mBackgroundThread = new HandlerThread(LOG_TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        mBackgroundThread.start();
+        Handler background = new Handler(mBackgroundThread.getLooper());
+        mPurger = new TombstonePurger(mDbHelper, background);
+        // Purge what was deleted but not yet removed before the app last stopped.
+        mPurger.onWrite();
+        openDatabaseInBackground(background);
         return true;
     }
 
+    /**
+     * Open the database, upgrading it if needed, on a background thread. Providers are created
+     * on the main thread before any activity, and constructing the helper doesn't touch the disk,
+     * so the first screen is never held up here; opening right away lets the work overlap with
+     * the activity inflating its views, and the first query only waits for what is left of it.
+     * Queries made meanwhile wait inside {@link ProductDbHelper#getReadableDatabase()}, so the
+     * database is never opened twice. It runs first on the background thread, ahead of any purge,
+     * and a failure is kept for {@link #dump}.
+     */
+    private void openDatabaseInBackground(Handler handler) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (getMetricsPreferences().getBoolean(ProductContract.KEY_METRICS_ENABLED, false)) {
+                    mMetrics.setEnabled(true);
+                }
+                long start = SystemClock.uptimeMillis();
+                long metricsStart = mMetrics.start();
+                try {
+                    mDbHelper.getWritableDatabase();
+                } catch (SQLiteException e) {
+                    // The first query will fail the same way and report it to its caller.
+                    Log.e(LOG_TAG, "Failed to open the database", e);
+                    mOpenFailure = e;
+                    return;
+                }
+                mOpenFailure = null;
+                mMetrics.stop(ProviderMetrics.OPEN_DATABASE, metricsStart);
+                Log.d(LOG_TAG, "Opened the database in " + (SystemClock.uptimeMillis() - start) + " ms");
+            }
+        });
+    }
+
+    private SharedPreferences getMetricsPreferences() {
+        return getContext().getSharedPreferences(METRICS_PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Return the counters of an operation on each URI, indexed by {@link #metricsIndex}.
+     */
+    private ProviderMetrics.Operation[] operations(String operation) {
+        ProviderMetrics.Operation[] operations = new ProviderMetrics.Operation[METRICS_URIS.length];
+        for (int i = 0; i < operations.length; i++) {
+            operations[i] = mMetrics.operation(operation + " " + METRICS_URIS[i]);
+        }
+        return operations;
+    }
+
+    /**
+     * Return the position of a URI match code in {@link #METRICS_URIS}.
+     */
+    private static int metricsIndex(int match) {
+        switch (match) {
+            case PRODUCTS:
+                return 0;
+            case PRODUCT_ID:
+                return 1;
+            case PRODUCT_SEARCH:
+                return 2;
+            case PRODUCT_STATS:
+                return 3;
+            case PRODUCT_SUMMARY:
+                return 4;
+            case SUPPLIERS:
+                return 5;
+            case SUPPLIER_ID:
+                return 6;
+            case CHANGES:
+                return 7;
+            case SLOW_QUERIES:
+                return 8;
+            default:
+                throw new IllegalArgumentException("No metrics for match " + match);
+        }
+    }
+
+    /**
+     * Run a query and record it in {@link ProviderMetrics}. While recording, the first window of
+     * the cursor is filled here to count its rows, so the time includes running the query
+     * rather than only preparing it; the caller would fill the window next anyway.
+     */
     @Override
     public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
                         String sortOrder) {
+        long start = mMetrics.start();
+        int match = sUriMatcher.match(uri);
+        Cursor cursor = query(match, uri, projection, selection, selectionArgs, sortOrder);
+        if (start != ProviderMetrics.NOT_TIMED) {
+            mMetrics.stop(mQueryMetrics[metricsIndex(match)], start, cursor.getCount());
+        }
+        return cursor;
+    }
+
+    private Cursor query(int match, Uri uri, String[] projection, String selection, String[] selectionArgs,
+                         String sortOrder) {
         SQLiteDatabase database = mDbHelper.getReadableDatabase();
 
         Cursor cursor;
 
-        int match = sUriMatcher.match(uri);
         switch (match) {
             case PRODUCTS:
-                // For the PRODUCTS code, query the products table directly with the given
-                // projection, selection, selection arguments, and sort order. The cursor
+                // For the PRODUCTS code, query the products joined with their suppliers with the
+                // given projection, selection, selection arguments, and sort order. The cursor
                 // could contain multiple rows of the products table.
-                cursor = database.query(ProductEntry.TABLE_NAME, projection, selection, selectionArgs,
-                        null, null, sortOrder);
+                List<String> args = new ArrayList<>();
+                if (selectionArgs != null) {
+                    args.addAll(Arrays.asList(selectionArgs));
+                }
+                selection = appendFilters(uri, selection, "", args);
+                selectionArgs = args.isEmpty() ? null : args.toArray(new String[args.size()]);
+
+                String limit = uri.getQueryParameter(ProductEntry.QUERY_PARAMETER_LIMIT);
+                String afterId = uri.getQueryParameter(ProductEntry.QUERY_PARAMETER_AFTER_ID);
+                if (limit != null || afterId != null) {
+                    // A paged query seeks past the last id of the previous page using the
+                    // primary key, so each page costs the same no matter how deep it is. Pages
+                    // only follow each other in id order, so no other order can be asked for.
+                    if (!TextUtils.isEmpty(sortOrder)) {
+                        throw new IllegalArgumentException("Paged queries are ordered by "
+                                + ProductEntry._ID + ", not by " + sortOrder + ": " + uri);
+                    }
+                    if (afterId != null) {
+                        selection = appendSelection(selection, ProductEntry._ID + ">?");
+                        selectionArgs = appendSelectionArg(selectionArgs,
+                                String.valueOf(parseNonNegative(afterId, uri)));
+                    }
+                    if (limit != null) {
+                        limit = String.valueOf(parseNonNegative(limit, uri));
+                    }
+                    sortOrder = ProductEntry._ID + " ASC";
+                    if (projection == null) {
+                        // A page is a part of the catalog list, which has no use for the other
+                        // columns, and its product columns are read from the index alone.
+                        projection = ProductEntry.LIST_PROJECTION;
+                    }
+                }
+                cursor = runQuery(database, productQueryBuilder(), projection, selection, selectionArgs,
+                        sortOrder, limit);
                 break;
             case PRODUCT_ID:
+                // Most single product lookups are answered from the cache.
+                cursor = queryCachedProduct(database, ContentUris.parseId(uri), projection);
+                if (cursor != null) {
+                    break;
+                }
+
                 // For the PRODUCT_ID code, extract out the ID from the URI.
                 // For an example URI such as "content://com.example.android.products/products/3",
                 // the selection will be "_id=?" and the selection argument will be a
@@ -91,9 +516,41 @@ public class ProductProvider extends ContentProvider {
 
                 // This will perform a query on the products table where the _id equals 3 to return a
                 // Cursor containing that row of the table.
-                cursor = database.query(ProductEntry.TABLE_NAME, projection, selection, selectionArgs,
-                        null, null, sortOrder);
+                cursor = runQuery(database, productQueryBuilder(), projection, selection, selectionArgs,
+                        sortOrder, null);
+                break;
+            case PRODUCT_SEARCH:
+                cursor = searchProducts(database, uri, projection, selection, selectionArgs, sortOrder);
+                // Results depend on every product, so refresh them whenever any product changes.
+                cursor.setNotificationUri(getContext().getContentResolver(), ProductEntry.CONTENT_URI);
+                return cursor;
+            case PRODUCT_STATS:
+                cursor = querySupplierStats(database, uri, projection, selection, selectionArgs, sortOrder);
+                cursor.setNotificationUri(getContext().getContentResolver(), ProductEntry.CONTENT_URI);
+                return cursor;
+            case PRODUCT_SUMMARY:
+                // The summary is a single row kept up to date by triggers, so this never scans.
+                cursor = runQuery(database, SummaryEntry.TABLE_NAME, projection, null, null, null, null);
+                cursor.setNotificationUri(getContext().getContentResolver(), ProductEntry.CONTENT_URI);
+                return cursor;
+            case SUPPLIERS:
+                cursor = runQuery(database, SupplierEntry.TABLE_NAME, projection, selection, selectionArgs,
+                        sortOrder, null);
                 break;
+            case CHANGES:
+                cursor = queryChanges(database, uri, projection, selection, selectionArgs);
+                // Every product write adds to the log.
+                cursor.setNotificationUri(getContext().getContentResolver(), ProductEntry.CONTENT_URI);
+                return cursor;
+            case SUPPLIER_ID:
+                selection = SupplierEntry._ID + "=?";
+                selectionArgs = new String[]{String.valueOf(ContentUris.parseId(uri))};
+                cursor = runQuery(database, SupplierEntry.TABLE_NAME, projection, selection, selectionArgs,
+                        sortOrder, null);
+                break;
+            case SLOW_QUERIES:
+                // The log is in memory and nothing observes it.
+                return querySlowQueries(projection);
             default:
                 throw new IllegalArgumentException("Cannot query unknown URI " + uri);
         }
@@ -101,15 +558,339 @@ public class ProductProvider extends ContentProvider {
         return cursor;
     }
 
+    /**
+     * Answer a "/products/#" query from {@link #mCache}, reading the product into the cache if
+     * it isn't there yet. Return null if there is no such product, or if the projection asks for
+     * columns that aren't cached, so the caller queries the database instead.
+     */
+    private Cursor queryCachedProduct(SQLiteDatabase database, long id, String[] projection) {
+        ProductCache.Product product = mCache.get(id);
+        if (product == null) {
+            long generation = mCache.generation();
+            Cursor cursor = runQuery(database, ProductEntry.DETAILS_VIEW_NAME, ProductCache.COLUMNS,
+                    ProductEntry._ID + "=?", new String[]{String.valueOf(id)}, null, null);
+            try {
+                if (!cursor.moveToFirst()) {
+                    return null;
+                }
+                product = new ProductCache.Product(cursor);
+            } finally {
+                cursor.close();
+            }
+            mCache.put(product, generation);
+        }
+        return product.toCursor(projection);
+    }
+
+    /**
+     * Search the full-text index for the text in the last segment of the URI and return the
+     * matching products, the ones with the most matched words first. The index finds the matches
+     * and only the best {@link #DEFAULT_SEARCH_LIMIT} of them are joined with their details.
+     * Deleted products stay in the index until they are purged, so they are skipped before the
+     * limit is applied.
+     */
+    private Cursor searchProducts(SQLiteDatabase database, Uri uri, String[] projection,
+                                  String selection, String[] selectionArgs, String sortOrder) {
+        String match = toMatchExpression(uri.getLastPathSegment());
+        if (match == null) {
+            return new MatrixCursor(projection != null ? projection : new String[]{ProductEntry._ID});
+        }
+        String limitParameter = uri.getQueryParameter(ProductEntry.QUERY_PARAMETER_LIMIT);
+        long limit = limitParameter == null ? DEFAULT_SEARCH_LIMIT : parseNonNegative(limitParameter, uri);
+
+        SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
+        builder.setTables(ProductEntry.DETAILS_VIEW_NAME + " JOIN (SELECT docid, "
+                + SQL_SEARCH_MATCH_COUNT + " AS rank FROM " + ProductEntry.SEARCH_TABLE_NAME
+                + " WHERE " + ProductEntry.SEARCH_TABLE_NAME + " MATCH ? AND docid NOT IN (SELECT "
+                + ProductEntry._ID + " FROM " + ProductEntry.TABLE_NAME + " WHERE "
+                + ProductEntry.COLUMN_PRODUCT_DELETED_AT + " IS NOT NULL) AND docid NOT IN (SELECT "
+                + ProductEntry._ID + " FROM " + ProductEntry.TABLE_NAME + " WHERE "
+                + ProductDbHelper.NOT_TOMBSTONED + " AND " + ProductDbHelper.COLUMN_GENERATION + " < "
+                + ProductDbHelper.SQL_CURRENT_GENERATION + ") ORDER BY rank DESC LIMIT "
+                + limit + ") AS search ON search.docid = " + ProductEntry.DETAILS_VIEW_NAME + "."
+                + ProductEntry._ID);
+        if (sortOrder == null) {
+            sortOrder = "search.rank DESC, length(" + ProductEntry.COLUMN_PRODUCT_NAME + ")";
+        }
+        // The match argument comes first, since the join appears before the selection.
+        String[] args = new String[(selectionArgs == null ? 0 : selectionArgs.length) + 1];
+        args[0] = match;
+        if (selectionArgs != null) {
+            System.arraycopy(selectionArgs, 0, args, 1, selectionArgs.length);
+        }
+        return runQuery(database, builder, projection, selection, args, sortOrder, null);
+    }
+
+    /**
+     * Return the stock totals of each supplier, counting only the products that pass the filters
+     * in the URI and haven't been deleted. The caller's selection and sort order apply to the
+     * rows of totals.
+     */
+    private Cursor querySupplierStats(SQLiteDatabase database, Uri uri, String[] projection,
+                                      String selection, String[] selectionArgs, String sortOrder) {
+        List<String> args = new ArrayList<>();
+        String filters = appendFilters(uri, ProductDbHelper.liveProducts("p."), "p.", args);
+        // The filter arguments come first, since the totals are computed before the selection.
+        if (selectionArgs != null) {
+            args.addAll(Arrays.asList(selectionArgs));
+        }
+        if (sortOrder == null) {
+            sortOrder = StatsEntry.COLUMN_SUPPLIER;
+        }
+
+        SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
+        builder.setTables(String.format(SQL_SUPPLIER_STATS, whereClause(filters)));
+        return runQuery(database, builder, projection, selection,
+                args.isEmpty() ? null : args.toArray(new String[args.size()]), sortOrder, null);
+    }
+
+    /**
+     * Return the changes after the sequence number in the URI, oldest first, so the highest
+     * sequence number of one batch is where the next one starts. The caller's selection applies
+     * to the changes; their order can't be changed.
+     */
+    private Cursor queryChanges(SQLiteDatabase database, Uri uri, String[] projection,
+                                String selection, String[] selectionArgs) {
+        String since = uri.getQueryParameter(ChangeEntry.QUERY_PARAMETER_SINCE);
+        String limit = uri.getQueryParameter(ChangeEntry.QUERY_PARAMETER_LIMIT);
+        // Products deleted with the whole catalog are logged when they get their tombstones.
+        mPurger.markAll();
+        // The sequence number comes first, since the changes are picked before the selection.
+        List<String> args = new ArrayList<>();
+        args.add(since == null ? "0" : String.valueOf(parseNonNegative(since, uri)));
+        if (selectionArgs != null) {
+            args.addAll(Arrays.asList(selectionArgs));
+        }
+
+        SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
+        builder.setTables(SQL_CHANGES);
+        return runQuery(database, builder, projection, selection, args.toArray(new String[args.size()]),
+                ChangeEntry._ID + " ASC", limit == null ? null : String.valueOf(parseNonNegative(limit, uri)));
+    }
+
+    /**
+     * Return a builder of queries on {@link ProductEntry#DETAILS_VIEW_NAME} that throws an
+     * {@link IllegalArgumentException} for a projection with anything but the columns of
+     * {@link #sProductColumns}.
+     */
+    private static SQLiteQueryBuilder productQueryBuilder() {
+        SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
+        builder.setTables(ProductEntry.DETAILS_VIEW_NAME);
+        builder.setProjectionMap(sProductColumns);
+        builder.setStrict(true);
+        return builder;
+    }
+
+    /**
+     * Run a query on a table or view. See {@link #runQuery(SQLiteDatabase, SQLiteQueryBuilder,
+     * String[], String, String[], String, String)}.
+     */
+    private Cursor runQuery(SQLiteDatabase database, String table, String[] projection, String selection,
+                            String[] selectionArgs, String sortOrder, String limit) {
+        SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
+        builder.setTables(table);
+        return runQuery(database, builder, projection, selection, selectionArgs, sortOrder, limit);
+    }
+
+    /**
+     * Run a query, logging it in {@link #mSlowQueries} if it is slow. Every query of the provider
+     * goes through here. While the log is on, the first window of the result is filled here to
+     * time the query; the caller would fill it next anyway, and preparing a query alone says
+     * nothing about how long it takes to run.
+     */
+    private Cursor runQuery(SQLiteDatabase database, SQLiteQueryBuilder builder, String[] projection,
+                            String selection, String[] selectionArgs, String sortOrder, String limit) {
+        String sql = builder.buildQuery(projection, selection, null, null, sortOrder, limit);
+        if (!mSlowQueries.isEnabled()) {
+            return database.rawQuery(sql, selectionArgs);
+        }
+        long start = System.nanoTime();
+        Cursor cursor = database.rawQuery(sql, selectionArgs);
+        int rows = cursor.getCount();
+        long nanos = System.nanoTime() - start;
+        if (mSlowQueries.isSlow(nanos)) {
+            String plan = mSlowQueries.planOf(sql);
+            if (plan == null) {
+                // The first slow query of its shape. Explaining only compiles the query.
+                plan = explainQueryPlan(database, sql, selectionArgs);
+            }
+            mSlowQueries.add(sql, selectionArgs, rows, nanos, plan);
+            Log.w(LOG_TAG, "Slow query, " + nanos / 1000000 + " ms for " + rows + " rows: " + sql);
+        }
+        return cursor;
+    }
+
+    /**
+     * Return the steps of the plan SQLite chose for a query, one per line, or null if the query
+     * can't be explained.
+     */
+    private static String explainQueryPlan(SQLiteDatabase database, String sql, String[] selectionArgs) {
+        try {
+            Cursor plan = database.rawQuery("EXPLAIN QUERY PLAN " + sql, selectionArgs);
+            try {
+                int detail = plan.getColumnIndexOrThrow("detail");
+                StringBuilder steps = new StringBuilder();
+                while (plan.moveToNext()) {
+                    if (steps.length() != 0) {
+                        steps.append('\n');
+                    }
+                    steps.append(plan.getString(detail));
+                }
+                return steps.toString();
+            } finally {
+                plan.close();
+            }
+        } catch (SQLiteException e) {
+            Log.e(LOG_TAG, "Failed to explain " + sql, e);
+            return null;
+        }
+    }
+
+    /**
+     * Return the log of slow queries, oldest first, with the given columns of
+     * {@link SlowQueryEntry}, or all of them.
+     */
+    private Cursor querySlowQueries(String[] projection) {
+        String[] columns = projection != null ? projection : SLOW_QUERY_COLUMNS;
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indexes[i] = Arrays.asList(SLOW_QUERY_COLUMNS).indexOf(columns[i]);
+            if (indexes[i] == -1) {
+                throw new IllegalArgumentException("Unknown column " + columns[i] + " in "
+                        + SlowQueryEntry.CONTENT_URI);
+            }
+        }
+        List<SlowQueryLog.Entry> entries = mSlowQueries.entries();
+        MatrixCursor cursor = new MatrixCursor(columns, entries.size());
+        Object[] values = new Object[SLOW_QUERY_COLUMNS.length];
+        for (SlowQueryLog.Entry entry : entries) {
+            values[0] = entry.sequence;
+            values[1] = entry.sql;
+            values[2] = entry.args == null ? null : Arrays.toString(entry.args);
+            values[3] = entry.rows;
+            values[4] = entry.durationMicros;
+            values[5] = entry.loggedAt;
+            values[6] = entry.queryPlan;
+            MatrixCursor.RowBuilder row = cursor.newRow();
+            for (int index : indexes) {
+                row.add(values[index]);
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * Add the product filters given as query parameters of the URI to a selection, and their
+     * arguments to {@code args}. Every filter is on an indexed column of the products table,
+     * which the given prefix qualifies.
+     */
+    private static String appendFilters(Uri uri, String selection, String prefix, List<String> args) {
+        String maxQuantity = uri.getQueryParameter(ProductEntry.QUERY_PARAMETER_MAX_QUANTITY);
+        if (maxQuantity != null) {
+            selection = appendSelection(selection, prefix + ProductEntry.COLUMN_PRODUCT_QUANTITY + "<=?");
+            args.add(String.valueOf(parseNonNegative(maxQuantity, uri)));
+        }
+        String supplierId = uri.getQueryParameter(ProductEntry.QUERY_PARAMETER_SUPPLIER_ID);
+        if (supplierId != null) {
+            selection = appendSelection(selection, prefix + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID + "=?");
+            args.add(String.valueOf(parseNonNegative(supplierId, uri)));
+        }
+        String minPrice = uri.getQueryParameter(ProductEntry.QUERY_PARAMETER_MIN_PRICE);
+        if (minPrice != null) {
+            selection = appendSelection(selection, prefix + ProductEntry.COLUMN_PRODUCT_PRICE + ">=?");
+            args.add(String.valueOf(parseNonNegative(minPrice, uri)));
+        }
+        String maxPrice = uri.getQueryParameter(ProductEntry.QUERY_PARAMETER_MAX_PRICE);
+        if (maxPrice != null) {
+            selection = appendSelection(selection, prefix + ProductEntry.COLUMN_PRODUCT_PRICE + "<=?");
+            args.add(String.valueOf(parseNonNegative(maxPrice, uri)));
+        }
+        return selection;
+    }
+
+    /**
+     * Turn search text typed by a user into an FTS match expression that finds every word as a
+     * prefix. Characters with a meaning in FTS syntax are dropped. Return null if no word is left.
+     */
+    static String toMatchExpression(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : text.split("\\s+")) {
+            StringBuilder term = new StringBuilder();
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    // Lower case, so words like OR and NOT are never read as operators.
+                    term.append(Character.toLowerCase(c));
+                }
+            }
+            if (term.length() != 0) {
+                if (match.length() != 0) {
+                    match.append(' ');
+                }
+                match.append(term).append('*');
+            }
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+
+    /**
+     * Combine a caller's selection with an extra clause that must also hold.
+     */
+    private static String appendSelection(String selection, String clause) {
+        if (selection == null || selection.isEmpty()) {
+            return clause;
+        }
+        return "(" + selection + ") AND " + clause;
+    }
+
+    /**
+     * Return a copy of the selection arguments with one more argument at the end.
+     */
+    private static String[] appendSelectionArg(String[] selectionArgs, String arg) {
+        if (selectionArgs == null) {
+            return new String[]{arg};
+        }
+        String[] args = new String[selectionArgs.length + 1];
+        System.arraycopy(selectionArgs, 0, args, 0, selectionArgs.length);
+        args[selectionArgs.length] = arg;
+        return args;
+    }
+
+    /**
+     * Parse a non-negative number from a query parameter of the given URI.
+     */
+    private static long parseNonNegative(String value, Uri uri) {
+        try {
+            long number = Long.parseLong(value);
+            if (number >= 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the error below.
+        }
+        throw new IllegalArgumentException("Invalid parameter " + value + " in " + uri);
+    }
+
     @Override
     public Uri insert(Uri uri, ContentValues contentValues) {
+        long start = mMetrics.start();
         final int match = sUriMatcher.match(uri);
+        Uri inserted;
         switch (match) {
             case PRODUCTS:
-                return insertProduct(uri, contentValues);
+                inserted = insertProduct(uri, contentValues);
+                break;
+            case SUPPLIERS:
+                inserted = insertSupplier(uri, contentValues);
+                break;
             default:
                 throw new IllegalArgumentException("Insertion is not supported for " + uri);
         }
+        mMetrics.stop(mInsertMetrics[metricsIndex(match)], start, inserted == null ? 0 : 1);
+        return inserted;
     }
 
     /**
@@ -117,49 +898,306 @@ public class ProductProvider extends ContentProvider {
      * for that specific row in the database.
      */
     private Uri insertProduct(Uri uri, ContentValues values) {
-        // Check that the name is not null
-        String name = values.getAsString(ProductEntry.COLUMN_PRODUCT_NAME);
-        if (name == null) {
-            throw new IllegalArgumentException("Product requires a name");
+        validateNewProduct(values);
+        checkVersion(uri, values);
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+
+        // Insert the new product with the given values, linked to its supplier. Both are written
+        // in one transaction so a failed insert doesn't leave a new supplier behind.
+        long id;
+        db.beginTransaction();
+        SupplierResolver suppliers = new SupplierResolver(mStatements, db);
+        try {
+            long localId = values.containsKey(ProductEntry._ID) ? NO_VALUE : reserveLocalIds(db, 1);
+            id = insertProductRow(db, values, localId, suppliers);
+            db.setTransactionSuccessful();
+        } catch (SQLException e) {
+            Log.e(LOG_TAG, "Failed to insert row for " + uri, e);
+            return null;
+        } finally {
+            suppliers.close();
+            db.endTransaction();
+        }
+        if (values.containsKey(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER)) {
+            // The phone belongs to the supplier, which other cached products share.
+            mCache.clear();
         }
+        notifyChange(uri);
+        return ContentUris.withAppendedId(uri, id);
+    }
 
-        // If the price is provided, check that it's greater than 0 Euro
-        Integer price = values.getAsInteger(ProductEntry.COLUMN_PRODUCT_PRICE);
-        if (price != null && price < 0) {
-            throw new IllegalArgumentException("Product requires valid price");
+    /**
+     * Insert one product with the cached statement for the columns of its values, binding them
+     * straight from the caller's values. Values with a column the cache doesn't know go through
+     * {@link SQLiteDatabase#insertOrThrow}. Values without an id get the given one from
+     * {@link #reserveLocalIds}. Return the id of the new row.
+     *
+     * @throws SQLException if the row could not be inserted
+     */
+    private long insertProductRow(SQLiteDatabase db, ContentValues values, long localId,
+                                  SupplierResolver suppliers) {
+        int columns = StatementCache.columnsOf(values);
+        if (columns == StatementCache.UNKNOWN_COLUMNS) {
+            ContentValues productValues = toProductValues(values, suppliers);
+            if (localId != NO_VALUE) {
+                productValues.put(ProductEntry._ID, localId);
+            }
+            productValues.put(ProductDbHelper.COLUMN_GENERATION, DatabaseUtils.longForQuery(db,
+                    "SELECT " + ProductDbHelper.SQL_CURRENT_GENERATION, null));
+            return db.insertOrThrow(ProductEntry.TABLE_NAME, null, productValues);
+        }
+        int key = StatementCache.key(StatementCache.INSERT_PRODUCT,
+                localId != NO_VALUE ? columns | StatementCache.ID : columns);
+        SQLiteStatement statement = mStatements.acquire(db, key, null);
+        try {
+            int index = 1;
+            if (localId != NO_VALUE) {
+                // The id is the first column, see StatementCache.COLUMNS.
+                statement.bindLong(index++, localId);
+            }
+            bindProductColumns(statement, index, columns, values, suppliers);
+            return statement.executeInsert();
+        } finally {
+            mStatements.release(db, key, statement);
         }
+    }
 
-        // If the quantity is provided, check that it's greater than or equal to 0
-        Integer quantity = values.getAsInteger(ProductEntry.COLUMN_PRODUCT_QUANTITY);
-        if (quantity != null && quantity < 0) {
-            throw new IllegalArgumentException("Product requires valid quantity");
+    /**
+     * Take the given number of ids from the range of products created on the device, and
+     * return the first. Products get ids of their own rather than the next one SQLite picks, so
+     * that they never take the id of a product created on the back office or another device,
+     * which the sync adapter writes with its own id; see {@link SyncRecord#MIN_DEVICE_ID}. Must
+     * be called in the transaction that inserts the products.
+     */
+    private long reserveLocalIds(SQLiteDatabase db, int count) {
+        SQLiteStatement select = mStatements.acquire(db, SELECT_NEXT_LOCAL_ID_KEY,
+                ProductDbHelper.SQL_SELECT_NEXT_LOCAL_ID);
+        SQLiteStatement reserve = mStatements.acquire(db, RESERVE_LOCAL_IDS_KEY,
+                ProductDbHelper.SQL_RESERVE_LOCAL_IDS);
+        try {
+            long first = select.simpleQueryForLong();
+            reserve.bindLong(1, count);
+            reserve.executeUpdateDelete();
+            return first;
+        } finally {
+            mStatements.release(db, SELECT_NEXT_LOCAL_ID_KEY, select);
+            mStatements.release(db, RESERVE_LOCAL_IDS_KEY, reserve);
         }
-        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+    }
+
+    /**
+     * Update the given columns of one live product with the cached statement for them. Return
+     * the number of rows updated.
+     */
+    private int updateProductRow(SQLiteDatabase db, long id, int columns, ContentValues values,
+                                 SupplierResolver suppliers) {
+        int key = StatementCache.key(StatementCache.UPDATE_PRODUCT, columns);
+        SQLiteStatement statement = mStatements.acquire(db, key, null);
+        try {
+            int index = bindProductColumns(statement, 1, columns, values, suppliers);
+            statement.bindLong(index, id);
+            return statement.executeUpdateDelete();
+        } finally {
+            mStatements.release(db, key, statement);
+        }
+    }
+
+    /**
+     * Bind the given columns of product values in the order of {@link StatementCache#COLUMNS},
+     * from the given parameter index on, resolving a supplier name to the id of its supplier.
+     * Return the index of the next parameter.
+     */
+    private static int bindProductColumns(SQLiteStatement statement, int index, int columns,
+                                          ContentValues values, SupplierResolver suppliers) {
+        for (int remaining = columns; remaining != 0; remaining &= remaining - 1) {
+            int column = Integer.numberOfTrailingZeros(remaining);
+            if (1 << column == StatementCache.SUPPLIER_ID) {
+                String supplier = values.getAsString(ProductEntry.COLUMN_PRODUCT_SUPPLIER);
+                if (supplier != null) {
+                    statement.bindLong(index++, suppliers.resolve(supplier,
+                            values.get(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER)));
+                    continue;
+                }
+            }
+            bindValue(statement, index++, values.get(StatementCache.COLUMNS[column]));
+        }
+        return index;
+    }
 
-        // Insert the new product with the given values
-        long id = db.insert(ProductEntry.TABLE_NAME, null, values);
+    /**
+     * Insert a supplier into the database with the given content values. Return the new content
+     * URI for that specific row in the database.
+     */
+    private Uri insertSupplier(Uri uri, ContentValues values) {
+        if (values.getAsString(SupplierEntry.COLUMN_SUPPLIER_NAME) == null) {
+            throw new IllegalArgumentException("Supplier requires a name");
+        }
+
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        long id = db.insert(SupplierEntry.TABLE_NAME, null, values);
         if (id == -1) {
             Log.e(LOG_TAG, "Failed to insert row for " + uri);
             return null;
         }
-        getContext().getContentResolver().notifyChange(uri, null);
+        getContext().getContentResolver().notifyChange(SupplierEntry.CONTENT_URI, null);
         return ContentUris.withAppendedId(uri, id);
     }
 
+    /**
+     * Turn product values as written by callers into values for the products table, replacing
+     * the supplier name and phone with the id of the matching supplier row.
+     */
+    private static ContentValues toProductValues(ContentValues values, SupplierResolver suppliers) {
+        ContentValues productValues = new ContentValues(values);
+        productValues.remove(ProductEntry.COLUMN_PRODUCT_SUPPLIER);
+        productValues.remove(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER);
+
+        String supplier = values.getAsString(ProductEntry.COLUMN_PRODUCT_SUPPLIER);
+        if (supplier != null) {
+            long supplierId = suppliers.resolve(supplier,
+                    values.get(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER));
+            productValues.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID, supplierId);
+        }
+        return productValues;
+    }
+
+    /**
+     * Insert many products in a single transaction. Every row is validated with the same rules
+     * as {@link #insertProduct}, and observers are notified once at the end instead of once per
+     * row. Rows with just the columns of a new product from the editor or an import are written
+     * through one precompiled statement; any other row, such as one from the sync adapter, is
+     * inserted like {@link #insertProduct} inserts it. An invalid row or a failed insert rolls
+     * back the whole batch. Return the number of rows that were inserted.
+     */
+    @Override
+    public int bulkInsert(Uri uri, ContentValues[] values) {
+        final int match = sUriMatcher.match(uri);
+        if (match != PRODUCTS) {
+            throw new IllegalArgumentException("Bulk insertion is not supported for " + uri);
+        }
+
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        int rowsInserted = 0;
+        boolean successful = false;
+        mNotifier.beginTransaction();
+        db.beginTransaction();
+        SQLiteStatement statement = mStatements.acquire(db, INSERT_PRODUCT_ROW_KEY, null);
+        SupplierResolver suppliers = new SupplierResolver(mStatements, db);
+        try {
+            // Ids for the whole batch at once; those of rows that bring their own are left unused.
+            long localId = values.length == 0 ? 0 : reserveLocalIds(db, values.length);
+            for (ContentValues row : values) {
+                validateNewProduct(row);
+                checkVersion(uri, row);
+                int columns = StatementCache.columnsOf(row);
+                if ((columns | INSERT_PRODUCT_ROW_COLUMNS) != INSERT_PRODUCT_ROW_COLUMNS) {
+                    insertProductRow(db, row, row.containsKey(ProductEntry._ID) ? NO_VALUE : localId++,
+                            suppliers);
+                    rowsInserted++;
+                    continue;
+                }
+
+                statement.bindLong(1, localId++);
+                bindValue(statement, 2, row.get(ProductEntry.COLUMN_PRODUCT_NAME));
+                bindValue(statement, 3, row.get(ProductEntry.COLUMN_PRODUCT_PRICE));
+                bindValue(statement, 4, row.get(ProductEntry.COLUMN_PRODUCT_QUANTITY));
+                String supplier = row.getAsString(ProductEntry.COLUMN_PRODUCT_SUPPLIER);
+                if (supplier != null) {
+                    statement.bindLong(5, suppliers.resolve(supplier,
+                            row.get(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER)));
+                } else {
+                    bindValue(statement, 5, row.get(ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID));
+                }
+
+                // Throws if the row can't be inserted, which rolls back the batch.
+                statement.executeInsert();
+                rowsInserted++;
+                statement.clearBindings();
+            }
+            db.setTransactionSuccessful();
+            successful = true;
+        } finally {
+            mStatements.release(db, INSERT_PRODUCT_ROW_KEY, statement);
+            suppliers.close();
+            db.endTransaction();
+            if (successful && rowsInserted != 0) {
+                // New rows may have updated the phones of existing suppliers.
+                mCache.clear();
+                notifyChange(uri);
+            }
+            mNotifier.endTransaction(successful);
+        }
+        if (rowsInserted != 0) {
+            mDbHelper.checkpoint();
+        }
+        return rowsInserted;
+    }
+
+    /**
+     * Apply a batch of operations inside one database transaction. Either all operations are
+     * applied or none are, and observers get a single notification for the whole batch. An
+     * operation that fails throws an {@link OperationApplicationException}, so the caller knows
+     * that nothing was applied.
+     */
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        boolean successful = false;
+        mNotifier.beginTransaction();
+        db.beginTransaction();
+        try {
+            ContentProviderResult[] results = new ContentProviderResult[operations.size()];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = operations.get(i).apply(this, results, i);
+                // A failed insert returns no URI. Its own transaction has already failed, which
+                // rolls back the whole batch, so it must not be reported as applied.
+                if (results[i].uri == null && results[i].count == null) {
+                    throw new OperationApplicationException("Operation " + i + " of the batch failed: "
+                            + operations.get(i));
+                }
+            }
+            db.setTransactionSuccessful();
+            successful = true;
+            return results;
+        } finally {
+            db.endTransaction();
+            // The operations invalidated cached products before the batch was committed, so a
+            // read in between may have cached data the batch then changed.
+            mCache.clear();
+            mNotifier.endTransaction(successful);
+        }
+    }
+
     @Override
     public int update(Uri uri, ContentValues contentValues, String selection,
                       String[] selectionArgs) {
+        long start = mMetrics.start();
         final int match = sUriMatcher.match(uri);
+        int rowsUpdated = update(match, uri, contentValues, selection, selectionArgs);
+        mMetrics.stop(mUpdateMetrics[metricsIndex(match)], start, rowsUpdated);
+        return rowsUpdated;
+    }
+
+    private int update(int match, Uri uri, ContentValues contentValues, String selection,
+                       String[] selectionArgs) {
         switch (match) {
             case PRODUCTS:
-                return updateProduct(uri, contentValues, selection, selectionArgs);
+                return updateProduct(uri, contentValues, ProductDbHelper.toProductSelection(selection),
+                        selectionArgs);
             case PRODUCT_ID:
                 // For the PRODUCT_ID code, extract out the ID from the URI,
                 // so we know which row to update. Selection will be "_id=?" and selection
                 // arguments will be a String array containing the actual ID.
-                selection = ProductEntry._ID + "=?";
+                selection = ProductDbHelper.SQL_SELECT_LIVE_PRODUCT;
                 selectionArgs = new String[]{String.valueOf(ContentUris.parseId(uri))};
                 return updateProduct(uri, contentValues, selection, selectionArgs);
+            case SUPPLIERS:
+                return updateSupplier(contentValues, selection, selectionArgs);
+            case SUPPLIER_ID:
+                selection = SupplierEntry._ID + "=?";
+                selectionArgs = new String[]{String.valueOf(ContentUris.parseId(uri))};
+                return updateSupplier(contentValues, selection, selectionArgs);
             default:
                 throw new IllegalArgumentException("Update is not supported for " + uri);
         }
@@ -171,6 +1209,8 @@ public class ProductProvider extends ContentProvider {
      * Return the number of rows that were successfully updated.
      */
     private int updateProduct(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        checkVersion(uri, values);
+
         // If the {@link ProductEntry#COLUMN_PRODUCT_NAME} key is present,
         // check that the name value is not null.
         if (values.containsKey(ProductEntry.COLUMN_PRODUCT_NAME)) {
@@ -203,41 +1243,600 @@ public class ProductProvider extends ContentProvider {
             return 0;
         }
 
+        boolean singleProduct = sUriMatcher.match(uri) == PRODUCT_ID;
         SQLiteDatabase database = mDbHelper.getWritableDatabase();
-        int rowsUpdated = database.update(ProductEntry.TABLE_NAME, values, selection, selectionArgs);
+        int rowsUpdated;
+        database.beginTransaction();
+        SupplierResolver suppliers = new SupplierResolver(mStatements, database);
+        try {
+            Object supplierPhone = values.get(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER);
+            if (supplierPhone != null && !values.containsKey(ProductEntry.COLUMN_PRODUCT_SUPPLIER)) {
+                // Only the phone changes, so update it on the suppliers of the selected products.
+                database.execSQL("UPDATE " + SupplierEntry.TABLE_NAME + " SET "
+                                + SupplierEntry.COLUMN_SUPPLIER_PHONE_NUMBER + " = ? WHERE "
+                                + SupplierEntry._ID + " IN (SELECT " + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID
+                                + " FROM " + ProductEntry.TABLE_NAME + whereClause(selection) + ")",
+                        prependBindArg(supplierPhone, selectionArgs));
+            }
+
+            int columns = StatementCache.columnsOf(values);
+            if (columns == 0) {
+                rowsUpdated = (int) DatabaseUtils.queryNumEntries(database, ProductEntry.TABLE_NAME,
+                        selection, selectionArgs);
+            } else if (singleProduct && columns != StatementCache.UNKNOWN_COLUMNS) {
+                rowsUpdated = updateProductRow(database, ContentUris.parseId(uri), columns, values, suppliers);
+            } else {
+                rowsUpdated = database.update(ProductEntry.TABLE_NAME, toProductValues(values, suppliers),
+                        selection, selectionArgs);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            suppliers.close();
+            database.endTransaction();
+        }
 
         if (rowsUpdated != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            if (singleProduct
+                    && !values.containsKey(ProductEntry.COLUMN_PRODUCT_SUPPLIER)
+                    && !values.containsKey(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER)) {
+                mCache.remove(ContentUris.parseId(uri));
+            } else {
+                mCache.clear();
+            }
+            notifyChange(uri);
+        }
+
+        return rowsUpdated;
+    }
+
+    /**
+     * Update suppliers in the database with the given content values. Every product of an updated
+     * supplier shows the new values, so the products are reported as changed too.
+     */
+    private int updateSupplier(ContentValues values, String selection, String[] selectionArgs) {
+        if (values.containsKey(SupplierEntry.COLUMN_SUPPLIER_NAME)
+                && values.getAsString(SupplierEntry.COLUMN_SUPPLIER_NAME) == null) {
+            throw new IllegalArgumentException("Supplier requires a name");
+        }
+        if (values.size() == 0) {
+            return 0;
         }
 
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+        int rowsUpdated = database.update(SupplierEntry.TABLE_NAME, values, selection, selectionArgs);
+        if (rowsUpdated != 0) {
+            mCache.clear();
+            getContext().getContentResolver().notifyChange(SupplierEntry.CONTENT_URI, null);
+            notifyChange(ProductEntry.CONTENT_URI);
+        }
         return rowsUpdated;
     }
 
+    private static String whereClause(String selection) {
+        return selection == null || selection.isEmpty() ? "" : " WHERE " + selection;
+    }
+
+    /**
+     * Return bind arguments with the given value followed by the selection arguments.
+     */
+    private static Object[] prependBindArg(Object value, String[] selectionArgs) {
+        int count = selectionArgs == null ? 0 : selectionArgs.length;
+        Object[] args = new Object[count + 1];
+        args[0] = value;
+        if (count != 0) {
+            System.arraycopy(selectionArgs, 0, args, 1, count);
+        }
+        return args;
+    }
+
     @Override
     public int delete(Uri uri, String selection, String[] selectionArgs) {
+        long start = mMetrics.start();
+        final int match = sUriMatcher.match(uri);
+        int rowsDeleted = delete(match, uri, selection, selectionArgs);
+        mMetrics.stop(mDeleteMetrics[metricsIndex(match)], start, rowsDeleted);
+        return rowsDeleted;
+    }
+
+    private int delete(int match, Uri uri, String selection, String[] selectionArgs) {
         SQLiteDatabase database = mDbHelper.getWritableDatabase();
         int rowsDeleted;
 
-        final int match = sUriMatcher.match(uri);
         switch (match) {
             case PRODUCTS:
-                rowsDeleted = database.delete(ProductEntry.TABLE_NAME, selection, selectionArgs);
+                long version = readDeleteVersion(uri);
+                if ((selection == null || selection.isEmpty()) && version == NO_VALUE) {
+                    rowsDeleted = deleteCatalog(database);
+                } else {
+                    rowsDeleted = softDeleteProducts(database, ProductDbHelper.toProductSelection(selection),
+                            selectionArgs, NO_VALUE, version);
+                }
                 break;
             case PRODUCT_ID:
-                selection = ProductEntry._ID + "=?";
-                selectionArgs = new String[]{String.valueOf(ContentUris.parseId(uri))};
+                long id = ContentUris.parseId(uri);
+                selection = ProductDbHelper.SQL_SELECT_LIVE_PRODUCT;
+                selectionArgs = new String[]{String.valueOf(id)};
 
-                rowsDeleted = database.delete(ProductEntry.TABLE_NAME, selection, selectionArgs);
+                rowsDeleted = softDeleteProducts(database, selection, selectionArgs, id, readDeleteVersion(uri));
                 break;
+            case SUPPLIERS:
+            case SUPPLIER_ID:
+                if (match == SUPPLIER_ID) {
+                    selection = SupplierEntry._ID + "=?";
+                    selectionArgs = new String[]{String.valueOf(ContentUris.parseId(uri))};
+                }
+                // Suppliers that still have products are kept.
+                selection = appendSelection(selection, SupplierEntry._ID + " NOT IN (SELECT "
+                        + ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID + " FROM " + ProductEntry.TABLE_NAME + ")");
+                rowsDeleted = database.delete(SupplierEntry.TABLE_NAME, selection, selectionArgs);
+                if (rowsDeleted != 0) {
+                    getContext().getContentResolver().notifyChange(SupplierEntry.CONTENT_URI, null);
+                }
+                return rowsDeleted;
+            case SLOW_QUERIES:
+                return mSlowQueries.clear();
             default:
                 throw new IllegalArgumentException("Deletion is not supported for " + uri);
         }
         if (rowsDeleted != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            if (match == PRODUCT_ID) {
+                mCache.remove(ContentUris.parseId(uri));
+            } else {
+                mCache.clear();
+            }
+            notifyChange(uri);
         }
         return rowsDeleted;
     }
 
+    /**
+     * Mark the selected products as deleted, which hides them from every query. Their totals are
+     * taken out of the inventory summary with one aggregate query rather than a trigger per row,
+     * and the rows are left for {@link TombstonePurger} to remove once the database is idle, so
+     * deleting many products is one UPDATE of one column, with no search index work.
+     * A version other than {@link #NO_VALUE} is stored with the tombstone, which marks the delete
+     * as coming from the back office. When the selection is of one product, its id is given too,
+     * and the product is marked with a cached statement. Return the number of products deleted.
+     */
+    private int softDeleteProducts(SQLiteDatabase db, String selection, String[] selectionArgs, long id,
+                                   long version) {
+        long[] totals = new long[4];
+        int rowsDeleted = 0;
+        db.beginTransaction();
+        try {
+            readTotals(db, ProductDbHelper.SQL_SUM_PRODUCTS + whereClause(selection), selectionArgs, totals);
+            if (totals[0] > 0) {
+                subtractFromSummary(db, totals);
+                if (id != NO_VALUE) {
+                    rowsDeleted = markDeleted(db, id, version);
+                } else {
+                    ContentValues values = new ContentValues(2);
+                    values.put(ProductEntry.COLUMN_PRODUCT_DELETED_AT, System.currentTimeMillis());
+                    if (version != NO_VALUE) {
+                        values.put(ProductEntry.COLUMN_PRODUCT_VERSION, version);
+                    }
+                    rowsDeleted = db.update(ProductEntry.TABLE_NAME, values, selection, selectionArgs);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return rowsDeleted;
+    }
+
+    /**
+     * Delete every product by starting the next generation of the catalog, which hides them
+     * from every query at once. The whole catalog leaves the inventory summary, whose totals are
+     * its totals, and {@link TombstonePurger} gives the products their tombstones, which logs
+     * their deletions, before it removes them. So the time taken doesn't grow with the catalog.
+     * Return the number of products deleted.
+     */
+    private int deleteCatalog(SQLiteDatabase db) {
+        long[] totals = new long[4];
+        db.beginTransaction();
+        try {
+            readTotals(db, ProductDbHelper.SQL_READ_SUMMARY, null, totals);
+            if (totals[0] > 0) {
+                subtractFromSummary(db, totals);
+                db.execSQL(ProductDbHelper.SQL_START_GENERATION);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return (int) Math.max(totals[0], 0);
+    }
+
+    /**
+     * Take the given totals, in the order of {@link ProductDbHelper#SQL_SUM_PRODUCTS}, out of the
+     * inventory summary.
+     */
+    private void subtractFromSummary(SQLiteDatabase db, long[] totals) {
+        SQLiteStatement subtract = mStatements.acquire(db, SUBTRACT_FROM_SUMMARY_KEY,
+                ProductDbHelper.SQL_SUBTRACT_FROM_SUMMARY);
+        try {
+            for (int i = 0; i < totals.length; i++) {
+                subtract.bindLong(i + 1, totals[i]);
+            }
+            subtract.executeUpdateDelete();
+        } finally {
+            mStatements.release(db, SUBTRACT_FROM_SUMMARY_KEY, subtract);
+        }
+    }
+
+    /**
+     * Mark one live product as deleted, with the given version unless it is {@link #NO_VALUE}.
+     * Return the number of rows marked.
+     */
+    private int markDeleted(SQLiteDatabase db, long id, long version) {
+        int columns = StatementCache.DELETED_AT | (version != NO_VALUE ? StatementCache.VERSION : 0);
+        int key = StatementCache.key(StatementCache.UPDATE_PRODUCT, columns);
+        SQLiteStatement statement = mStatements.acquire(db, key, null);
+        try {
+            statement.bindLong(1, System.currentTimeMillis());
+            int index = 2;
+            if (version != NO_VALUE) {
+                statement.bindLong(index++, version);
+            }
+            statement.bindLong(index, id);
+            return statement.executeUpdateDelete();
+        } finally {
+            mStatements.release(db, key, statement);
+        }
+    }
+
+    /**
+     * Return the version of the deletion if the sync adapter is deleting, {@link #NO_VALUE}
+     * otherwise.
+     */
+    private static long readDeleteVersion(Uri uri) {
+        if (!isSyncAdapter(uri)) {
+            return NO_VALUE;
+        }
+        String version = uri.getQueryParameter(ProductEntry.QUERY_PARAMETER_VERSION);
+        if (version == null) {
+            throw new IllegalArgumentException("Sync adapter deletes require a version: " + uri);
+        }
+        return parseNonNegative(version, uri);
+    }
+
+    private static boolean isSyncAdapter(Uri uri) {
+        return Boolean.parseBoolean(uri.getQueryParameter(ProductContract.CALLER_IS_SYNC_ADAPTER));
+    }
+
+    /**
+     * Check that the version of a product is written by the sync adapter, and only by it, so
+     * its writes are exactly the ones left out of the change log.
+     */
+    private static void checkVersion(Uri uri, ContentValues values) {
+        if (!isSyncAdapter(uri)) {
+            if (values.containsKey(ProductEntry.COLUMN_PRODUCT_VERSION)) {
+                throw new IllegalArgumentException("Only the sync adapter can set the product version");
+            }
+            return;
+        }
+        long version = readLong(values, ProductEntry.COLUMN_PRODUCT_VERSION);
+        if (version == NO_VALUE || version <= 0) {
+            throw new IllegalArgumentException("Sync adapter writes require a valid product version");
+        }
+    }
+
+    /**
+     * Report that the data at the given URI has changed. Observers are notified through
+     * {@link NotificationCoalescer}, so several writes close together cause a single re-query.
+     * Every write also holds back the purge of deleted products until the database is idle.
+     */
+    private void notifyChange(Uri uri) {
+        mPurger.onWrite();
+        if (sUriMatcher.match(uri) == PRODUCT_ID) {
+            mNotifier.markChanged(ContentUris.parseId(uri));
+        } else {
+            mNotifier.markChanged(NotificationCoalescer.ALL_PRODUCTS);
+        }
+    }
+
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (ProductContract.METHOD_NOTIFICATION_STATS.equals(method)) {
+            Bundle stats = new Bundle();
+            stats.putLong(ProductContract.KEY_CHANGES, mNotifier.getChangeCount());
+            stats.putLong(ProductContract.KEY_NOTIFICATIONS, mNotifier.getNotificationCount());
+            stats.putLong(ProductContract.KEY_SUPPRESSED_NOTIFICATIONS, mNotifier.getSuppressedCount());
+            return stats;
+        }
+        if (ProductContract.METHOD_SET_NOTIFICATION_WINDOW.equals(method)) {
+            if (extras == null || !extras.containsKey(ProductContract.KEY_NOTIFICATION_WINDOW_MILLIS)) {
+                throw new IllegalArgumentException(method + " requires "
+                        + ProductContract.KEY_NOTIFICATION_WINDOW_MILLIS);
+            }
+            Bundle result = new Bundle();
+            result.putLong(ProductContract.KEY_NOTIFICATION_WINDOW_MILLIS, mNotifier.getWindowMillis());
+            mNotifier.setWindowMillis(extras.getLong(ProductContract.KEY_NOTIFICATION_WINDOW_MILLIS));
+            return result;
+        }
+        if (ProductContract.METHOD_ADJUST_QUANTITY.equals(method)) {
+            if (extras == null || !extras.containsKey(ProductContract.KEY_PRODUCT_ID)) {
+                throw new IllegalArgumentException(method + " requires " + ProductContract.KEY_PRODUCT_ID);
+            }
+            if (!extras.containsKey(ProductContract.KEY_QUANTITY_DELTA)) {
+                throw new IllegalArgumentException(method + " requires " + ProductContract.KEY_QUANTITY_DELTA);
+            }
+            return adjustQuantity(extras.getLong(ProductContract.KEY_PRODUCT_ID),
+                    extras.getLong(ProductContract.KEY_QUANTITY_DELTA));
+        }
+        if (ProductContract.METHOD_CHECK_SUMMARY.equals(method)) {
+            Bundle result = new Bundle();
+            result.putBoolean(ProductContract.KEY_SUMMARY_CONSISTENT, checkSummary());
+            return result;
+        }
+        if (ProductContract.METHOD_PURGE_DELETED.equals(method)) {
+            Bundle result = new Bundle();
+            result.putInt(ProductContract.KEY_PURGED_ROWS, mPurger.purgeAll());
+            return result;
+        }
+        if (ProductContract.METHOD_COMPACT_CHANGES.equals(method)) {
+            long acknowledged = extras == null ? 0 : extras.getLong(ProductContract.KEY_ACKNOWLEDGED_SEQUENCE);
+            Bundle result = new Bundle();
+            result.putInt(ProductContract.KEY_COMPACTED_ROWS, compactChanges(acknowledged));
+            return result;
+        }
+        if (ProductContract.METHOD_SET_SLOW_QUERY_THRESHOLD.equals(method)) {
+            if (extras == null || !extras.containsKey(ProductContract.KEY_SLOW_QUERY_THRESHOLD_MILLIS)) {
+                throw new IllegalArgumentException(method + " requires "
+                        + ProductContract.KEY_SLOW_QUERY_THRESHOLD_MILLIS);
+            }
+            Bundle result = new Bundle();
+            result.putLong(ProductContract.KEY_SLOW_QUERY_THRESHOLD_MILLIS, mSlowQueries.getThresholdMillis());
+            mSlowQueries.setThresholdMillis(extras.getLong(ProductContract.KEY_SLOW_QUERY_THRESHOLD_MILLIS));
+            return result;
+        }
+        if (ProductContract.METHOD_METRICS.equals(method)) {
+            if (extras != null && extras.containsKey(ProductContract.KEY_METRICS_ENABLED)) {
+                boolean enabled = extras.getBoolean(ProductContract.KEY_METRICS_ENABLED);
+                mMetrics.setEnabled(enabled);
+                getMetricsPreferences().edit().putBoolean(ProductContract.KEY_METRICS_ENABLED, enabled).apply();
+            }
+            return mMetrics.toBundle();
+        }
+        if (ProductContract.METHOD_CACHE_STATS.equals(method)) {
+            Bundle stats = new Bundle();
+            stats.putLong(ProductContract.KEY_CACHE_HITS, mCache.hitCount());
+            stats.putLong(ProductContract.KEY_CACHE_MISSES, mCache.missCount());
+            stats.putLong(ProductContract.KEY_CACHE_EVICTIONS, mCache.evictionCount());
+            return stats;
+        }
+        return super.call(method, arg, extras);
+    }
+
+    /**
+     * Recompute the inventory summary from the products table and compare it with the stored
+     * row, replacing the row if they differ. Both are read in one transaction, so a write in
+     * between can't make them disagree. Return whether they matched.
+     */
+    private boolean checkSummary() {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        long[] expected = new long[4];
+        long[] stored = new long[4];
+        db.beginTransaction();
+        try {
+            readTotals(db, ProductDbHelper.SQL_COMPUTE_INVENTORY_SUMMARY, null, expected);
+            readTotals(db, ProductDbHelper.SQL_READ_SUMMARY, null, stored);
+            if (Arrays.equals(expected, stored)) {
+                db.setTransactionSuccessful();
+                return true;
+            }
+            Log.e(LOG_TAG, "Inventory summary " + Arrays.toString(stored) + " doesn't match "
+                    + Arrays.toString(expected) + ", rebuilding it");
+            db.execSQL("INSERT OR REPLACE INTO " + SummaryEntry.TABLE_NAME + " SELECT "
+                    + SummaryEntry.SUMMARY_ID + ", * FROM (" + ProductDbHelper.SQL_COMPUTE_INVENTORY_SUMMARY + ")");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        notifyChange(ProductEntry.CONTENT_URI);
+        return false;
+    }
+
+    /**
+     * Remove the change log entries that readers no longer need: every change but the latest of
+     * each product, since readers only get the latest one anyway, and deletions the back office
+     * has already applied, up to the given sequence number. Product ids are never reused, so a
+     * deletion is always a product's last change. Return the number of entries removed.
+     */
+    private int compactChanges(long acknowledged) {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        int removed;
+        db.beginTransaction();
+        try {
+            removed = db.delete(ChangeEntry.TABLE_NAME, ChangeEntry._ID + " NOT IN (SELECT MAX("
+                    + ChangeEntry._ID + ") FROM " + ChangeEntry.TABLE_NAME + " GROUP BY "
+                    + ChangeEntry.COLUMN_PRODUCT_ID + ")", null);
+            removed += db.delete(ChangeEntry.TABLE_NAME, ChangeEntry.COLUMN_OPERATION + "=? AND "
+                            + ChangeEntry._ID + "<=?",
+                    new String[]{ChangeEntry.OPERATION_DELETE, String.valueOf(acknowledged)});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return removed;
+    }
+
+    /**
+     * Read the first row of a query into the given array of numbers. A missing row reads as -1s.
+     */
+    private static void readTotals(SQLiteDatabase db, String sql, String[] args, long[] totals) {
+        Cursor cursor = db.rawQuery(sql, args);
+        try {
+            boolean found = cursor.moveToFirst();
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] = found ? cursor.getLong(i) : -1;
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Add the given delta to the quantity of a product with one precompiled UPDATE, unless that
+     * would make it negative. Return the new quantity in a bundle, or null if there is no such
+     * product or the quantity would drop below 0. A delta of 0 only reads the quantity.
+     */
+    private Bundle adjustQuantity(long id, long delta) {
+        if (delta == 0) {
+            // Nothing changes, so nothing is written or notified.
+            long quantity = readQuantity(mDbHelper.getReadableDatabase(), id);
+            return quantity == -1 ? null : quantityResult(quantity);
+        }
+
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        long quantity = -1;
+        db.beginTransaction();
+        SQLiteStatement adjust = mStatements.acquire(db, ADJUST_QUANTITY_KEY, SQL_ADJUST_QUANTITY);
+        try {
+            adjust.bindLong(1, delta);
+            adjust.bindLong(2, id);
+            adjust.bindLong(3, delta);
+            if (adjust.executeUpdateDelete() == 1) {
+                quantity = readQuantity(db, id);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            mStatements.release(db, ADJUST_QUANTITY_KEY, adjust);
+            db.endTransaction();
+        }
+        if (quantity == -1) {
+            return null;
+        }
+
+        mCache.remove(id);
+        notifyChange(ContentUris.withAppendedId(ProductEntry.CONTENT_URI, id));
+        return quantityResult(quantity);
+    }
+
+    /**
+     * Return the quantity of the live product with the given id, or -1 if there is none.
+     */
+    private long readQuantity(SQLiteDatabase db, long id) {
+        SQLiteStatement select = mStatements.acquire(db, SELECT_QUANTITY_KEY, SQL_SELECT_QUANTITY);
+        try {
+            select.bindLong(1, id);
+            return select.simpleQueryForLong();
+        } catch (SQLiteDoneException e) {
+            return -1;
+        } finally {
+            mStatements.release(db, SELECT_QUANTITY_KEY, select);
+        }
+    }
+
+    private static Bundle quantityResult(long quantity) {
+        Bundle result = new Bundle();
+        result.putLong(ProductContract.KEY_QUANTITY, quantity);
+        return result;
+    }
+
+    /**
+     * Check the values of a new product: it needs a name, and the price and quantity, if given,
+     * can't be negative. Used by every path that adds products, so they all accept the same
+     * rows. The numbers are read as primitives so a large batch does not box a value per column.
+     */
+    static void validateNewProduct(ContentValues values) {
+        // Check that the name is not null
+        if (values.get(ProductEntry.COLUMN_PRODUCT_NAME) == null) {
+            throw new IllegalArgumentException("Product requires a name");
+        }
+
+        // If the price is provided, check that it's greater than 0 Euro
+        long price = readLong(values, ProductEntry.COLUMN_PRODUCT_PRICE);
+        if (price != NO_VALUE && price < 0) {
+            throw new IllegalArgumentException("Product requires valid price");
+        }
+
+        // If the quantity is provided, check that it's greater than or equal to 0
+        long quantity = readLong(values, ProductEntry.COLUMN_PRODUCT_QUANTITY);
+        if (quantity != NO_VALUE && quantity < 0) {
+            throw new IllegalArgumentException("Product requires valid quantity");
+        }
+    }
+
+    /**
+     * Read a whole number from the given values, accepting both numbers and numeric strings.
+     * Return {@link #NO_VALUE} if the key is missing or cannot be parsed.
+     */
+    private static long readLong(ContentValues values, String key) {
+        Object value = values.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return NO_VALUE;
+            }
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Bind a value from {@link ContentValues} to a statement, keeping its storage class the same
+     * as {@link SQLiteDatabase#insert} would.
+     */
+    static void bindValue(SQLiteStatement statement, int index, Object value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else if (value instanceof Double || value instanceof Float) {
+            statement.bindDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            statement.bindLong(index, ((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            statement.bindLong(index, ((Boolean) value) ? 1 : 0);
+        } else if (value instanceof byte[]) {
+            statement.bindBlob(index, (byte[]) value);
+        } else {
+            statement.bindString(index, value.toString());
+        }
+    }
+
+    /**
+     * Print the metrics of the data layer, the slow queries and the use of the statement cache, for
+     * {@code adb shell dumpsys activity provider com.example.dimitra.shopapp/.Data.ProductProvider}.
+     */
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        SQLiteException openFailure = mOpenFailure;
+        if (openFailure != null) {
+            writer.println("Opening the database in the background failed: " + openFailure);
+        }
+        mMetrics.dump(writer);
+        writer.println("Slow queries over " + mSlowQueries.getThresholdMillis() + " ms");
+        for (SlowQueryLog.Entry entry : mSlowQueries.entries()) {
+            writer.println("  #" + entry.sequence + " " + entry.durationMicros / 1000 + " ms, " + entry.rows
+                    + " rows: " + entry.sql + (entry.args == null ? "" : " " + Arrays.toString(entry.args)));
+            if (entry.queryPlan != null) {
+                writer.println("    " + entry.queryPlan.replace("\n", "\n    "));
+            }
+        }
+        writer.println("Statement cache: " + mStatements.size() + " statements, " + mStatements.hitCount()
+                + " hits, " + mStatements.missCount() + " misses");
+    }
+
+    /**
+     * Stop the background thread, dropping any purge not yet started, and wait for the work in
+     * progress on it to end before the statements are closed.
+     */
+    @Override
+    public void shutdown() {
+        mBackgroundThread.quit();
+        try {
+            mBackgroundThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mStatements.clear();
+        super.shutdown();
+    }
+
     @Override
     public String getType(Uri uri) {
         final int match = sUriMatcher.match(uri);
@@ -246,6 +1845,20 @@ public class ProductProvider extends ContentProvider {
                 return ProductEntry.CONTENT_LIST_TYPE;
             case PRODUCT_ID:
                 return ProductEntry.CONTENT_ITEM_TYPE;
+            case PRODUCT_SEARCH:
+                return ProductEntry.CONTENT_LIST_TYPE;
+            case PRODUCT_STATS:
+                return StatsEntry.CONTENT_LIST_TYPE;
+            case PRODUCT_SUMMARY:
+                return SummaryEntry.CONTENT_ITEM_TYPE;
+            case SUPPLIERS:
+                return SupplierEntry.CONTENT_LIST_TYPE;
+            case SUPPLIER_ID:
+                return SupplierEntry.CONTENT_ITEM_TYPE;
+            case CHANGES:
+                return ChangeEntry.CONTENT_LIST_TYPE;
+            case SLOW_QUERIES:
+                return SlowQueryEntry.CONTENT_LIST_TYPE;
             default:
                 throw new IllegalStateException("Unknown URI " + uri + " with match " + match);
         }
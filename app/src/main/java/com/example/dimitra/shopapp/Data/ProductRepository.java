@@ -0,0 +1,277 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Makes every write to the product catalog on a single background thread, in the order the
+ * writes were requested, and reports the results back on the main thread.
+ *
+ * Writes wait in a queue. An update queued right behind another update of the same product that
+ * hasn't started yet is merged into it, so a burst of edits costs a single write.
+ */
+public final class ProductRepository {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = ProductRepository.class.getSimpleName();
+
+    /**
+     * Receives the result of a write.
+     */
+    public interface Callback<T> {
+
+        /** Called on the main thread once the write is done. */
+        void onResult(T result);
+    }
+
+    private static ProductRepository sInstance;
+
+    /**
+     * Return the repository shared by the whole app.
+     */
+    public static synchronized ProductRepository getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ProductRepository(context.getApplicationContext().getContentResolver());
+        }
+        return sInstance;
+    }
+
+    private final ContentResolver mResolver;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, LOG_TAG);
+        }
+    });
+
+    /** Writes that haven't started yet, oldest first. */
+    private final ArrayDeque<Write<?>> mQueue = new ArrayDeque<>();
+
+    /** Runs the oldest queued write. Submitted once for every write added to the queue. */
+    private final Runnable mRunNext = new Runnable() {
+        @Override
+        public void run() {
+            Write<?> write;
+            synchronized (mQueue) {
+                write = mQueue.pollFirst();
+            }
+            if (write != null) {
+                runWrite(write);
+            }
+        }
+    };
+
+    ProductRepository(ContentResolver resolver) {
+        mResolver = resolver;
+    }
+
+    /**
+     * Insert a new product. The callback receives its URI, or null if it couldn't be inserted.
+     */
+    public void insert(ContentValues values, Callback<Uri> callback) {
+        enqueue(new InsertWrite(new ContentValues(values)), callback);
+    }
+
+    /**
+     * Update the product at the given "/products/#" URI. The callback receives the number of
+     * rows updated.
+     */
+    public void update(Uri uri, ContentValues values, Callback<Integer> callback) {
+        enqueue(new UpdateWrite(uri, new ContentValues(values)), callback);
+    }
+
+    /**
+     * Delete the product at the given URI, or every product for {@link ProductEntry#CONTENT_URI}.
+     * The callback receives the number of rows deleted.
+     */
+    public void delete(Uri uri, Callback<Integer> callback) {
+        enqueue(new DeleteWrite(uri), callback);
+    }
+
+    /**
+     * Sell or restock a product, see {@link ProductContract#METHOD_ADJUST_QUANTITY}. The callback
+     * receives the new quantity, or null if it would have dropped below zero or the product
+     * doesn't exist.
+     */
+    public void adjustQuantity(long id, long delta, Callback<Long> callback) {
+        enqueue(new AdjustQuantityWrite(id, delta), callback);
+    }
+
+    private <T> void enqueue(Write<T> write, Callback<T> callback) {
+        if (callback != null) {
+            write.mCallbacks.add(callback);
+        }
+        synchronized (mQueue) {
+            Write<?> last = mQueue.peekLast();
+            if (last != null && last.merge(write)) {
+                return;
+            }
+            mQueue.addLast(write);
+        }
+        mExecutor.execute(mRunNext);
+    }
+
+    private <T> void runWrite(final Write<T> write) {
+        T result;
+        try {
+            result = write.run(mResolver);
+        } catch (RuntimeException e) {
+            // The provider rejects invalid values with an IllegalArgumentException, and a write
+            // the database can't make, such as on a full disk, fails with an SQLException. Both
+            // are reported like any other failed write rather than ending the write thread, and
+            // with it the app.
+            Log.e(LOG_TAG, "Write failed", e);
+            result = write.failed();
+        }
+        if (write.mCallbacks.isEmpty()) {
+            return;
+        }
+        final T delivered = result;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Callback<T> callback : write.mCallbacks) {
+                    callback.onResult(delivered);
+                }
+            }
+        });
+    }
+
+    /**
+     * A write waiting in the queue, together with everyone waiting for its result.
+     */
+    private abstract static class Write<T> {
+
+        final List<Callback<T>> mCallbacks = new ArrayList<>(1);
+
+        abstract T run(ContentResolver resolver);
+
+        /** The result reported when the provider rejects the write or it fails. */
+        abstract T failed();
+
+        /**
+         * Fold the next write into this one if that gives the same end result. Only called while
+         * this write hasn't started yet.
+         */
+        boolean merge(Write<?> next) {
+            return false;
+        }
+    }
+
+    private static final class InsertWrite extends Write<Uri> {
+
+        private final ContentValues mValues;
+
+        InsertWrite(ContentValues values) {
+            mValues = values;
+        }
+
+        @Override
+        Uri run(ContentResolver resolver) {
+            return resolver.insert(ProductEntry.CONTENT_URI, mValues);
+        }
+
+        @Override
+        Uri failed() {
+            return null;
+        }
+    }
+
+    private static final class UpdateWrite extends Write<Integer> {
+
+        private final Uri mUri;
+
+        private final ContentValues mValues;
+
+        UpdateWrite(Uri uri, ContentValues values) {
+            mUri = uri;
+            mValues = values;
+        }
+
+        @Override
+        Integer run(ContentResolver resolver) {
+            return resolver.update(mUri, mValues, null, null);
+        }
+
+        @Override
+        Integer failed() {
+            return 0;
+        }
+
+        @Override
+        boolean merge(Write<?> next) {
+            if (!(next instanceof UpdateWrite) || !mUri.equals(((UpdateWrite) next).mUri)) {
+                return false;
+            }
+            UpdateWrite update = (UpdateWrite) next;
+            // Values left out of the later edit keep what the earlier one set.
+            mValues.putAll(update.mValues);
+            mCallbacks.addAll(update.mCallbacks);
+            return true;
+        }
+    }
+
+    private static final class DeleteWrite extends Write<Integer> {
+
+        private final Uri mUri;
+
+        DeleteWrite(Uri uri) {
+            mUri = uri;
+        }
+
+        @Override
+        Integer run(ContentResolver resolver) {
+            return resolver.delete(mUri, null, null);
+        }
+
+        @Override
+        Integer failed() {
+            return 0;
+        }
+    }
+
+    private static final class AdjustQuantityWrite extends Write<Long> {
+
+        private final long mId;
+
+        private final long mDelta;
+
+        AdjustQuantityWrite(long id, long delta) {
+            mId = id;
+            mDelta = delta;
+        }
+
+        @Override
+        Long run(ContentResolver resolver) {
+            Bundle extras = new Bundle();
+            extras.putLong(ProductContract.KEY_PRODUCT_ID, mId);
+            extras.putLong(ProductContract.KEY_QUANTITY_DELTA, mDelta);
+            Bundle result = resolver.call(ProductEntry.CONTENT_URI,
+                    ProductContract.METHOD_ADJUST_QUANTITY, null, extras);
+            return result == null ? null : result.getLong(ProductContract.KEY_QUANTITY);
+        }
+
+        @Override
+        Long failed() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.os.Bundle;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings of the data layer, shared by everything in the process that reads or writes products:
+ * the provider, the database helper and the screens that load from it. Each named operation keeps
+ * a {@link LatencyHistogram} and a count of the rows it returned or changed, all updated without
+ * locking, so recording from binder threads never makes them wait on each other.
+ *
+ * Recording is off until {@link #setEnabled} turns it on. While it is off, {@link #start()} reads
+ * one volatile flag and {@link #stop} compares a number, so the instrumented paths can stay in
+ * release builds.
+ */
+public final class ProviderMetrics {
+
+    /** Returned by {@link #start()} while recording is off; {@link #stop} then does nothing. */
+    public static final long NOT_TIMED = Long.MIN_VALUE;
+
+    /** Operation of the database helper creating the schema of a new database. */
+    public static final String CREATE_DATABASE = "create database";
+
+    /** Operation of the database helper upgrading the schema of an existing database. */
+    public static final String UPGRADE_DATABASE = "upgrade database";
+
+    /** Opening the database when the provider starts, including any create or upgrade. */
+    public static final String OPEN_DATABASE = "open database";
+
+    private static final ProviderMetrics sInstance = new ProviderMetrics();
+
+    /**
+     * Counters of one operation.
+     */
+    public static final class Operation {
+
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        /** Rows returned by queries, or changed by writes. */
+        final AtomicLong rows = new AtomicLong();
+
+        Operation() {
+        }
+    }
+
+    private final ConcurrentMap<String, Operation> mOperations = new ConcurrentHashMap<>();
+
+    private volatile boolean mEnabled;
+
+    /**
+     * Return the metrics of this process.
+     */
+    public static ProviderMetrics getInstance() {
+        return sInstance;
+    }
+
+    ProviderMetrics() {
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Turn recording on or off. Turning it on starts again from empty counters.
+     */
+    public void setEnabled(boolean enabled) {
+        if (enabled && !mEnabled) {
+            reset();
+        }
+        mEnabled = enabled;
+    }
+
+    /**
+     * Return the counters of the operation with the given name, creating them the first time.
+     * Callers on hot paths look their operations up once and keep them.
+     */
+    public Operation operation(String name) {
+        Operation operation = mOperations.get(name);
+        if (operation == null) {
+            Operation created = new Operation();
+            operation = mOperations.putIfAbsent(name, created);
+            if (operation == null) {
+                operation = created;
+            }
+        }
+        return operation;
+    }
+
+    /**
+     * Return the time an operation starts, to pass to {@link #stop}, or {@link #NOT_TIMED} if
+     * recording is off.
+     */
+    public long start() {
+        return mEnabled ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Record an operation that started at the given time and returned or changed the given
+     * number of rows.
+     */
+    public void stop(Operation operation, long start, long rows) {
+        if (start == NOT_TIMED) {
+            return;
+        }
+        operation.latency.record(System.nanoTime() - start);
+        if (rows > 0) {
+            operation.rows.addAndGet(rows);
+        }
+    }
+
+    /**
+     * Record a rare operation that started at the given time, looking it up by name.
+     */
+    public void stop(String name, long start) {
+        if (start != NOT_TIMED) {
+            stop(operation(name), start, 0);
+        }
+    }
+
+    /**
+     * Empty the counters of every operation.
+     */
+    public void reset() {
+        for (Operation operation : mOperations.values()) {
+            operation.latency.reset();
+            operation.rows.set(0);
+        }
+    }
+
+    /**
+     * Return a bundle with a bundle for every operation that ran, under its name, holding the
+     * keys listed at {@link ProductContract#METHOD_METRICS}.
+     */
+    public Bundle toBundle() {
+        Bundle metrics = new Bundle();
+        metrics.putBoolean(ProductContract.KEY_METRICS_ENABLED, mEnabled);
+        for (Map.Entry<String, Operation> entry : mOperations.entrySet()) {
+            LatencyHistogram latency = entry.getValue().latency;
+            long count = latency.count();
+            if (count == 0) {
+                continue;
+            }
+            Bundle operation = new Bundle();
+            operation.putLong(ProductContract.KEY_METRIC_COUNT, count);
+            operation.putLong(ProductContract.KEY_METRIC_ROWS, entry.getValue().rows.get());
+            operation.putLong(ProductContract.KEY_METRIC_MEAN_MICROS, latency.meanMicros());
+            operation.putLong(ProductContract.KEY_METRIC_P50_MICROS, latency.percentileMicros(0.5));
+            operation.putLong(ProductContract.KEY_METRIC_P90_MICROS, latency.percentileMicros(0.9));
+            operation.putLong(ProductContract.KEY_METRIC_P99_MICROS, latency.percentileMicros(0.99));
+            operation.putLong(ProductContract.KEY_METRIC_MAX_MICROS, latency.maxMicros());
+            metrics.putBundle(entry.getKey(), operation);
+        }
+        return metrics;
+    }
+
+    /**
+     * Print a table of every operation that ran, sorted by name, with times in milliseconds.
+     */
+    public void dump(PrintWriter writer) {
+        writer.println("Metrics " + (mEnabled ? "enabled" : "disabled"));
+        writer.println(String.format(Locale.US, "  %-36s %8s %10s %9s %9s %9s %9s %9s",
+                "operation", "count", "rows", "mean", "p50", "p90", "p99", "max"));
+        Map<String, Operation> sorted = new TreeMap<>(mOperations);
+        for (Map.Entry<String, Operation> entry : sorted.entrySet()) {
+            LatencyHistogram latency = entry.getValue().latency;
+            if (latency.count() == 0) {
+                continue;
+            }
+            writer.println(String.format(Locale.US, "  %-36s %8d %10d %9.3f %9.3f %9.3f %9.3f %9.3f",
+                    entry.getKey(), latency.count(), entry.getValue().rows.get(),
+                    latency.meanMicros() / 1000.0, latency.percentileMicros(0.5) / 1000.0,
+                    latency.percentileMicros(0.9) / 1000.0, latency.percentileMicros(0.99) / 1000.0,
+                    latency.maxMicros() / 1000.0));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.dimitra.shopapp.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The latest queries of {@link ProductProvider} that took longer than a threshold, kept in a
+ * ring buffer so the log never grows, each with the query plan of its shape.
+ *
+ * Queries are grouped into shapes by their SQL with the literals taken out, so a query that only
+ * differs in a number or a string has the same shape. The plan of a shape is captured the first
+ * time a query of that shape is slow and kept for the later ones, so a query that stays slow is
+ * only explained once.
+ */
+final class SlowQueryLog {
+
+    /**
+     * Queries slower than this are logged in debug builds unless another threshold is set.
+     * Release builds start with {@link #OFF}, so no query is timed until a threshold is set.
+     */
+    static final long DEFAULT_THRESHOLD_MILLIS = 100;
+
+    /** Threshold that turns logging off, and with it the timing of every query. */
+    static final long OFF = -1;
+
+    /** Number of slow queries kept by default; older ones are dropped. */
+    static final int DEFAULT_CAPACITY = 50;
+
+    /** Number of query shapes whose plan is kept. */
+    private static final int MAX_PLANS = 64;
+
+    /** Arguments are cut to this many characters, so a large value doesn't fill the log. */
+    private static final int MAX_ARG_LENGTH = 64;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+    /**
+     * A query that took longer than the threshold.
+     */
+    static final class Entry {
+
+        /** Increases by one for every query logged, so readers can tell which ones are new. */
+        final long sequence;
+
+        final String sql;
+
+        /** The bind arguments, each cut to {@link SlowQueryLog#MAX_ARG_LENGTH} characters, or null. */
+        final String[] args;
+
+        /** Rows in the first window of the result, which is all of them unless it was large. */
+        final int rows;
+
+        final long durationMicros;
+
+        /** When the query was logged, in milliseconds since the epoch. */
+        final long loggedAt;
+
+        /** The lines of EXPLAIN QUERY PLAN for the shape of the query, or null if it failed. */
+        final String queryPlan;
+
+        Entry(long sequence, String sql, String[] args, int rows, long durationMicros, long loggedAt,
+              String queryPlan) {
+            this.sequence = sequence;
+            this.sql = sql;
+            this.args = args;
+            this.rows = rows;
+            this.durationMicros = durationMicros;
+            this.loggedAt = loggedAt;
+            this.queryPlan = queryPlan;
+        }
+    }
+
+    private final Entry[] mEntries;
+
+    /** Position in {@link #mEntries} of the next entry. */
+    private int mNext;
+
+    private long mSequence;
+
+    /** Query plans by shape, least recently used first. */
+    private final Map<String, String> mPlans = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_PLANS;
+        }
+    };
+
+    /** Threshold in nanoseconds, or a negative number if nothing is logged. */
+    private volatile long mThresholdNanos;
+
+    SlowQueryLog(long thresholdMillis, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        mEntries = new Entry[capacity];
+        setThresholdMillis(thresholdMillis);
+    }
+
+    /**
+     * Log queries that take longer than the given number of milliseconds from now on. A negative
+     * number turns logging off.
+     */
+    void setThresholdMillis(long thresholdMillis) {
+        mThresholdNanos = thresholdMillis < 0 ? -1 : thresholdMillis * 1000000;
+    }
+
+    long getThresholdMillis() {
+        long thresholdNanos = mThresholdNanos;
+        return thresholdNanos < 0 ? OFF : thresholdNanos / 1000000;
+    }
+
+    /**
+     * Return whether queries are being timed at all.
+     */
+    boolean isEnabled() {
+        return mThresholdNanos >= 0;
+    }
+
+    /**
+     * Return whether a query that took the given number of nanoseconds is to be logged.
+     */
+    boolean isSlow(long nanos) {
+        long thresholdNanos = mThresholdNanos;
+        return thresholdNanos >= 0 && nanos > thresholdNanos;
+    }
+
+    /**
+     * Return the plan captured for the shape of the given SQL, or null if none was captured yet.
+     */
+    synchronized String planOf(String sql) {
+        return mPlans.get(shapeOf(sql));
+    }
+
+    /**
+     * Log a slow query. The plan is kept for its shape, unless one already is.
+     */
+    synchronized void add(String sql, String[] args, int rows, long nanos, String queryPlan) {
+        String shape = shapeOf(sql);
+        if (queryPlan != null && !mPlans.containsKey(shape)) {
+            mPlans.put(shape, queryPlan);
+        }
+        mEntries[mNext] = new Entry(++mSequence, sql, truncate(args), rows, nanos / 1000,
+                System.currentTimeMillis(), mPlans.get(shape));
+        mNext = (mNext + 1) % mEntries.length;
+    }
+
+    /**
+     * Return the logged queries, oldest first.
+     */
+    synchronized List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>(mEntries.length);
+        for (int i = 0; i < mEntries.length; i++) {
+            Entry entry = mEntries[(mNext + i) % mEntries.length];
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Forget every logged query and captured plan. Return the number of queries forgotten.
+     */
+    synchronized int clear() {
+        int cleared = 0;
+        for (int i = 0; i < mEntries.length; i++) {
+            if (mEntries[i] != null) {
+                mEntries[i] = null;
+                cleared++;
+            }
+        }
+        mNext = 0;
+        mPlans.clear();
+        return cleared;
+    }
+
+    /**
+     * Return the SQL with every string and number literal replaced by a placeholder.
+     */
+    static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        return NUMBER_LITERAL.matcher(shape).replaceAll("?");
+    }
+
+    private static String[] truncate(String[] args) {
+        if (args == null) {
+            return null;
+        }
+        String[] truncated = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            truncated[i] = arg == null || arg.length() <= MAX_ARG_LENGTH ? arg
+                    : arg.substring(0, MAX_ARG_LENGTH) + "...";
+        }
+        return truncated;
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.SparseArray;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+/**
+ * Compiled statements for the writes of {@link ProductProvider}, kept between calls so a write
+ * binds its values to a statement it already has instead of building SQL from a
+ * {@link ContentValues} map and compiling it again.
+ *
+ * Writes to the products table come in a handful of shapes, so a statement is keyed by its
+ * operation and the set of product columns it writes, as a bit for each column of
+ * {@link #COLUMNS}. Its values are bound positionally in the order of that array. A few fixed
+ * statements are kept under an operation of their own, with no columns.
+ *
+ * A statement can't be bound from two threads at once, so a writer takes it out of the cache
+ * with {@link #acquire} and puts it back with {@link #release}. A writer that finds it taken
+ * compiles one of its own, which is dropped if the cache already has one when it comes back.
+ *
+ * Statements belong to the database object they were compiled on. The helper gives out a new
+ * object whenever the database is opened again, which is also the only time it creates or
+ * upgrades the schema, so statements compiled on any other object are closed instead of reused.
+ */
+final class StatementCache {
+
+    /** Insert of a product, with the columns of the key. */
+    static final int INSERT_PRODUCT = 1;
+
+    /** Update of the columns of the key on one live product, selected by id after them. */
+    static final int UPDATE_PRODUCT = 2;
+
+    /**
+     * Fixed statements of the provider and its {@link SupplierResolver}, whose SQL is given when
+     * they are acquired.
+     */
+    static final int ADJUST_QUANTITY = 3;
+    static final int SELECT_QUANTITY = 4;
+    static final int SUBTRACT_FROM_SUMMARY = 5;
+    static final int FIND_SUPPLIER = 6;
+    static final int INSERT_SUPPLIER = 7;
+    static final int UPDATE_SUPPLIER_PHONE = 8;
+    static final int SELECT_NEXT_LOCAL_ID = 9;
+    static final int RESERVE_LOCAL_IDS = 10;
+
+    /**
+     * The product columns a statement can write, in the order their values are bound. The
+     * supplier name a caller writes is resolved to {@link ProductEntry#COLUMN_PRODUCT_SUPPLIER_ID}.
+     */
+    static final String[] COLUMNS = {
+            ProductEntry._ID,
+            ProductEntry.COLUMN_PRODUCT_NAME,
+            ProductEntry.COLUMN_PRODUCT_PRICE,
+            ProductEntry.COLUMN_PRODUCT_QUANTITY,
+            ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID,
+            ProductEntry.COLUMN_PRODUCT_DELETED_AT,
+            ProductEntry.COLUMN_PRODUCT_VERSION
+    };
+
+    /** Bits of the columns of {@link #COLUMNS}, to build the column set of a key. */
+    static final int ID = 1;
+    static final int NAME = 1 << 1;
+    static final int PRICE = 1 << 2;
+    static final int QUANTITY = 1 << 3;
+    static final int SUPPLIER_ID = 1 << 4;
+    static final int DELETED_AT = 1 << 5;
+    static final int VERSION = 1 << 6;
+
+    /** Returned by {@link #columnsOf} for values with a column no statement writes. */
+    static final int UNKNOWN_COLUMNS = -1;
+
+    /**
+     * Statements kept at most. Far more than the shapes the app writes, so only a caller
+     * writing every combination of columns can reach it.
+     */
+    private static final int MAX_STATEMENTS = 32;
+
+    /** Statements not in use, by key. */
+    private final SparseArray<SQLiteStatement> mStatements = new SparseArray<>();
+
+    /** The database the statements were compiled on. */
+    private SQLiteDatabase mDatabase;
+
+    private long mHits;
+
+    private long mMisses;
+
+    /**
+     * Return the key of the given operation writing the given set of columns.
+     */
+    static int key(int operation, int columns) {
+        return operation << COLUMNS.length | columns;
+    }
+
+    /**
+     * Return the index in {@link #COLUMNS} of the given column, or -1 if no statement writes it.
+     */
+    static int columnOf(String column) {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (COLUMNS[i].equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the set of columns the given product values write, as callers of the provider
+     * write them, or {@link #UNKNOWN_COLUMNS}. A supplier name writes the supplier id, and the
+     * supplier phone writes no product column.
+     */
+    static int columnsOf(ContentValues values) {
+        int columns = 0;
+        for (String key : values.keySet()) {
+            if (key.equals(ProductEntry.COLUMN_PRODUCT_SUPPLIER)) {
+                if (values.get(key) != null) {
+                    columns |= SUPPLIER_ID;
+                }
+            } else if (!key.equals(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER)) {
+                int column = columnOf(key);
+                if (column == -1) {
+                    return UNKNOWN_COLUMNS;
+                }
+                columns |= 1 << column;
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Return the SQL of an {@link #INSERT_PRODUCT} or {@link #UPDATE_PRODUCT} key.
+     */
+    static String sqlOf(int key) {
+        int operation = key >>> COLUMNS.length;
+        int columns = key & ((1 << COLUMNS.length) - 1);
+        if (columns == 0) {
+            throw new IllegalArgumentException("No columns in key " + key);
+        }
+        StringBuilder sql = new StringBuilder(128);
+        if (operation == INSERT_PRODUCT) {
+            sql.append("INSERT INTO ").append(ProductEntry.TABLE_NAME).append(" (");
+            appendColumns(sql, columns, ", ");
+            // Every new product is in the current generation of the catalog.
+            sql.append(", ").append(ProductDbHelper.COLUMN_GENERATION).append(") VALUES (?");
+            for (int i = Integer.bitCount(columns); i > 1; i--) {
+                sql.append(", ?");
+            }
+            sql.append(", ").append(ProductDbHelper.SQL_CURRENT_GENERATION).append(')');
+        } else if (operation == UPDATE_PRODUCT) {
+            sql.append("UPDATE ").append(ProductEntry.TABLE_NAME).append(" SET ");
+            appendColumns(sql, columns, " = ?, ");
+            sql.append(" = ? WHERE ").append(ProductEntry._ID).append(" = ? AND ")
+                    .append(ProductDbHelper.LIVE_PRODUCTS);
+        } else {
+            throw new IllegalArgumentException("No SQL for key " + key);
+        }
+        return sql.toString();
+    }
+
+    private static void appendColumns(StringBuilder sql, int columns, String separator) {
+        boolean first = true;
+        for (int column = 0; column < COLUMNS.length; column++) {
+            if ((columns & 1 << column) != 0) {
+                if (!first) {
+                    sql.append(separator);
+                }
+                sql.append(COLUMNS[column]);
+                first = false;
+            }
+        }
+    }
+
+    /**
+     * Take the statement with the given key out of the cache, compiling it on the given database
+     * if the cache has none. The SQL of fixed statements is given; that of product writes is
+     * built from the key, and only when it has to be compiled. Pass the statement back to
+     * {@link #release} once it has run, whether or not it succeeded.
+     */
+    SQLiteStatement acquire(SQLiteDatabase db, int key, String sql) {
+        synchronized (this) {
+            if (db != mDatabase) {
+                closeStatements();
+                mDatabase = db;
+            }
+            SQLiteStatement statement = mStatements.get(key);
+            if (statement != null) {
+                mStatements.remove(key);
+                mHits++;
+                return statement;
+            }
+            mMisses++;
+        }
+        return db.compileStatement(sql != null ? sql : sqlOf(key));
+    }
+
+    /**
+     * Put a statement taken by {@link #acquire} back, or close it if the cache can't keep it.
+     */
+    void release(SQLiteDatabase db, int key, SQLiteStatement statement) {
+        statement.clearBindings();
+        synchronized (this) {
+            if (db == mDatabase && mStatements.get(key) == null && mStatements.size() < MAX_STATEMENTS) {
+                mStatements.put(key, statement);
+                return;
+            }
+        }
+        statement.close();
+    }
+
+    /**
+     * Close every statement not in use, and those in use once they are released.
+     */
+    synchronized void clear() {
+        closeStatements();
+        mDatabase = null;
+    }
+
+    synchronized int size() {
+        return mStatements.size();
+    }
+
+    /**
+     * Return the number of statements acquired from the cache rather than compiled.
+     */
+    synchronized long hitCount() {
+        return mHits;
+    }
+
+    synchronized long missCount() {
+        return mMisses;
+    }
+
+    private void closeStatements() {
+        for (int i = 0; i < mStatements.size(); i++) {
+            mStatements.valueAt(i).close();
+        }
+        mStatements.clear();
+    }
+}
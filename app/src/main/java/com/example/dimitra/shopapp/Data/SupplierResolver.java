@@ -0,0 +1,121 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds the supplier row for a supplier name while products are written, creating it the first
+ * time the name is seen. Ids are remembered for the lifetime of the resolver, so a batch of
+ * products from the same few suppliers only looks each supplier up once.
+ *
+ * Its statements are taken from the {@link StatementCache} of the provider when first needed,
+ * so a single product write compiles none once the cache has them, and go back to it when the
+ * resolver is closed.
+ *
+ * Must be used inside a transaction on the given database, and closed afterwards.
+ */
+final class SupplierResolver {
+
+    private static final int FIND_KEY = StatementCache.key(StatementCache.FIND_SUPPLIER, 0);
+
+    private static final int INSERT_KEY = StatementCache.key(StatementCache.INSERT_SUPPLIER, 0);
+
+    private static final int UPDATE_PHONE_KEY = StatementCache.key(StatementCache.UPDATE_SUPPLIER_PHONE, 0);
+
+    private final StatementCache mStatements;
+
+    private final SQLiteDatabase mDb;
+
+    private final Map<String, Long> mIds = new HashMap<>();
+
+    private SQLiteStatement mFindStatement;
+
+    private SQLiteStatement mInsertStatement;
+
+    private SQLiteStatement mUpdatePhoneStatement;
+
+    SupplierResolver(StatementCache statements, SQLiteDatabase db) {
+        mStatements = statements;
+        mDb = db;
+    }
+
+    /**
+     * Return the id of the supplier with the given name, creating it if needed. If a phone is
+     * given, it becomes the supplier's phone; within one resolver only the first phone given
+     * for a name is applied.
+     */
+    long resolve(String name, Object phone) {
+        Long cachedId = mIds.get(name);
+        if (cachedId != null) {
+            return cachedId;
+        }
+
+        long id = find(name);
+        if (id == -1) {
+            if (mInsertStatement == null) {
+                mInsertStatement = mStatements.acquire(mDb, INSERT_KEY, ProductDbHelper.SQL_INSERT_SUPPLIER);
+            }
+            mInsertStatement.bindString(1, name);
+            if (phone == null) {
+                mInsertStatement.bindLong(2, 0);
+            } else {
+                ProductProvider.bindValue(mInsertStatement, 2, phone);
+            }
+            id = mInsertStatement.executeInsert();
+        } else if (phone != null) {
+            updatePhone(id, phone);
+        }
+        mIds.put(name, id);
+        return id;
+    }
+
+    /**
+     * Set the phone of the supplier with the given id.
+     */
+    void updatePhone(long id, Object phone) {
+        if (mUpdatePhoneStatement == null) {
+            mUpdatePhoneStatement = mStatements.acquire(mDb, UPDATE_PHONE_KEY,
+                    ProductDbHelper.SQL_UPDATE_SUPPLIER_PHONE);
+        }
+        ProductProvider.bindValue(mUpdatePhoneStatement, 1, phone);
+        mUpdatePhoneStatement.bindLong(2, id);
+        mUpdatePhoneStatement.executeUpdateDelete();
+    }
+
+    /**
+     * Put the statements back into the cache.
+     */
+    void close() {
+        if (mFindStatement != null) {
+            mStatements.release(mDb, FIND_KEY, mFindStatement);
+            mFindStatement = null;
+        }
+        if (mInsertStatement != null) {
+            mStatements.release(mDb, INSERT_KEY, mInsertStatement);
+            mInsertStatement = null;
+        }
+        if (mUpdatePhoneStatement != null) {
+            mStatements.release(mDb, UPDATE_PHONE_KEY, mUpdatePhoneStatement);
+            mUpdatePhoneStatement = null;
+        }
+    }
+
+    /**
+     * Return the id of the supplier with the given name, or -1 if there is none.
+     */
+    private long find(String name) {
+        if (mFindStatement == null) {
+            mFindStatement = mStatements.acquire(mDb, FIND_KEY, ProductDbHelper.SQL_FIND_SUPPLIER);
+        }
+        mFindStatement.bindString(1, name);
+        try {
+            return mFindStatement.simpleQueryForLong();
+        } catch (SQLiteDoneException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.dimitra.shopapp.Data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Wire format of the messages exchanged with the back office.
+ *
+ * Every message is gzip compressed and starts with {@link #FORMAT_VERSION}. Records are written
+ * field by field in binary, so a batch costs a few dozen bytes per product before compression,
+ * and the supplier names that repeat from one product to the next compress away.
+ */
+public final class SyncCodec {
+
+    /** Version of the format, checked when a message is read. */
+    public static final int FORMAT_VERSION = 1;
+
+    /** A request for the changes after a version. */
+    public static final class PullRequest {
+
+        /** Only changes with a higher version are wanted. */
+        public final long sinceVersion;
+
+        /** At most this many changes are wanted. */
+        public final int limit;
+
+        public PullRequest(long sinceVersion, int limit) {
+            this.sinceVersion = sinceVersion;
+            this.limit = limit;
+        }
+    }
+
+    /** What the back office did with one change sent by the device. */
+    public static final class PushResult {
+
+        /** Whether the change was applied. */
+        public final boolean accepted;
+
+        /**
+         * The product as the back office now has it: the change with its new version if it was
+         * accepted, the conflicting change otherwise.
+         */
+        public final SyncRecord record;
+
+        public PushResult(boolean accepted, SyncRecord record) {
+            this.accepted = accepted;
+            this.record = record;
+        }
+    }
+
+    private SyncCodec() {}
+
+    public static byte[] encodePullRequest(long sinceVersion, int limit) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = open(bytes);
+        out.writeLong(sinceVersion);
+        out.writeInt(limit);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    public static PullRequest decodePullRequest(byte[] message) throws IOException {
+        DataInputStream in = open(message);
+        try {
+            return new PullRequest(in.readLong(), in.readInt());
+        } finally {
+            in.close();
+        }
+    }
+
+    public static byte[] encodeRecords(List<SyncRecord> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = open(bytes);
+        out.writeInt(records.size());
+        for (SyncRecord record : records) {
+            writeRecord(out, record);
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    public static List<SyncRecord> decodeRecords(byte[] message) throws IOException {
+        DataInputStream in = open(message);
+        try {
+            int count = readCount(in);
+            List<SyncRecord> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                records.add(readRecord(in));
+            }
+            return records;
+        } finally {
+            in.close();
+        }
+    }
+
+    public static byte[] encodePushResults(List<PushResult> results) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = open(bytes);
+        out.writeInt(results.size());
+        for (PushResult result : results) {
+            out.writeBoolean(result.accepted);
+            writeRecord(out, result.record);
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    public static List<PushResult> decodePushResults(byte[] message) throws IOException {
+        DataInputStream in = open(message);
+        try {
+            int count = readCount(in);
+            List<PushResult> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                boolean accepted = in.readBoolean();
+                results.add(new PushResult(accepted, readRecord(in)));
+            }
+            return results;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static DataOutputStream open(ByteArrayOutputStream bytes) throws IOException {
+        DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes));
+        out.writeInt(FORMAT_VERSION);
+        return out;
+    }
+
+    private static DataInputStream open(byte[] message) throws IOException {
+        DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(message)));
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            in.close();
+            throw new IOException("Unsupported sync message format " + version);
+        }
+        return in;
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid record count " + count);
+        }
+        return count;
+    }
+
+    private static void writeRecord(DataOutputStream out, SyncRecord record) throws IOException {
+        out.writeLong(record.productId);
+        out.writeLong(record.version);
+        out.writeLong(record.changedAt);
+        out.writeBoolean(record.deleted);
+        if (!record.deleted) {
+            out.writeUTF(record.name);
+            out.writeLong(record.price);
+            out.writeLong(record.quantity);
+            out.writeUTF(record.supplier);
+            out.writeLong(record.supplierPhone);
+        }
+    }
+
+    private static SyncRecord readRecord(DataInputStream in) throws IOException {
+        long productId = in.readLong();
+        long version = in.readLong();
+        long changedAt = in.readLong();
+        if (in.readBoolean()) {
+            return SyncRecord.deletion(productId, version, changedAt);
+        }
+        return new SyncRecord(productId, version, changedAt, in.readUTF(), in.readLong(),
+                in.readLong(), in.readUTF(), in.readLong());
+    }
+}
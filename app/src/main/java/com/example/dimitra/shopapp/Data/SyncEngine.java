@@ -0,0 +1,399 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.OperationApplicationException;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.RemoteException;
+import android.util.Log;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ChangeEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the catalog in step with the back office by exchanging only what changed.
+ *
+ * Every product carries the version it had on the back office when it was last synced. A sync
+ * first reads the local changes made since the last push from the change log, then pulls the
+ * back office changes made since the last pull and applies them with
+ * {@link ContentResolver#applyBatch} as the sync adapter, so they don't enter the change log.
+ * A product changed on both sides is a conflict, settled by a {@link ConflictResolver}. Finally
+ * the local changes are pushed, each with the version it was based on; the back office rejects
+ * a change whose version is out of date, and the resolver settles that too.
+ *
+ * Both directions work in batches of at most {@link #DEFAULT_BATCH_SIZE} products, so the data
+ * sent and applied grows with the number of changes, not with the size of the catalog. Changes
+ * this device pushed come back once on the next pull, and are skipped because their version is
+ * already stored.
+ *
+ * Syncing blocks on the transport and the database, so it must not run on the main thread.
+ */
+public final class SyncEngine {
+
+    private static final String LOG_TAG = SyncEngine.class.getSimpleName();
+
+    /** Number of products per request unless the constructor is given another one. */
+    public static final int DEFAULT_BATCH_SIZE = 200;
+
+    private static final String PREFERENCES_NAME = "product_sync";
+
+    /** Highest back office version pulled so far. */
+    private static final String KEY_PULLED_VERSION = "pulledVersion";
+
+    /** Sequence number of the last local change pushed to the back office. */
+    private static final String KEY_PUSHED_CHANGE = "pushedChange";
+
+    /** Times a batch is pushed again after conflicts before the sync gives up. */
+    private static final int MAX_PUSH_ATTEMPTS = 3;
+
+    /** Columns read from the change log, in the order used by {@link #readPendingChanges}. */
+    private static final String[] CHANGE_COLUMNS = {
+            ChangeEntry._ID,
+            ChangeEntry.COLUMN_PRODUCT_ID,
+            ChangeEntry.COLUMN_OPERATION,
+            ChangeEntry.COLUMN_CHANGED_AT,
+            ProductEntry.COLUMN_PRODUCT_NAME,
+            ProductEntry.COLUMN_PRODUCT_PRICE,
+            ProductEntry.COLUMN_PRODUCT_QUANTITY,
+            ProductEntry.COLUMN_PRODUCT_SUPPLIER,
+            ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER,
+            ProductEntry.COLUMN_PRODUCT_VERSION
+    };
+
+    /** What one sync did. */
+    public static final class Result {
+
+        /** Number of changes received from the back office, including echoes of our own. */
+        public final int pulled;
+
+        /** Number of local changes the back office accepted. */
+        public final int pushed;
+
+        /** Number of products changed on both sides. */
+        public final int conflicts;
+
+        /** Compressed bytes sent and received. */
+        public final long bytesSent;
+        public final long bytesReceived;
+
+        Result(int pulled, int pushed, int conflicts, long bytesSent, long bytesReceived) {
+            this.pulled = pulled;
+            this.pushed = pushed;
+            this.conflicts = conflicts;
+            this.bytesSent = bytesSent;
+            this.bytesReceived = bytesReceived;
+        }
+    }
+
+    private final ContentResolver mResolver;
+
+    private final SharedPreferences mState;
+
+    private final SyncTransport mTransport;
+
+    private final ConflictResolver mConflictResolver;
+
+    private final int mBatchSize;
+
+    private int mConflicts;
+
+    private long mBytesSent;
+
+    private long mBytesReceived;
+
+    public SyncEngine(Context context, SyncTransport transport, ConflictResolver conflictResolver) {
+        this(context.getContentResolver(),
+                context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE),
+                transport, conflictResolver, DEFAULT_BATCH_SIZE);
+    }
+
+    SyncEngine(ContentResolver resolver, SharedPreferences state, SyncTransport transport,
+               ConflictResolver conflictResolver, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        mResolver = resolver;
+        mState = state;
+        mTransport = transport;
+        mConflictResolver = conflictResolver;
+        mBatchSize = batchSize;
+    }
+
+    /**
+     * Pull the changes made on the back office and push the ones made on the device. A failed
+     * sync can simply be run again: what was applied on either side is recognised by its
+     * version and not applied twice.
+     */
+    public synchronized Result sync() throws IOException {
+        mConflicts = 0;
+        mBytesSent = 0;
+        mBytesReceived = 0;
+
+        long pushedChange = mState.getLong(KEY_PUSHED_CHANGE, 0);
+        Map<Long, SyncRecord> pending = new LinkedHashMap<>();
+        long lastChange = readPendingChanges(pushedChange, pending);
+        int pulled = pull(pending);
+        int pushed = push(new ArrayList<>(pending.values()));
+        if (lastChange > pushedChange) {
+            mState.edit().putLong(KEY_PUSHED_CHANGE, lastChange).apply();
+            compactChanges(lastChange);
+        }
+        Log.i(LOG_TAG, "Pulled " + pulled + " and pushed " + pushed + " changes, " + mConflicts
+                + " conflicts, " + mBytesSent + " bytes sent, " + mBytesReceived + " received");
+        return new Result(pulled, pushed, mConflicts, mBytesSent, mBytesReceived);
+    }
+
+    /**
+     * Read the latest change of every product changed after the given change into
+     * {@code pending}. Return the sequence number of the last change read.
+     */
+    private long readPendingChanges(long since, Map<Long, SyncRecord> pending) {
+        long last = since;
+        int count;
+        do {
+            Cursor cursor = mResolver.query(ChangeEntry.buildChangesUri(last, mBatchSize), CHANGE_COLUMNS,
+                    null, null, null);
+            if (cursor == null) {
+                break;
+            }
+            try {
+                count = cursor.getCount();
+                while (cursor.moveToNext()) {
+                    last = cursor.getLong(0);
+                    long productId = cursor.getLong(1);
+                    long changedAt = cursor.getLong(3);
+                    if (ChangeEntry.OPERATION_DELETE.equals(cursor.getString(2))) {
+                        // The version of the tombstone, or 0 if it has been purged since, in
+                        // which case the back office rejects the deletion and it is pushed again
+                        // with the version it returns.
+                        pending.put(productId, SyncRecord.deletion(productId, cursor.getLong(9), changedAt));
+                    } else if (!cursor.isNull(4)) {
+                        pending.put(productId, new SyncRecord(productId, cursor.getLong(9), changedAt,
+                                cursor.getString(4), cursor.getLong(5), cursor.getLong(6),
+                                cursor.getString(7), cursor.getLong(8)));
+                    }
+                    // Otherwise the sync adapter has deleted the product since; there is
+                    // nothing left to push.
+                }
+            } finally {
+                cursor.close();
+            }
+        } while (count == mBatchSize);
+        return last;
+    }
+
+    /**
+     * Pull and apply the back office changes made since the last pull. Return how many there were.
+     */
+    private int pull(Map<Long, SyncRecord> pending) throws IOException {
+        long since = mState.getLong(KEY_PULLED_VERSION, 0);
+        int pulled = 0;
+        List<SyncRecord> batch;
+        do {
+            batch = SyncCodec.decodeRecords(received(mTransport.pull(
+                    sent(SyncCodec.encodePullRequest(since, mBatchSize)))));
+            applyRemote(batch, pending);
+            for (SyncRecord record : batch) {
+                since = Math.max(since, record.version);
+            }
+            // Saved after each batch, so an interrupted sync resumes where it stopped.
+            mState.edit().putLong(KEY_PULLED_VERSION, since).apply();
+            pulled += batch.size();
+        } while (batch.size() == mBatchSize);
+        return pulled;
+    }
+
+    /**
+     * Push the given local changes in batches. Return how many the back office accepted.
+     */
+    private int push(List<SyncRecord> changes) throws IOException {
+        int pushed = 0;
+        for (int start = 0; start < changes.size(); start += mBatchSize) {
+            List<SyncRecord> batch = changes.subList(start, Math.min(start + mBatchSize, changes.size()));
+            for (int attempt = 0; !batch.isEmpty(); attempt++) {
+                if (attempt == MAX_PUSH_ATTEMPTS) {
+                    throw new IOException("Back office keeps rejecting " + batch.size() + " changes");
+                }
+                List<SyncCodec.PushResult> results = SyncCodec.decodePushResults(received(
+                        mTransport.push(sent(SyncCodec.encodeRecords(batch)))));
+                if (results.size() != batch.size()) {
+                    throw new IOException("Sent " + batch.size() + " changes but got "
+                            + results.size() + " results");
+                }
+
+                ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+                List<SyncRecord> remoteWins = new ArrayList<>();
+                List<SyncRecord> retry = new ArrayList<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    SyncRecord local = batch.get(i);
+                    SyncRecord remote = results.get(i).record;
+                    if (results.get(i).accepted) {
+                        pushed++;
+                        if (!local.deleted) {
+                            // Record the version the change got, so it isn't pulled back in.
+                            operations.add(ContentProviderOperation.newUpdate(productUri(local.productId))
+                                    .withValue(ProductEntry.COLUMN_PRODUCT_VERSION, remote.version)
+                                    .build());
+                        }
+                        continue;
+                    }
+                    // Someone else changed the product since this device last pulled it.
+                    mConflicts++;
+                    if (remote.deleted) {
+                        remoteWins.add(remote);
+                    } else if (local.deleted || mConflictResolver.keepLocal(local, remote)) {
+                        retry.add(local.withVersion(remote.version));
+                    } else {
+                        remoteWins.add(remote);
+                    }
+                }
+                apply(operations);
+                applyRemote(remoteWins, Collections.<Long, SyncRecord>emptyMap());
+                batch = retry;
+            }
+        }
+        return pushed;
+    }
+
+    /**
+     * Apply changes from the back office in one batch. A product with a pending local change is
+     * a conflict: if the local change wins, it stays pending, now based on the remote version;
+     * otherwise it is dropped from {@code pending}. Changes whose version is already stored are
+     * skipped.
+     */
+    private void applyRemote(List<SyncRecord> remote, Map<Long, SyncRecord> pending) throws IOException {
+        if (remote.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> versions = readVersions(remote);
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        for (SyncRecord record : remote) {
+            SyncRecord local = pending.get(record.productId);
+            if (local != null) {
+                if (local.deleted) {
+                    // The product stays deleted; the deletion is pushed next.
+                    continue;
+                }
+                if (!record.deleted) {
+                    mConflicts++;
+                    if (mConflictResolver.keepLocal(local, record)) {
+                        pending.put(record.productId, local.withVersion(record.version));
+                        continue;
+                    }
+                }
+                pending.remove(record.productId);
+            }
+
+            Long version = versions.get(record.productId);
+            if (version != null && version >= record.version) {
+                continue;
+            }
+            if (record.deleted) {
+                if (version != null) {
+                    operations.add(ContentProviderOperation.newDelete(productUri(record.productId).buildUpon()
+                            .appendQueryParameter(ProductEntry.QUERY_PARAMETER_VERSION,
+                                    String.valueOf(record.version))
+                            .build()).build());
+                }
+            } else if (version == null) {
+                ContentValues values = toValues(record);
+                values.put(ProductEntry._ID, record.productId);
+                operations.add(ContentProviderOperation.newInsert(
+                        ProductContract.asSyncAdapter(ProductEntry.CONTENT_URI)).withValues(values).build());
+            } else {
+                operations.add(ContentProviderOperation.newUpdate(productUri(record.productId))
+                        .withValues(toValues(record)).build());
+            }
+        }
+        apply(operations);
+    }
+
+    /**
+     * Return the stored version of each of the given products that is in the catalog.
+     */
+    private Map<Long, Long> readVersions(List<SyncRecord> records) {
+        StringBuilder selection = new StringBuilder(ProductEntry._ID + " IN (");
+        String[] args = new String[records.size()];
+        for (int i = 0; i < args.length; i++) {
+            selection.append(i == 0 ? "?" : ",?");
+            args[i] = String.valueOf(records.get(i).productId);
+        }
+        selection.append(')');
+
+        Map<Long, Long> versions = new HashMap<>();
+        Cursor cursor = mResolver.query(ProductEntry.CONTENT_URI,
+                new String[]{ProductEntry._ID, ProductEntry.COLUMN_PRODUCT_VERSION},
+                selection.toString(), args, null);
+        if (cursor != null) {
+            try {
+                while (cursor.moveToNext()) {
+                    versions.put(cursor.getLong(0), cursor.getLong(1));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return versions;
+    }
+
+    private void apply(ArrayList<ContentProviderOperation> operations) throws IOException {
+        if (operations.isEmpty()) {
+            return;
+        }
+        try {
+            mResolver.applyBatch(ProductContract.CONTENT_AUTHORITY, operations);
+        } catch (RemoteException e) {
+            throw new IOException("Could not apply " + operations.size() + " changes", e);
+        } catch (OperationApplicationException e) {
+            throw new IOException("Could not apply " + operations.size() + " changes", e);
+        }
+    }
+
+    /**
+     * Drop the change log entries the back office no longer needs.
+     */
+    private void compactChanges(long acknowledged) {
+        Bundle extras = new Bundle();
+        extras.putLong(ProductContract.KEY_ACKNOWLEDGED_SEQUENCE, acknowledged);
+        mResolver.call(ProductEntry.CONTENT_URI, ProductContract.METHOD_COMPACT_CHANGES, null, extras);
+    }
+
+    private static Uri productUri(long productId) {
+        return ProductContract.asSyncAdapter(ContentUris.withAppendedId(ProductEntry.CONTENT_URI, productId));
+    }
+
+    private static ContentValues toValues(SyncRecord record) {
+        ContentValues values = new ContentValues();
+        values.put(ProductEntry.COLUMN_PRODUCT_NAME, record.name);
+        values.put(ProductEntry.COLUMN_PRODUCT_PRICE, record.price);
+        values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, record.quantity);
+        values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, record.supplier);
+        values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, record.supplierPhone);
+        values.put(ProductEntry.COLUMN_PRODUCT_VERSION, record.version);
+        return values;
+    }
+
+    private byte[] sent(byte[] message) {
+        mBytesSent += message.length;
+        return message;
+    }
+
+    private byte[] received(byte[] message) {
+        mBytesReceived += message.length;
+        return message;
+    }
+}
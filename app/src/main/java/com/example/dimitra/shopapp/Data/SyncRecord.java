@@ -0,0 +1,75 @@
+package com.example.dimitra.shopapp.Data;
+
+/**
+ * One product as exchanged with the back office: its values at a given version, or the fact
+ * that it was deleted. Records sent by the device carry the version their change was based on.
+ */
+public final class SyncRecord {
+
+    /**
+     * Lowest id of a product created on a device. The back office gives the products created
+     * there ids below it; each device gives its own ids from a range of its own above it.
+     */
+    public static final long MIN_DEVICE_ID = 1L << 32;
+
+    /** Id of the product, shared by the device and the back office. */
+    public final long productId;
+
+    /** Version of the product on the back office; 0 for a product the back office hasn't seen. */
+    public final long version;
+
+    /** Whether the product was deleted. The values below are unset if it was. */
+    public final boolean deleted;
+
+    /** When the change was made, in milliseconds since the epoch. */
+    public final long changedAt;
+
+    public final String name;
+
+    /** Price in cents. */
+    public final long price;
+
+    public final long quantity;
+
+    public final String supplier;
+
+    public final long supplierPhone;
+
+    public SyncRecord(long productId, long version, long changedAt, String name, long price,
+                      long quantity, String supplier, long supplierPhone) {
+        this(productId, version, false, changedAt, name, price, quantity, supplier, supplierPhone);
+    }
+
+    private SyncRecord(long productId, long version, boolean deleted, long changedAt, String name,
+                       long price, long quantity, String supplier, long supplierPhone) {
+        this.productId = productId;
+        this.version = version;
+        this.deleted = deleted;
+        this.changedAt = changedAt;
+        this.name = name;
+        this.price = price;
+        this.quantity = quantity;
+        this.supplier = supplier;
+        this.supplierPhone = supplierPhone;
+    }
+
+    /**
+     * Returns a record of the deletion of a product.
+     */
+    public static SyncRecord deletion(long productId, long version, long changedAt) {
+        return new SyncRecord(productId, version, true, changedAt, null, 0, 0, null, 0);
+    }
+
+    /**
+     * Returns a copy of this record with another version.
+     */
+    public SyncRecord withVersion(long version) {
+        return new SyncRecord(productId, version, deleted, changedAt, name, price, quantity,
+                supplier, supplierPhone);
+    }
+
+    @Override
+    public String toString() {
+        return "SyncRecord{" + productId + " v" + version + (deleted ? " deleted" : " " + name) + "}";
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.dimitra.shopapp.Data;
+
+import java.io.IOException;
+
+/**
+ * Carries the requests of {@link SyncEngine} to the back office and brings back its responses.
+ * Payloads are compressed messages in the format of {@link SyncCodec}; a transport only moves
+ * the bytes, over HTTP or, in tests, to a server in the same process.
+ */
+public interface SyncTransport {
+
+    /**
+     * Ask for the changes after a version. The request is a {@link SyncCodec#encodePullRequest}
+     * message and the response a {@link SyncCodec#encodeRecords} message.
+     */
+    byte[] pull(byte[] request) throws IOException;
+
+    /**
+     * Send changes made on the device. The request is a {@link SyncCodec#encodeRecords} message
+     * and the response a {@link SyncCodec#encodePushResults} message.
+     */
+    byte[] push(byte[] request) throws IOException;
+}
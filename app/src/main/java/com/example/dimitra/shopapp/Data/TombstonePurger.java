@@ -0,0 +1,142 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.util.Log;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+/**
+ * Removes deleted products from the database in the background.
+ *
+ * Deleting a product only sets its {@link ProductEntry#COLUMN_PRODUCT_DELETED_AT} tombstone, and
+ * deleting the whole catalog only starts a new {@link ProductDbHelper#COLUMN_GENERATION}, so
+ * either is a quick write. The rest is done here later: once no product has been written for
+ * {@link #IDLE_DELAY_MILLIS}, the products of earlier generations get their tombstones, which
+ * logs their deletion, and then tombstoned rows and their entries in the search index are
+ * deleted. Both go {@link #BATCH_SIZE} products at a time, each batch in its own short
+ * transaction, so other writers never wait long for the database.
+ */
+final class TombstonePurger {
+
+    private static final String LOG_TAG = TombstonePurger.class.getSimpleName();
+
+    /** Time in milliseconds without writes after which purging starts. */
+    static final long IDLE_DELAY_MILLIS = 2000;
+
+    /** Pause in milliseconds between two batches, which lets other writers in. */
+    static final long BATCH_DELAY_MILLIS = 50;
+
+    /** Number of products marked or removed by one batch. */
+    static final int BATCH_SIZE = 500;
+
+    private static final String SQL_MARK_BATCH = "UPDATE " + ProductEntry.TABLE_NAME + " SET "
+            + ProductEntry.COLUMN_PRODUCT_DELETED_AT + " = ? WHERE " + ProductEntry._ID + " IN (SELECT "
+            + ProductEntry._ID + " FROM " + ProductEntry.TABLE_NAME + " WHERE "
+            + ProductDbHelper.NOT_TOMBSTONED + " AND " + ProductDbHelper.COLUMN_GENERATION + " < "
+            + ProductDbHelper.SQL_CURRENT_GENERATION + " LIMIT " + BATCH_SIZE + ")";
+
+    private static final String SQL_PURGE_BATCH = "DELETE FROM " + ProductEntry.TABLE_NAME
+            + " WHERE " + ProductEntry._ID + " IN (SELECT " + ProductEntry._ID + " FROM "
+            + ProductEntry.TABLE_NAME + " WHERE " + ProductEntry.COLUMN_PRODUCT_DELETED_AT
+            + " IS NOT NULL LIMIT " + BATCH_SIZE + ")";
+
+    private final ProductDbHelper mDbHelper;
+
+    private final Handler mHandler;
+
+    private final Runnable mPurgeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // Products just marked are purged next.
+            if (markBatch() != 0 || purgeBatch() == BATCH_SIZE) {
+                // There may be more; carry on unless a write comes in first.
+                mHandler.postDelayed(this, BATCH_DELAY_MILLIS);
+            }
+        }
+    };
+
+    /**
+     * Create a purger that runs its batches on the given handler, of a background thread.
+     */
+    TombstonePurger(ProductDbHelper dbHelper, Handler handler) {
+        mDbHelper = dbHelper;
+        mHandler = handler;
+    }
+
+    /**
+     * Record that products were written. Purging waits until writes have stopped for
+     * {@link #IDLE_DELAY_MILLIS}, and a purge in progress pauses after its current batch.
+     */
+    void onWrite() {
+        mHandler.removeCallbacks(mPurgeRunnable);
+        mHandler.postDelayed(mPurgeRunnable, IDLE_DELAY_MILLIS);
+    }
+
+    /**
+     * Give every product of an earlier generation its tombstone right away, still one batch at
+     * a time, so the change log has the deletion of each of them.
+     */
+    void markAll() {
+        int marked;
+        do {
+            marked = markBatch();
+        } while (marked == BATCH_SIZE);
+    }
+
+    /**
+     * Remove every deleted product right away, still one batch at a time. Return the number
+     * of products removed.
+     */
+    int purgeAll() {
+        mHandler.removeCallbacks(mPurgeRunnable);
+        markAll();
+        int total = 0;
+        int purged;
+        do {
+            purged = purgeBatch();
+            total += purged;
+        } while (purged == BATCH_SIZE);
+        return total;
+    }
+
+    /**
+     * Give up to {@link #BATCH_SIZE} products of earlier generations their tombstones. The
+     * change log triggers log their deletion; the inventory summary left them out when their
+     * generation ended. Return the number of products marked.
+     */
+    private int markBatch() {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        SQLiteStatement statement = db.compileStatement(SQL_MARK_BATCH);
+        try {
+            statement.bindLong(1, System.currentTimeMillis());
+            int marked = statement.executeUpdateDelete();
+            if (marked != 0) {
+                Log.d(LOG_TAG, "Marked " + marked + " products of earlier generations as deleted");
+            }
+            return marked;
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Remove up to {@link #BATCH_SIZE} tombstoned products. The search index triggers drop their
+     * entries too; the inventory summary left them out when they were deleted. Return the number
+     * of products removed.
+     */
+    private int purgeBatch() {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        SQLiteStatement statement = db.compileStatement(SQL_PURGE_BATCH);
+        try {
+            int purged = statement.executeUpdateDelete();
+            if (purged != 0) {
+                Log.d(LOG_TAG, "Purged " + purged + " deleted products");
+            }
+            return purged;
+        } finally {
+            statement.close();
+        }
+    }
+}
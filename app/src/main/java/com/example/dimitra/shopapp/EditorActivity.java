@@ -4,6 +4,7 @@ import android.app.AlertDialog;
 import android.app.LoaderManager;
 import android.content.ContentUris;
 import android.content.ContentValues;
+import android.content.Context;
 import android.content.CursorLoader;
 import android.content.DialogInterface;
 import android.content.Intent;
@@ -25,6 +26,8 @@ import android.widget.EditText;
 import android.widget.Toast;
 
 import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+import com.example.dimitra.shopapp.Data.ProductRepository;
+import com.example.dimitra.shopapp.Data.ProviderMetrics;
 
 import java.util.List;
 
@@ -58,10 +61,22 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
 
     private static final int EXISTING_PRODUCT_LOADER = 0;
 
+    /** Operation timed from creating the loader to its first delivery, in {@link ProviderMetrics}. */
+    private static final String METRIC_LOAD = "load product";
+
+    /** When the loader was created, until it first delivers the product. */
+    private long mLoadStart = ProviderMetrics.NOT_TIMED;
+
+    /** Makes every write in the background, so the UI thread never touches the database. */
+    private ProductRepository mRepository;
+
     private Uri mCurrentProductUri;
 
     private boolean mProductHasChanged = false;
 
+    /** Quantity of the product as last read from or written to the database, or -1 if unknown. */
+    private long mSavedQuantity = -1;
+
     Button contactButton;
 
     Button sellButton;
@@ -72,6 +87,7 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_editor);
+        mRepository = ProductRepository.getInstance(this);
         Intent intent = getIntent();
         mCurrentProductUri = intent.getData();
         if (mCurrentProductUri == null) {
@@ -119,29 +135,49 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
         sellButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                String quantityString = mQuantityEditText.getText().toString().trim();
-                int quantityInt = Integer.parseInt(quantityString);
-                if (!TextUtils.isEmpty(quantityString))
-                    quantityInt -= 1;
-                else
-                    Toast.makeText(getApplicationContext(), getString(R.string.sell_product_failed), Toast.LENGTH_SHORT).show();
-                mQuantityEditText.setText(Integer.toString(quantityInt));
+                adjustQuantity(-1, R.string.sell_product_failed);
             }
         });
         addButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                String quantityString = mQuantityEditText.getText().toString().trim();
-                int quantityInt = Integer.parseInt(quantityString);
-                if (!TextUtils.isEmpty(quantityString))
-                    quantityInt += 1;
-                else
-                    Toast.makeText(getApplicationContext(), getString(R.string.add_product_failed), Toast.LENGTH_SHORT).show();
-                mQuantityEditText.setText(Integer.toString(quantityInt));
+                adjustQuantity(1, R.string.add_product_failed);
             }
         });
     }
 
+    /**
+     * Sell or restock one product. For an existing product the change is applied by the provider
+     * in a single statement, so sales made from two screens are never lost. A new product isn't
+     * stored yet, so only the quantity field changes.
+     */
+    private void adjustQuantity(int delta, final int failedMessage) {
+        if (mCurrentProductUri == null) {
+            String quantityString = mQuantityEditText.getText().toString().trim();
+            int quantity = TextUtils.isEmpty(quantityString) ? 0 : Integer.parseInt(quantityString);
+            if (quantity + delta < 0) {
+                Toast.makeText(getApplicationContext(), getString(failedMessage), Toast.LENGTH_SHORT).show();
+                return;
+            }
+            mQuantityEditText.setText(Integer.toString(quantity + delta));
+            return;
+        }
+
+        mRepository.adjustQuantity(ContentUris.parseId(mCurrentProductUri), delta,
+                new ProductRepository.Callback<Long>() {
+                    @Override
+                    public void onResult(Long quantity) {
+                        if (quantity == null) {
+                            Toast.makeText(getApplicationContext(), getString(failedMessage),
+                                    Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        mSavedQuantity = quantity;
+                        mQuantityEditText.setText(Long.toString(quantity));
+                    }
+                });
+    }
+
     /**
      * Get user input from editor and save new product into database.
      */
@@ -161,6 +197,14 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
             Toast.makeText(this, getString(R.string.empty_price),Toast.LENGTH_SHORT).show();
             return;
         }
+        // Prices are stored in cents, so "1.5" Euro is saved as 150.
+        long priceCents;
+        try {
+            priceCents = NumberFormatter.parseCents(priceString);
+        } catch (NumberFormatException e) {
+            Toast.makeText(this, getString(R.string.invalid_price),Toast.LENGTH_SHORT).show();
+            return;
+        }
         if (TextUtils.isEmpty(quantityString)) {
             Toast.makeText(this, getString(R.string.empty_quantity),Toast.LENGTH_SHORT).show();
             return;
@@ -177,7 +221,7 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
         // and product attributes from the editor are the values.
         ContentValues values = new ContentValues();
         values.put(ProductEntry.COLUMN_PRODUCT_NAME, nameString);
-        values.put(ProductEntry.COLUMN_PRODUCT_PRICE, priceString);
+        values.put(ProductEntry.COLUMN_PRODUCT_PRICE, priceCents);
         values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER, supplierString);
         values.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, supplierPhoneString);
 
@@ -187,35 +231,47 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
         if (!TextUtils.isEmpty(quantityString)) {
             quantity = Integer.parseInt(quantityString);
         }
-        values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, quantity);
+        // Sales and restocks are already stored, so only write the quantity if it was typed in.
+        // Otherwise saving would overwrite sales made elsewhere in the meantime.
+        if (mCurrentProductUri == null || quantity != mSavedQuantity) {
+            values.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, quantity);
+        }
 
+        // The write finishes in the background after the editor has closed, so the result is
+        // shown with the application context.
+        final Context appContext = getApplicationContext();
         // Determine if this is a new or existing product by checking if mCurrentPetUri is null or not
         if (mCurrentProductUri == null) {
             // This is a NEW pet, so insert a new pet into the provider,
             // returning the content URI for the new pet.
-            Uri newUri = getContentResolver().insert(ProductEntry.CONTENT_URI, values);
-
-            if (newUri == null) {
-                Toast.makeText(this, getString(R.string.editor_insert_product_failed),
-                        Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(this, getString(R.string.editor_insert_product_successful),
-                        Toast.LENGTH_SHORT).show();
-            }
+            mRepository.insert(values, new ProductRepository.Callback<Uri>() {
+                @Override
+                public void onResult(Uri newUri) {
+                    if (newUri == null) {
+                        Toast.makeText(appContext, appContext.getString(R.string.editor_insert_product_failed),
+                                Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(appContext, appContext.getString(R.string.editor_insert_product_successful),
+                                Toast.LENGTH_SHORT).show();
+                    }
+                }
+            });
         } else {
             // Otherwise this is an EXISTING product, so update the pet with content URI: mCurrentProductUri
-            // and pass in the new ContentValues. Pass in null for the selection and selection args
-            // because mCurrentProductUri will already identify the correct row in the database that
-            // we want to modify.
-            int rowsAffected = getContentResolver().update(mCurrentProductUri, values, null, null);
-
-            if (rowsAffected == 0) {
-                Toast.makeText(this, getString(R.string.editor_update_product_failed),
-                        Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(this, getString(R.string.editor_update_product_successful),
-                        Toast.LENGTH_SHORT).show();
-            }
+            // and pass in the new ContentValues. mCurrentProductUri already identifies the
+            // correct row in the database that we want to modify.
+            mRepository.update(mCurrentProductUri, values, new ProductRepository.Callback<Integer>() {
+                @Override
+                public void onResult(Integer rowsAffected) {
+                    if (rowsAffected == 0) {
+                        Toast.makeText(appContext, appContext.getString(R.string.editor_update_product_failed),
+                                Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(appContext, appContext.getString(R.string.editor_update_product_successful),
+                                Toast.LENGTH_SHORT).show();
+                    }
+                }
+            });
         }
         finish();
     }
@@ -269,6 +325,7 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
                 ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
         };
 
+        mLoadStart = ProviderMetrics.getInstance().start();
         return new CursorLoader(this,
                 mCurrentProductUri,
                 projection,
@@ -279,6 +336,9 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
 
     @Override
     public void onLoadFinished(Loader<Cursor> loader, Cursor cursor) {
+        // Only the first load is timed; the product reloads after every sale.
+        ProviderMetrics.getInstance().stop(METRIC_LOAD, mLoadStart);
+        mLoadStart = ProviderMetrics.NOT_TIMED;
         if (cursor == null || cursor.getCount() < 1) {
             return;
         }
@@ -291,19 +351,55 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
             int supplierPhoneColumnIndex = cursor.getColumnIndex(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER);
 
             String name = cursor.getString(nameColumnIndex);
-            int price = cursor.getInt(priceColumnIndex);
+            long price = cursor.getLong(priceColumnIndex);
             int quantity = cursor.getInt(quantityColumnIndex);
             String supplier = cursor.getString(supplierColumnIndex);
             int supplierPhone = cursor.getInt(supplierPhoneColumnIndex);
 
+            // The product reloads after every change to it, made here or anywhere else. Keep
+            // what the user is typing, and only bring the quantity up to date.
+            long previousQuantity = mSavedQuantity;
+            mSavedQuantity = quantity;
+            if (mProductHasChanged) {
+                refreshTypedQuantity(previousQuantity, quantity);
+                return;
+            }
+
             mNameEditText.setText(name);
-            mPriceEditText.setText(Integer.toString(price));
+            mPriceEditText.setText(NumberFormatter.formatCents(price));
             mQuantityEditText.setText(Integer.toString(quantity));
             mSupplierEditText.setText(supplier);
             mSupplierPhoneEditText.setText(Integer.toString(supplierPhone));
         }
     }
 
+    /**
+     * Bring the quantity field up to date with a stored quantity that changed from
+     * {@code previousQuantity}. A field that still shows the previous quantity shows the new
+     * one. A quantity the user typed moves by the same amount, so the change isn't lost when
+     * the product is saved.
+     */
+    private void refreshTypedQuantity(long previousQuantity, long quantity) {
+        String quantityString = mQuantityEditText.getText().toString().trim();
+        if (previousQuantity == -1 || quantityString.equals(Long.toString(previousQuantity))) {
+            if (previousQuantity != -1 || TextUtils.isEmpty(quantityString)) {
+                mQuantityEditText.setText(Long.toString(quantity));
+            }
+            return;
+        }
+        if (quantity == previousQuantity) {
+            return;
+        }
+        long typedQuantity;
+        try {
+            typedQuantity = Long.parseLong(quantityString);
+        } catch (NumberFormatException e) {
+            // Not a number, so there is nothing to move.
+            return;
+        }
+        mQuantityEditText.setText(Long.toString(Math.max(0, typedQuantity + quantity - previousQuantity)));
+    }
+
     @Override
     public void onLoaderReset(Loader<Cursor> loader) {
         mNameEditText.setText("");
@@ -408,18 +504,21 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
     private void deleteProduct() {
         // Only perform the delete if this is an existing product.
         if (mCurrentProductUri != null) {
-            // Call the ContentResolver to delete the product at the given content URI.
-            // Pass in null for the selection and selection args because the mCurrentProductUri
-            // content URI already identifies the product that we want.
-            int rowsAffected = getContentResolver().delete(mCurrentProductUri, null, null);
-            if (rowsAffected == 0) {
-                Toast.makeText(this, getString(R.string.editor_delete_product_failed),
-                        Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(this, getString(R.string.editor_delete_product_successful),
-                        Toast.LENGTH_SHORT).show();
-                finish();
-            }
+            // Delete the product at the given content URI in the background. The
+            // mCurrentProductUri content URI already identifies the product that we want.
+            mRepository.delete(mCurrentProductUri, new ProductRepository.Callback<Integer>() {
+                @Override
+                public void onResult(Integer rowsAffected) {
+                    if (rowsAffected == 0) {
+                        Toast.makeText(getApplicationContext(), getString(R.string.editor_delete_product_failed),
+                                Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(getApplicationContext(), getString(R.string.editor_delete_product_successful),
+                                Toast.LENGTH_SHORT).show();
+                        finish();
+                    }
+                }
+            });
         }
     }
 }
\ No newline at end of file
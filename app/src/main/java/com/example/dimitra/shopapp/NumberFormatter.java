@@ -0,0 +1,100 @@
+package com.example.dimitra.shopapp;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Formats whole numbers into caller-owned char buffers, so list rows can show numbers without
+ * creating a new {@link String} for every bind.
+ */
+public final class NumberFormatter {
+
+    /** Number of chars needed to format any {@code long}, including the sign. */
+    public static final int MAX_LONG_CHARS = 20;
+
+    /** Number of chars needed to format any amount of cents, see {@link #formatCents}. */
+    public static final int MAX_CENTS_CHARS = MAX_LONG_CHARS + 3;
+
+    private NumberFormatter() {}
+
+    /**
+     * Write the decimal digits of the given value at the start of the buffer.
+     *
+     * @param value  The number to format
+     * @param buffer Buffer of at least {@link #MAX_LONG_CHARS} chars
+     * @return the number of chars written
+     */
+    public static int format(long value, char[] buffer) {
+        // Work with the negative value so Long.MIN_VALUE does not overflow.
+        boolean negative = value < 0;
+        long remaining = negative ? value : -value;
+
+        int length = 0;
+        do {
+            buffer[length++] = (char) ('0' - (remaining % 10));
+            remaining /= 10;
+        } while (remaining != 0);
+        if (negative) {
+            buffer[length++] = '-';
+        }
+
+        // The digits were written from the lowest one up, so reverse them in place.
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            char c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+        return length;
+    }
+
+    /**
+     * Write an amount of cents as units and two decimals, for example 150 as "1.50", at the start
+     * of the buffer.
+     *
+     * @param cents  The amount to format
+     * @param buffer Buffer of at least {@link #MAX_CENTS_CHARS} chars
+     * @return the number of chars written
+     */
+    public static int formatCents(long cents, char[] buffer) {
+        long units = cents / 100;
+        int fraction = (int) Math.abs(cents % 100);
+
+        int length;
+        if (cents < 0 && units == 0) {
+            // -0.50 has no negative units to carry the sign.
+            buffer[0] = '-';
+            buffer[1] = '0';
+            length = 2;
+        } else {
+            length = format(units, buffer);
+        }
+        buffer[length++] = '.';
+        buffer[length++] = (char) ('0' + fraction / 10);
+        buffer[length++] = (char) ('0' + fraction % 10);
+        return length;
+    }
+
+    /**
+     * Format an amount of cents as a {@link String}, see {@link #formatCents(long, char[])}.
+     */
+    public static String formatCents(long cents) {
+        char[] buffer = new char[MAX_CENTS_CHARS];
+        return new String(buffer, 0, formatCents(cents, buffer));
+    }
+
+    /**
+     * Parse a decimal amount such as "1.5" into whole cents, rounding half up past two decimals.
+     *
+     * @throws NumberFormatException if the text is not a number or does not fit in a long
+     */
+    public static long parseCents(String text) {
+        try {
+            return new BigDecimal(text.trim())
+                    .movePointRight(2)
+                    .setScale(0, RoundingMode.HALF_UP)
+                    .longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+}
@@ -1,17 +1,13 @@
 package com.example.dimitra.shopapp;
 
-import android.content.ContentUris;
-import android.content.ContentValues;
 import android.content.Context;
+import android.database.CharArrayBuffer;
 import android.database.Cursor;
-import android.net.Uri;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.Button;
 import android.widget.CursorAdapter;
 import android.widget.TextView;
-import android.widget.Toast;
 
 
 import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
@@ -24,6 +20,17 @@ import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
 public class ProductCursorAdapter extends CursorAdapter {
     private Context mContext;
 
+    /** The cursor whose column indices are cached below. */
+    private Cursor mIndexedCursor;
+
+    private int mNameColumnIndex;
+
+    private int mPriceColumnIndex;
+
+    private int mQuantityColumnIndex;
+
+    private int mSupplierColumnIndex;
+
     /**
      * Constructs a new {@link ProductCursorAdapter}.
      *
@@ -46,7 +53,9 @@ public class ProductCursorAdapter extends CursorAdapter {
     @Override
     public View newView(Context context, Cursor cursor, ViewGroup parent) {
         // Inflate a list item view using the layout specified in list_item.xml
-        return LayoutInflater.from(context).inflate(R.layout.list_item, parent, false);
+        View view = LayoutInflater.from(context).inflate(R.layout.list_item, parent, false);
+        view.setTag(new ViewHolder(view));
+        return view;
     }
 
     /**
@@ -62,25 +71,58 @@ public class ProductCursorAdapter extends CursorAdapter {
     @Override
     public void bindView(View view, final Context context, final Cursor cursor) {
         mContext = context;
+        bindProduct((ViewHolder) view.getTag(), cursor);
+    }
 
-        TextView nameTextView = view.findViewById(R.id.name);
-        TextView priceTextView = view.findViewById(R.id.price);
-        TextView quantityTextView = view.findViewById(R.id.quantity);
-        TextView supplierTextView = view.findViewById(R.id.supplier);
-        TextView supplierPhoneTextView = view.findViewById(R.id.supplierPhone);
+    /**
+     * Bind the product in the current row of the cursor to the views of a list item. Column
+     * indices are looked up once per cursor, and text is copied into buffers owned by the
+     * holder, so binding a row does not allocate once the buffers have grown to fit.
+     */
+    void bindProduct(ViewHolder holder, Cursor cursor) {
+        if (cursor != mIndexedCursor) {
+            resolveColumnIndices(cursor);
+        }
 
-        final String nameColumnIndex = cursor.getString(cursor.getColumnIndexOrThrow(ProductEntry.COLUMN_PRODUCT_NAME));
-        final Integer quantityColumnIndex = cursor.getInt(cursor.getColumnIndexOrThrow(ProductEntry.COLUMN_PRODUCT_QUANTITY));
-        final Integer priceColumnIndex = cursor.getInt(cursor.getColumnIndexOrThrow(ProductEntry.COLUMN_PRODUCT_PRICE));
-        final String supplierColumnIndex = cursor.getString(cursor.getColumnIndexOrThrow(ProductEntry.COLUMN_PRODUCT_SUPPLIER));
-        final Integer supplierPhoneColumnIndex = cursor.getInt(cursor.getColumnIndexOrThrow(ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER));
+        cursor.copyStringToBuffer(mNameColumnIndex, holder.nameBuffer);
+        cursor.copyStringToBuffer(mSupplierColumnIndex, holder.supplierBuffer);
+        int priceLength = NumberFormatter.formatCents(cursor.getLong(mPriceColumnIndex), holder.priceChars);
+        int quantityLength = NumberFormatter.format(cursor.getLong(mQuantityColumnIndex), holder.quantityChars);
 
         // Update the TextViews with the attributes for the current product
-        nameTextView.setText(nameColumnIndex);
-        priceTextView.setText(Integer.toString(priceColumnIndex));
-        quantityTextView.setText(Integer.toString(quantityColumnIndex));
-        supplierTextView.setText(supplierColumnIndex);
-        supplierPhoneTextView.setText(Integer.toString(supplierPhoneColumnIndex));
+        holder.nameTextView.setText(holder.nameBuffer.data, 0, holder.nameBuffer.sizeCopied);
+        holder.priceTextView.setText(holder.priceChars, 0, priceLength);
+        holder.quantityTextView.setText(holder.quantityChars, 0, quantityLength);
+        holder.supplierTextView.setText(holder.supplierBuffer.data, 0, holder.supplierBuffer.sizeCopied);
+    }
+
+    private void resolveColumnIndices(Cursor cursor) {
+        mNameColumnIndex = cursor.getColumnIndexOrThrow(ProductEntry.COLUMN_PRODUCT_NAME);
+        mPriceColumnIndex = cursor.getColumnIndexOrThrow(ProductEntry.COLUMN_PRODUCT_PRICE);
+        mQuantityColumnIndex = cursor.getColumnIndexOrThrow(ProductEntry.COLUMN_PRODUCT_QUANTITY);
+        mSupplierColumnIndex = cursor.getColumnIndexOrThrow(ProductEntry.COLUMN_PRODUCT_SUPPLIER);
+        mIndexedCursor = cursor;
+    }
+
+    /**
+     * Holds the views of a list item and the buffers their text is formatted into.
+     */
+    static class ViewHolder {
+        final TextView nameTextView;
+        final TextView priceTextView;
+        final TextView quantityTextView;
+        final TextView supplierTextView;
+
+        final CharArrayBuffer nameBuffer = new CharArrayBuffer(32);
+        final CharArrayBuffer supplierBuffer = new CharArrayBuffer(32);
+        final char[] priceChars = new char[NumberFormatter.MAX_CENTS_CHARS];
+        final char[] quantityChars = new char[NumberFormatter.MAX_LONG_CHARS];
 
+        ViewHolder(View view) {
+            nameTextView = view.findViewById(R.id.name);
+            priceTextView = view.findViewById(R.id.price);
+            quantityTextView = view.findViewById(R.id.quantity);
+            supplierTextView = view.findViewById(R.id.supplier);
+        }
     }
-}
\ No newline at end of file
+}
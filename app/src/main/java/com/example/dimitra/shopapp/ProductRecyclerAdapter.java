@@ -0,0 +1,103 @@
+package com.example.dimitra.shopapp;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * {@link ProductRecyclerAdapter} shows {@link ProductSnapshot}s in a {@link RecyclerView}. When a
+ * new snapshot arrives it applies the precomputed diff, so only rows that were inserted, removed,
+ * moved or changed are rebound. Rows are bound by {@link ProductCursorAdapter}.
+ */
+public class ProductRecyclerAdapter extends RecyclerView.Adapter<ProductRecyclerAdapter.ProductViewHolder> {
+
+    /**
+     * Callback for clicks on a product row.
+     */
+    public interface OnProductClickListener {
+        void onProductClick(long id);
+    }
+
+    private final ProductCursorAdapter mBinder;
+
+    private final OnProductClickListener mClickListener;
+
+    private ProductSnapshot mSnapshot;
+
+    /**
+     * Constructs a new {@link ProductRecyclerAdapter}.
+     *
+     * @param context       The context
+     * @param clickListener Called with the product id when a row is clicked
+     */
+    public ProductRecyclerAdapter(Context context, OnProductClickListener clickListener) {
+        mBinder = new ProductCursorAdapter(context, null);
+        mClickListener = clickListener;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Show a new snapshot, or nothing if it is null. If the snapshot was compared against the one
+     * currently shown, only the differences are dispatched.
+     */
+    public void swapSnapshot(ProductSnapshot snapshot) {
+        if (snapshot == mSnapshot) {
+            return;
+        }
+        ProductSnapshot previous = mSnapshot;
+        mSnapshot = snapshot;
+        if (snapshot != null && previous != null && snapshot.diff != null
+                && snapshot.baseGeneration == previous.generation) {
+            snapshot.diff.dispatchUpdatesTo(this);
+        } else {
+            notifyDataSetChanged();
+        }
+        if (snapshot != null) {
+            // The diff is only valid against the previous snapshot, so don't keep it around.
+            snapshot.diff = null;
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return mSnapshot == null ? 0 : mSnapshot.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mSnapshot.ids[position];
+    }
+
+    @Override
+    public ProductViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.list_item, parent, false);
+        return new ProductViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(ProductViewHolder holder, int position) {
+        Cursor cursor = mSnapshot.cursor;
+        cursor.moveToPosition(position);
+        mBinder.bindProduct(holder.mRowViews, cursor);
+    }
+
+    class ProductViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+        final ProductCursorAdapter.ViewHolder mRowViews;
+
+        ProductViewHolder(View itemView) {
+            super(itemView);
+            mRowViews = new ProductCursorAdapter.ViewHolder(itemView);
+            itemView.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View view) {
+            if (getAdapterPosition() != RecyclerView.NO_POSITION) {
+                mClickListener.onProductClick(getItemId());
+            }
+        }
+    }
+}
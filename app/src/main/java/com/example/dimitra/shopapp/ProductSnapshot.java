@@ -0,0 +1,61 @@
+package com.example.dimitra.shopapp;
+
+import android.database.Cursor;
+import android.support.v7.util.DiffUtil;
+
+/**
+ * A loaded window of the catalog: the cursor with the rows, plus the id and content version of
+ * every row so two snapshots can be compared without touching either cursor.
+ */
+final class ProductSnapshot {
+
+    /** Generation of a snapshot read back from {@link CatalogSnapshotStore}, before any load. */
+    static final int CACHED_GENERATION = 0;
+
+    /** Increases by one for every snapshot a loader produces. */
+    final int generation;
+
+    /** The window starts after the product with this id, or at the first product if it is 0. */
+    final long afterId;
+
+    final Cursor cursor;
+
+    /** {@link com.example.dimitra.shopapp.Data.ProductContract.ProductEntry#_ID} of each row. */
+    final long[] ids;
+
+    /** Hash of the displayed columns of each row, which changes whenever the row does. */
+    final int[] versions;
+
+    /** Generation of the snapshot {@link #diff} was computed against, or -1 if there is none. */
+    final int baseGeneration;
+
+    /** Changes from the base snapshot to this one, computed off the main thread. */
+    DiffUtil.DiffResult diff;
+
+    ProductSnapshot(int generation, long afterId, Cursor cursor, long[] ids, int[] versions,
+                    int baseGeneration, DiffUtil.DiffResult diff) {
+        this.generation = generation;
+        this.afterId = afterId;
+        this.cursor = cursor;
+        this.ids = ids;
+        this.versions = versions;
+        this.baseGeneration = baseGeneration;
+        this.diff = diff;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Return the version of the current row of the cursor: a hash of the text of every column.
+     */
+    static int versionOf(Cursor cursor) {
+        int version = 17;
+        for (int column = 0; column < cursor.getColumnCount(); column++) {
+            String value = cursor.getString(column);
+            version = 31 * version + (value == null ? 0 : value.hashCode());
+        }
+        return version;
+    }
+}
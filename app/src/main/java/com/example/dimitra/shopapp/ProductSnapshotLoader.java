@@ -0,0 +1,298 @@
+package com.example.dimitra.shopapp;
+
+import android.content.AsyncTaskLoader;
+import android.content.Context;
+import android.database.Cursor;
+import android.support.v7.util.DiffUtil;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import java.util.ArrayList;
+
+/**
+ * Loads a window of the catalog as a {@link ProductSnapshot}, together with the changes since the
+ * previously delivered snapshot. Like {@link android.content.CursorLoader} it reloads whenever
+ * the products change, but the comparison of old and new rows also happens in the background,
+ * so the adapter only has to apply the result.
+ *
+ * The window starts at one page and grows by a page every time {@link #loadMore()} is called,
+ * up to {@link #MAX_PAGES}. From then on it slides instead: each {@link #loadMore()} drops its first
+ * page, and {@link #loadPrevious()} brings it back. So a reload after a deep scroll reads and
+ * compares no more rows than a few pages, however far the list was scrolled.
+ *
+ * Given a {@link CatalogSnapshotStore}, the first load reads the rows stored there, which is a
+ * small file read instead of opening the database, and delivers them right away. The real rows
+ * are loaded next, and the first rows stored again whenever they change.
+ */
+public class ProductSnapshotLoader extends AsyncTaskLoader<ProductSnapshot> {
+
+    /** Number of products added to the window each time more rows are needed. */
+    public static final int PAGE_SIZE = 50;
+
+    /** Number of pages the window holds at most. */
+    static final int MAX_PAGES = 4;
+
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+
+    private final String[] mProjection;
+
+    private final CatalogSnapshotStore mStore;
+
+    /** The window: at most {@link #mLimit} products after the one with id {@link #mAfterId}. */
+    private long mAfterId;
+
+    private int mLimit = PAGE_SIZE;
+
+    /** Where the window started before each of its slides, latest last. */
+    private final ArrayList<Long> mPreviousStarts = new ArrayList<>();
+
+    /** The last delivered snapshot, which the next load is compared against. */
+    private volatile ProductSnapshot mSnapshot;
+
+    private int mGeneration;
+
+    /** Whether the store has been read, which only the first load does. */
+    private boolean mStoreRead;
+
+    /**
+     * Constructs a new {@link ProductSnapshotLoader}.
+     *
+     * @param context    The context
+     * @param projection The columns to query. Must include {@link ProductEntry#_ID}.
+     */
+    public ProductSnapshotLoader(Context context, String[] projection) {
+        this(context, projection, null);
+    }
+
+    /**
+     * Constructs a new {@link ProductSnapshotLoader} that starts from stored rows.
+     *
+     * @param context    The context
+     * @param projection The columns to query. Must include {@link ProductEntry#_ID}.
+     * @param store      Where the first rows are kept between starts, or null
+     */
+    ProductSnapshotLoader(Context context, String[] projection, CatalogSnapshotStore store) {
+        super(context);
+        mProjection = projection;
+        mStore = store;
+    }
+
+    /**
+     * Grow the window by one page, or slide it past its first page once it holds
+     * {@link #MAX_PAGES}, if the current window is full and so more rows may exist.
+     */
+    public void loadMore() {
+        ProductSnapshot snapshot = mSnapshot;
+        synchronized (this) {
+            if (snapshot == null || snapshot.size() < mLimit || !isWindowOf(snapshot)) {
+                return;
+            }
+            if (mLimit < MAX_PAGES * PAGE_SIZE) {
+                mLimit += PAGE_SIZE;
+            } else {
+                mPreviousStarts.add(mAfterId);
+                mAfterId = snapshot.ids[PAGE_SIZE - 1];
+            }
+        }
+        onContentChanged();
+    }
+
+    /**
+     * Slide the window back by one page, if it has slid past the start of the catalog.
+     */
+    public void loadPrevious() {
+        ProductSnapshot snapshot = mSnapshot;
+        synchronized (this) {
+            if (snapshot == null || !isWindowOf(snapshot) || mPreviousStarts.isEmpty()) {
+                return;
+            }
+            mAfterId = mPreviousStarts.remove(mPreviousStarts.size() - 1);
+        }
+        onContentChanged();
+    }
+
+    /**
+     * Return whether the window starts at the first product of the catalog.
+     */
+    public synchronized boolean isAtStart() {
+        return mAfterId == 0;
+    }
+
+    /**
+     * Return whether the snapshot was loaded for the current start of the window, so it is the
+     * window to slide from, rather than one loaded before the window last slid.
+     */
+    private boolean isWindowOf(ProductSnapshot snapshot) {
+        return snapshot.afterId == mAfterId;
+    }
+
+    /**
+     * Query the window and compare it with the last delivered snapshot. Return null if the
+     * provider can't be queried. The first load returns the stored rows instead, if there are
+     * any; delivering them starts the next load.
+     */
+    @Override
+    public ProductSnapshot loadInBackground() {
+        long afterId;
+        int limit;
+        boolean readStore;
+        synchronized (this) {
+            afterId = mAfterId;
+            limit = mLimit;
+            readStore = !mStoreRead;
+            mStoreRead = true;
+        }
+        if (readStore && mStore != null) {
+            ProductSnapshot cached = mStore.read();
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Cursor cursor = getContext().getContentResolver().query(
+                ProductEntry.buildPageUri(afterId, limit), mProjection, null, null, null);
+        if (cursor == null) {
+            return null;
+        }
+
+        int count = cursor.getCount();
+        long[] ids = new long[count];
+        int[] versions = new int[count];
+        int idColumnIndex = cursor.getColumnIndexOrThrow(ProductEntry._ID);
+        for (int i = 0; cursor.moveToPosition(i); i++) {
+            ids[i] = cursor.getLong(idColumnIndex);
+            versions[i] = ProductSnapshot.versionOf(cursor);
+        }
+        cursor.registerContentObserver(mObserver);
+
+        ProductSnapshot base = mSnapshot;
+        if (mStore != null && afterId == 0 && !startsWith(base, ids, versions)) {
+            mStore.write(cursor);
+        }
+        DiffUtil.DiffResult diff = null;
+        int baseGeneration = -1;
+        if (base != null) {
+            diff = DiffUtil.calculateDiff(new SnapshotDiffCallback(base, ids, versions));
+            baseGeneration = base.generation;
+        }
+        int generation;
+        synchronized (this) {
+            generation = ++mGeneration;
+        }
+        return new ProductSnapshot(generation, afterId, cursor, ids, versions, baseGeneration, diff);
+    }
+
+    @Override
+    public void deliverResult(ProductSnapshot snapshot) {
+        if (isReset()) {
+            if (snapshot != null) {
+                snapshot.cursor.close();
+            }
+            return;
+        }
+        ProductSnapshot oldSnapshot = mSnapshot;
+        mSnapshot = snapshot;
+
+        if (isStarted()) {
+            super.deliverResult(snapshot);
+        }
+
+        if (oldSnapshot != null && oldSnapshot != snapshot && !oldSnapshot.cursor.isClosed()) {
+            oldSnapshot.cursor.close();
+        }
+
+        if (isStarted() && snapshot != null && snapshot.generation == ProductSnapshot.CACHED_GENERATION) {
+            // The stored rows are only shown until the real ones are loaded.
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (mSnapshot != null) {
+            deliverResult(mSnapshot);
+        }
+        // Delivering stored rows again has started the load of the real ones.
+        if (takeContentChanged() || mSnapshot == null) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    public void onCanceled(ProductSnapshot snapshot) {
+        if (snapshot != null && !snapshot.cursor.isClosed()) {
+            snapshot.cursor.close();
+        }
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        if (mSnapshot != null && !mSnapshot.cursor.isClosed()) {
+            mSnapshot.cursor.close();
+        }
+        mSnapshot = null;
+    }
+
+    /**
+     * Return whether the stored first rows of a loaded window are the same as in the base
+     * snapshot, so there is no need to store them again.
+     */
+    private static boolean startsWith(ProductSnapshot base, long[] ids, int[] versions) {
+        if (base == null) {
+            return false;
+        }
+        int rows = Math.min(ids.length, CatalogSnapshotStore.ROWS);
+        if (Math.min(base.size(), CatalogSnapshotStore.ROWS) != rows) {
+            return false;
+        }
+        for (int i = 0; i < rows; i++) {
+            if (base.ids[i] != ids[i] || base.versions[i] != versions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares rows by {@link ProductEntry#_ID}, and their contents by version.
+     */
+    private static class SnapshotDiffCallback extends DiffUtil.Callback {
+        private final long[] mOldIds;
+        private final int[] mOldVersions;
+        private final long[] mNewIds;
+        private final int[] mNewVersions;
+
+        SnapshotDiffCallback(ProductSnapshot oldSnapshot, long[] newIds, int[] newVersions) {
+            mOldIds = oldSnapshot.ids;
+            mOldVersions = oldSnapshot.versions;
+            mNewIds = newIds;
+            mNewVersions = newVersions;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldIds.length;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewIds.length;
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldIds[oldItemPosition] == mNewIds[newItemPosition];
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldVersions[oldItemPosition] == mNewVersions[newItemPosition];
+        }
+    }
+}
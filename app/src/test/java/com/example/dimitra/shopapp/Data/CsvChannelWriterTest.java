@@ -0,0 +1,81 @@
+package com.example.dimitra.shopapp.Data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test for {@link CsvChannelWriter}, which encodes exported products.
+ */
+public class CsvChannelWriterTest {
+
+    @Test
+    public void write_numbersAndText() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvChannelWriter writer = new CsvChannelWriter(Channels.newChannel(out), 64);
+        writer.writeLong(42);
+        writer.writeText("shirt");
+        writer.writeCents(150);
+        writer.writeEmpty();
+        writer.endRow();
+        writer.writeCents(-5);
+        writer.endRow();
+        writer.flush();
+
+        assertEquals("42,shirt,1.50,\n-0.05\n", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void write_quotesFieldsThatNeedIt() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvChannelWriter writer = new CsvChannelWriter(Channels.newChannel(out), 64);
+        writer.writeText("a, b");
+        writer.writeText("say \"hi\"");
+        writer.writeText("two\nlines");
+        writer.endRow();
+        writer.flush();
+
+        assertEquals("\"a, b\",\"say \"\"hi\"\"\",\"two\nlines\"\n", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void write_encodesUtf8AcrossSmallBuffer() throws IOException {
+        String text = "Caf\u00e9 \u20ac \ud83d\udc55 \"x\"";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // A tiny buffer makes nearly every character cross a flush.
+        CsvChannelWriter writer = new CsvChannelWriter(Channels.newChannel(out), 4);
+        for (int i = 0; i < 100; i++) {
+            writer.writeText(text);
+            writer.writeLong(i);
+            writer.endRow();
+        }
+        writer.flush();
+
+        CsvReader reader = new CsvReader(new StringReader(out.toString("UTF-8")));
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(reader.readRecord(fields));
+            assertEquals(Arrays.asList(text, String.valueOf(i)), fields);
+        }
+        assertFalse(reader.readRecord(fields));
+    }
+
+    @Test
+    public void writeText_usesOnlyGivenLength() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvChannelWriter writer = new CsvChannelWriter(Channels.newChannel(out), 16);
+        writer.writeText("hat, wool".toCharArray(), 3);
+        writer.endRow();
+        writer.flush();
+
+        assertEquals("hat\n", out.toString("UTF-8"));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.dimitra.shopapp.Data;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test for {@link CsvReader}, which parses product files for {@link ProductImporter}.
+ */
+public class CsvReaderTest {
+
+    @Test
+    public void readRecord_plainRecords() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("name,price\nshirt,1.50\r\nhat,2\n"));
+        List<String> fields = new ArrayList<>();
+
+        assertTrue(reader.readRecord(fields));
+        assertEquals(Arrays.asList("name", "price"), fields);
+        assertTrue(reader.readRecord(fields));
+        assertEquals(Arrays.asList("shirt", "1.50"), fields);
+        assertTrue(reader.readRecord(fields));
+        assertEquals(Arrays.asList("hat", "2"), fields);
+        assertFalse(reader.readRecord(fields));
+        assertTrue(fields.isEmpty());
+    }
+
+    @Test
+    public void readRecord_quotedFields() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(
+                "\"a, b\",\"say \"\"hi\"\"\",\"two\nlines\",\n"));
+        List<String> fields = new ArrayList<>();
+
+        assertTrue(reader.readRecord(fields));
+        assertEquals(Arrays.asList("a, b", "say \"hi\"", "two\nlines", ""), fields);
+        assertFalse(reader.readRecord(fields));
+    }
+
+    @Test
+    public void readRecord_lastRecordWithoutLineBreak() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,b"));
+        List<String> fields = new ArrayList<>();
+
+        assertTrue(reader.readRecord(fields));
+        assertEquals(Arrays.asList("a", "b"), fields);
+        assertFalse(reader.readRecord(fields));
+    }
+
+    @Test(expected = IOException.class)
+    public void readRecord_unterminatedQuoteFails() throws IOException {
+        new CsvReader(new StringReader("\"open")).readRecord(new ArrayList<String>());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.dimitra.shopapp.Data;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test for {@link LatencyHistogram}, which times the operations of the data layer.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentileMicros_emptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.meanMicros());
+        assertEquals(0, histogram.percentileMicros(0.5));
+        assertEquals(0, histogram.percentileMicros(1));
+    }
+
+    @Test
+    public void percentileMicros_shortDurationsAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 10; micros++) {
+            histogram.record(micros * 1000L);
+        }
+
+        assertEquals(10, histogram.count());
+        assertEquals(1, histogram.percentileMicros(0));
+        assertEquals(5, histogram.percentileMicros(0.5));
+        assertEquals(9, histogram.percentileMicros(0.9));
+        assertEquals(10, histogram.percentileMicros(1));
+        assertEquals(10, histogram.maxMicros());
+        assertEquals(5, histogram.meanMicros());
+    }
+
+    @Test
+    public void percentileMicros_withinOneStepOfTheTruth() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 100000; micros++) {
+            histogram.record(micros * 1000L);
+        }
+
+        long median = histogram.percentileMicros(0.5);
+        assertTrue(median >= 50000 && median <= 50000 * 1.125);
+        long p99 = histogram.percentileMicros(0.99);
+        assertTrue(p99 >= 99000 && p99 <= 100000);
+        assertEquals(100000, histogram.percentileMicros(1));
+    }
+
+    @Test
+    public void bucketOf_boundsHoldEveryDuration() {
+        for (long micros = 0; micros < 1L << 36; micros = micros * 3 / 2 + 1) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            if (micros < 1L << 34) {
+                assertTrue(micros <= LatencyHistogram.upperBoundOf(bucket));
+                assertTrue(bucket == 0 || micros > LatencyHistogram.upperBoundOf(bucket - 1));
+            }
+            assertTrue(bucket >= LatencyHistogram.bucketOf(micros / 2));
+        }
+    }
+
+    @Test
+    public void record_negativeDurationCountsAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5000);
+
+        assertEquals(1, histogram.count());
+        assertEquals(0, histogram.maxMicros());
+    }
+
+    @Test
+    public void reset_forgetsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(2000000);
+        histogram.reset();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.maxMicros());
+        assertEquals(0, histogram.percentileMicros(0.99));
+    }
+
+    @Test
+    public void record_concurrentThreadsLoseNothing() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final int threads = 4;
+        final int durations = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < durations; i++) {
+                        histogram.record((i + offset) * 1000L);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * durations, histogram.count());
+        assertEquals(durations - 1 + threads - 1, histogram.maxMicros());
+        assertEquals(histogram.maxMicros(), histogram.percentileMicros(1));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.dimitra.shopapp.Data;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test for {@link SlowQueryLog}, which keeps the slow queries of {@link ProductProvider}.
+ */
+public class SlowQueryLogTest {
+
+    private static final long MILLIS = 1000000;
+
+    @Test
+    public void isSlow_onlyAboveTheThreshold() {
+        SlowQueryLog log = new SlowQueryLog(100, 10);
+
+        assertTrue(log.isEnabled());
+        assertFalse(log.isSlow(100 * MILLIS));
+        assertTrue(log.isSlow(100 * MILLIS + 1));
+    }
+
+    @Test
+    public void setThresholdMillis_negativeTurnsLoggingOff() {
+        SlowQueryLog log = new SlowQueryLog(100, 10);
+        log.setThresholdMillis(-1);
+
+        assertFalse(log.isEnabled());
+        assertFalse(log.isSlow(Long.MAX_VALUE));
+        assertEquals(-1, log.getThresholdMillis());
+    }
+
+    @Test
+    public void entries_oldestFirstAndBounded() {
+        SlowQueryLog log = new SlowQueryLog(0, 3);
+        for (int i = 1; i <= 5; i++) {
+            log.add("SELECT " + i, null, i, i * MILLIS, "SCAN TABLE products");
+        }
+
+        List<SlowQueryLog.Entry> entries = log.entries();
+        assertEquals(3, entries.size());
+        assertEquals(3, entries.get(0).sequence);
+        assertEquals("SELECT 3", entries.get(0).sql);
+        assertEquals(5, entries.get(2).sequence);
+        assertEquals(5000, entries.get(2).durationMicros);
+        assertEquals(5, entries.get(2).rows);
+    }
+
+    @Test
+    public void add_planIsKeptPerShape() {
+        SlowQueryLog log = new SlowQueryLog(0, 10);
+        assertNull(log.planOf("SELECT * FROM products WHERE quantity<=5"));
+
+        log.add("SELECT * FROM products WHERE quantity<=5", null, 0, MILLIS, "SCAN TABLE products");
+
+        assertEquals("SCAN TABLE products", log.planOf("SELECT * FROM products WHERE quantity<=40"));
+        assertNull(log.planOf("SELECT * FROM suppliers WHERE name='Acme'"));
+        log.add("SELECT * FROM products WHERE quantity<=40", null, 0, MILLIS, null);
+        assertEquals("SCAN TABLE products", log.entries().get(1).queryPlan);
+    }
+
+    @Test
+    public void shapeOf_replacesLiterals() {
+        assertEquals("SELECT * FROM v2 WHERE name=? AND price>=? LIMIT ?",
+                SlowQueryLog.shapeOf("SELECT * FROM v2 WHERE name='it''s' AND price>=12.50 LIMIT 50"));
+    }
+
+    @Test
+    public void add_longArgumentsAreCut() {
+        SlowQueryLog log = new SlowQueryLog(0, 10);
+        StringBuilder longArg = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longArg.append('x');
+        }
+        log.add("SELECT ?, ?", new String[]{"short", longArg.toString()}, 0, MILLIS, null);
+
+        String[] args = log.entries().get(0).args;
+        assertEquals("short", args[0]);
+        assertEquals(64 + 3, args[1].length());
+    }
+
+    @Test
+    public void clear_forgetsQueriesAndPlans() {
+        SlowQueryLog log = new SlowQueryLog(0, 10);
+        log.add("SELECT 1", null, 1, MILLIS, "plan");
+        log.add("SELECT 2", null, 1, MILLIS, "plan");
+
+        assertEquals(2, log.clear());
+        assertTrue(log.entries().isEmpty());
+        assertNull(log.planOf("SELECT 1"));
+        log.add("SELECT 3", null, 1, MILLIS, null);
+        assertEquals(3, log.entries().get(0).sequence);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.dimitra.shopapp.Data;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test for {@link StatementCache}, which keeps the compiled writes of the provider.
+ */
+public class StatementCacheTest {
+
+    @Test
+    public void sqlOf_insertBindsColumnsInOrder() {
+        int key = StatementCache.key(StatementCache.INSERT_PRODUCT,
+                StatementCache.SUPPLIER_ID | StatementCache.NAME | StatementCache.QUANTITY);
+
+        assertEquals("INSERT INTO products (name, quantity, supplier_id, generation) VALUES (?, ?, ?, "
+                + "(SELECT generation FROM catalog_state))", StatementCache.sqlOf(key));
+    }
+
+    @Test
+    public void sqlOf_insertOfOneColumn() {
+        int key = StatementCache.key(StatementCache.INSERT_PRODUCT, StatementCache.NAME);
+
+        assertEquals("INSERT INTO products (name, generation) VALUES (?, (SELECT generation FROM catalog_state))",
+                StatementCache.sqlOf(key));
+    }
+
+    @Test
+    public void sqlOf_updateSelectsOneLiveProductAfterTheColumns() {
+        int key = StatementCache.key(StatementCache.UPDATE_PRODUCT,
+                StatementCache.VERSION | StatementCache.DELETED_AT);
+
+        assertEquals("UPDATE products SET deleted_at = ?, version = ? WHERE _id = ? AND deleted_at IS NULL "
+                + "AND generation = (SELECT generation FROM catalog_state)", StatementCache.sqlOf(key));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sqlOf_fixedStatementHasNoSql() {
+        StatementCache.sqlOf(StatementCache.key(StatementCache.ADJUST_QUANTITY, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sqlOf_writeWithoutColumns() {
+        StatementCache.sqlOf(StatementCache.key(StatementCache.UPDATE_PRODUCT, 0));
+    }
+
+    @Test
+    public void key_differsByOperationAndColumns() {
+        int all = (1 << StatementCache.COLUMNS.length) - 1;
+        int[] operations = {StatementCache.INSERT_PRODUCT, StatementCache.UPDATE_PRODUCT,
+                StatementCache.ADJUST_QUANTITY, StatementCache.SELECT_QUANTITY,
+                StatementCache.SUBTRACT_FROM_SUMMARY, StatementCache.FIND_SUPPLIER,
+                StatementCache.INSERT_SUPPLIER, StatementCache.UPDATE_SUPPLIER_PHONE,
+                StatementCache.SELECT_NEXT_LOCAL_ID, StatementCache.RESERVE_LOCAL_IDS};
+        Set<Integer> keys = new HashSet<>();
+        for (int operation : operations) {
+            for (int columns = 0; columns <= all; columns++) {
+                assertTrue(keys.add(StatementCache.key(operation, columns)));
+            }
+        }
+    }
+
+    @Test
+    public void columnOf_matchesTheColumnBits() {
+        assertEquals(StatementCache.ID, 1 << StatementCache.columnOf("_id"));
+        assertEquals(StatementCache.PRICE, 1 << StatementCache.columnOf("price"));
+        assertEquals(StatementCache.SUPPLIER_ID, 1 << StatementCache.columnOf("supplier_id"));
+        assertEquals(StatementCache.VERSION, 1 << StatementCache.columnOf("version"));
+        assertEquals(-1, StatementCache.columnOf("supplier"));
+    }
+}
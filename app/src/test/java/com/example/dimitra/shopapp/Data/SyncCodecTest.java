@@ -0,0 +1,95 @@
+package com.example.dimitra.shopapp.Data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test for {@link SyncCodec}, which encodes the messages exchanged with the back office.
+ */
+public class SyncCodecTest {
+
+    @Test
+    public void records_roundTrip() throws IOException {
+        List<SyncRecord> records = Arrays.asList(
+                new SyncRecord(1, 7, 1000, "Caf\u00e9 shirt", 150, 3, "Acme", 2101234567L),
+                SyncRecord.deletion(2, 8, 2000),
+                new SyncRecord(3, 0, 3000, "", 0, 0, "", 0));
+
+        List<SyncRecord> decoded = SyncCodec.decodeRecords(SyncCodec.encodeRecords(records));
+
+        assertEquals(3, decoded.size());
+        assertRecordEquals(records.get(0), decoded.get(0));
+        assertRecordEquals(records.get(1), decoded.get(1));
+        assertRecordEquals(records.get(2), decoded.get(2));
+        assertTrue(decoded.get(1).deleted);
+    }
+
+    @Test
+    public void pushResults_roundTrip() throws IOException {
+        List<SyncCodec.PushResult> results = Arrays.asList(
+                new SyncCodec.PushResult(true, new SyncRecord(1, 9, 1000, "hat", 500, 1, "Hats Ltd", 0)),
+                new SyncCodec.PushResult(false, SyncRecord.deletion(2, 10, 2000)));
+
+        List<SyncCodec.PushResult> decoded = SyncCodec.decodePushResults(SyncCodec.encodePushResults(results));
+
+        assertEquals(2, decoded.size());
+        assertTrue(decoded.get(0).accepted);
+        assertRecordEquals(results.get(0).record, decoded.get(0).record);
+        assertFalse(decoded.get(1).accepted);
+        assertRecordEquals(results.get(1).record, decoded.get(1).record);
+    }
+
+    @Test
+    public void pullRequest_roundTrip() throws IOException {
+        SyncCodec.PullRequest request = SyncCodec.decodePullRequest(SyncCodec.encodePullRequest(42, 200));
+
+        assertEquals(42, request.sinceVersion);
+        assertEquals(200, request.limit);
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsOtherFormatVersion() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes));
+        out.writeInt(SyncCodec.FORMAT_VERSION + 1);
+        out.writeInt(0);
+        out.close();
+
+        SyncCodec.decodeRecords(bytes.toByteArray());
+    }
+
+    @Test
+    public void encode_compressesRepeatedSuppliers() throws IOException {
+        List<SyncRecord> records = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            records.add(new SyncRecord(i, i, 1000 + i, "product " + i, 100 + i, i % 10,
+                    "Acme Clothing Wholesale", 2101234567L));
+        }
+
+        byte[] message = SyncCodec.encodeRecords(records);
+
+        // Uncompressed, each record takes more than 60 bytes.
+        assertTrue("Message of " + message.length + " bytes", message.length < 1000 * 30);
+    }
+
+    private static void assertRecordEquals(SyncRecord expected, SyncRecord actual) {
+        assertEquals(expected.productId, actual.productId);
+        assertEquals(expected.version, actual.version);
+        assertEquals(expected.deleted, actual.deleted);
+        assertEquals(expected.changedAt, actual.changedAt);
+        assertEquals(expected.name, actual.name);
+        assertEquals(expected.price, actual.price);
+        assertEquals(expected.quantity, actual.quantity);
+        assertEquals(expected.supplier, actual.supplier);
+        assertEquals(expected.supplierPhone, actual.supplierPhone);
+    }
+}
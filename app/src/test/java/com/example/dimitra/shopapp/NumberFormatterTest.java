@@ -0,0 +1,72 @@
+package com.example.dimitra.shopapp;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test for {@link NumberFormatter}, which formats the numbers of every catalog row.
+ */
+public class NumberFormatterTest {
+
+    private static final int ROWS = 100000;
+
+    @Test
+    public void format_matchesLongToString() {
+        long[] values = {0, 7, -7, 42, 1000, -1000, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        char[] buffer = new char[NumberFormatter.MAX_LONG_CHARS];
+        for (long value : values) {
+            int length = NumberFormatter.format(value, buffer);
+            assertEquals(Long.toString(value), new String(buffer, 0, length));
+        }
+    }
+
+    @Test
+    public void formatCents_writesTwoDecimals() {
+        assertEquals("0.00", NumberFormatter.formatCents(0));
+        assertEquals("0.05", NumberFormatter.formatCents(5));
+        assertEquals("1.50", NumberFormatter.formatCents(150));
+        assertEquals("-0.50", NumberFormatter.formatCents(-50));
+        assertEquals("-92233720368547758.08", NumberFormatter.formatCents(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void parseCents_roundsToWholeCents() {
+        assertEquals(100, NumberFormatter.parseCents("1"));
+        assertEquals(150, NumberFormatter.parseCents("1.5"));
+        assertEquals(1235, NumberFormatter.parseCents(" 12.345 "));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parseCents_rejectsText() {
+        NumberFormatter.parseCents("ten");
+    }
+
+    @Test
+    public void format_doesNotAllocateAfterWarmUp() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        char[] buffer = new char[NumberFormatter.MAX_LONG_CHARS];
+
+        long checksum = formatRows(buffer);
+        long before = threads.getThreadAllocatedBytes(threadId);
+        checksum += formatRows(buffer);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // Allow for the few bytes the JVM itself may allocate while measuring; a single String
+        // per row would cost far more than this.
+        assertTrue(checksum > 0);
+        assertTrue("allocated " + allocated + " bytes for " + ROWS + " rows", allocated < ROWS);
+    }
+
+    private static long formatRows(char[] buffer) {
+        long checksum = 0;
+        for (int row = 0; row < ROWS; row++) {
+            checksum += NumberFormatter.format(row, buffer);
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.dimitra.shopapp.Data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Catalog databases for the benchmarks, opened through sqlite-jdbc with the settings of
+ * {@link DatabaseConfig#DEFAULT}.
+ *
+ * Filling a million products takes a while, so every catalog is built once, kept in the temporary
+ * directory under the schema version and size, and copied for each benchmark that writes to it.
+ */
+final class CatalogFixture {
+
+    /** Number of suppliers the products are spread over. */
+    static final int SUPPLIERS = 500;
+
+    private static final File DIRECTORY = new File(System.getProperty("java.io.tmpdir"), "shopapp-benchmarks");
+
+    /** Version of the first schema, before prices were stored as cents. */
+    private static final int FIRST_VERSION = 1;
+
+    private CatalogFixture() {}
+
+    /**
+     * Return a database in the current schema with {@code size} products, with ids 1 to size.
+     */
+    static File catalog(int size) throws IOException, SQLException {
+        File file = cachedFile(ProductDbHelper.DATABASE_VERSION, size);
+        if (!file.exists()) {
+            File building = temporaryFile();
+            Connection connection = open(building);
+            try {
+                connection.setAutoCommit(false);
+                ProductDbHelper.createSchema(new JdbcSqlExecutor(connection));
+                fill(connection, size);
+                connection.commit();
+            } finally {
+                connection.close();
+            }
+            move(building, file);
+        }
+        return file;
+    }
+
+    /**
+     * Return a database in the given older schema with {@code size} products, built by creating
+     * the first schema and upgrading it with {@link ProductDbHelper#upgradeSchema}.
+     */
+    static File catalog(int version, int size) throws IOException, SQLException {
+        File file = cachedFile(version, size);
+        if (!file.exists()) {
+            File building = temporaryFile();
+            if (version == FIRST_VERSION) {
+                buildFirstVersion(building, size);
+            } else {
+                Files.copy(catalog(FIRST_VERSION, size).toPath(), building.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+                Connection connection = open(building);
+                try {
+                    connection.setAutoCommit(false);
+                    ProductDbHelper.upgradeSchema(new JdbcSqlExecutor(connection), FIRST_VERSION, version);
+                    connection.commit();
+                } finally {
+                    connection.close();
+                }
+            }
+            move(building, file);
+        }
+        return file;
+    }
+
+    /**
+     * Return a copy of a catalog that a benchmark can change, deleted when the JVM exits.
+     */
+    static File copy(File catalog) throws IOException {
+        File copy = temporaryFile();
+        Files.copy(catalog.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        copy.deleteOnExit();
+        new File(copy.getPath() + "-wal").deleteOnExit();
+        new File(copy.getPath() + "-shm").deleteOnExit();
+        return copy;
+    }
+
+    /**
+     * Open a database with the settings the app opens it with.
+     */
+    static Connection open(File file) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        DatabaseConfig config = DatabaseConfig.DEFAULT;
+        JdbcSqlExecutor executor = new JdbcSqlExecutor(connection);
+        if (config.writeAheadLogging) {
+            executor.execSQL("PRAGMA journal_mode = WAL");
+            executor.execSQL("PRAGMA wal_autocheckpoint = " + config.walAutoCheckpointPages);
+        }
+        executor.execSQL("PRAGMA synchronous = " + config.synchronous);
+        executor.execSQL("PRAGMA cache_size = -" + config.cacheSizeKib);
+        return connection;
+    }
+
+    /**
+     * Return the name of product {@code n}, as used when filling catalogs.
+     */
+    static String productName(int n) {
+        return "product " + n;
+    }
+
+    /**
+     * Return the name of the supplier of product {@code n}.
+     */
+    static String supplierName(int n) {
+        return "supplier " + (n % SUPPLIERS);
+    }
+
+    private static void fill(Connection connection, int size) throws SQLException {
+        PreparedStatement suppliers = connection.prepareStatement(ProductDbHelper.SQL_INSERT_SUPPLIER);
+        try {
+            for (int i = 0; i < SUPPLIERS; i++) {
+                suppliers.setString(1, supplierName(i));
+                suppliers.setLong(2, 1000 + i);
+                suppliers.executeUpdate();
+            }
+        } finally {
+            suppliers.close();
+        }
+
+        // The statement ProductProvider uses for bulk inserts, with ids 1 to size as the back
+        // office would give them.
+        PreparedStatement products = connection.prepareStatement(StatementCache.sqlOf(StatementCache.key(
+                StatementCache.INSERT_PRODUCT, StatementCache.ID | StatementCache.NAME | StatementCache.PRICE
+                        | StatementCache.QUANTITY | StatementCache.SUPPLIER_ID)));
+        try {
+            for (int i = 0; i < size; i++) {
+                products.setLong(1, i + 1);
+                products.setString(2, productName(i));
+                products.setLong(3, i % 10000);
+                products.setLong(4, i % 50);
+                products.setLong(5, i % SUPPLIERS + 1);
+                products.executeUpdate();
+            }
+        } finally {
+            products.close();
+        }
+    }
+
+    private static void buildFirstVersion(File file, int size) throws SQLException {
+        Connection connection = open(file);
+        try {
+            connection.setAutoCommit(false);
+            new JdbcSqlExecutor(connection).execSQL("CREATE TABLE products (_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "name TEXT NOT NULL, price TEXT NOT NULL, quantity INTEGER NOT NULL, "
+                    + "supplier INTEGER NOT NULL, supplierPhone INTEGER NOT NULL DEFAULT 0)");
+            PreparedStatement insert = connection.prepareStatement("INSERT INTO products "
+                    + "(name, price, quantity, supplier, supplierPhone) VALUES (?, ?, ?, ?, ?)");
+            try {
+                for (int i = 0; i < size; i++) {
+                    insert.setString(1, productName(i));
+                    int cents = i % 100;
+                    insert.setString(2, (i % 10000) / 100 + (cents < 10 ? ".0" : ".") + cents);
+                    insert.setLong(3, i % 50);
+                    insert.setLong(4, i % SUPPLIERS);
+                    insert.setLong(5, 1000 + i % SUPPLIERS);
+                    insert.executeUpdate();
+                }
+            } finally {
+                insert.close();
+            }
+            connection.commit();
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static File cachedFile(int version, int size) {
+        return new File(DIRECTORY, "catalog-v" + version + "-" + size + ".db");
+    }
+
+    private static File temporaryFile() throws IOException {
+        if (!DIRECTORY.isDirectory() && !DIRECTORY.mkdirs()) {
+            throw new IOException("Could not create " + DIRECTORY);
+        }
+        return File.createTempFile("catalog", ".db", DIRECTORY);
+    }
+
+    private static void move(File source, File target) throws IOException {
+        Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.dimitra.shopapp.Data;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Runs the schema statements of {@link ProductDbHelper} on a JDBC connection.
+ */
+final class JdbcSqlExecutor implements ProductDbHelper.SqlExecutor {
+
+    private final Connection mConnection;
+
+    JdbcSqlExecutor(Connection connection) {
+        mConnection = connection;
+    }
+
+    @Override
+    public void execSQL(String sql) {
+        try {
+            Statement statement = mConnection.createStatement();
+            try {
+                statement.execute(sql);
+            } finally {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to run " + sql, e);
+        }
+    }
+}
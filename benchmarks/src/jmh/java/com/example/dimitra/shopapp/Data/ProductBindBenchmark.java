@@ -0,0 +1,148 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.database.CharArrayBuffer;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+import com.example.dimitra.shopapp.NumberFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work of {@code ProductCursorAdapter.bindProduct} for a page of rows: text columns copied
+ * into the buffers of the row, numbers formatted with {@link NumberFormatter}. Setting the text
+ * on the views needs Android and isn't included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ProductBindBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    /** The buffers of one list row, which every bind reuses. */
+    private final CharArrayBuffer mNameBuffer = new CharArrayBuffer(32);
+    private final CharArrayBuffer mSupplierBuffer = new CharArrayBuffer(32);
+    private final char[] mPriceChars = new char[NumberFormatter.MAX_CENTS_CHARS];
+    private final char[] mQuantityChars = new char[NumberFormatter.MAX_LONG_CHARS];
+
+    /** A page already read from the database, as held by the cursor window. */
+    private final String[] mNames = new String[PAGE_SIZE];
+    private final String[] mSuppliers = new String[PAGE_SIZE];
+    private final long[] mPrices = new long[PAGE_SIZE];
+    private final long[] mQuantities = new long[PAGE_SIZE];
+
+    /**
+     * A catalog of a given size, for binding pages read straight from the database.
+     */
+    @State(Scope.Thread)
+    public static class Catalog {
+
+        @Param({"1000", "10000", "100000", "1000000"})
+        public int size;
+
+        final Random mRandom = new Random(42);
+
+        Connection mConnection;
+
+        PreparedStatement mQueryPage;
+
+        @Setup
+        public void setUp() throws IOException, SQLException {
+            // Only read, so the shared file is opened without copying it.
+            mConnection = CatalogFixture.open(CatalogFixture.catalog(size));
+            mQueryPage = mConnection.prepareStatement("SELECT " + ProductEntry.COLUMN_PRODUCT_NAME + ", "
+                    + ProductEntry.COLUMN_PRODUCT_SUPPLIER + ", " + ProductEntry.COLUMN_PRODUCT_PRICE + ", "
+                    + ProductEntry.COLUMN_PRODUCT_QUANTITY + " FROM " + ProductEntry.DETAILS_VIEW_NAME + " WHERE " + ProductEntry._ID + ">? ORDER BY "
+                    + ProductEntry._ID + " ASC LIMIT " + PAGE_SIZE);
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+            mConnection.close();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            mNames[i] = CatalogFixture.productName(i);
+            mSuppliers[i] = CatalogFixture.supplierName(i);
+            mPrices[i] = i % 10000;
+            mQuantities[i] = i % 50;
+        }
+    }
+
+    /**
+     * Bind a page of rows that is already in memory.
+     */
+    @Benchmark
+    public void bindPage(Blackhole blackhole) {
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            bind(mNames[i], mSuppliers[i], mPrices[i], mQuantities[i], blackhole);
+        }
+    }
+
+    /**
+     * Read a page from a random place in the catalog and bind its rows.
+     */
+    @Benchmark
+    public void queryAndBindPage(Catalog catalog, Blackhole blackhole) throws SQLException {
+        catalog.mQueryPage.setLong(1, catalog.mRandom.nextInt(catalog.size));
+        ResultSet rows = catalog.mQueryPage.executeQuery();
+        try {
+            while (rows.next()) {
+                bind(rows.getString(1), rows.getString(2), rows.getLong(3), rows.getLong(4), blackhole);
+            }
+        } finally {
+            rows.close();
+        }
+    }
+
+    private void bind(String name, String supplier, long price, long quantity, Blackhole blackhole) {
+        copyStringToBuffer(name, mNameBuffer);
+        copyStringToBuffer(supplier, mSupplierBuffer);
+        blackhole.consume(NumberFormatter.formatCents(price, mPriceChars));
+        blackhole.consume(NumberFormatter.format(quantity, mQuantityChars));
+        blackhole.consume(mNameBuffer.data);
+        blackhole.consume(mSupplierBuffer.data);
+    }
+
+    /**
+     * What {@code Cursor.copyStringToBuffer} does with the text of a column.
+     */
+    private static void copyStringToBuffer(String value, CharArrayBuffer buffer) {
+        if (value == null) {
+            buffer.sizeCopied = 0;
+            return;
+        }
+        int length = value.length();
+        if (buffer.data == null || buffer.data.length < length) {
+            buffer.data = new char[length];
+        }
+        value.getChars(0, length, buffer.data, 0);
+        buffer.sizeCopied = length;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.dimitra.shopapp.Data;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+import com.example.dimitra.shopapp.Data.ProductContract.SummaryEntry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes on "/products/#" and "/products", with the statements {@link ProductProvider} runs, in
+ * one transaction each: the totals of the products are taken out of the inventory summary, and
+ * the product is tombstoned or the next generation of the catalog started. Every iteration
+ * starts from the whole catalog, so each one times deleting the same number of live products.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class ProductDeleteBenchmark {
+
+    /** Products deleted one by one in each iteration of {@link #deleteProduct}. */
+    private static final int DELETES_PER_ITERATION = 500;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private Connection mConnection;
+
+    private JdbcSqlExecutor mExecutor;
+
+    private PreparedStatement mSumProduct;
+    private PreparedStatement mReadSummary;
+    private PreparedStatement mSubtractFromSummary;
+    private PreparedStatement mMarkDeleted;
+
+    private long mNextId;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        mConnection = CatalogFixture.open(CatalogFixture.copy(CatalogFixture.catalog(size)));
+        mConnection.setAutoCommit(false);
+        mExecutor = new JdbcSqlExecutor(mConnection);
+        mSumProduct = mConnection.prepareStatement(ProductDbHelper.SQL_SUM_PRODUCTS + " WHERE "
+                + ProductDbHelper.SQL_SELECT_LIVE_PRODUCT);
+        mReadSummary = mConnection.prepareStatement(ProductDbHelper.SQL_READ_SUMMARY);
+        mSubtractFromSummary = mConnection.prepareStatement(ProductDbHelper.SQL_SUBTRACT_FROM_SUMMARY);
+        mMarkDeleted = mConnection.prepareStatement(StatementCache.sqlOf(StatementCache.key(
+                StatementCache.UPDATE_PRODUCT, StatementCache.DELETED_AT)));
+    }
+
+    /**
+     * Bring back every deleted product and recompute the summary, so the next iteration deletes
+     * from the whole catalog again. None of the writes is logged or counted by the triggers.
+     */
+    @Setup(Level.Iteration)
+    public void restoreProducts() throws SQLException {
+        mExecutor.execSQL("UPDATE " + ProductEntry.TABLE_NAME + " SET "
+                + ProductEntry.COLUMN_PRODUCT_DELETED_AT + " = NULL WHERE "
+                + ProductEntry.COLUMN_PRODUCT_DELETED_AT + " IS NOT NULL");
+        mExecutor.execSQL("UPDATE " + ProductDbHelper.CATALOG_STATE_TABLE + " SET "
+                + ProductDbHelper.COLUMN_GENERATION + " = 0");
+        mExecutor.execSQL("DELETE FROM " + SummaryEntry.TABLE_NAME);
+        mExecutor.execSQL("INSERT INTO " + SummaryEntry.TABLE_NAME + " SELECT " + SummaryEntry.SUMMARY_ID
+                + ", * FROM (" + ProductDbHelper.SQL_COMPUTE_INVENTORY_SUMMARY + ")");
+        mConnection.commit();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        mConnection.close();
+    }
+
+    /**
+     * Delete {@link #DELETES_PER_ITERATION} products through "/products/#", each in its own
+     * transaction.
+     */
+    @Benchmark
+    @Warmup(iterations = 3, batchSize = DELETES_PER_ITERATION)
+    @Measurement(iterations = 10, batchSize = DELETES_PER_ITERATION)
+    public int deleteProduct() throws SQLException {
+        long id = mNextId % size + 1;
+        mNextId++;
+        mSumProduct.setLong(1, id);
+        return delete(mSumProduct, id);
+    }
+
+    /**
+     * Delete the whole catalog through "/products", which reads its totals from the summary
+     * and starts the next generation instead of tombstoning each product.
+     */
+    @Benchmark
+    public int deleteAllProducts() throws SQLException {
+        return delete(mReadSummary, -1);
+    }
+
+    /**
+     * Take the totals read by the given query out of the summary, then tombstone the product
+     * with the given id, or start the next generation if it is -1.
+     */
+    private int delete(PreparedStatement totals, long id) throws SQLException {
+        try {
+            ResultSet row = totals.executeQuery();
+            long count;
+            try {
+                row.next();
+                count = row.getLong(1);
+                for (int i = 1; i <= 4; i++) {
+                    mSubtractFromSummary.setLong(i, row.getLong(i));
+                }
+            } finally {
+                row.close();
+            }
+
+            int deleted = 0;
+            if (count != 0) {
+                mSubtractFromSummary.executeUpdate();
+                if (id == -1) {
+                    mExecutor.execSQL(ProductDbHelper.SQL_START_GENERATION);
+                    deleted = (int) count;
+                } else {
+                    mMarkDeleted.setLong(1, System.currentTimeMillis());
+                    mMarkDeleted.setLong(2, id);
+                    deleted = mMarkDeleted.executeUpdate();
+                }
+            }
+            mConnection.commit();
+            return deleted;
+        } catch (SQLException e) {
+            mConnection.rollback();
+            throw e;
+        }
+    }
+}
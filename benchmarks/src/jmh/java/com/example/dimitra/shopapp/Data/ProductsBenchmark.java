@@ -0,0 +1,218 @@
+package com.example.dimitra.shopapp.Data;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries, inserts and updates on "/products" and "/products/#", as {@link ProductProvider} runs
+ * them: each write in its own transaction, with every trigger of the schema firing. Deletes are
+ * in {@link ProductDeleteBenchmark}.
+ *
+ * The writes run the statements of the provider, taken from {@link ProductDbHelper} and
+ * {@link StatementCache}. The queries are SQL-level approximations: the provider builds them
+ * with {@code SQLiteQueryBuilder} and may answer "/products/#" from its {@link ProductCache}, so
+ * they are written out here as that SQL, and always read the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ProductsBenchmark {
+
+    /** Rows in a page of the catalog, as loaded by the catalog screen. */
+    private static final int PAGE_SIZE = 50;
+
+    private static final String COLUMNS = ProductEntry._ID + ", " + ProductEntry.COLUMN_PRODUCT_NAME + ", "
+            + ProductEntry.COLUMN_PRODUCT_PRICE + ", " + ProductEntry.COLUMN_PRODUCT_QUANTITY + ", "
+            + ProductEntry.COLUMN_PRODUCT_SUPPLIER + ", " + ProductEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private final Random mRandom = new Random(42);
+
+    private Connection mConnection;
+
+    private PreparedStatement mQueryPage;
+    private PreparedStatement mQueryProduct;
+    private PreparedStatement mFindSupplier;
+    private PreparedStatement mUpdateSupplierPhone;
+    private PreparedStatement mSelectNextLocalId;
+    private PreparedStatement mReserveLocalIds;
+    private PreparedStatement mInsertProduct;
+    private PreparedStatement mUpdateProduct;
+    private PreparedStatement mUpdateSupplierProducts;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        mConnection = CatalogFixture.open(CatalogFixture.copy(CatalogFixture.catalog(size)));
+        mQueryPage = mConnection.prepareStatement("SELECT " + COLUMNS + " FROM "
+                + ProductEntry.DETAILS_VIEW_NAME + " WHERE " + ProductEntry._ID + ">? ORDER BY "
+                + ProductEntry._ID + " ASC LIMIT " + PAGE_SIZE);
+        mQueryProduct = mConnection.prepareStatement("SELECT " + COLUMNS + " FROM "
+                + ProductEntry.DETAILS_VIEW_NAME + " WHERE " + ProductEntry._ID + "=?");
+        mFindSupplier = mConnection.prepareStatement(ProductDbHelper.SQL_FIND_SUPPLIER);
+        mUpdateSupplierPhone = mConnection.prepareStatement(ProductDbHelper.SQL_UPDATE_SUPPLIER_PHONE);
+        mSelectNextLocalId = mConnection.prepareStatement(ProductDbHelper.SQL_SELECT_NEXT_LOCAL_ID);
+        mReserveLocalIds = mConnection.prepareStatement(ProductDbHelper.SQL_RESERVE_LOCAL_IDS);
+        mInsertProduct = mConnection.prepareStatement(StatementCache.sqlOf(StatementCache.key(
+                StatementCache.INSERT_PRODUCT, StatementCache.ID | StatementCache.NAME | StatementCache.PRICE
+                        | StatementCache.QUANTITY | StatementCache.SUPPLIER_ID)));
+        mUpdateProduct = mConnection.prepareStatement(StatementCache.sqlOf(StatementCache.key(
+                StatementCache.UPDATE_PRODUCT, StatementCache.QUANTITY)));
+        // What SQLiteDatabase.update runs for a selection on "/products".
+        mUpdateSupplierProducts = mConnection.prepareStatement("UPDATE " + ProductEntry.TABLE_NAME + " SET "
+                + ProductEntry.COLUMN_PRODUCT_PRICE + "=? WHERE "
+                + ProductDbHelper.toProductSelection(ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID + "=?"));
+        mConnection.setAutoCommit(false);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        mConnection.close();
+    }
+
+    /**
+     * A page of "/products" from a random place in the catalog, read by id like the catalog
+     * screen reads it.
+     */
+    @Benchmark
+    public void queryPage(Blackhole blackhole) throws SQLException {
+        mQueryPage.setLong(1, mRandom.nextInt(size));
+        readAll(mQueryPage, blackhole);
+    }
+
+    /**
+     * "/products/#" for a random product.
+     */
+    @Benchmark
+    public void queryProduct(Blackhole blackhole) throws SQLException {
+        mQueryProduct.setLong(1, randomId());
+        readAll(mQueryProduct, blackhole);
+    }
+
+    /**
+     * A new product of an existing supplier on "/products": the supplier is looked up by name
+     * and its phone rewritten, then the product inserted with an id of the range of the device.
+     */
+    @Benchmark
+    public void insertProduct() throws SQLException {
+        int n = mRandom.nextInt(size);
+        try {
+            mFindSupplier.setString(1, CatalogFixture.supplierName(n));
+            long supplierId;
+            ResultSet supplier = mFindSupplier.executeQuery();
+            try {
+                supplier.next();
+                supplierId = supplier.getLong(1);
+            } finally {
+                supplier.close();
+            }
+            mUpdateSupplierPhone.setLong(1, 1000 + n % CatalogFixture.SUPPLIERS);
+            mUpdateSupplierPhone.setLong(2, supplierId);
+            mUpdateSupplierPhone.executeUpdate();
+
+            long id;
+            ResultSet nextLocalId = mSelectNextLocalId.executeQuery();
+            try {
+                nextLocalId.next();
+                id = nextLocalId.getLong(1);
+            } finally {
+                nextLocalId.close();
+            }
+            mReserveLocalIds.setLong(1, 1);
+            mReserveLocalIds.executeUpdate();
+
+            mInsertProduct.setLong(1, id);
+            mInsertProduct.setString(2, CatalogFixture.productName(n));
+            mInsertProduct.setLong(3, n % 10000);
+            mInsertProduct.setLong(4, n % 50);
+            mInsertProduct.setLong(5, supplierId);
+            mInsertProduct.executeUpdate();
+            mConnection.commit();
+        } catch (SQLException e) {
+            mConnection.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * A new quantity for a random product on "/products/#".
+     */
+    @Benchmark
+    public int updateProduct() throws SQLException {
+        mUpdateProduct.setLong(1, mRandom.nextInt(50));
+        mUpdateProduct.setLong(2, randomId());
+        return commit(mUpdateProduct);
+    }
+
+    /**
+     * A new price for every product of a random supplier on "/products" with a selection, which
+     * changes one product out of every {@link CatalogFixture#SUPPLIERS}.
+     */
+    @Benchmark
+    public int updateSupplierProducts() throws SQLException {
+        mUpdateSupplierProducts.setLong(1, mRandom.nextInt(10000));
+        mUpdateSupplierProducts.setLong(2, mRandom.nextInt(CatalogFixture.SUPPLIERS) + 1);
+        return commit(mUpdateSupplierProducts);
+    }
+
+    private long randomId() {
+        return mRandom.nextInt(size) + 1;
+    }
+
+    private int commit(PreparedStatement statement) throws SQLException {
+        try {
+            int rows = statement.executeUpdate();
+            mConnection.commit();
+            return rows;
+        } catch (SQLException e) {
+            mConnection.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Run a query and read every column of its rows. The transaction it started is ended, as
+     * Android does for every query outside a transaction.
+     */
+    private void readAll(PreparedStatement query, Blackhole blackhole) throws SQLException {
+        ResultSet rows = query.executeQuery();
+        try {
+            while (rows.next()) {
+                blackhole.consume(rows.getLong(1));
+                blackhole.consume(rows.getString(2));
+                blackhole.consume(rows.getLong(3));
+                blackhole.consume(rows.getLong(4));
+                blackhole.consume(rows.getString(5));
+                blackhole.consume(rows.getLong(6));
+            }
+        } finally {
+            rows.close();
+            mConnection.commit();
+        }
+    }
+}
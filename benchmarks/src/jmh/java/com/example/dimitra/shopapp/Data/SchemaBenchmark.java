@@ -0,0 +1,120 @@
+package com.example.dimitra.shopapp.Data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProductDbHelper#onCreate} and {@link ProductDbHelper#onUpgrade}: the schema created on a
+ * fresh install, and a catalog of a given size upgraded from the first version and from the one
+ * before the current one. Each run times a single create or upgrade in one transaction, as
+ * SQLiteOpenHelper runs it.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class SchemaBenchmark {
+
+    /**
+     * An empty database in memory.
+     */
+    @State(Scope.Thread)
+    public static class EmptyDatabase {
+
+        Connection mConnection;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws SQLException {
+            mConnection = DriverManager.getConnection("jdbc:sqlite::memory:");
+            mConnection.setAutoCommit(false);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws SQLException {
+            mConnection.close();
+        }
+    }
+
+    /**
+     * A fresh copy of a catalog in an older schema, for every iteration.
+     */
+    public abstract static class OldCatalog {
+
+        @Param({"1000", "10000", "100000", "1000000"})
+        public int size;
+
+        Connection mConnection;
+
+        /** Return the schema version of the catalog. */
+        abstract int version();
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException, SQLException {
+            mConnection = CatalogFixture.open(CatalogFixture.copy(CatalogFixture.catalog(version(), size)));
+            mConnection.setAutoCommit(false);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws SQLException {
+            mConnection.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FirstVersionCatalog extends OldCatalog {
+
+        @Override
+        int version() {
+            return 1;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PreviousVersionCatalog extends OldCatalog {
+
+        @Override
+        int version() {
+            return ProductDbHelper.DATABASE_VERSION - 1;
+        }
+    }
+
+    @Benchmark
+    public void createSchema(EmptyDatabase database) throws SQLException {
+        ProductDbHelper.createSchema(new JdbcSqlExecutor(database.mConnection));
+        database.mConnection.commit();
+    }
+
+    @Benchmark
+    public void upgradeFromFirstVersion(FirstVersionCatalog catalog) throws SQLException {
+        upgrade(catalog);
+    }
+
+    @Benchmark
+    public void upgradeFromPreviousVersion(PreviousVersionCatalog catalog) throws SQLException {
+        upgrade(catalog);
+    }
+
+    private static void upgrade(OldCatalog catalog) throws SQLException {
+        ProductDbHelper.upgradeSchema(new JdbcSqlExecutor(catalog.mConnection), catalog.version(),
+                ProductDbHelper.DATABASE_VERSION);
+        catalog.mConnection.commit();
+    }
+}
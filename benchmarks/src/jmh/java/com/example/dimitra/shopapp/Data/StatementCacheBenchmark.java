@@ -0,0 +1,189 @@
+package com.example.dimitra.shopapp.Data;
+
+import android.content.ContentValues;
+import android.util.SparseArray;
+
+import com.example.dimitra.shopapp.Data.ProductContract.ProductEntry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-product writes as {@link ProductProvider} ran them before {@link StatementCache}, and as
+ * it runs them with it. The first build their SQL from the {@link ContentValues} of the caller and
+ * compile it for every write, like {@code SQLiteDatabase.insert} and {@code update}; the second
+ * look up a compiled statement by the columns written and bind the values to it in place.
+ *
+ * Run with {@code -PjmhProfilers=gc} to see the garbage of each write next to its time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StatementCacheBenchmark {
+
+    private static final int SIZE = 10000;
+
+    private final Random mRandom = new Random(42);
+
+    /** The values of the next write, changed in place like a caller filling them in. */
+    private final ContentValues mValues = new ContentValues();
+
+    private final SparseArray<PreparedStatement> mStatements = new SparseArray<>();
+
+    private Connection mConnection;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        mConnection = CatalogFixture.open(CatalogFixture.copy(CatalogFixture.catalog(SIZE)));
+        mConnection.setAutoCommit(false);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        for (int i = 0; i < mStatements.size(); i++) {
+            mStatements.valueAt(i).close();
+        }
+        mConnection.close();
+    }
+
+    /**
+     * A new product on "/products", copied into new values and written by new SQL.
+     */
+    @Benchmark
+    public int insertBuildingSql() throws SQLException {
+        newProductValues();
+        ContentValues productValues = new ContentValues(mValues);
+        StringBuilder sql = new StringBuilder();
+        sql.append("INSERT INTO ").append(ProductEntry.TABLE_NAME).append('(');
+        Object[] bindArgs = new Object[productValues.size()];
+        int i = 0;
+        for (String column : productValues.keySet()) {
+            sql.append(i > 0 ? "," : "").append(column);
+            bindArgs[i++] = productValues.get(column);
+        }
+        sql.append(") VALUES (");
+        for (i = 0; i < bindArgs.length; i++) {
+            sql.append(i > 0 ? ",?" : "?");
+        }
+        sql.append(')');
+        return executeOnce(sql.toString(), bindArgs);
+    }
+
+    /**
+     * The same insert through the statement kept for its columns.
+     */
+    @Benchmark
+    public int insertCachedStatement() throws SQLException {
+        newProductValues();
+        return executeCached(StatementCache.INSERT_PRODUCT, -1);
+    }
+
+    /**
+     * A new quantity for a random product on "/products/#", written by new SQL.
+     */
+    @Benchmark
+    public int updateBuildingSql() throws SQLException {
+        long id = newQuantity();
+        ContentValues productValues = new ContentValues(mValues);
+        StringBuilder sql = new StringBuilder(120);
+        sql.append("UPDATE ").append(ProductEntry.TABLE_NAME).append(" SET ");
+        Object[] bindArgs = new Object[productValues.size() + 1];
+        int i = 0;
+        for (String column : productValues.keySet()) {
+            sql.append(i > 0 ? "," : "").append(column).append("=?");
+            bindArgs[i++] = productValues.get(column);
+        }
+        bindArgs[i] = String.valueOf(id);
+        sql.append(" WHERE ").append(ProductEntry._ID).append("=? AND ").append(ProductDbHelper.LIVE_PRODUCTS);
+        return executeOnce(sql.toString(), bindArgs);
+    }
+
+    /**
+     * The same update through the statement kept for its columns.
+     */
+    @Benchmark
+    public int updateCachedStatement() throws SQLException {
+        long id = newQuantity();
+        return executeCached(StatementCache.UPDATE_PRODUCT, id);
+    }
+
+    private void newProductValues() {
+        int n = mRandom.nextInt(SIZE);
+        mValues.clear();
+        mValues.put(ProductEntry.COLUMN_PRODUCT_NAME, CatalogFixture.productName(n));
+        mValues.put(ProductEntry.COLUMN_PRODUCT_PRICE, n % 10000);
+        mValues.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, n % 50);
+        mValues.put(ProductEntry.COLUMN_PRODUCT_SUPPLIER_ID, n % CatalogFixture.SUPPLIERS + 1);
+    }
+
+    private long newQuantity() {
+        mValues.clear();
+        mValues.put(ProductEntry.COLUMN_PRODUCT_QUANTITY, mRandom.nextInt(50));
+        return mRandom.nextInt(SIZE) + 1;
+    }
+
+    private int executeOnce(String sql, Object[] bindArgs) throws SQLException {
+        PreparedStatement statement = mConnection.prepareStatement(sql);
+        try {
+            for (int i = 0; i < bindArgs.length; i++) {
+                statement.setObject(i + 1, bindArgs[i]);
+            }
+            return commit(statement);
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Run the statement of the given operation for the columns of {@link #mValues}, followed by
+     * the given id unless it is -1.
+     */
+    private int executeCached(int operation, long id) throws SQLException {
+        int columns = StatementCache.columnsOf(mValues);
+        int key = StatementCache.key(operation, columns);
+        PreparedStatement statement = mStatements.get(key);
+        if (statement == null) {
+            statement = mConnection.prepareStatement(StatementCache.sqlOf(key));
+            mStatements.put(key, statement);
+        }
+        int index = 1;
+        for (int remaining = columns; remaining != 0; remaining &= remaining - 1) {
+            int column = Integer.numberOfTrailingZeros(remaining);
+            statement.setObject(index++, mValues.get(StatementCache.COLUMNS[column]));
+        }
+        if (id != -1) {
+            statement.setLong(index, id);
+        }
+        return commit(statement);
+    }
+
+    private int commit(PreparedStatement statement) throws SQLException {
+        try {
+            int rows = statement.executeUpdate();
+            mConnection.commit();
+            return rows;
+        } catch (SQLException e) {
+            mConnection.rollback();
+            throw e;
+        }
+    }
+}